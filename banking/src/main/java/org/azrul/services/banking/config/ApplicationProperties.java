@@ -2,6 +2,10 @@ package org.azrul.services.banking.config;
 
 import org.springframework.boot.context.properties.ConfigurationProperties;
 
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
 /**
  * Properties specific to Banking.
  * <p>
@@ -11,4 +15,806 @@ import org.springframework.boot.context.properties.ConfigurationProperties;
 @ConfigurationProperties(prefix = "application", ignoreUnknownFields = false)
 public class ApplicationProperties {
 
+    private final Security security = new Security();
+
+    private final BulkImport bulkImport = new BulkImport();
+
+    private final Cache cache = new Cache();
+
+    private final Idempotency idempotency = new Idempotency();
+
+    private final TransactionPartitioning transactionPartitioning = new TransactionPartitioning();
+
+    private final Outbox outbox = new Outbox();
+
+    private final ReadReplicas readReplicas = new ReadReplicas();
+
+    private final CustomerLookup customerLookup = new CustomerLookup();
+
+    private final TransactionTotals transactionTotals = new TransactionTotals();
+
+    private final BalanceShards balanceShards = new BalanceShards();
+
+    private final Velocity velocity = new Velocity();
+
+    private final AsyncRequests asyncRequests = new AsyncRequests();
+
+    private final StatementMetrics statementMetrics = new StatementMetrics();
+
+    public Security getSecurity() {
+        return security;
+    }
+
+    public BulkImport getBulkImport() {
+        return bulkImport;
+    }
+
+    public Cache getCache() {
+        return cache;
+    }
+
+    public Idempotency getIdempotency() {
+        return idempotency;
+    }
+
+    public TransactionPartitioning getTransactionPartitioning() {
+        return transactionPartitioning;
+    }
+
+    public Outbox getOutbox() {
+        return outbox;
+    }
+
+    public ReadReplicas getReadReplicas() {
+        return readReplicas;
+    }
+
+    public CustomerLookup getCustomerLookup() {
+        return customerLookup;
+    }
+
+    public TransactionTotals getTransactionTotals() {
+        return transactionTotals;
+    }
+
+    public BalanceShards getBalanceShards() {
+        return balanceShards;
+    }
+
+    public Velocity getVelocity() {
+        return velocity;
+    }
+
+    public AsyncRequests getAsyncRequests() {
+        return asyncRequests;
+    }
+
+    public StatementMetrics getStatementMetrics() {
+        return statementMetrics;
+    }
+
+    /**
+     * Latency and row counts of the SQL statements by fingerprint, see StatementMetricsDataSource.
+     */
+    public static class StatementMetrics {
+
+        private boolean enabled = true;
+
+        /**
+         * The statements taking longer are logged to the "slow-queries" logger, 0 to log none.
+         */
+        private long slowThresholdMs = 500;
+
+        /**
+         * False to log the values of the bind parameters of the slow statements, instead of their types.
+         */
+        private boolean redactParameters = true;
+
+        /**
+         * The number of fingerprints tracked, beyond which the new ones are counted together.
+         */
+        private int maxFingerprints = 500;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public long getSlowThresholdMs() {
+            return slowThresholdMs;
+        }
+
+        public void setSlowThresholdMs(long slowThresholdMs) {
+            this.slowThresholdMs = slowThresholdMs;
+        }
+
+        public boolean isRedactParameters() {
+            return redactParameters;
+        }
+
+        public void setRedactParameters(boolean redactParameters) {
+            this.redactParameters = redactParameters;
+        }
+
+        public int getMaxFingerprints() {
+            return maxFingerprints;
+        }
+
+        public void setMaxFingerprints(int maxFingerprints) {
+            this.maxFingerprints = maxFingerprints;
+        }
+    }
+
+    /**
+     * Executor of the REST requests answered asynchronously, see RequestExecutor.
+     */
+    public static class AsyncRequests {
+
+        /**
+         * False to execute the requests on the server threads, as the test transactions require.
+         */
+        private boolean enabled = false;
+
+        /**
+         * The number of threads, 0 for jhipster.async.max-pool-size.
+         */
+        private int poolSize = 0;
+
+        private int queueCapacity = 200;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public int getPoolSize() {
+            return poolSize;
+        }
+
+        public void setPoolSize(int poolSize) {
+            this.poolSize = poolSize;
+        }
+
+        public int getQueueCapacity() {
+            return queueCapacity;
+        }
+
+        public void setQueueCapacity(int queueCapacity) {
+            this.queueCapacity = queueCapacity;
+        }
+    }
+
+    /**
+     * Limits on the outgoing transactions of an account over sliding windows, see TransactionVelocity.
+     */
+    public static class Velocity {
+
+        private final Limit minute = new Limit();
+
+        private final Limit hour = new Limit();
+
+        private final Limit day = new Limit();
+
+        public Limit getMinute() {
+            return minute;
+        }
+
+        public Limit getHour() {
+            return hour;
+        }
+
+        public Limit getDay() {
+            return day;
+        }
+
+        /**
+         * The limits of a window, 0 for no limit.
+         */
+        public static class Limit {
+
+            private int maxCount = 0;
+
+            private BigDecimal maxAmount = BigDecimal.ZERO;
+
+            public int getMaxCount() {
+                return maxCount;
+            }
+
+            public void setMaxCount(int maxCount) {
+                this.maxCount = maxCount;
+            }
+
+            public BigDecimal getMaxAmount() {
+                return maxAmount;
+            }
+
+            public void setMaxAmount(BigDecimal maxAmount) {
+                this.maxAmount = maxAmount;
+            }
+        }
+    }
+
+    /**
+     * Balances of hot accounts split over several rows, see BalanceShardService.
+     */
+    public static class BalanceShards {
+
+        private int maxShards = 64;
+
+        /**
+         * The number of shards a debit tries alone, before locking all the shards of the account.
+         */
+        private int debitAttempts = 2;
+
+        /**
+         * The delay after which the other instances know the accounts sharded or unsharded by one.
+         */
+        private long refreshIntervalMs = 10000;
+
+        private long rebalanceIntervalMs = 60000;
+
+        public int getMaxShards() {
+            return maxShards;
+        }
+
+        public void setMaxShards(int maxShards) {
+            this.maxShards = maxShards;
+        }
+
+        public int getDebitAttempts() {
+            return debitAttempts;
+        }
+
+        public void setDebitAttempts(int debitAttempts) {
+            this.debitAttempts = debitAttempts;
+        }
+
+        public long getRefreshIntervalMs() {
+            return refreshIntervalMs;
+        }
+
+        public void setRefreshIntervalMs(long refreshIntervalMs) {
+            this.refreshIntervalMs = refreshIntervalMs;
+        }
+
+        public long getRebalanceIntervalMs() {
+            return rebalanceIntervalMs;
+        }
+
+        public void setRebalanceIntervalMs(long rebalanceIntervalMs) {
+            this.rebalanceIntervalMs = rebalanceIntervalMs;
+        }
+    }
+
+    /**
+     * Daily totals of the transactions by currency and type, see TransactionTotalService.
+     */
+    public static class TransactionTotals {
+
+        /**
+         * The number of rows each daily total is spread over, so that concurrent transactions rarely wait for
+         * each other to update the same row.
+         */
+        private int slots = 4;
+
+        /**
+         * The number of days rebuilt at the same time.
+         */
+        private int rebuildParallelism = 4;
+
+        public int getSlots() {
+            return slots;
+        }
+
+        public void setSlots(int slots) {
+            this.slots = slots;
+        }
+
+        public int getRebuildParallelism() {
+            return rebuildParallelism;
+        }
+
+        public void setRebuildParallelism(int rebuildParallelism) {
+            this.rebuildParallelism = rebuildParallelism;
+        }
+    }
+
+    /**
+     * Cache of the customer lookups by CIF, IC and phone number, evicted when a customer is saved or deleted.
+     */
+    public static class CustomerLookup {
+
+        private int cacheTimeToLiveSeconds = 30;
+
+        private int cacheMaxSize = 10000;
+
+        public int getCacheTimeToLiveSeconds() {
+            return cacheTimeToLiveSeconds;
+        }
+
+        public void setCacheTimeToLiveSeconds(int cacheTimeToLiveSeconds) {
+            this.cacheTimeToLiveSeconds = cacheTimeToLiveSeconds;
+        }
+
+        public int getCacheMaxSize() {
+            return cacheMaxSize;
+        }
+
+        public void setCacheMaxSize(int cacheMaxSize) {
+            this.cacheMaxSize = cacheMaxSize;
+        }
+    }
+
+    /**
+     * Read replicas serving the read-only transactions, see ReadReplicaConfiguration.
+     */
+    public static class ReadReplicas {
+
+        private boolean enabled = false;
+
+        /**
+         * The replication lag above which a replica is not used, until it catches up.
+         */
+        private long maxLagSeconds = 10;
+
+        private long lagCheckIntervalMs = 5000;
+
+        /**
+         * The query returning the replication lag of a replica, in seconds. By default, the age of the last
+         * replayed transaction on PostgreSQL, or 0 when all the received WAL is replayed.
+         */
+        private String lagQuery = "select case when pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn() then 0 " +
+            "else extract(epoch from now() - pg_last_xact_replay_timestamp()) end";
+
+        private List<Replica> replicas = new ArrayList<>();
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public long getMaxLagSeconds() {
+            return maxLagSeconds;
+        }
+
+        public void setMaxLagSeconds(long maxLagSeconds) {
+            this.maxLagSeconds = maxLagSeconds;
+        }
+
+        public long getLagCheckIntervalMs() {
+            return lagCheckIntervalMs;
+        }
+
+        public void setLagCheckIntervalMs(long lagCheckIntervalMs) {
+            this.lagCheckIntervalMs = lagCheckIntervalMs;
+        }
+
+        public String getLagQuery() {
+            return lagQuery;
+        }
+
+        public void setLagQuery(String lagQuery) {
+            this.lagQuery = lagQuery;
+        }
+
+        public List<Replica> getReplicas() {
+            return replicas;
+        }
+
+        public void setReplicas(List<Replica> replicas) {
+            this.replicas = replicas;
+        }
+
+        public static class Replica {
+
+            private String url;
+
+            private String username;
+
+            private String password;
+
+            private int maximumPoolSize = 10;
+
+            public String getUrl() {
+                return url;
+            }
+
+            public void setUrl(String url) {
+                this.url = url;
+            }
+
+            public String getUsername() {
+                return username;
+            }
+
+            public void setUsername(String username) {
+                this.username = username;
+            }
+
+            public String getPassword() {
+                return password;
+            }
+
+            public void setPassword(String password) {
+                this.password = password;
+            }
+
+            public int getMaximumPoolSize() {
+                return maximumPoolSize;
+            }
+
+            public void setMaximumPoolSize(int maximumPoolSize) {
+                this.maximumPoolSize = maximumPoolSize;
+            }
+        }
+    }
+
+    /**
+     * Transactional outbox of the changes of the banking entities, see OutboxRelay.
+     */
+    public static class Outbox {
+
+        private boolean relayEnabled = false;
+
+        private int batchSize = 500;
+
+        private long pollIntervalMs = 1000;
+
+        private final File file = new File();
+
+        private final Http http = new Http();
+
+        public boolean isRelayEnabled() {
+            return relayEnabled;
+        }
+
+        public void setRelayEnabled(boolean relayEnabled) {
+            this.relayEnabled = relayEnabled;
+        }
+
+        public int getBatchSize() {
+            return batchSize;
+        }
+
+        public void setBatchSize(int batchSize) {
+            this.batchSize = batchSize;
+        }
+
+        public long getPollIntervalMs() {
+            return pollIntervalMs;
+        }
+
+        public void setPollIntervalMs(long pollIntervalMs) {
+            this.pollIntervalMs = pollIntervalMs;
+        }
+
+        public File getFile() {
+            return file;
+        }
+
+        public Http getHttp() {
+            return http;
+        }
+
+        /**
+         * The FileOutboxEventSink, enabled when the path is set.
+         */
+        public static class File {
+
+            private String path;
+
+            public String getPath() {
+                return path;
+            }
+
+            public void setPath(String path) {
+                this.path = path;
+            }
+        }
+
+        /**
+         * The HttpOutboxEventSink, enabled when the url is set.
+         */
+        public static class Http {
+
+            private String url;
+
+            private int connectTimeoutMs = 2000;
+
+            private int readTimeoutMs = 10000;
+
+            public String getUrl() {
+                return url;
+            }
+
+            public void setUrl(String url) {
+                this.url = url;
+            }
+
+            public int getConnectTimeoutMs() {
+                return connectTimeoutMs;
+            }
+
+            public void setConnectTimeoutMs(int connectTimeoutMs) {
+                this.connectTimeoutMs = connectTimeoutMs;
+            }
+
+            public int getReadTimeoutMs() {
+                return readTimeoutMs;
+            }
+
+            public void setReadTimeoutMs(int readTimeoutMs) {
+                this.readTimeoutMs = readTimeoutMs;
+            }
+        }
+    }
+
+    /**
+     * Monthly partitions of the transaction table, see TransactionPartitionJob.
+     */
+    public static class TransactionPartitioning {
+
+        private boolean enabled = false;
+
+        /**
+         * The number of months after the current one whose partitions are created in advance.
+         */
+        private int premakeMonths = 3;
+
+        /**
+         * The number of months before the current one kept in the transaction table, 0 to keep them all.
+         */
+        private int retentionMonths = 0;
+
+        /**
+         * The schema where the expired partitions are moved, or empty to drop them.
+         */
+        private String archiveSchema;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public int getPremakeMonths() {
+            return premakeMonths;
+        }
+
+        public void setPremakeMonths(int premakeMonths) {
+            this.premakeMonths = premakeMonths;
+        }
+
+        public int getRetentionMonths() {
+            return retentionMonths;
+        }
+
+        public void setRetentionMonths(int retentionMonths) {
+            this.retentionMonths = retentionMonths;
+        }
+
+        public String getArchiveSchema() {
+            return archiveSchema;
+        }
+
+        public void setArchiveSchema(String archiveSchema) {
+            this.archiveSchema = archiveSchema;
+        }
+    }
+
+    /**
+     * Idempotent creation of transactions, keyed on their transactionId.
+     */
+    public static class Idempotency {
+
+        /**
+         * The number of recently created transactions kept in memory, to answer retries without a database read.
+         */
+        private int recentKeysSize = 10000;
+
+        public int getRecentKeysSize() {
+            return recentKeysSize;
+        }
+
+        public void setRecentKeysSize(int recentKeysSize) {
+            this.recentKeysSize = recentKeysSize;
+        }
+    }
+
+    /**
+     * Hibernate second-level cache, see CacheConfiguration.
+     */
+    public static class Cache {
+
+        private List<Region> regions = new ArrayList<>();
+
+        public List<Region> getRegions() {
+            return regions;
+        }
+
+        public void setRegions(List<Region> regions) {
+            this.regions = regions;
+        }
+
+        /**
+         * The bounds of a cache region, named after its entity class, or its entity class and collection
+         * property for a collection region.
+         */
+        public static class Region {
+
+            private String name;
+
+            private int timeToLiveSeconds = 3600;
+
+            private int maxSize = 10000;
+
+            public String getName() {
+                return name;
+            }
+
+            public void setName(String name) {
+                this.name = name;
+            }
+
+            public int getTimeToLiveSeconds() {
+                return timeToLiveSeconds;
+            }
+
+            public void setTimeToLiveSeconds(int timeToLiveSeconds) {
+                this.timeToLiveSeconds = timeToLiveSeconds;
+            }
+
+            public int getMaxSize() {
+                return maxSize;
+            }
+
+            public void setMaxSize(int maxSize) {
+                this.maxSize = maxSize;
+            }
+        }
+    }
+
+    /**
+     * Bulk import of transactions, which are saved in chunks, one database transaction per chunk.
+     */
+    public static class BulkImport {
+
+        private int chunkSize = 1000;
+
+        public int getChunkSize() {
+            return chunkSize;
+        }
+
+        public void setChunkSize(int chunkSize) {
+            this.chunkSize = chunkSize;
+        }
+    }
+
+    public static class Security {
+
+        private final Jwt jwt = new Jwt();
+
+        private final UserInfoCache userInfoCache = new UserInfoCache();
+
+        public Jwt getJwt() {
+            return jwt;
+        }
+
+        public UserInfoCache getUserInfoCache() {
+            return userInfoCache;
+        }
+
+        /**
+         * Local validation of JWT access tokens, instead of calling the user-info-uri on every request.
+         */
+        public static class Jwt {
+
+            private boolean enabled = false;
+
+            private String jwkSetUri;
+
+            private String issuer;
+
+            private long jwkRefreshIntervalSeconds = 300;
+
+            private long jwkMinRefreshIntervalSeconds = 30;
+
+            private long allowedClockSkewSeconds = 30;
+
+            public boolean isEnabled() {
+                return enabled;
+            }
+
+            public void setEnabled(boolean enabled) {
+                this.enabled = enabled;
+            }
+
+            public String getJwkSetUri() {
+                return jwkSetUri;
+            }
+
+            public void setJwkSetUri(String jwkSetUri) {
+                this.jwkSetUri = jwkSetUri;
+            }
+
+            public String getIssuer() {
+                return issuer;
+            }
+
+            public void setIssuer(String issuer) {
+                this.issuer = issuer;
+            }
+
+            public long getJwkRefreshIntervalSeconds() {
+                return jwkRefreshIntervalSeconds;
+            }
+
+            public void setJwkRefreshIntervalSeconds(long jwkRefreshIntervalSeconds) {
+                this.jwkRefreshIntervalSeconds = jwkRefreshIntervalSeconds;
+            }
+
+            public long getJwkMinRefreshIntervalSeconds() {
+                return jwkMinRefreshIntervalSeconds;
+            }
+
+            public void setJwkMinRefreshIntervalSeconds(long jwkMinRefreshIntervalSeconds) {
+                this.jwkMinRefreshIntervalSeconds = jwkMinRefreshIntervalSeconds;
+            }
+
+            public long getAllowedClockSkewSeconds() {
+                return allowedClockSkewSeconds;
+            }
+
+            public void setAllowedClockSkewSeconds(long allowedClockSkewSeconds) {
+                this.allowedClockSkewSeconds = allowedClockSkewSeconds;
+            }
+        }
+
+        /**
+         * Cache of the authentications resolved by the user-info-uri, when tokens are not validated locally.
+         */
+        public static class UserInfoCache {
+
+            private boolean enabled = false;
+
+            private int maxSize = 10000;
+
+            private long timeToLiveSeconds = 300;
+
+            public boolean isEnabled() {
+                return enabled;
+            }
+
+            public void setEnabled(boolean enabled) {
+                this.enabled = enabled;
+            }
+
+            public int getMaxSize() {
+                return maxSize;
+            }
+
+            public void setMaxSize(int maxSize) {
+                this.maxSize = maxSize;
+            }
+
+            public long getTimeToLiveSeconds() {
+                return timeToLiveSeconds;
+            }
+
+            public void setTimeToLiveSeconds(long timeToLiveSeconds) {
+                this.timeToLiveSeconds = timeToLiveSeconds;
+            }
+        }
+    }
 }
@@ -3,6 +3,8 @@ package org.azrul.services.banking.config;
 import io.github.jhipster.async.ExceptionHandlingAsyncTaskExecutor;
 import io.github.jhipster.config.JHipsterProperties;
 
+import com.codahale.metrics.MetricRegistry;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.aop.interceptor.AsyncUncaughtExceptionHandler;
@@ -26,8 +28,11 @@ public class AsyncConfiguration implements AsyncConfigurer, SchedulingConfigurer
 
     private final JHipsterProperties jHipsterProperties;
 
-    public AsyncConfiguration(JHipsterProperties jHipsterProperties) {
+    private final ApplicationProperties applicationProperties;
+
+    public AsyncConfiguration(JHipsterProperties jHipsterProperties, ApplicationProperties applicationProperties) {
         this.jHipsterProperties = jHipsterProperties;
+        this.applicationProperties = applicationProperties;
     }
 
     @Override
@@ -42,6 +47,22 @@ public class AsyncConfiguration implements AsyncConfigurer, SchedulingConfigurer
         return new ExceptionHandlingAsyncTaskExecutor(executor);
     }
 
+    /**
+     * The executor of the REST requests, sized like the task executor unless configured otherwise, but with its own
+     * bounded queue so that an overload is answered at once.
+     */
+    @Bean
+    public RequestExecutor requestExecutor(MetricRegistry metricRegistry) {
+        ApplicationProperties.AsyncRequests asyncRequests = applicationProperties.getAsyncRequests();
+        if (!asyncRequests.isEnabled()) {
+            return new RequestExecutor(0, 0, metricRegistry);
+        }
+        int poolSize = asyncRequests.getPoolSize() > 0 ?
+            asyncRequests.getPoolSize() : jHipsterProperties.getAsync().getMaxPoolSize();
+        log.debug("Creating Request Executor of {} threads", poolSize);
+        return new RequestExecutor(poolSize, asyncRequests.getQueueCapacity(), metricRegistry);
+    }
+
     @Override
     public AsyncUncaughtExceptionHandler getAsyncUncaughtExceptionHandler() {
         return new SimpleAsyncUncaughtExceptionHandler();
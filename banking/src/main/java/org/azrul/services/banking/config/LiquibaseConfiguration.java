@@ -1,5 +1,7 @@
 package org.azrul.services.banking.config;
 
+import java.util.HashMap;
+import java.util.Map;
 import javax.sql.DataSource;
 
 import org.slf4j.Logger;
@@ -23,8 +25,11 @@ public class LiquibaseConfiguration {
     private final Environment env;
 
 
-    public LiquibaseConfiguration(Environment env) {
+    private final ApplicationProperties applicationProperties;
+
+    public LiquibaseConfiguration(Environment env, ApplicationProperties applicationProperties) {
         this.env = env;
+        this.applicationProperties = applicationProperties;
     }
 
     @Bean
@@ -38,7 +43,14 @@ public class LiquibaseConfiguration {
         liquibase.setContexts(liquibaseProperties.getContexts());
         liquibase.setDefaultSchema(liquibaseProperties.getDefaultSchema());
         liquibase.setDropFirst(liquibaseProperties.isDropFirst());
-        liquibase.setChangeLogParameters(liquibaseProperties.getParameters());
+        Map<String, String> parameters = new HashMap<>();
+        if (liquibaseProperties.getParameters() != null) {
+            parameters.putAll(liquibaseProperties.getParameters());
+        }
+        // The partitioning of the transaction table is only migrated when enabled
+        parameters.put("transactionPartitioningEnabled",
+            String.valueOf(applicationProperties.getTransactionPartitioning().isEnabled()));
+        liquibase.setChangeLogParameters(parameters);
         if (env.acceptsProfiles(JHipsterConstants.SPRING_PROFILE_NO_LIQUIBASE)) {
             liquibase.setShouldRun(false);
         } else {
@@ -5,6 +5,7 @@ import io.github.jhipster.config.JHipsterProperties;
 import com.codahale.metrics.JmxReporter;
 import com.codahale.metrics.JvmAttributeGaugeSet;
 import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.RatioGauge;
 import com.codahale.metrics.Slf4jReporter;
 import com.codahale.metrics.health.HealthCheckRegistry;
 import com.codahale.metrics.jvm.*;
@@ -14,15 +15,20 @@ import com.zaxxer.hikari.HikariDataSource;
 import io.prometheus.client.CollectorRegistry;
 import io.prometheus.client.dropwizard.DropwizardExports;
 import io.prometheus.client.exporter.MetricsServlet;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.SecondLevelCacheStatistics;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.slf4j.Marker;
 import org.slf4j.MarkerFactory;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.web.servlet.ServletContextInitializer;
 import org.springframework.context.annotation.*;
 
 import javax.annotation.PostConstruct;
+import javax.persistence.EntityManagerFactory;
 import javax.servlet.ServletContext;
 import java.lang.management.ManagementFactory;
 import java.util.concurrent.TimeUnit;
@@ -37,6 +43,7 @@ public class MetricsConfiguration extends MetricsConfigurerAdapter implements Se
     private static final String PROP_METRIC_REG_JVM_FILES = "jvm.files";
     private static final String PROP_METRIC_REG_JVM_BUFFERS = "jvm.buffers";
     private static final String PROP_METRIC_REG_JVM_ATTRIBUTE_SET = "jvm.attributes";
+    private static final String PROP_METRIC_REG_HIBERNATE_CACHE = "hibernate.cache";
 
     private final Logger log = LoggerFactory.getLogger(MetricsConfiguration.class);
 
@@ -46,10 +53,23 @@ public class MetricsConfiguration extends MetricsConfigurerAdapter implements Se
 
     private final JHipsterProperties jHipsterProperties;
 
+    private final ApplicationProperties applicationProperties;
+
+    private final ObjectProvider<EntityManagerFactory> entityManagerFactory;
+
+    private final boolean hibernateStatisticsEnabled;
+
     private HikariDataSource hikariDataSource;
 
-    public MetricsConfiguration(JHipsterProperties jHipsterProperties) {
+    private ReplicaRoutingDataSource replicaRoutingDataSource;
+
+    public MetricsConfiguration(JHipsterProperties jHipsterProperties, ApplicationProperties applicationProperties,
+        ObjectProvider<EntityManagerFactory> entityManagerFactory,
+        @Value("${spring.jpa.properties.hibernate.generate_statistics:false}") boolean hibernateStatisticsEnabled) {
         this.jHipsterProperties = jHipsterProperties;
+        this.applicationProperties = applicationProperties;
+        this.entityManagerFactory = entityManagerFactory;
+        this.hibernateStatisticsEnabled = hibernateStatisticsEnabled;
     }
 
     @Autowired(required = false)
@@ -57,6 +77,11 @@ public class MetricsConfiguration extends MetricsConfigurerAdapter implements Se
         this.hikariDataSource = hikariDataSource;
     }
 
+    @Autowired(required = false)
+    public void setReplicaRoutingDataSource(ReplicaRoutingDataSource replicaRoutingDataSource) {
+        this.replicaRoutingDataSource = replicaRoutingDataSource;
+    }
+
     @Override
     @Bean
     public MetricRegistry getMetricRegistry() {
@@ -84,6 +109,18 @@ public class MetricsConfiguration extends MetricsConfigurerAdapter implements Se
             hikariDataSource.setMetricsTrackerFactory(null);
             hikariDataSource.setMetricRegistry(metricRegistry);
         }
+        if (replicaRoutingDataSource != null) {
+            log.debug("Monitoring the read replicas");
+            replicaRoutingDataSource.registerMetrics(metricRegistry);
+        }
+        if (hibernateStatisticsEnabled) {
+            log.debug("Registering the second-level cache gauges");
+            for (ApplicationProperties.Cache.Region region : applicationProperties.getCache().getRegions()) {
+                metricRegistry.register(
+                    MetricRegistry.name(PROP_METRIC_REG_HIBERNATE_CACHE, region.getName(), "hit-ratio"),
+                    new CacheHitRatioGauge(region.getName()));
+            }
+        }
         if (jHipsterProperties.getMetrics().getJmx().isEnabled()) {
             log.debug("Initializing Metrics JMX reporting");
             JmxReporter jmxReporter = JmxReporter.forRegistry(metricRegistry).build();
@@ -116,4 +153,35 @@ public class MetricsConfiguration extends MetricsConfigurerAdapter implements Se
                 .addMapping(endpoint);
         }
     }
+
+    /**
+     * The hit ratio of a second-level cache region since startup, from the Hibernate statistics. The session
+     * factory is looked up on each read, as it is created after the metric registry.
+     * <p>
+     * Only registered when "hibernate.generate_statistics" is set, as the statistics are collected by every
+     * session; it is off by default in production.
+     */
+    private class CacheHitRatioGauge extends RatioGauge {
+
+        private final String regionName;
+
+        private CacheHitRatioGauge(String regionName) {
+            this.regionName = regionName;
+        }
+
+        @Override
+        protected Ratio getRatio() {
+            EntityManagerFactory emf = entityManagerFactory.getIfAvailable();
+            if (emf == null) {
+                return Ratio.of(Double.NaN, 1);
+            }
+            SecondLevelCacheStatistics statistics = emf.unwrap(SessionFactory.class).getStatistics()
+                .getSecondLevelCacheStatistics(regionName);
+            if (statistics == null) {
+                // The second-level cache is disabled
+                return Ratio.of(Double.NaN, 1);
+            }
+            return Ratio.of(statistics.getHitCount(), statistics.getHitCount() + statistics.getMissCount());
+        }
+    }
 }
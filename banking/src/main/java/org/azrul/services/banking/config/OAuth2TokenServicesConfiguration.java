@@ -1,13 +1,26 @@
 package org.azrul.services.banking.config;
 
+import com.codahale.metrics.MetricRegistry;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.boot.autoconfigure.security.oauth2.resource.AuthoritiesExtractor;
 import org.springframework.boot.autoconfigure.security.oauth2.resource.PrincipalExtractor;
+import org.springframework.boot.autoconfigure.security.oauth2.resource.ResourceServerProperties;
+import org.springframework.boot.autoconfigure.security.oauth2.resource.UserInfoRestTemplateFactory;
+import org.springframework.boot.autoconfigure.security.oauth2.resource.UserInfoTokenServices;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.security.oauth2.provider.token.ResourceServerTokenServices;
+import org.springframework.web.client.RestTemplate;
 
+import org.azrul.services.banking.security.oauth2.CachingUserInfoTokenServices;
+import org.azrul.services.banking.security.oauth2.JwkKeySetCache;
+import org.azrul.services.banking.security.oauth2.JwtTokenServices;
 import org.azrul.services.banking.security.oauth2.SimpleAuthoritiesExtractor;
 import org.azrul.services.banking.security.oauth2.SimplePrincipalExtractor;
 
+import java.util.concurrent.TimeUnit;
+
 @Configuration
 public class OAuth2TokenServicesConfiguration {
 
@@ -23,4 +36,39 @@ public class OAuth2TokenServicesConfiguration {
     public AuthoritiesExtractor authoritiesExtractor() {
         return new SimpleAuthoritiesExtractor(OAUTH2_AUTHORITIES_ATTRIBUTE);
     }
+
+    /**
+     * Validates access tokens locally against the cached JWK Set, instead of the UserInfoTokenServices
+     * that Spring Boot configures from "security.oauth2.resource.user-info-uri".
+     */
+    @Bean
+    @ConditionalOnProperty("application.security.jwt.enabled")
+    public ResourceServerTokenServices jwtTokenServices(ApplicationProperties applicationProperties) {
+        ApplicationProperties.Security.Jwt jwt = applicationProperties.getSecurity().getJwt();
+        JwkKeySetCache keySetCache = new JwkKeySetCache(new RestTemplate(), jwt.getJwkSetUri(),
+            TimeUnit.SECONDS.toMillis(jwt.getJwkRefreshIntervalSeconds()),
+            TimeUnit.SECONDS.toMillis(jwt.getJwkMinRefreshIntervalSeconds()));
+        return new JwtTokenServices(keySetCache, principalExtractor(), authoritiesExtractor(), jwt.getIssuer(),
+            TimeUnit.SECONDS.toMillis(jwt.getAllowedClockSkewSeconds()));
+    }
+
+    /**
+     * Same UserInfoTokenServices as the one configured by Spring Boot, behind a bounded cache of the resolved
+     * authentications.
+     */
+    @Bean
+    @ConditionalOnExpression("${application.security.user-info-cache.enabled:false} && !${application.security.jwt.enabled:false}")
+    public ResourceServerTokenServices cachingUserInfoTokenServices(ApplicationProperties applicationProperties,
+        ResourceServerProperties resourceServerProperties, UserInfoRestTemplateFactory restTemplateFactory,
+        MetricRegistry metricRegistry) {
+        UserInfoTokenServices userInfoTokenServices = new UserInfoTokenServices(
+            resourceServerProperties.getUserInfoUri(), resourceServerProperties.getClientId());
+        userInfoTokenServices.setRestTemplate(restTemplateFactory.getUserInfoRestTemplate());
+        userInfoTokenServices.setTokenType(resourceServerProperties.getTokenType());
+        userInfoTokenServices.setPrincipalExtractor(principalExtractor());
+        userInfoTokenServices.setAuthoritiesExtractor(authoritiesExtractor());
+        ApplicationProperties.Security.UserInfoCache userInfoCache = applicationProperties.getSecurity().getUserInfoCache();
+        return new CachingUserInfoTokenServices(userInfoTokenServices, userInfoCache.getMaxSize(),
+            TimeUnit.SECONDS.toMillis(userInfoCache.getTimeToLiveSeconds()), metricRegistry);
+    }
 }
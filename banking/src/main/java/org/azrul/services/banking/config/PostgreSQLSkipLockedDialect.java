@@ -0,0 +1,27 @@
+package org.azrul.services.banking.config;
+
+import io.github.jhipster.domain.util.FixedPostgreSQL82Dialect;
+import org.hibernate.LockOptions;
+
+/**
+ * The JHipster PostgreSQL dialect, rendering the SKIP_LOCKED lock timeout as "for update skip locked",
+ * supported since PostgreSQL 9.5.
+ */
+public class PostgreSQLSkipLockedDialect extends FixedPostgreSQL82Dialect {
+
+    @Override
+    public String getWriteLockString(int timeout) {
+        if (timeout == LockOptions.SKIP_LOCKED) {
+            return " for update skip locked";
+        }
+        return super.getWriteLockString(timeout);
+    }
+
+    @Override
+    public String getWriteLockString(String aliases, int timeout) {
+        if (timeout == LockOptions.SKIP_LOCKED) {
+            return " for update of " + aliases + " skip locked";
+        }
+        return super.getWriteLockString(aliases, timeout);
+    }
+}
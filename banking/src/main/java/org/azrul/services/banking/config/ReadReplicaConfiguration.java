@@ -0,0 +1,98 @@
+package org.azrul.services.banking.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Routes the read-only transactions to the read replicas, see ReplicaRoutingDataSource.
+ * <p>
+ * The primary pool is configured by the spring.datasource properties, as without replicas, and each replica by
+ * application.read-replicas.replicas.
+ */
+@Configuration
+@ConditionalOnProperty("application.read-replicas.enabled")
+public class ReadReplicaConfiguration {
+
+    private final Logger log = LoggerFactory.getLogger(ReadReplicaConfiguration.class);
+
+    private final ApplicationProperties.ReadReplicas readReplicas;
+
+    private final StatementStatistics statementStatistics;
+
+    private ReplicaRoutingDataSource replicaRoutingDataSource;
+
+    public ReadReplicaConfiguration(ApplicationProperties applicationProperties,
+        StatementStatistics statementStatistics) {
+        this.readReplicas = applicationProperties.getReadReplicas();
+        this.statementStatistics = statementStatistics;
+    }
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties dataSourceProperties) {
+        HikariDataSource primary = dataSourceProperties.initializeDataSourceBuilder()
+            .type(HikariDataSource.class)
+            .build();
+        primary.setPoolName("banking-primary");
+        return primary;
+    }
+
+    @Bean
+    public ReplicaRoutingDataSource replicaRoutingDataSource(HikariDataSource primaryDataSource) {
+        List<HikariDataSource> replicas = new ArrayList<>();
+        for (ApplicationProperties.ReadReplicas.Replica replica : readReplicas.getReplicas()) {
+            HikariDataSource dataSource = new HikariDataSource();
+            dataSource.setPoolName("banking-replica-" + replicas.size());
+            dataSource.setJdbcUrl(replica.getUrl());
+            dataSource.setUsername(replica.getUsername());
+            dataSource.setPassword(replica.getPassword());
+            dataSource.setMaximumPoolSize(replica.getMaximumPoolSize());
+            // As the primary, since Hibernate is told the connections do not auto-commit
+            dataSource.setAutoCommit(primaryDataSource.isAutoCommit());
+            dataSource.setReadOnly(true);
+            replicas.add(dataSource);
+        }
+        log.info("Routing the read-only transactions to {} replicas", replicas.size());
+        replicaRoutingDataSource = new ReplicaRoutingDataSource(primaryDataSource, replicas,
+            readReplicas.getMaxLagSeconds(), readReplicas.getLagQuery());
+        return replicaRoutingDataSource;
+    }
+
+    /**
+     * The DataSource of JPA, Liquibase and JDBC, which gets the connection when the first statement is run,
+     * once the transaction is started and known to be read-only or not. The statements of the primary and the
+     * replicas are recorded in the StatementStatistics, if enabled.
+     */
+    @Bean
+    @Primary
+    public DataSource dataSource(ReplicaRoutingDataSource replicaRoutingDataSource) {
+        if (!statementStatistics.isEnabled()) {
+            return new LazyConnectionDataSourceProxy(replicaRoutingDataSource);
+        }
+        return new LazyConnectionDataSourceProxy(
+            new StatementMetricsDataSource(replicaRoutingDataSource, statementStatistics));
+    }
+
+    /**
+     * This is scheduled to run application.read-replicas.lag-check-interval-ms after the end of the previous run.
+     */
+    @Scheduled(fixedDelayString = "${application.read-replicas.lag-check-interval-ms:5000}")
+    public void checkReplicationLag() {
+        if (replicaRoutingDataSource != null) {
+            replicaRoutingDataSource.checkReplicationLag();
+        }
+    }
+}
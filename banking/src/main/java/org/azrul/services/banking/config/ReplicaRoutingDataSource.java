@@ -0,0 +1,181 @@
+package org.azrul.services.banking.config;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.zaxxer.hikari.HikariDataSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.Closeable;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A DataSource routing the read-only transactions to the replicas, in turn, and the other connections to the
+ * primary.
+ * <p>
+ * The connections must be obtained once the transaction is started, so this DataSource is wrapped in a
+ * LazyConnectionDataSourceProxy. A replica is used only while its replication lag, checked periodically by
+ * {@link #checkReplicationLag()}, is at most the configured maximum; when no replica is usable, the read-only
+ * transactions fall back to the primary.
+ */
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource implements Closeable {
+
+    private static final String PRIMARY = "primary";
+
+    private static final String METRIC_PREFIX = "datasource.routing";
+
+    private final Logger log = LoggerFactory.getLogger(ReplicaRoutingDataSource.class);
+
+    private final List<Replica> replicas = new ArrayList<>();
+
+    private final double maxLagSeconds;
+
+    private final String lagQuery;
+
+    private final AtomicInteger nextReplica = new AtomicInteger();
+
+    private final Counter primaryRoutes = new Counter();
+
+    private final Counter replicaRoutes = new Counter();
+
+    private final Counter fallbackRoutes = new Counter();
+
+    public ReplicaRoutingDataSource(HikariDataSource primary, List<HikariDataSource> replicaDataSources,
+        double maxLagSeconds, String lagQuery) {
+        this.maxLagSeconds = maxLagSeconds;
+        this.lagQuery = lagQuery;
+        Map<Object, Object> targetDataSources = new HashMap<>();
+        targetDataSources.put(PRIMARY, primary);
+        for (HikariDataSource replicaDataSource : replicaDataSources) {
+            Replica replica = new Replica(replicaDataSource);
+            replicas.add(replica);
+            targetDataSources.put(replica.getName(), replicaDataSource);
+        }
+        setTargetDataSources(targetDataSources);
+        setDefaultTargetDataSource(primary);
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            primaryRoutes.inc();
+            return PRIMARY;
+        }
+        int size = replicas.size();
+        int first = Math.floorMod(nextReplica.getAndIncrement(), Math.max(size, 1));
+        for (int i = 0; i < size; i++) {
+            Replica replica = replicas.get((first + i) % size);
+            if (replica.isUsable()) {
+                replicaRoutes.inc();
+                return replica.getName();
+            }
+        }
+        fallbackRoutes.inc();
+        return PRIMARY;
+    }
+
+    /**
+     * Measure the replication lag of each replica, and exclude the replicas lagging too much, or unreachable.
+     */
+    public void checkReplicationLag() {
+        for (Replica replica : replicas) {
+            try (Connection connection = replica.getDataSource().getConnection();
+                 Statement statement = connection.createStatement();
+                 ResultSet resultSet = statement.executeQuery(lagQuery)) {
+                resultSet.next();
+                double lagSeconds = resultSet.getDouble(1);
+                if (!connection.getAutoCommit()) {
+                    connection.rollback();
+                }
+                replica.setLagSeconds(lagSeconds);
+                if (lagSeconds > maxLagSeconds && replica.isUsable()) {
+                    log.warn("Replica {} is {} seconds behind, reads go to the other replicas or the primary",
+                        replica.getName(), lagSeconds);
+                }
+                replica.setUsable(lagSeconds <= maxLagSeconds);
+            } catch (SQLException e) {
+                if (replica.isUsable()) {
+                    log.warn("Replica {} is unreachable, reads go to the other replicas or the primary: {}",
+                        replica.getName(), e.toString());
+                }
+                replica.setLagSeconds(Double.NaN);
+                replica.setUsable(false);
+            }
+        }
+    }
+
+    /**
+     * Register the routing counters, and the pool and lag metrics of the replicas. The primary pool is
+     * registered by MetricsConfiguration, as the other HikariDataSources.
+     *
+     * @param metricRegistry the registry
+     */
+    public void registerMetrics(MetricRegistry metricRegistry) {
+        metricRegistry.register(MetricRegistry.name(METRIC_PREFIX, "primary"), primaryRoutes);
+        metricRegistry.register(MetricRegistry.name(METRIC_PREFIX, "replica"), replicaRoutes);
+        metricRegistry.register(MetricRegistry.name(METRIC_PREFIX, "fallback"), fallbackRoutes);
+        for (Replica replica : replicas) {
+            replica.getDataSource().setMetricRegistry(metricRegistry);
+            metricRegistry.register(MetricRegistry.name(METRIC_PREFIX, replica.getName(), "lag-seconds"),
+                (Gauge<Double>) replica::getLagSeconds);
+            metricRegistry.register(MetricRegistry.name(METRIC_PREFIX, replica.getName(), "usable"),
+                (Gauge<Boolean>) replica::isUsable);
+        }
+    }
+
+    @Override
+    public void close() {
+        replicas.forEach(replica -> replica.getDataSource().close());
+    }
+
+    private static class Replica {
+
+        private final HikariDataSource dataSource;
+
+        /**
+         * Not usable until its lag is checked.
+         */
+        private volatile boolean usable = false;
+
+        private volatile double lagSeconds = Double.NaN;
+
+        private Replica(HikariDataSource dataSource) {
+            this.dataSource = dataSource;
+        }
+
+        private String getName() {
+            return dataSource.getPoolName();
+        }
+
+        private HikariDataSource getDataSource() {
+            return dataSource;
+        }
+
+        private boolean isUsable() {
+            return usable;
+        }
+
+        private void setUsable(boolean usable) {
+            this.usable = usable;
+        }
+
+        private double getLagSeconds() {
+            return lagSeconds;
+        }
+
+        private void setLagSeconds(double lagSeconds) {
+            this.lagSeconds = lagSeconds;
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package org.azrul.services.banking.config;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bounded executor of the REST requests answered asynchronously, so that the Undertow workers are not blocked
+ * during the database calls.
+ * <p>
+ * Its queue is bounded: when it is full, a request is rejected at once with a RejectedExecutionException, answered
+ * with 503 (Service Unavailable), instead of waiting behind requests which would time out anyway. The time spent by
+ * the requests in the queue and in execution, and the rejections, are recorded in the metric registry. The security
+ * context of the request is carried over to the executor thread.
+ * <p>
+ * When disabled, the requests are executed on the calling thread, and the futures are completed when returned.
+ */
+public class RequestExecutor implements DisposableBean {
+
+    private static final String METRIC_PREFIX = "requests.executor";
+
+    private final ThreadPoolExecutor executor;
+
+    private final Timer queueWait;
+
+    private final Timer execution;
+
+    private final Meter rejections;
+
+    /**
+     * @param poolSize the number of threads, or 0 to execute the requests on the calling thread
+     * @param queueCapacity the number of requests waiting for a thread, beyond which they are rejected
+     * @param metricRegistry the registry of the metrics
+     */
+    public RequestExecutor(int poolSize, int queueCapacity, MetricRegistry metricRegistry) {
+        if (poolSize > 0) {
+            this.executor = new ThreadPoolExecutor(poolSize, poolSize, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), new CustomizableThreadFactory("banking-request-"),
+                new ThreadPoolExecutor.AbortPolicy());
+            this.executor.allowCoreThreadTimeOut(true);
+            metricRegistry.register(METRIC_PREFIX + ".queued", (Gauge<Integer>) () -> executor.getQueue().size());
+            metricRegistry.register(METRIC_PREFIX + ".active", (Gauge<Integer>) executor::getActiveCount);
+        } else {
+            this.executor = null;
+        }
+        this.queueWait = metricRegistry.timer(METRIC_PREFIX + ".queue-wait");
+        this.execution = metricRegistry.timer(METRIC_PREFIX + ".execution");
+        this.rejections = metricRegistry.meter(METRIC_PREFIX + ".rejections");
+    }
+
+    /**
+     * Execute a request.
+     *
+     * @param request the request, returning its response
+     * @param <T> the type of the response
+     * @return the future response, completed exceptionally with the exception of the request, if any
+     * @throws RejectedExecutionException if too many requests are waiting
+     */
+    public <T> CompletableFuture<T> submit(Callable<T> request) {
+        CompletableFuture<T> response = new CompletableFuture<>();
+        if (executor == null) {
+            call(request, response);
+            return response;
+        }
+        SecurityContext securityContext = SecurityContextHolder.getContext();
+        long submitted = System.nanoTime();
+        try {
+            executor.execute(() -> {
+                queueWait.update(System.nanoTime() - submitted, TimeUnit.NANOSECONDS);
+                SecurityContextHolder.setContext(securityContext);
+                try {
+                    call(request, response);
+                } finally {
+                    SecurityContextHolder.clearContext();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            rejections.mark();
+            throw e;
+        }
+        return response;
+    }
+
+    private <T> void call(Callable<T> request, CompletableFuture<T> response) {
+        try (Timer.Context ignored = execution.time()) {
+            response.complete(request.call());
+        } catch (Exception e) {
+            response.completeExceptionally(e);
+        }
+    }
+
+    @Override
+    public void destroy() {
+        if (executor != null) {
+            executor.shutdown();
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package org.azrul.services.banking.config;
+
+import io.github.jhipster.config.JHipsterConstants;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.annotation.Profile;
+import org.springframework.util.StringUtils;
+
+import javax.sql.DataSource;
+
+/**
+ * Records the latency and row counts of the SQL statements by fingerprint, see StatementMetricsDataSource.
+ * <p>
+ * Without read replicas, the pool is configured by the spring.datasource properties, as by Spring Boot, and
+ * wrapped in the DataSource of JPA, Liquibase and JDBC. With read replicas, ReadReplicaConfiguration wraps the
+ * routing DataSource.
+ */
+@Configuration
+public class StatementMetricsConfiguration {
+
+    @Bean
+    public StatementStatistics statementStatistics(ApplicationProperties applicationProperties) {
+        return new StatementStatistics(applicationProperties);
+    }
+
+    @Configuration
+    @Profile("!" + JHipsterConstants.SPRING_PROFILE_CLOUD)
+    @ConditionalOnExpression("${application.statement-metrics.enabled:true} and !${application.read-replicas.enabled:false}")
+    public static class PoolConfiguration {
+
+        private final Logger log = LoggerFactory.getLogger(PoolConfiguration.class);
+
+        @Bean
+        @ConfigurationProperties("spring.datasource.hikari")
+        public HikariDataSource hikariDataSource(DataSourceProperties dataSourceProperties) {
+            HikariDataSource dataSource = dataSourceProperties.initializeDataSourceBuilder()
+                .type(HikariDataSource.class)
+                .build();
+            if (StringUtils.hasText(dataSourceProperties.getName())) {
+                dataSource.setPoolName(dataSourceProperties.getName());
+            }
+            return dataSource;
+        }
+
+        @Bean
+        @Primary
+        public DataSource dataSource(HikariDataSource hikariDataSource, StatementStatistics statementStatistics) {
+            log.debug("Recording the latency of the SQL statements");
+            return new StatementMetricsDataSource(hikariDataSource, statementStatistics);
+        }
+    }
+}
@@ -0,0 +1,227 @@
+package org.azrul.services.banking.config;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A DataSource recording the execution time and row counts of the statements of its connections, by fingerprint,
+ * in the StatementStatistics.
+ * <p>
+ * The connections, statements and result sets are wrapped in JDK proxies. The execution time of a query is the
+ * time of its executeQuery, until its first rows are returned; its rows are counted as they are read, and recorded
+ * when its result set is exhausted or closed. The rows of the other statements are their update counts.
+ */
+public class StatementMetricsDataSource extends DelegatingDataSource {
+
+    private final StatementStatistics statementStatistics;
+
+    public StatementMetricsDataSource(DataSource targetDataSource, StatementStatistics statementStatistics) {
+        super(targetDataSource);
+        this.statementStatistics = statementStatistics;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return wrap(Connection.class, new ConnectionHandler(super.getConnection()));
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return wrap(Connection.class, new ConnectionHandler(super.getConnection(username, password)));
+    }
+
+    private static <T> T wrap(Class<T> type, InvocationHandler handler) {
+        return type.cast(Proxy.newProxyInstance(StatementMetricsDataSource.class.getClassLoader(),
+            new Class<?>[]{type}, handler));
+    }
+
+    /**
+     * A proxy delegating to its target, but equal only to itself, as Hibernate keeps its statements and result
+     * sets in hash maps.
+     */
+    private abstract static class Handler implements InvocationHandler {
+
+        private final Object target;
+
+        private Handler(Object target) {
+            this.target = target;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                default:
+                    return handle(method, args);
+            }
+        }
+
+        protected abstract Object handle(Method method, Object[] args) throws Throwable;
+
+        protected Object delegate(Method method, Object[] args) throws Throwable {
+            try {
+                return method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+
+    private class ConnectionHandler extends Handler {
+
+        private ConnectionHandler(Connection connection) {
+            super(connection);
+        }
+
+        @Override
+        protected Object handle(Method method, Object[] args) throws Throwable {
+            Object result = delegate(method, args);
+            switch (method.getName()) {
+                case "createStatement":
+                    return wrap(Statement.class, new StatementHandler(result, null));
+                case "prepareStatement":
+                    return wrap(PreparedStatement.class, new StatementHandler(result, (String) args[0]));
+                case "prepareCall":
+                    return wrap(CallableStatement.class, new StatementHandler(result, (String) args[0]));
+                default:
+                    return result;
+            }
+        }
+    }
+
+    private class StatementHandler extends Handler {
+
+        /**
+         * The fingerprint of the prepared SQL, or of the last SQL executed or batched by a plain statement.
+         */
+        private String fingerprint;
+
+        /**
+         * The bind parameters set since the last clearParameters, if kept for the slow-query log.
+         */
+        private final List<Object> parameters;
+
+        private StatementHandler(Object statement, String sql) {
+            super(statement);
+            this.fingerprint = sql != null ? statementStatistics.fingerprint(sql) : null;
+            this.parameters = sql != null && statementStatistics.isSlowLogEnabled() ? new ArrayList<>() : null;
+        }
+
+        @Override
+        protected Object handle(Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if (name.startsWith("execute")) {
+                return execute(method, args);
+            }
+            if (parameters != null && name.startsWith("set") && args != null && args.length >= 2
+                && args[0] instanceof Integer) {
+                setParameter((Integer) args[0], name.equals("setNull") ? null : args[1]);
+            } else if (parameters != null && name.equals("clearParameters")) {
+                parameters.clear();
+            } else if (name.equals("addBatch") && args != null && args.length == 1) {
+                fingerprint = statementStatistics.fingerprint((String) args[0]);
+            }
+            Object result = delegate(method, args);
+            if (name.equals("getResultSet") && result != null && fingerprint != null) {
+                return wrap(ResultSet.class, new ResultSetHandler(result, fingerprint));
+            }
+            return result;
+        }
+
+        private Object execute(Method method, Object[] args) throws Throwable {
+            if (args != null && args.length >= 1 && args[0] instanceof String) {
+                fingerprint = statementStatistics.fingerprint((String) args[0]);
+            }
+            long start = System.nanoTime();
+            Object result;
+            try {
+                result = delegate(method, args);
+            } finally {
+                if (fingerprint != null) {
+                    statementStatistics.recordExecution(fingerprint, System.nanoTime() - start, parameters);
+                }
+            }
+            if (fingerprint == null) {
+                return result;
+            }
+            if (result instanceof ResultSet) {
+                return wrap(ResultSet.class, new ResultSetHandler(result, fingerprint));
+            }
+            if (result instanceof Number) {
+                statementStatistics.recordRows(fingerprint, ((Number) result).longValue());
+            } else if (result instanceof int[]) {
+                long rows = 0;
+                for (int count : (int[]) result) {
+                    rows += Math.max(count, 0);
+                }
+                statementStatistics.recordRows(fingerprint, rows);
+            } else if (result instanceof long[]) {
+                long rows = 0;
+                for (long count : (long[]) result) {
+                    rows += Math.max(count, 0);
+                }
+                statementStatistics.recordRows(fingerprint, rows);
+            }
+            return result;
+        }
+
+        private void setParameter(int index, Object value) {
+            while (parameters.size() <= index) {
+                parameters.add(null);
+            }
+            parameters.set(index, value);
+        }
+    }
+
+    private class ResultSetHandler extends Handler {
+
+        private final String fingerprint;
+
+        private long rows;
+
+        private boolean recorded;
+
+        private ResultSetHandler(Object resultSet, String fingerprint) {
+            super(resultSet);
+            this.fingerprint = fingerprint;
+        }
+
+        @Override
+        protected Object handle(Method method, Object[] args) throws Throwable {
+            Object result = delegate(method, args);
+            if (method.getName().equals("next")) {
+                if ((Boolean) result) {
+                    rows++;
+                } else {
+                    record();
+                }
+            } else if (method.getName().equals("close")) {
+                record();
+            }
+            return result;
+        }
+
+        private void record() {
+            if (!recorded) {
+                recorded = true;
+                statementStatistics.recordRows(fingerprint, rows);
+            }
+        }
+    }
+}
@@ -0,0 +1,337 @@
+package org.azrul.services.banking.config;
+
+import com.codahale.metrics.ExponentiallyDecayingReservoir;
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.Snapshot;
+import com.codahale.metrics.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * The latency and row counts of the SQL statements, by fingerprint, recorded by StatementMetricsDataSource.
+ * <p>
+ * The fingerprint of a statement is its SQL without comments, with its literals replaced by ?, its lists of
+ * parameters collapsed and its whitespace normalized, so that the statements differing only by their values are
+ * counted together. The fingerprints are kept apart from the metric registry, as there may be hundreds of them;
+ * beyond application.statement-metrics.max-fingerprints, the new ones are counted together as {@link #OTHER}.
+ * <p>
+ * The statements slower than application.statement-metrics.slow-threshold-ms are logged to the "slow-queries"
+ * logger, by fingerprint, with the types of their bind parameters, or their values if they are not redacted.
+ */
+public class StatementStatistics {
+
+    public static final String OTHER = "(other)";
+
+    private static final Pattern PARAMETER_LIST = Pattern.compile("\\(\\?(?: ?, ?\\?)+\\)");
+
+    private static final Pattern VALUES_LIST = Pattern.compile("\\(\\?\\+?\\)(?: ?, ?\\(\\?\\+?\\))+");
+
+    private final Logger slowLog = LoggerFactory.getLogger("slow-queries");
+
+    private final ApplicationProperties.StatementMetrics properties;
+
+    private final ConcurrentMap<String, Statistics> statistics = new ConcurrentHashMap<>();
+
+    /**
+     * The fingerprints of the SQL strings, which Hibernate reuses, so that each one is normalized once.
+     */
+    private final ConcurrentMap<String, String> fingerprints = new ConcurrentHashMap<>();
+
+    public StatementStatistics(ApplicationProperties applicationProperties) {
+        this.properties = applicationProperties.getStatementMetrics();
+    }
+
+    public boolean isEnabled() {
+        return properties.isEnabled();
+    }
+
+    /**
+     * @return true if the bind parameters must be kept to log the slow statements
+     */
+    public boolean isSlowLogEnabled() {
+        return properties.getSlowThresholdMs() > 0 && slowLog.isWarnEnabled();
+    }
+
+    /**
+     * Get the fingerprint of a SQL statement.
+     *
+     * @param sql the SQL
+     * @return its fingerprint
+     */
+    public String fingerprint(String sql) {
+        String fingerprint = fingerprints.get(sql);
+        if (fingerprint == null) {
+            fingerprint = normalize(sql);
+            // Bounded, in case of SQL with inlined values
+            if (fingerprints.size() < properties.getMaxFingerprints() * 4) {
+                fingerprints.putIfAbsent(sql, fingerprint);
+            }
+        }
+        return fingerprint;
+    }
+
+    /**
+     * Record the execution of a statement, and log it if it is slow.
+     *
+     * @param fingerprint the fingerprint of the statement
+     * @param nanos its execution time
+     * @param parameters its bind parameters, by index from 1 (0 is unused), or null if they were not kept
+     */
+    public void recordExecution(String fingerprint, long nanos, List<Object> parameters) {
+        Statistics entry = statisticsOf(fingerprint);
+        entry.latency.update(nanos, TimeUnit.NANOSECONDS);
+        entry.totalNanos.add(nanos);
+        long millis = TimeUnit.NANOSECONDS.toMillis(nanos);
+        if (properties.getSlowThresholdMs() > 0 && millis >= properties.getSlowThresholdMs()) {
+            slowLog.warn("Slow statement, {} ms: {} parameters: {}", millis, fingerprint, describe(parameters));
+        }
+    }
+
+    /**
+     * Record the number of rows read or written by a statement.
+     *
+     * @param fingerprint the fingerprint of the statement
+     * @param rows the number of rows
+     */
+    public void recordRows(String fingerprint, long rows) {
+        Statistics entry = statisticsOf(fingerprint);
+        entry.rows.update(rows);
+        entry.totalRows.add(rows);
+    }
+
+    /**
+     * Get the statistics of the statements taking the most time in total.
+     *
+     * @param limit the number of statements
+     * @return their statistics, by descending total time
+     */
+    public List<Summary> top(int limit) {
+        return statistics.entrySet().stream()
+            .map(entry -> new Summary(entry.getKey(), entry.getValue()))
+            .sorted(Comparator.comparingDouble(Summary::getTotalMillis).reversed())
+            .limit(limit)
+            .collect(Collectors.toList());
+    }
+
+    public void reset() {
+        statistics.clear();
+    }
+
+    private Statistics statisticsOf(String fingerprint) {
+        Statistics entry = statistics.get(fingerprint);
+        if (entry != null) {
+            return entry;
+        }
+        if (statistics.size() >= properties.getMaxFingerprints()) {
+            return statistics.computeIfAbsent(OTHER, key -> new Statistics());
+        }
+        return statistics.computeIfAbsent(fingerprint, key -> new Statistics());
+    }
+
+    private String describe(List<Object> parameters) {
+        if (parameters == null) {
+            return "not kept";
+        }
+        StringBuilder description = new StringBuilder("[");
+        for (int index = 1; index < parameters.size(); index++) {
+            Object value = parameters.get(index);
+            if (index > 1) {
+                description.append(", ");
+            }
+            description.append(index).append(": ");
+            if (value == null) {
+                description.append("null");
+            } else if (properties.isRedactParameters()) {
+                description.append(value.getClass().getSimpleName());
+            } else {
+                description.append(value);
+            }
+        }
+        return description.append(']').toString();
+    }
+
+    /**
+     * Normalize a SQL statement into its fingerprint.
+     *
+     * @param sql the SQL
+     * @return the SQL without comments, in lower case, with its string and number literals replaced by ?, its
+     * lists of parameters collapsed, and its whitespace collapsed
+     */
+    public static String normalize(String sql) {
+        StringBuilder fingerprint = new StringBuilder(sql.length());
+        int length = sql.length();
+        int i = 0;
+        while (i < length) {
+            char c = sql.charAt(i);
+            if (c == '-' && i + 1 < length && sql.charAt(i + 1) == '-') {
+                i = sql.indexOf('\n', i);
+                i = i < 0 ? length : i;
+            } else if (c == '/' && i + 1 < length && sql.charAt(i + 1) == '*') {
+                i = sql.indexOf("*/", i + 2);
+                i = i < 0 ? length : i + 2;
+                appendSpace(fingerprint);
+            } else if (c == '\'') {
+                // A string literal, '' being an escaped quote
+                i++;
+                while (i < length) {
+                    if (sql.charAt(i) == '\'') {
+                        if (i + 1 < length && sql.charAt(i + 1) == '\'') {
+                            i += 2;
+                            continue;
+                        }
+                        break;
+                    }
+                    i++;
+                }
+                i++;
+                fingerprint.append('?');
+            } else if (c == '"') {
+                // A quoted identifier, kept as is
+                int end = sql.indexOf('"', i + 1);
+                end = end < 0 ? length : end + 1;
+                fingerprint.append(sql, i, end);
+                i = end;
+            } else if (Character.isDigit(c) && !isPartOfIdentifier(fingerprint)) {
+                while (i < length && (Character.isDigit(sql.charAt(i)) || sql.charAt(i) == '.')) {
+                    i++;
+                }
+                fingerprint.append('?');
+            } else if (Character.isWhitespace(c)) {
+                appendSpace(fingerprint);
+                i++;
+            } else {
+                fingerprint.append(Character.toLowerCase(c));
+                i++;
+            }
+        }
+        String normalized = fingerprint.toString().trim();
+        normalized = PARAMETER_LIST.matcher(normalized).replaceAll("(?+)");
+        return VALUES_LIST.matcher(normalized).replaceAll("(?+), ...");
+    }
+
+    private static void appendSpace(StringBuilder fingerprint) {
+        if (fingerprint.length() > 0 && fingerprint.charAt(fingerprint.length() - 1) != ' ') {
+            fingerprint.append(' ');
+        }
+    }
+
+    private static boolean isPartOfIdentifier(StringBuilder fingerprint) {
+        if (fingerprint.length() == 0) {
+            return false;
+        }
+        char previous = fingerprint.charAt(fingerprint.length() - 1);
+        return Character.isLetterOrDigit(previous) || previous == '_' || previous == '$';
+    }
+
+    private static class Statistics {
+
+        private final Timer latency = new Timer();
+
+        private final LongAdder totalNanos = new LongAdder();
+
+        private final Histogram rows = new Histogram(new ExponentiallyDecayingReservoir());
+
+        private final LongAdder totalRows = new LongAdder();
+    }
+
+    /**
+     * The statistics of a fingerprint; the percentiles are biased towards the last 5 minutes.
+     */
+    public static class Summary {
+
+        private final String fingerprint;
+
+        private final long count;
+
+        private final double totalMillis;
+
+        private final double meanMillis;
+
+        private final double p50Millis;
+
+        private final double p95Millis;
+
+        private final double p99Millis;
+
+        private final double maxMillis;
+
+        private final long rows;
+
+        private final double meanRows;
+
+        private final long maxRows;
+
+        private Summary(String fingerprint, Statistics statistics) {
+            Snapshot latency = statistics.latency.getSnapshot();
+            Snapshot rows = statistics.rows.getSnapshot();
+            this.fingerprint = fingerprint;
+            this.count = statistics.latency.getCount();
+            this.totalMillis = toMillis(statistics.totalNanos.sum());
+            this.meanMillis = toMillis(latency.getMean());
+            this.p50Millis = toMillis(latency.getMedian());
+            this.p95Millis = toMillis(latency.get95thPercentile());
+            this.p99Millis = toMillis(latency.get99thPercentile());
+            this.maxMillis = toMillis(latency.getMax());
+            this.rows = statistics.totalRows.sum();
+            this.meanRows = rows.getMean();
+            this.maxRows = rows.getMax();
+        }
+
+        private static double toMillis(double nanos) {
+            return nanos / 1_000_000d;
+        }
+
+        public String getFingerprint() {
+            return fingerprint;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public double getTotalMillis() {
+            return totalMillis;
+        }
+
+        public double getMeanMillis() {
+            return meanMillis;
+        }
+
+        public double getP50Millis() {
+            return p50Millis;
+        }
+
+        public double getP95Millis() {
+            return p95Millis;
+        }
+
+        public double getP99Millis() {
+            return p99Millis;
+        }
+
+        public double getMaxMillis() {
+            return maxMillis;
+        }
+
+        public long getRows() {
+            return rows;
+        }
+
+        public double getMeanRows() {
+            return meanRows;
+        }
+
+        public long getMaxRows() {
+            return maxRows;
+        }
+    }
+}
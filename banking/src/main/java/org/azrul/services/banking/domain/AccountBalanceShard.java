@@ -0,0 +1,111 @@
+package org.azrul.services.banking.domain;
+
+import javax.persistence.*;
+import javax.validation.constraints.*;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.util.Objects;
+
+/**
+ * A part of the balance of a hot ProductAccount, whose balance is product_account.balance plus its shards.
+ */
+@Entity
+@Table(name = "account_balance_shard")
+public class AccountBalanceShard implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "sequenceGenerator")
+    @SequenceGenerator(name = "sequenceGenerator")
+    private Long id;
+
+    @NotNull
+    @Column(name = "shard", nullable = false)
+    private Integer shard;
+
+    @NotNull
+    @Column(name = "balance", precision = 10, scale = 2, nullable = false)
+    private BigDecimal balance;
+
+    @NotNull
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
+    private ProductAccount productAccount;
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Integer getShard() {
+        return shard;
+    }
+
+    public AccountBalanceShard shard(Integer shard) {
+        this.shard = shard;
+        return this;
+    }
+
+    public void setShard(Integer shard) {
+        this.shard = shard;
+    }
+
+    public BigDecimal getBalance() {
+        return balance;
+    }
+
+    public AccountBalanceShard balance(BigDecimal balance) {
+        this.balance = balance;
+        return this;
+    }
+
+    public void setBalance(BigDecimal balance) {
+        this.balance = balance;
+    }
+
+    public ProductAccount getProductAccount() {
+        return productAccount;
+    }
+
+    public AccountBalanceShard productAccount(ProductAccount productAccount) {
+        this.productAccount = productAccount;
+        return this;
+    }
+
+    public void setProductAccount(ProductAccount productAccount) {
+        this.productAccount = productAccount;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        AccountBalanceShard accountBalanceShard = (AccountBalanceShard) o;
+        if (accountBalanceShard.getId() == null || getId() == null) {
+            return false;
+        }
+        return Objects.equals(getId(), accountBalanceShard.getId());
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hashCode(getId());
+    }
+
+    @Override
+    public String toString() {
+        return "AccountBalanceShard{" +
+            "id=" + getId() +
+            ", shard=" + getShard() +
+            ", balance=" + getBalance() +
+            "}";
+    }
+}
@@ -0,0 +1,112 @@
+package org.azrul.services.banking.domain;
+
+import javax.persistence.*;
+import javax.validation.constraints.*;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Objects;
+
+/**
+ * The end-of-day balance of a ProductAccount, at midnight UTC following the snapshot date.
+ */
+@Entity
+@Table(name = "account_balance_snapshot")
+public class AccountBalanceSnapshot implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "sequenceGenerator")
+    @SequenceGenerator(name = "sequenceGenerator")
+    private Long id;
+
+    @NotNull
+    @Column(name = "snapshot_date", nullable = false)
+    private LocalDate snapshotDate;
+
+    @NotNull
+    @Column(name = "balance", precision = 10, scale = 2, nullable = false)
+    private BigDecimal balance;
+
+    @NotNull
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
+    private ProductAccount productAccount;
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public LocalDate getSnapshotDate() {
+        return snapshotDate;
+    }
+
+    public AccountBalanceSnapshot snapshotDate(LocalDate snapshotDate) {
+        this.snapshotDate = snapshotDate;
+        return this;
+    }
+
+    public void setSnapshotDate(LocalDate snapshotDate) {
+        this.snapshotDate = snapshotDate;
+    }
+
+    public BigDecimal getBalance() {
+        return balance;
+    }
+
+    public AccountBalanceSnapshot balance(BigDecimal balance) {
+        this.balance = balance;
+        return this;
+    }
+
+    public void setBalance(BigDecimal balance) {
+        this.balance = balance;
+    }
+
+    public ProductAccount getProductAccount() {
+        return productAccount;
+    }
+
+    public AccountBalanceSnapshot productAccount(ProductAccount productAccount) {
+        this.productAccount = productAccount;
+        return this;
+    }
+
+    public void setProductAccount(ProductAccount productAccount) {
+        this.productAccount = productAccount;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        AccountBalanceSnapshot accountBalanceSnapshot = (AccountBalanceSnapshot) o;
+        if (accountBalanceSnapshot.getId() == null || getId() == null) {
+            return false;
+        }
+        return Objects.equals(getId(), accountBalanceSnapshot.getId());
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hashCode(getId());
+    }
+
+    @Override
+    public String toString() {
+        return "AccountBalanceSnapshot{" +
+            "id=" + getId() +
+            ", snapshotDate='" + getSnapshotDate() + "'" +
+            ", balance=" + getBalance() +
+            "}";
+    }
+}
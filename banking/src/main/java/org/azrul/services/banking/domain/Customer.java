@@ -2,10 +2,14 @@ package org.azrul.services.banking.domain;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
 
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+
 import javax.persistence.*;
 
 import java.io.Serializable;
 import java.util.HashSet;
+import java.util.Locale;
 import java.util.Set;
 import java.util.Objects;
 
@@ -14,6 +18,7 @@ import java.util.Objects;
  */
 @Entity
 @Table(name = "customer")
+@Cache(usage = CacheConcurrencyStrategy.NONSTRICT_READ_WRITE)
 public class Customer implements Serializable {
 
     private static final long serialVersionUID = 1L;
@@ -38,7 +43,20 @@ public class Customer implements Serializable {
     @Column(name = "phone_number")
     private String phoneNumber;
 
+    /**
+     * The icNumber without separators, see {@link #normalizeIcNumber(String)}.
+     */
+    @Column(name = "ic_number_normalized")
+    private String icNumberNormalized;
+
+    /**
+     * The phoneNumber in international form, see {@link #normalizePhoneNumber(String)}.
+     */
+    @Column(name = "phone_number_normalized")
+    private String phoneNumberNormalized;
+
     @OneToMany(mappedBy = "customer")
+    @Cache(usage = CacheConcurrencyStrategy.NONSTRICT_READ_WRITE)
     private Set<ProductAccount> accounts = new HashSet<>();
     // jhipster-needle-entity-add-field - JHipster will add fields here, do not remove
     public Long getId() {
@@ -93,12 +111,13 @@ public class Customer implements Serializable {
     }
 
     public Customer icNumber(String icNumber) {
-        this.icNumber = icNumber;
+        setIcNumber(icNumber);
         return this;
     }
 
     public void setIcNumber(String icNumber) {
         this.icNumber = icNumber;
+        this.icNumberNormalized = normalizeIcNumber(icNumber);
     }
 
     public String getPhoneNumber() {
@@ -106,12 +125,21 @@ public class Customer implements Serializable {
     }
 
     public Customer phoneNumber(String phoneNumber) {
-        this.phoneNumber = phoneNumber;
+        setPhoneNumber(phoneNumber);
         return this;
     }
 
     public void setPhoneNumber(String phoneNumber) {
         this.phoneNumber = phoneNumber;
+        this.phoneNumberNormalized = normalizePhoneNumber(phoneNumber);
+    }
+
+    public String getIcNumberNormalized() {
+        return icNumberNormalized;
+    }
+
+    public String getPhoneNumberNormalized() {
+        return phoneNumberNormalized;
     }
 
     public Set<ProductAccount> getAccounts() {
@@ -140,6 +168,38 @@ public class Customer implements Serializable {
     }
     // jhipster-needle-entity-add-getters-setters - JHipster will add getters and setters here, do not remove
 
+    /**
+     * Normalize an IC number for lookups: the letters and digits, in upper case, so that "880101-14-5566" and
+     * "880101145566" are the same.
+     *
+     * @param icNumber the IC number, as entered
+     * @return the normalized IC number, or null if there is none
+     */
+    public static String normalizeIcNumber(String icNumber) {
+        if (icNumber == null) {
+            return null;
+        }
+        String normalized = icNumber.toUpperCase(Locale.ROOT).replaceAll("[^A-Z0-9]", "");
+        return normalized.isEmpty() ? null : normalized;
+    }
+
+    /**
+     * Normalize a phone number for lookups: the digits, with the Malaysian country code 60 instead of the
+     * trunk prefix 0, so that "012-345 6789", "+60123456789" and "60123456789" are the same.
+     * <p>
+     * The Liquibase changelog of the normalized columns computes the same values in SQL.
+     *
+     * @param phoneNumber the phone number, as entered
+     * @return the normalized phone number, or null if there is none
+     */
+    public static String normalizePhoneNumber(String phoneNumber) {
+        if (phoneNumber == null) {
+            return null;
+        }
+        String normalized = phoneNumber.replaceAll("[^0-9]", "").replaceFirst("^0", "60");
+        return normalized.isEmpty() ? null : normalized;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) {
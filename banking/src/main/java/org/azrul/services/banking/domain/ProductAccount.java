@@ -2,6 +2,9 @@ package org.azrul.services.banking.domain;
 
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+
 import javax.persistence.*;
 
 import java.io.Serializable;
@@ -14,6 +17,7 @@ import java.util.Objects;
  */
 @Entity
 @Table(name = "product_account")
+@Cache(usage = CacheConcurrencyStrategy.NONSTRICT_READ_WRITE)
 public class ProductAccount implements Serializable {
 
     private static final long serialVersionUID = 1L;
@@ -38,7 +42,7 @@ public class ProductAccount implements Serializable {
     @Column(name = "balance", precision = 10, scale = 2)
     private BigDecimal balance;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JsonIgnoreProperties("accounts")
     private Customer customer;
 
@@ -0,0 +1,170 @@
+package org.azrul.services.banking.domain;
+
+import javax.persistence.*;
+import javax.validation.constraints.*;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Objects;
+
+/**
+ * The total amount and count of the transactions of a day in UTC, currency and type, or a part of it.
+ * <p>
+ * Each total is spread over several slots, updated at random, and is the sum of its slots. A missing currency or
+ * type is stored as the empty string, so that it is part of the unique key.
+ */
+@Entity
+@Table(name = "transaction_daily_total")
+public class TransactionDailyTotal implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "sequenceGenerator")
+    @SequenceGenerator(name = "sequenceGenerator")
+    private Long id;
+
+    @NotNull
+    @Column(name = "bucket_date", nullable = false)
+    private LocalDate bucketDate;
+
+    @NotNull
+    @Column(name = "currency", nullable = false)
+    private String currency;
+
+    @NotNull
+    @Column(name = "transaction_type", nullable = false)
+    private String transactionType;
+
+    @NotNull
+    @Column(name = "slot", nullable = false)
+    private Integer slot;
+
+    @NotNull
+    @Column(name = "total_amount", precision = 21, scale = 2, nullable = false)
+    private BigDecimal totalAmount;
+
+    @NotNull
+    @Column(name = "transaction_count", nullable = false)
+    private Long transactionCount;
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public LocalDate getBucketDate() {
+        return bucketDate;
+    }
+
+    public TransactionDailyTotal bucketDate(LocalDate bucketDate) {
+        this.bucketDate = bucketDate;
+        return this;
+    }
+
+    public void setBucketDate(LocalDate bucketDate) {
+        this.bucketDate = bucketDate;
+    }
+
+    public String getCurrency() {
+        return currency;
+    }
+
+    public TransactionDailyTotal currency(String currency) {
+        this.currency = currency;
+        return this;
+    }
+
+    public void setCurrency(String currency) {
+        this.currency = currency;
+    }
+
+    public String getTransactionType() {
+        return transactionType;
+    }
+
+    public TransactionDailyTotal transactionType(String transactionType) {
+        this.transactionType = transactionType;
+        return this;
+    }
+
+    public void setTransactionType(String transactionType) {
+        this.transactionType = transactionType;
+    }
+
+    public Integer getSlot() {
+        return slot;
+    }
+
+    public TransactionDailyTotal slot(Integer slot) {
+        this.slot = slot;
+        return this;
+    }
+
+    public void setSlot(Integer slot) {
+        this.slot = slot;
+    }
+
+    public BigDecimal getTotalAmount() {
+        return totalAmount;
+    }
+
+    public TransactionDailyTotal totalAmount(BigDecimal totalAmount) {
+        this.totalAmount = totalAmount;
+        return this;
+    }
+
+    public void setTotalAmount(BigDecimal totalAmount) {
+        this.totalAmount = totalAmount;
+    }
+
+    public Long getTransactionCount() {
+        return transactionCount;
+    }
+
+    public TransactionDailyTotal transactionCount(Long transactionCount) {
+        this.transactionCount = transactionCount;
+        return this;
+    }
+
+    public void setTransactionCount(Long transactionCount) {
+        this.transactionCount = transactionCount;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        TransactionDailyTotal transactionDailyTotal = (TransactionDailyTotal) o;
+        if (transactionDailyTotal.getId() == null || getId() == null) {
+            return false;
+        }
+        return Objects.equals(getId(), transactionDailyTotal.getId());
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hashCode(getId());
+    }
+
+    @Override
+    public String toString() {
+        return "TransactionDailyTotal{" +
+            "id=" + getId() +
+            ", bucketDate='" + getBucketDate() + "'" +
+            ", currency='" + getCurrency() + "'" +
+            ", transactionType='" + getTransactionType() + "'" +
+            ", slot=" + getSlot() +
+            ", totalAmount=" + getTotalAmount() +
+            ", transactionCount=" + getTransactionCount() +
+            "}";
+    }
+}
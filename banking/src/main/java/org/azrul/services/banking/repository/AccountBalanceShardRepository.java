@@ -0,0 +1,74 @@
+package org.azrul.services.banking.repository;
+
+import org.azrul.services.banking.domain.AccountBalanceShard;
+import org.springframework.data.jpa.repository.*;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import javax.persistence.LockModeType;
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.List;
+
+
+/**
+ * Spring Data  repository for the AccountBalanceShard entity.
+ */
+@SuppressWarnings("unused")
+@Repository
+public interface AccountBalanceShardRepository extends JpaRepository<AccountBalanceShard, Long> {
+
+    /**
+     * Credit a shard of an account in a single statement.
+     *
+     * @return the number of updated rows: 0 if the shard does not exist
+     */
+    @Modifying
+    @Query("update AccountBalanceShard shard set shard.balance = shard.balance + :amount " +
+        "where shard.productAccount.id = :accountId and shard.shard = :shard")
+    int credit(@Param("accountId") Long accountId, @Param("shard") Integer shard, @Param("amount") BigDecimal amount);
+
+    /**
+     * Debit a shard of an account in a single statement, only if its balance covers the amount.
+     *
+     * @return the number of updated rows: 0 if the shard does not exist or its balance is insufficient
+     */
+    @Modifying
+    @Query("update AccountBalanceShard shard set shard.balance = shard.balance - :amount " +
+        "where shard.productAccount.id = :accountId and shard.shard = :shard and shard.balance >= :amount")
+    int debit(@Param("accountId") Long accountId, @Param("shard") Integer shard, @Param("amount") BigDecimal amount);
+
+    /**
+     * Delete the shards of an account.
+     */
+    @Modifying
+    @Query("delete from AccountBalanceShard shard where shard.productAccount.id = :accountId")
+    int deleteByAccount(@Param("accountId") Long accountId);
+
+    /**
+     * Get the shards of an account, by shard.
+     */
+    List<AccountBalanceShard> findByProductAccountIdOrderByShard(Long accountId);
+
+    /**
+     * Get and lock the shards of an account, by shard, so that concurrent transactions lock them in the same order.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select shard from AccountBalanceShard shard where shard.productAccount.id = :accountId " +
+        "order by shard.shard")
+    List<AccountBalanceShard> findByAccountForUpdate(@Param("accountId") Long accountId);
+
+    /**
+     * Get the number of shards of the sharded accounts, as (account id, count) rows.
+     */
+    @Query("select shard.productAccount.id, count(shard) from AccountBalanceShard shard " +
+        "group by shard.productAccount.id")
+    List<Object[]> countByAccount();
+
+    /**
+     * Get the total of the shards of accounts, as (account id, balance) rows, for the sharded accounts.
+     */
+    @Query("select shard.productAccount.id, sum(shard.balance) from AccountBalanceShard shard " +
+        "where shard.productAccount.id in :accountIds group by shard.productAccount.id")
+    List<Object[]> sumByAccount(@Param("accountIds") Collection<Long> accountIds);
+}
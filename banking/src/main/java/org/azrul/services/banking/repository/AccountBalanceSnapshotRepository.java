@@ -0,0 +1,53 @@
+package org.azrul.services.banking.repository;
+
+import org.azrul.services.banking.domain.AccountBalanceSnapshot;
+import org.springframework.data.jpa.repository.*;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+
+/**
+ * Spring Data  repository for the AccountBalanceSnapshot entity.
+ */
+@SuppressWarnings("unused")
+@Repository
+public interface AccountBalanceSnapshotRepository extends JpaRepository<AccountBalanceSnapshot, Long> {
+
+    /**
+     * Get the date of the latest snapshots, or null if no snapshot was taken yet.
+     */
+    @Query("select max(snapshot.snapshotDate) from AccountBalanceSnapshot snapshot")
+    LocalDate findLatestSnapshotDate();
+
+    /**
+     * Get the latest snapshot of an account strictly before a date, with a backward scan of the unique index.
+     */
+    Optional<AccountBalanceSnapshot> findFirstByProductAccountIdAndSnapshotDateLessThanOrderBySnapshotDateDesc(
+        Long productAccountId, LocalDate date);
+
+    /**
+     * Get the latest snapshot of each account strictly before a date, for the accounts which have one.
+     */
+    @Query("select snapshot from AccountBalanceSnapshot snapshot where snapshot.productAccount.id in :accountIds " +
+        "and snapshot.snapshotDate = (select max(latest.snapshotDate) from AccountBalanceSnapshot latest " +
+        "where latest.productAccount = snapshot.productAccount and latest.snapshotDate < :date)")
+    List<AccountBalanceSnapshot> findLatestBefore(@Param("accountIds") Collection<Long> accountIds,
+        @Param("date") LocalDate date);
+
+    /**
+     * Add an amount to the snapshots of an account from a date on, with a range scan of the unique index.
+     *
+     * @return the number of snapshots changed
+     */
+    @Modifying
+    @Query("update AccountBalanceSnapshot snapshot set snapshot.balance = snapshot.balance + :amount " +
+        "where snapshot.productAccount.id = :accountId and snapshot.snapshotDate >= :date")
+    int addToBalanceSince(@Param("accountId") Long accountId, @Param("date") LocalDate date,
+        @Param("amount") BigDecimal amount);
+}
@@ -4,6 +4,8 @@ import org.azrul.services.banking.domain.Customer;
 import org.springframework.data.jpa.repository.*;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
+
 
 /**
  * Spring Data  repository for the Customer entity.
@@ -12,4 +14,18 @@ import org.springframework.stereotype.Repository;
 @Repository
 public interface CustomerRepository extends JpaRepository<Customer, Long> {
 
+    /**
+     * Get the customers with a CIF number, at most one, with a lookup of the unique index on cif_number.
+     */
+    List<Customer> findByCifNumber(String cifNumber);
+
+    /**
+     * Get the customers with a normalized IC number, with a lookup of idx_customer_ic_number_normalized.
+     */
+    List<Customer> findByIcNumberNormalized(String icNumberNormalized);
+
+    /**
+     * Get the customers with a normalized phone number, with a lookup of idx_customer_phone_number_normalized.
+     */
+    List<Customer> findByPhoneNumberNormalized(String phoneNumberNormalized);
 }
@@ -0,0 +1,30 @@
+package org.azrul.services.banking.repository;
+
+import org.azrul.services.banking.domain.OutboxEvent;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.*;
+import org.springframework.stereotype.Repository;
+
+import javax.persistence.LockModeType;
+import javax.persistence.QueryHint;
+import java.util.List;
+
+
+/**
+ * Spring Data  repository for the OutboxEvent entity.
+ */
+@SuppressWarnings("unused")
+@Repository
+public interface OutboxEventRepository extends JpaRepository<OutboxEvent, Long> {
+
+    /**
+     * Lock the oldest events which are not locked by another relay, in id order.
+     * <p>
+     * The lock timeout of -2 is Hibernate's LockOptions.SKIP_LOCKED, rendered as "for update skip locked" by
+     * PostgreSQLSkipLockedDialect. Databases without SKIP LOCKED, such as H2, wait for the locks instead.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "javax.persistence.lock.timeout", value = "-2"))
+    @Query("select event from OutboxEvent event order by event.id")
+    List<OutboxEvent> findBatchForDelivery(Pageable pageable);
+}
@@ -2,8 +2,16 @@ package org.azrul.services.banking.repository;
 
 import org.azrul.services.banking.domain.ProductAccount;
 import org.springframework.data.jpa.repository.*;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import javax.persistence.LockModeType;
+import java.math.BigDecimal;
+import java.time.ZonedDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
 
 /**
  * Spring Data  repository for the ProductAccount entity.
@@ -12,4 +20,63 @@ import org.springframework.stereotype.Repository;
 @Repository
 public interface ProductAccountRepository extends JpaRepository<ProductAccount, Long> {
 
+    /**
+     * Get the accounts of a customer, with a range scan of idx_product_account_customer.
+     */
+    List<ProductAccount> findByCustomerIdOrderById(Long customerId);
+
+    /**
+     * Debit an account in a single statement, only if its balance covers the amount.
+     *
+     * @return the number of updated rows: 0 if the account does not exist or its balance is insufficient
+     */
+    @Modifying
+    @Query("update ProductAccount productAccount set productAccount.balance = coalesce(productAccount.balance, 0) - :amount " +
+        "where productAccount.id = :id and coalesce(productAccount.balance, 0) >= :amount")
+    int debit(@Param("id") Long id, @Param("amount") BigDecimal amount);
+
+    /**
+     * Credit an account in a single statement.
+     *
+     * @return the number of updated rows: 0 if the account does not exist
+     */
+    @Modifying
+    @Query("update ProductAccount productAccount set productAccount.balance = coalesce(productAccount.balance, 0) + :amount " +
+        "where productAccount.id = :id")
+    int credit(@Param("id") Long id, @Param("amount") BigDecimal amount);
+
+    /**
+     * Get and lock an account, before its balance shards.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select productAccount from ProductAccount productAccount where productAccount.id = :id")
+    Optional<ProductAccount> findByIdForUpdate(@Param("id") Long id);
+
+    /**
+     * Get the current balance of accounts, as (account id, balance, balance of the shards) rows. Unlike the
+     * entities, they include the changes made by the UPDATE statements of the current transaction.
+     */
+    @Query("select productAccount.id, coalesce(productAccount.balance, 0), " +
+        "(select coalesce(sum(shard.balance), 0) from AccountBalanceShard shard " +
+        "where shard.productAccount = productAccount) " +
+        "from ProductAccount productAccount where productAccount.id in :ids")
+    List<Object[]> findBalances(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Get the current balance of accounts, with the totals credited and debited since a time, as
+     * (account id, balance, balance of the shards, credits, debits) rows.
+     * <p>
+     * The balance and the totals are read by a single statement, so that they are consistent with each other
+     * while transfers are posted.
+     */
+    @Query("select productAccount.id, coalesce(productAccount.balance, 0), " +
+        "(select coalesce(sum(shard.balance), 0) from AccountBalanceShard shard " +
+        "where shard.productAccount = productAccount), " +
+        "(select coalesce(sum(credit.amount), 0) from Transaction credit " +
+        "where credit.target = productAccount and credit.time >= :since), " +
+        "(select coalesce(sum(debit.amount), 0) from Transaction debit " +
+        "where debit.source = productAccount and debit.time >= :since) " +
+        "from ProductAccount productAccount where productAccount.id in :ids")
+    List<Object[]> findBalancesAndMovementsSince(@Param("ids") Collection<Long> ids,
+        @Param("since") ZonedDateTime since);
 }
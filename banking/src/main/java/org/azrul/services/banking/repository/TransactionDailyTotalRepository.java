@@ -0,0 +1,62 @@
+package org.azrul.services.banking.repository;
+
+import org.azrul.services.banking.domain.TransactionDailyTotal;
+import org.springframework.data.jpa.repository.*;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+
+/**
+ * Spring Data  repository for the TransactionDailyTotal entity.
+ */
+@SuppressWarnings("unused")
+@Repository
+public interface TransactionDailyTotalRepository extends JpaRepository<TransactionDailyTotal, Long>,
+    TransactionDailyTotalRepositoryCustom {
+
+    /**
+     * Add an amount and a count to a slot of a daily total, in a single statement.
+     *
+     * @return the number of updated rows: 0 if the slot does not exist yet
+     */
+    @Modifying
+    @Query("update TransactionDailyTotal total set total.totalAmount = total.totalAmount + :amount, " +
+        "total.transactionCount = total.transactionCount + :count " +
+        "where total.bucketDate = :date and total.currency = :currency " +
+        "and total.transactionType = :transactionType and total.slot = :slot")
+    int increment(@Param("date") LocalDate date, @Param("currency") String currency,
+        @Param("transactionType") String transactionType, @Param("slot") Integer slot,
+        @Param("amount") BigDecimal amount, @Param("count") Long count);
+
+    /**
+     * Delete the slots of the daily totals of a day.
+     */
+    @Modifying
+    @Query("delete from TransactionDailyTotal total where total.bucketDate = :date")
+    int deleteByBucketDate(@Param("date") LocalDate date);
+
+    /**
+     * Get the totals of [from, to) by currency and type, as (currency, type, amount, count) rows.
+     */
+    @Query("select total.currency, total.transactionType, sum(total.totalAmount), sum(total.transactionCount) " +
+        "from TransactionDailyTotal total where total.bucketDate >= :from and total.bucketDate < :to " +
+        "group by total.currency, total.transactionType " +
+        "having sum(total.transactionCount) <> 0 " +
+        "order by total.currency, total.transactionType")
+    List<Object[]> sumByCurrencyAndType(@Param("from") LocalDate from, @Param("to") LocalDate to);
+
+    /**
+     * Get the totals of each day of [from, to) by currency and type, as (day, currency, type, amount, count) rows.
+     */
+    @Query("select total.bucketDate, total.currency, total.transactionType, sum(total.totalAmount), " +
+        "sum(total.transactionCount) " +
+        "from TransactionDailyTotal total where total.bucketDate >= :from and total.bucketDate < :to " +
+        "group by total.bucketDate, total.currency, total.transactionType " +
+        "having sum(total.transactionCount) <> 0 " +
+        "order by total.bucketDate, total.currency, total.transactionType")
+    List<Object[]> sumByDayCurrencyAndType(@Param("from") LocalDate from, @Param("to") LocalDate to);
+}
@@ -0,0 +1,22 @@
+package org.azrul.services.banking.repository;
+
+import java.time.LocalDate;
+
+/**
+ * The queries of the TransactionDailyTotal repository which are not derived by Spring Data, see
+ * TransactionDailyTotalRepositoryImpl.
+ */
+public interface TransactionDailyTotalRepositoryCustom {
+
+    /**
+     * Insert an empty slot of a daily total, unless it exists, without failing when a concurrent transaction
+     * inserts it too.
+     *
+     * @param date the day of the total
+     * @param currency the currency of the total
+     * @param transactionType the transaction type of the total
+     * @param slot the slot
+     * @return the number of inserted rows: 0 if the slot existed
+     */
+    int insertSlotIfAbsent(LocalDate date, String currency, String transactionType, Integer slot);
+}
@@ -0,0 +1,53 @@
+package org.azrul.services.banking.repository;
+
+import org.hibernate.dialect.PostgreSQL81Dialect;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.sql.Date;
+import java.time.LocalDate;
+
+/**
+ * Implementation of the TransactionDailyTotalRepositoryCustom queries.
+ */
+public class TransactionDailyTotalRepositoryImpl implements TransactionDailyTotalRepositoryCustom {
+
+    private static final String POSTGRESQL_INSERT_SLOT = "insert into transaction_daily_total " +
+        "(id, bucket_date, currency, transaction_type, slot, total_amount, transaction_count) " +
+        "values (nextval('hibernate_sequence'), :date, :currency, :transactionType, :slot, 0, 0) " +
+        "on conflict (bucket_date, currency, transaction_type, slot) do nothing";
+
+    private static final String H2_INSERT_SLOT = "merge into transaction_daily_total total " +
+        "using (select cast(:date as date) as bucket_date, cast(:currency as varchar) as currency, " +
+        "cast(:transactionType as varchar) as transaction_type, cast(:slot as int) as slot) missing " +
+        "on (total.bucket_date = missing.bucket_date and total.currency = missing.currency " +
+        "and total.transaction_type = missing.transaction_type and total.slot = missing.slot) " +
+        "when not matched then insert " +
+        "(id, bucket_date, currency, transaction_type, slot, total_amount, transaction_count) " +
+        "values (next value for hibernate_sequence, missing.bucket_date, missing.currency, missing.transaction_type, " +
+        "missing.slot, 0, 0)";
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    /**
+     * An upsert in the current transaction, INSERT ... ON CONFLICT DO NOTHING on PostgreSQL and MERGE on H2, so
+     * that it does not need a connection of its own. On PostgreSQL, it waits for a concurrent transaction
+     * inserting the same slot to end.
+     */
+    @Override
+    public int insertSlotIfAbsent(LocalDate date, String currency, String transactionType, Integer slot) {
+        return entityManager.createNativeQuery(isPostgreSQL() ? POSTGRESQL_INSERT_SLOT : H2_INSERT_SLOT)
+            .setParameter("date", Date.valueOf(date))
+            .setParameter("currency", currency)
+            .setParameter("transactionType", transactionType)
+            .setParameter("slot", slot)
+            .executeUpdate();
+    }
+
+    private boolean isPostgreSQL() {
+        return entityManager.getEntityManagerFactory().unwrap(SessionFactoryImplementor.class)
+            .getJdbcServices().getDialect() instanceof PostgreSQL81Dialect;
+    }
+}
@@ -1,15 +1,180 @@
 package org.azrul.services.banking.repository;
 
 import org.azrul.services.banking.domain.Transaction;
+import org.azrul.services.banking.service.dto.AccountStatementLineDTO;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.*;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import javax.persistence.QueryHint;
+import java.math.BigDecimal;
+import java.time.ZonedDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.QueryHints.HINT_CACHEABLE;
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.QueryHints.HINT_READONLY;
+
 
 /**
  * Spring Data  repository for the Transaction entity.
+ * <p>
+ * When transaction partitioning is enabled, on PostgreSQL 11 or later, the transaction table is partitioned by
+ * month of time. The queries bounding the time, with bind parameters, only scan the partitions of the months in
+ * range, pruned when the statement is executed.
+ * The queries without bound on the time, such as by id or by transactionId, probe every partition.
  */
 @SuppressWarnings("unused")
 @Repository
-public interface TransactionRepository extends JpaRepository<Transaction, Long> {
+public interface TransactionRepository extends JpaRepository<Transaction, Long>, TransactionRepositoryCustom {
+
+    /**
+     * The number of rows fetched per round trip by the streams.
+     */
+    String EXPORT_FETCH_SIZE = "500";
+
+    Optional<Transaction> findOneByTransactionId(String transactionId);
+
+    /**
+     * Get the transactions with some transactionIds, as (transactionId, id) rows.
+     */
+    @Query("select transaction.transactionId, transaction.id from Transaction transaction " +
+        "where transaction.transactionId in :transactionIds")
+    List<Object[]> findIdsByTransactionIdIn(@Param("transactionIds") Collection<String> transactionIds);
+
+    /**
+     * Get the first transactions, most recent first, for keyset pagination. No count query is run.
+     */
+    @Query("select transaction from Transaction transaction where transaction.time is not null " +
+        "order by transaction.time desc, transaction.id desc")
+    List<Transaction> findFirstByTimeDesc(Pageable pageable);
+
+    /**
+     * Get the transactions following the (time, id) position, most recent first, for keyset pagination.
+     * <p>
+     * The redundant "time <= :time" bounds the range scan of the (jhi_time, id) index.
+     */
+    @Query("select transaction from Transaction transaction where transaction.time <= :time " +
+        "and (transaction.time < :time or transaction.id < :id) " +
+        "order by transaction.time desc, transaction.id desc")
+    List<Transaction> findAfterByTimeDesc(@Param("time") ZonedDateTime time, @Param("id") Long id, Pageable pageable);
+
+    /**
+     * Get the transactions debiting an account in [from, to), by time, as statement lines.
+     * <p>
+     * Served by an index-only range scan of idx_transaction_source_time, which covers the selected columns.
+     */
+    @Query("select new org.azrul.services.banking.service.dto.AccountStatementLineDTO(transaction.id, " +
+        "transaction.transactionId, transaction.transactionType, transaction.amount, transaction.currency, " +
+        "transaction.time, transaction.target.id) " +
+        "from Transaction transaction where transaction.source.id = :accountId " +
+        "and transaction.time >= :from and transaction.time < :to " +
+        "order by transaction.time, transaction.id")
+    List<AccountStatementLineDTO> findDebitLines(@Param("accountId") Long accountId,
+        @Param("from") ZonedDateTime from, @Param("to") ZonedDateTime to);
+
+    /**
+     * Get the transactions crediting an account in [from, to), by time, as statement lines.
+     * <p>
+     * Served by an index-only range scan of idx_transaction_target_time, which covers the selected columns.
+     */
+    @Query("select new org.azrul.services.banking.service.dto.AccountStatementLineDTO(transaction.id, " +
+        "transaction.transactionId, transaction.transactionType, transaction.amount, transaction.currency, " +
+        "transaction.time, transaction.source.id) " +
+        "from Transaction transaction where transaction.target.id = :accountId " +
+        "and transaction.time >= :from and transaction.time < :to " +
+        "order by transaction.time, transaction.id")
+    List<AccountStatementLineDTO> findCreditLines(@Param("accountId") Long accountId,
+        @Param("from") ZonedDateTime from, @Param("to") ZonedDateTime to);
+
+    /**
+     * Get the total debited from each account in [from, to), as (account id, amount) rows.
+     */
+    @Query("select transaction.source.id, sum(transaction.amount) from Transaction transaction " +
+        "where transaction.time >= :from and transaction.time < :to and transaction.source is not null " +
+        "group by transaction.source.id")
+    List<Object[]> sumDebitsByAccount(@Param("from") ZonedDateTime from, @Param("to") ZonedDateTime to);
+
+    /**
+     * Get the total credited to each account in [from, to), as (account id, amount) rows.
+     */
+    @Query("select transaction.target.id, sum(transaction.amount) from Transaction transaction " +
+        "where transaction.time >= :from and transaction.time < :to and transaction.target is not null " +
+        "group by transaction.target.id")
+    List<Object[]> sumCreditsByAccount(@Param("from") ZonedDateTime from, @Param("to") ZonedDateTime to);
+
+    /**
+     * Get the totals of the transactions in [from, to) by currency and type, as (currency, type, amount, count) rows.
+     */
+    @Query("select transaction.currency, transaction.transactionType, sum(transaction.amount), count(transaction) " +
+        "from Transaction transaction where transaction.time >= :from and transaction.time < :to " +
+        "group by transaction.currency, transaction.transactionType")
+    List<Object[]> sumByCurrencyAndType(@Param("from") ZonedDateTime from, @Param("to") ZonedDateTime to);
+
+    /**
+     * Get the total debited from an account in [from, to), with a range scan of idx_transaction_source_time.
+     */
+    @Query("select coalesce(sum(transaction.amount), 0) from Transaction transaction " +
+        "where transaction.source.id = :accountId and transaction.time >= :from and transaction.time < :to")
+    BigDecimal sumDebits(@Param("accountId") Long accountId,
+        @Param("from") ZonedDateTime from, @Param("to") ZonedDateTime to);
+
+    /**
+     * Get the total credited to an account in [from, to), with a range scan of idx_transaction_target_time.
+     */
+    @Query("select coalesce(sum(transaction.amount), 0) from Transaction transaction " +
+        "where transaction.target.id = :accountId and transaction.time >= :from and transaction.time < :to")
+    BigDecimal sumCredits(@Param("accountId") Long accountId,
+        @Param("from") ZonedDateTime from, @Param("to") ZonedDateTime to);
+
+    /**
+     * Stream the transactions in [from, to), by time, for the export.
+     * <p>
+     * The rows are fetched from a server-side cursor, EXPORT_FETCH_SIZE at a time, as read-only entities. The stream
+     * must be consumed and closed in the transaction it was opened in.
+     */
+    @QueryHints({
+        @QueryHint(name = HINT_FETCH_SIZE, value = EXPORT_FETCH_SIZE),
+        @QueryHint(name = HINT_READONLY, value = "true"),
+        @QueryHint(name = HINT_CACHEABLE, value = "false")
+    })
+    @Query("select transaction from Transaction transaction " +
+        "where transaction.time >= :from and transaction.time < :to " +
+        "order by transaction.time, transaction.id")
+    Stream<Transaction> streamByTime(@Param("from") ZonedDateTime from, @Param("to") ZonedDateTime to);
+
+    /**
+     * Stream the transactions debiting or crediting an account in [from, to), by time, for the export.
+     *
+     * @see #streamByTime(ZonedDateTime, ZonedDateTime)
+     */
+    @QueryHints({
+        @QueryHint(name = HINT_FETCH_SIZE, value = EXPORT_FETCH_SIZE),
+        @QueryHint(name = HINT_READONLY, value = "true"),
+        @QueryHint(name = HINT_CACHEABLE, value = "false")
+    })
+    @Query("select transaction from Transaction transaction " +
+        "where (transaction.source.id = :accountId or transaction.target.id = :accountId) " +
+        "and transaction.time >= :from and transaction.time < :to " +
+        "order by transaction.time, transaction.id")
+    Stream<Transaction> streamByAccountAndTime(@Param("accountId") Long accountId,
+        @Param("from") ZonedDateTime from, @Param("to") ZonedDateTime to);
 
+    /**
+     * Stream the (source account id, amount, time) of the transactions debiting an account since a time, to
+     * rebuild the velocity windows.
+     *
+     * @see #streamByTime(ZonedDateTime, ZonedDateTime)
+     */
+    @QueryHints({
+        @QueryHint(name = HINT_FETCH_SIZE, value = EXPORT_FETCH_SIZE),
+        @QueryHint(name = HINT_CACHEABLE, value = "false")
+    })
+    @Query("select transaction.source.id, transaction.amount, transaction.time from Transaction transaction " +
+        "where transaction.source is not null and transaction.time >= :since")
+    Stream<Object[]> streamDebitsSince(@Param("since") ZonedDateTime since);
 }
@@ -0,0 +1,22 @@
+package org.azrul.services.banking.repository;
+
+import org.azrul.services.banking.service.dto.AccountStatementLineDTO;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The queries of the Transaction repository which are not derived by Spring Data, see TransactionRepositoryImpl.
+ */
+public interface TransactionRepositoryCustom {
+
+    /**
+     * Get the most recent transactions debiting or crediting each of the accounts, as statement lines.
+     *
+     * @param accountIds the ids of the accounts
+     * @param limit the maximum number of lines per account
+     * @return the lines of each account having transactions, most recent first
+     */
+    Map<Long, List<AccountStatementLineDTO>> findRecentLinesByAccounts(Collection<Long> accountIds, int limit);
+}
@@ -0,0 +1,146 @@
+package org.azrul.services.banking.repository;
+
+import org.azrul.services.banking.domain.enumeration.Currency;
+import org.azrul.services.banking.service.dto.AccountStatementLineDTO;
+
+import org.hibernate.dialect.PostgreSQL81Dialect;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.query.NativeQuery;
+import org.hibernate.type.BigDecimalType;
+import org.hibernate.type.LongType;
+import org.hibernate.type.StringType;
+import org.hibernate.type.ZonedDateTimeType;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.math.BigDecimal;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Implementation of the TransactionRepositoryCustom queries.
+ */
+public class TransactionRepositoryImpl implements TransactionRepositoryCustom {
+
+    /**
+     * The number of accounts per statement of findRecentLinesByAccounts on H2, each one adding two branches.
+     */
+    private static final int ACCOUNTS_PER_STATEMENT = 50;
+
+    private static final String DEBIT_BRANCH = "(select t.source_id as account_id, 'DEBIT' as direction, t.id, " +
+        "t.transaction_id, t.transaction_type, t.amount, t.currency, t.jhi_time, t.target_id as counterparty_id " +
+        "from transaction t where t.source_id = :account%1$d and t.jhi_time is not null " +
+        "order by t.jhi_time desc, t.id desc limit :limit)";
+
+    private static final String CREDIT_BRANCH = "(select t.target_id as account_id, 'CREDIT' as direction, t.id, " +
+        "t.transaction_id, t.transaction_type, t.amount, t.currency, t.jhi_time, t.source_id as counterparty_id " +
+        "from transaction t where t.target_id = :account%1$d and t.jhi_time is not null " +
+        "order by t.jhi_time desc, t.id desc limit :limit)";
+
+    private static final String POSTGRESQL_RECENT_LINES = "select a.account_id, l.direction, l.id, l.transaction_id, " +
+        "l.transaction_type, l.amount, l.currency, l.jhi_time, l.counterparty_id " +
+        "from unnest(cast(string_to_array(:accountIds, ',') as bigint[])) as a(account_id) cross join lateral (" +
+        "(select 'DEBIT' as direction, t.id, t.transaction_id, t.transaction_type, t.amount, t.currency, " +
+        "t.jhi_time, t.target_id as counterparty_id from transaction t " +
+        "where t.source_id = a.account_id and t.jhi_time is not null " +
+        "order by t.jhi_time desc, t.id desc limit :limit) union all " +
+        "(select 'CREDIT' as direction, t.id, t.transaction_id, t.transaction_type, t.amount, t.currency, " +
+        "t.jhi_time, t.source_id as counterparty_id from transaction t " +
+        "where t.target_id = a.account_id and t.jhi_time is not null " +
+        "order by t.jhi_time desc, t.id desc limit :limit)) l";
+
+    private static final Comparator<AccountStatementLineDTO> MOST_RECENT_FIRST =
+        Comparator.comparing(AccountStatementLineDTO::getTime)
+            .thenComparing(AccountStatementLineDTO::getId)
+            .reversed();
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    /**
+     * The lines of each account are read by a UNION ALL of two branches, the debits and the credits, each one a
+     * range scan of idx_transaction_source_time or idx_transaction_target_time stopping after "limit" rows.
+     * These indexes cover the selected columns, so that the branches are index-only scans. A window function
+     * ranking the transactions of each account would read all of them.
+     * <p>
+     * On PostgreSQL, all the accounts are read by one statement: their ids are bound as one array parameter, and
+     * the branches are joined laterally to each of them. H2 does not support lateral joins, so there the branches
+     * of each account are repeated in the statement, for up to ACCOUNTS_PER_STATEMENT accounts per statement.
+     */
+    @Override
+    public Map<Long, List<AccountStatementLineDTO>> findRecentLinesByAccounts(Collection<Long> accountIds, int limit) {
+        Map<Long, List<AccountStatementLineDTO>> linesByAccount = new LinkedHashMap<>();
+        List<Long> ids = new ArrayList<>(accountIds);
+        if (ids.isEmpty()) {
+            return linesByAccount;
+        }
+        if (isPostgreSQL()) {
+            NativeQuery<Object[]> query = createLinesQuery(POSTGRESQL_RECENT_LINES);
+            query.setParameter("accountIds", ids.stream().map(String::valueOf).collect(Collectors.joining(",")));
+            query.setParameter("limit", limit);
+            addLines(linesByAccount, query.getResultList());
+        } else {
+            for (int start = 0; start < ids.size(); start += ACCOUNTS_PER_STATEMENT) {
+                List<Long> chunk = ids.subList(start, Math.min(start + ACCOUNTS_PER_STATEMENT, ids.size()));
+                StringBuilder sql = new StringBuilder();
+                for (int i = 0; i < chunk.size(); i++) {
+                    if (i > 0) {
+                        sql.append(" union all ");
+                    }
+                    sql.append(String.format(DEBIT_BRANCH, i)).append(" union all ")
+                        .append(String.format(CREDIT_BRANCH, i));
+                }
+                NativeQuery<Object[]> query = createLinesQuery(sql.toString());
+                for (int i = 0; i < chunk.size(); i++) {
+                    query.setParameter("account" + i, chunk.get(i));
+                }
+                query.setParameter("limit", limit);
+                addLines(linesByAccount, query.getResultList());
+            }
+        }
+        for (List<AccountStatementLineDTO> lines : linesByAccount.values()) {
+            lines.sort(MOST_RECENT_FIRST);
+            if (lines.size() > limit) {
+                lines.subList(limit, lines.size()).clear();
+            }
+        }
+        return linesByAccount;
+    }
+
+    @SuppressWarnings("unchecked")
+    private NativeQuery<Object[]> createLinesQuery(String sql) {
+        return entityManager.createNativeQuery(sql)
+            .unwrap(NativeQuery.class)
+            .addScalar("account_id", LongType.INSTANCE)
+            .addScalar("direction", StringType.INSTANCE)
+            .addScalar("id", LongType.INSTANCE)
+            .addScalar("transaction_id", StringType.INSTANCE)
+            .addScalar("transaction_type", StringType.INSTANCE)
+            .addScalar("amount", BigDecimalType.INSTANCE)
+            .addScalar("currency", StringType.INSTANCE)
+            .addScalar("jhi_time", ZonedDateTimeType.INSTANCE)
+            .addScalar("counterparty_id", LongType.INSTANCE);
+    }
+
+    private static void addLines(Map<Long, List<AccountStatementLineDTO>> linesByAccount, List<Object[]> rows) {
+        for (Object[] row : rows) {
+            String currency = (String) row[6];
+            AccountStatementLineDTO line = new AccountStatementLineDTO((Long) row[2], (String) row[3],
+                (String) row[4], (BigDecimal) row[5], currency == null ? null : Currency.valueOf(currency),
+                (ZonedDateTime) row[7], (Long) row[8]);
+            line.setDirection(AccountStatementLineDTO.Direction.valueOf((String) row[1]));
+            linesByAccount.computeIfAbsent((Long) row[0], accountId -> new ArrayList<>()).add(line);
+        }
+    }
+
+    private boolean isPostgreSQL() {
+        return entityManager.getEntityManagerFactory().unwrap(SessionFactoryImplementor.class)
+            .getJdbcServices().getDialect() instanceof PostgreSQL81Dialect;
+    }
+}
@@ -0,0 +1,149 @@
+package org.azrul.services.banking.security.oauth2;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.security.core.AuthenticationException;
+import org.springframework.security.jwt.JwtHelper;
+import org.springframework.security.oauth2.common.OAuth2AccessToken;
+import org.springframework.security.oauth2.common.exceptions.InvalidTokenException;
+import org.springframework.security.oauth2.provider.OAuth2Authentication;
+import org.springframework.security.oauth2.provider.token.ResourceServerTokenServices;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Caches the authentication resolved by the user-info-uri, so that repeated requests with the same access
+ * token do not call the identity provider again.
+ * <p>
+ * Entries are keyed by a SHA-256 hash of the token, the least recently used entry is evicted when the cache
+ * is full, and an entry never outlives the "exp" claim of the token. Hits, misses and evictions are
+ * reported to the metric registry.
+ */
+public class CachingUserInfoTokenServices implements ResourceServerTokenServices {
+
+    public static final String METRIC_PREFIX = "oauth2.user-info-cache";
+
+    private final Logger log = LoggerFactory.getLogger(CachingUserInfoTokenServices.class);
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    private final ResourceServerTokenServices delegate;
+
+    private final int maxSize;
+
+    private final long timeToLiveMillis;
+
+    private final Map<String, CachedAuthentication> cache;
+
+    private final Counter hits;
+
+    private final Counter misses;
+
+    private final Counter evictions;
+
+    public CachingUserInfoTokenServices(ResourceServerTokenServices delegate, int maxSize, long timeToLiveMillis,
+        MetricRegistry metricRegistry) {
+        this.delegate = delegate;
+        this.maxSize = maxSize;
+        this.timeToLiveMillis = timeToLiveMillis;
+        this.cache = new LinkedHashMap<String, CachedAuthentication>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedAuthentication> eldest) {
+                if (size() > CachingUserInfoTokenServices.this.maxSize) {
+                    evictions.inc();
+                    return true;
+                }
+                return false;
+            }
+        };
+        this.hits = metricRegistry.counter(METRIC_PREFIX + ".hits");
+        this.misses = metricRegistry.counter(METRIC_PREFIX + ".misses");
+        this.evictions = metricRegistry.counter(METRIC_PREFIX + ".evictions");
+        metricRegistry.register(METRIC_PREFIX + ".size", (Gauge<Integer>) this::size);
+    }
+
+    @Override
+    public OAuth2Authentication loadAuthentication(String accessToken) throws AuthenticationException,
+        InvalidTokenException {
+        String key = hash(accessToken);
+        long now = System.currentTimeMillis();
+        synchronized (cache) {
+            CachedAuthentication cached = cache.get(key);
+            if (cached != null) {
+                if (cached.expiresAt > now) {
+                    hits.inc();
+                    return cached.authentication;
+                }
+                cache.remove(key);
+                evictions.inc();
+            }
+        }
+        misses.inc();
+        OAuth2Authentication authentication = delegate.loadAuthentication(accessToken);
+        long expiresAt = Math.min(now + timeToLiveMillis, getExpiration(accessToken));
+        if (expiresAt > now) {
+            synchronized (cache) {
+                cache.put(key, new CachedAuthentication(authentication, expiresAt));
+            }
+        }
+        return authentication;
+    }
+
+    @Override
+    public OAuth2AccessToken readAccessToken(String accessToken) {
+        return delegate.readAccessToken(accessToken);
+    }
+
+    public int size() {
+        synchronized (cache) {
+            return cache.size();
+        }
+    }
+
+    /**
+     * The "exp" claim of the token in milliseconds, when the token is a JWT.
+     */
+    private long getExpiration(String accessToken) {
+        try {
+            JsonNode exp = mapper.readTree(JwtHelper.decode(accessToken).getClaims()).get("exp");
+            if (exp != null && exp.canConvertToLong()) {
+                return exp.asLong() * 1000;
+            }
+        } catch (IOException | RuntimeException e) {
+            log.trace("Access token is not a JWT, caching it for the configured time to live only");
+        }
+        return Long.MAX_VALUE;
+    }
+
+    private static String hash(String accessToken) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return Base64.getEncoder().encodeToString(digest.digest(accessToken.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    private static final class CachedAuthentication {
+
+        private final OAuth2Authentication authentication;
+
+        private final long expiresAt;
+
+        private CachedAuthentication(OAuth2Authentication authentication, long expiresAt) {
+            this.authentication = authentication;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package org.azrul.services.banking.security.oauth2;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestTemplate;
+
+import java.math.BigInteger;
+import java.security.GeneralSecurityException;
+import java.security.KeyFactory;
+import java.security.interfaces.RSAPublicKey;
+import java.security.spec.RSAPublicKeySpec;
+import java.util.*;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Caches the RSA signing keys published by the identity provider JWK Set endpoint.
+ * <p>
+ * The key set is reloaded once it is older than the refresh interval, by a single caller while the
+ * others keep using the current keys. An unknown key id forces a reload, so that key rotation is
+ * picked up, but no more often than the minimum refresh interval.
+ */
+public class JwkKeySetCache {
+
+    private final Logger log = LoggerFactory.getLogger(JwkKeySetCache.class);
+
+    private final RestTemplate restTemplate;
+
+    private final String jwkSetUri;
+
+    private final long refreshIntervalMillis;
+
+    private final long minRefreshIntervalMillis;
+
+    private final ReentrantLock refreshLock = new ReentrantLock();
+
+    private volatile Map<String, RSAPublicKey> keys = Collections.emptyMap();
+
+    private volatile long lastRefresh;
+
+    public JwkKeySetCache(RestTemplate restTemplate, String jwkSetUri, long refreshIntervalMillis,
+        long minRefreshIntervalMillis) {
+        this.restTemplate = restTemplate;
+        this.jwkSetUri = jwkSetUri;
+        this.refreshIntervalMillis = refreshIntervalMillis;
+        this.minRefreshIntervalMillis = minRefreshIntervalMillis;
+    }
+
+    /**
+     * Get the signing key with the given key id.
+     *
+     * @param kid the "kid" header of the token, may be null if the identity provider publishes a single key
+     * @return the key, or null if it is not part of the key set
+     */
+    public RSAPublicKey getKey(String kid) {
+        if (System.currentTimeMillis() - lastRefresh > refreshIntervalMillis) {
+            refresh(!keys.isEmpty());
+        }
+        RSAPublicKey key = lookup(kid);
+        if (key == null && System.currentTimeMillis() - lastRefresh >= minRefreshIntervalMillis) {
+            log.debug("Unknown JWK key id {}, reloading the key set", kid);
+            refresh(false);
+            key = lookup(kid);
+        }
+        return key;
+    }
+
+    private RSAPublicKey lookup(String kid) {
+        Map<String, RSAPublicKey> current = keys;
+        if (kid == null) {
+            return current.size() == 1 ? current.values().iterator().next() : null;
+        }
+        return current.get(kid);
+    }
+
+    private void refresh(boolean skipIfBusy) {
+        long seen = lastRefresh;
+        if (skipIfBusy) {
+            if (!refreshLock.tryLock()) {
+                return;
+            }
+        } else {
+            refreshLock.lock();
+        }
+        try {
+            if (lastRefresh != seen) {
+                // another caller reloaded the key set while we were waiting
+                return;
+            }
+            keys = loadKeys();
+            log.debug("Loaded {} signing keys from {}", keys.size(), jwkSetUri);
+        } catch (RestClientException | IllegalArgumentException | GeneralSecurityException e) {
+            log.warn("Could not load the JWK Set from {}, keeping {} cached keys: {}", jwkSetUri, keys.size(),
+                e.getMessage());
+        } finally {
+            lastRefresh = System.currentTimeMillis();
+            refreshLock.unlock();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, RSAPublicKey> loadKeys() throws GeneralSecurityException {
+        Map<String, Object> jwkSet = restTemplate.getForObject(jwkSetUri, Map.class);
+        if (jwkSet == null || !(jwkSet.get("keys") instanceof List)) {
+            throw new IllegalArgumentException("JWK Set has no \"keys\" member");
+        }
+        KeyFactory keyFactory = KeyFactory.getInstance("RSA");
+        Base64.Decoder decoder = Base64.getUrlDecoder();
+        Map<String, RSAPublicKey> loaded = new HashMap<>();
+        for (Map<String, Object> jwk : (List<Map<String, Object>>) jwkSet.get("keys")) {
+            if (!"RSA".equals(jwk.get("kty")) || (jwk.get("use") != null && !"sig".equals(jwk.get("use")))) {
+                continue;
+            }
+            BigInteger modulus = new BigInteger(1, decoder.decode((String) jwk.get("n")));
+            BigInteger exponent = new BigInteger(1, decoder.decode((String) jwk.get("e")));
+            RSAPublicKey key = (RSAPublicKey) keyFactory.generatePublic(new RSAPublicKeySpec(modulus, exponent));
+            loaded.put(String.valueOf(jwk.get("kid")), key);
+        }
+        return Collections.unmodifiableMap(loaded);
+    }
+}
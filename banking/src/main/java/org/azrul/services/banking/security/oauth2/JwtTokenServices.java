@@ -0,0 +1,150 @@
+package org.azrul.services.banking.security.oauth2;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.security.oauth2.resource.AuthoritiesExtractor;
+import org.springframework.boot.autoconfigure.security.oauth2.resource.PrincipalExtractor;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.AuthenticationException;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.jwt.Jwt;
+import org.springframework.security.jwt.JwtHelper;
+import org.springframework.security.jwt.crypto.sign.RsaVerifier;
+import org.springframework.security.oauth2.common.DefaultOAuth2AccessToken;
+import org.springframework.security.oauth2.common.OAuth2AccessToken;
+import org.springframework.security.oauth2.common.exceptions.InvalidTokenException;
+import org.springframework.security.oauth2.provider.OAuth2Authentication;
+import org.springframework.security.oauth2.provider.OAuth2Request;
+import org.springframework.security.oauth2.provider.token.ResourceServerTokenServices;
+
+import java.io.IOException;
+import java.security.interfaces.RSAPublicKey;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Date;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Validates JWT access tokens locally, against the signing keys of the identity provider.
+ * <p>
+ * This replaces the call to the user-info-uri made by {@code UserInfoTokenServices} on every request: the
+ * signature, expiry and issuer are checked here, and the principal and authorities are read from the token
+ * claims with the same extractors.
+ */
+public class JwtTokenServices implements ResourceServerTokenServices {
+
+    private static final String SIGNATURE_ALGORITHM = "RS256";
+
+    private final Logger log = LoggerFactory.getLogger(JwtTokenServices.class);
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    private final JwkKeySetCache keySetCache;
+
+    private final PrincipalExtractor principalExtractor;
+
+    private final AuthoritiesExtractor authoritiesExtractor;
+
+    private final String issuer;
+
+    private final long allowedClockSkewMillis;
+
+    public JwtTokenServices(JwkKeySetCache keySetCache, PrincipalExtractor principalExtractor,
+        AuthoritiesExtractor authoritiesExtractor, String issuer, long allowedClockSkewMillis) {
+        this.keySetCache = keySetCache;
+        this.principalExtractor = principalExtractor;
+        this.authoritiesExtractor = authoritiesExtractor;
+        this.issuer = issuer;
+        this.allowedClockSkewMillis = allowedClockSkewMillis;
+    }
+
+    @Override
+    public OAuth2Authentication loadAuthentication(String accessToken) throws AuthenticationException,
+        InvalidTokenException {
+        Map<String, Object> claims = decodeAndVerify(accessToken);
+        long now = System.currentTimeMillis();
+        Object exp = claims.get("exp");
+        if (!(exp instanceof Number) || ((Number) exp).longValue() * 1000 + allowedClockSkewMillis < now) {
+            throw new InvalidTokenException("Access token expired");
+        }
+        Object nbf = claims.get("nbf");
+        if (nbf instanceof Number && ((Number) nbf).longValue() * 1000 - allowedClockSkewMillis > now) {
+            throw new InvalidTokenException("Access token is not valid yet");
+        }
+        if (issuer != null && !issuer.equals(claims.get("iss"))) {
+            throw new InvalidTokenException("Invalid access token issuer: " + claims.get("iss"));
+        }
+        return extractAuthentication(claims);
+    }
+
+    private Map<String, Object> decodeAndVerify(String accessToken) {
+        try {
+            Map<String, String> headers = JwtHelper.headers(accessToken);
+            if (!SIGNATURE_ALGORITHM.equals(headers.get("alg"))) {
+                throw new InvalidTokenException("Unsupported access token algorithm: " + headers.get("alg"));
+            }
+            RSAPublicKey key = keySetCache.getKey(headers.get("kid"));
+            if (key == null) {
+                throw new InvalidTokenException("Unknown access token signing key: " + headers.get("kid"));
+            }
+            Jwt jwt = JwtHelper.decodeAndVerify(accessToken, new RsaVerifier(key));
+            return mapper.readValue(jwt.getClaims(), new TypeReference<Map<String, Object>>() {});
+        } catch (InvalidTokenException e) {
+            throw e;
+        } catch (IOException | RuntimeException e) {
+            log.debug("Invalid access token: {}", e.getMessage());
+            throw new InvalidTokenException("Invalid access token", e);
+        }
+    }
+
+    private OAuth2Authentication extractAuthentication(Map<String, Object> claims) {
+        Object principal = principalExtractor.extractPrincipal(claims);
+        List<GrantedAuthority> authorities = authoritiesExtractor.extractAuthorities(claims);
+        Object clientId = claims.get("azp");
+        OAuth2Request request = new OAuth2Request(null, clientId == null ? null : clientId.toString(), null, true,
+            null, null, null, null, null);
+        UsernamePasswordAuthenticationToken token = new UsernamePasswordAuthenticationToken(principal, "N/A",
+            authorities);
+        token.setDetails(claims);
+        return new OAuth2Authentication(request, token);
+    }
+
+    /**
+     * Decodes the access token, after checking its signature, into an {@code OAuth2AccessToken}: its expiration
+     * and scope are read from the "exp" and "scope" claims, and all the claims are kept as additional information.
+     * <p>
+     * The expiry and issuer are not checked, so that an expired token can still be read; use
+     * {@link #loadAuthentication(String)} to validate a token.
+     *
+     * @param accessToken the JWT access token
+     * @return the decoded access token, or {@code null} if it is not a JWT signed by a key of the identity provider
+     */
+    @Override
+    public OAuth2AccessToken readAccessToken(String accessToken) {
+        Map<String, Object> claims;
+        try {
+            claims = decodeAndVerify(accessToken);
+        } catch (InvalidTokenException e) {
+            return null;
+        }
+        DefaultOAuth2AccessToken token = new DefaultOAuth2AccessToken(accessToken);
+        Object exp = claims.get("exp");
+        if (exp instanceof Number) {
+            token.setExpiration(new Date(((Number) exp).longValue() * 1000));
+        }
+        Object scope = claims.get("scope");
+        if (scope instanceof String) {
+            token.setScope(new LinkedHashSet<>(Arrays.asList(((String) scope).split(" "))));
+        } else if (scope instanceof Collection) {
+            token.setScope(((Collection<?>) scope).stream().map(Object::toString)
+                .collect(Collectors.toCollection(LinkedHashSet::new)));
+        }
+        token.setAdditionalInformation(claims);
+        return token;
+    }
+}
@@ -0,0 +1,44 @@
+package org.azrul.services.banking.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Scheduled job refreshing the sharded accounts known to this instance, and rebalancing their shards.
+ * <p>
+ * Each account is rebalanced in its own database transaction, so that its shards are locked only briefly.
+ */
+@Component
+public class BalanceShardJob {
+
+    private final Logger log = LoggerFactory.getLogger(BalanceShardJob.class);
+
+    private final BalanceShardService balanceShardService;
+
+    public BalanceShardJob(BalanceShardService balanceShardService) {
+        this.balanceShardService = balanceShardService;
+    }
+
+    @Scheduled(fixedDelayString = "${application.balance-shards.refresh-interval-ms:10000}")
+    public void refreshShardedAccounts() {
+        balanceShardService.refreshShardedAccounts();
+    }
+
+    /**
+     * The credits and debits of a sharded account go to random shards, so its balance drifts between them; a debit
+     * that no single shard covers has to lock all of them.
+     */
+    @Scheduled(fixedDelayString = "${application.balance-shards.rebalance-interval-ms:60000}")
+    public void rebalanceShards() {
+        for (Long accountId : balanceShardService.getShardedAccountIds()) {
+            try {
+                balanceShardService.rebalance(accountId);
+            } catch (DataAccessException e) {
+                log.warn("Could not rebalance the shards of ProductAccount {}: {}", accountId, e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package org.azrul.services.banking.service;
+
+import org.azrul.services.banking.service.dto.ProductAccountDTO;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Service Interface for the sharded balances of hot product accounts.
+ * <p>
+ * The balance of a sharded account is split over several shard rows, in addition to product_account.balance, so
+ * that concurrent transfers lock different rows. Its balance is the sum of product_account.balance and of its
+ * shards. The accounts are not sharded by default, and are sharded one by one with {@link #setShardCount}.
+ */
+public interface BalanceShardService {
+
+    /**
+     * Credit an account: a shard chosen at random if the account is sharded, its own balance otherwise.
+     *
+     * @param accountId the id of the account
+     * @param amount the amount
+     * @return false if the account does not exist
+     */
+    boolean credit(Long accountId, BigDecimal amount);
+
+    /**
+     * Debit an account, only if its balance, including its shards, covers the amount.
+     *
+     * @param accountId the id of the account
+     * @param amount the amount
+     * @return false if the account does not exist or its balance is insufficient
+     */
+    boolean debit(Long accountId, BigDecimal amount);
+
+    /**
+     * Split the balance of an account evenly over a number of shards, or merge its shards back into its balance.
+     *
+     * @param accountId the id of the account
+     * @param shards the number of shards, 0 to unshard the account
+     * @return the number of shards, or empty if the account does not exist
+     */
+    Optional<Integer> setShardCount(Long accountId, int shards);
+
+    /**
+     * Spread the balance of a sharded account evenly over its shards again, so that the debits find a shard
+     * covering them.
+     *
+     * @param accountId the id of the account
+     * @return the number of shards of the account
+     */
+    int rebalance(Long accountId);
+
+    /**
+     * Get the ids of the sharded accounts, as last refreshed.
+     *
+     * @return the ids
+     */
+    Set<Long> getShardedAccountIds();
+
+    /**
+     * Read the sharded accounts from the database, to know the accounts sharded by other instances.
+     */
+    void refreshShardedAccounts();
+
+    /**
+     * Add the balance of their shards to the balance of the sharded accounts.
+     *
+     * @param productAccountDTOs the accounts, read from product_account
+     */
+    void addShardBalances(List<ProductAccountDTO> productAccountDTOs);
+
+    /**
+     * Get the part of the balance of an account to store in product_account, the rest being in its shards.
+     *
+     * @param accountId the id of the account
+     * @param balance the balance of the account, including its shards
+     * @return the balance without the shards
+     */
+    BigDecimal toUnshardedBalance(Long accountId, BigDecimal balance);
+
+    /**
+     * Delete the shards of an account, before the account.
+     *
+     * @param accountId the id of the account
+     */
+    void deleteShards(Long accountId);
+}
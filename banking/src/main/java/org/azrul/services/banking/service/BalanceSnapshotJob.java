@@ -0,0 +1,53 @@
+package org.azrul.services.banking.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+
+/**
+ * Scheduled job taking the end-of-day balance snapshots.
+ * <p>
+ * Each day is snapshotted in its own database transaction, and the days missed since the latest snapshots,
+ * for example while the application was down, are caught up in order.
+ * <p>
+ * Every instance runs the job. A day already snapshotted by another instance violates the unique index on the
+ * snapshots, so this instance skips it and goes on with the next days.
+ */
+@Component
+public class BalanceSnapshotJob {
+
+    private final Logger log = LoggerFactory.getLogger(BalanceSnapshotJob.class);
+
+    private final BalanceSnapshotService balanceSnapshotService;
+
+    public BalanceSnapshotJob(BalanceSnapshotService balanceSnapshotService) {
+        this.balanceSnapshotService = balanceSnapshotService;
+    }
+
+    /**
+     * Snapshots are taken shortly after midnight UTC, once the transactions of the previous day are posted.
+     * <p>
+     * This is scheduled to run every day, at 00:05 UTC.
+     */
+    @Scheduled(cron = "0 5 0 * * ?", zone = "UTC")
+    public void takeEndOfDaySnapshots() {
+        LocalDate yesterday = LocalDate.now(ZoneOffset.UTC).minusDays(1);
+        LocalDate date = balanceSnapshotService.findLatestSnapshotDate()
+            .map(latest -> latest.plusDays(1))
+            .orElse(yesterday);
+        for (; !date.isAfter(yesterday); date = date.plusDays(1)) {
+            try {
+                int snapshots = balanceSnapshotService.takeSnapshots(date);
+                log.info("Took {} balance snapshots of {}", snapshots, date);
+            } catch (DataIntegrityViolationException e) {
+                log.info("The balance snapshots of {} were taken by another instance", date);
+                log.debug("Unique index violated", e);
+            }
+        }
+    }
+}
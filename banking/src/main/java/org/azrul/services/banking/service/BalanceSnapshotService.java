@@ -0,0 +1,55 @@
+package org.azrul.services.banking.service;
+
+import org.azrul.services.banking.service.dto.AccountBalanceDTO;
+import org.azrul.services.banking.service.dto.TransactionDTO;
+
+import java.time.LocalDate;
+import java.time.ZonedDateTime;
+import java.util.Collection;
+import java.util.Optional;
+
+/**
+ * Service Interface for the end-of-day balance snapshots of product accounts.
+ * <p>
+ * A snapshot is the balance of an account at midnight UTC following its date. Snapshots are only taken for the
+ * accounts with transactions on that day, so the balance at a time is the latest snapshot before it, plus the
+ * transactions since.
+ * <p>
+ * The transactions written with a time on a day already snapshotted correct the snapshots of that day and the
+ * following ones, so the snapshots stay consistent with the transactions.
+ */
+public interface BalanceSnapshotService {
+
+    /**
+     * Get the date of the latest snapshots.
+     *
+     * @return the date, or empty if no snapshot was taken yet
+     */
+    Optional<LocalDate> findLatestSnapshotDate();
+
+    /**
+     * Take the snapshots of a day, from the transactions of that day only.
+     *
+     * @param date the day, which must follow the date of the latest snapshots
+     * @return the number of snapshots taken
+     */
+    int takeSnapshots(LocalDate date);
+
+    /**
+     * Correct the snapshots already taken for the days of transactions being created, updated or deleted, and
+     * for the following days, in the current database transaction.
+     *
+     * @param added the transactions created, or updated as they are now
+     * @param removed the transactions deleted, or updated as they were before
+     */
+    void correctSnapshots(Collection<TransactionDTO> added, Collection<TransactionDTO> removed);
+
+    /**
+     * Get the balance of a productAccount at a time.
+     *
+     * @param productAccountId the id of the productAccount
+     * @param time the time, the transactions at this exact time are excluded
+     * @return the balance, or empty if the productAccount does not exist
+     */
+    Optional<AccountBalanceDTO> findBalance(Long productAccountId, ZonedDateTime time);
+}
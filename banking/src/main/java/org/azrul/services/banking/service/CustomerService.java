@@ -1,10 +1,12 @@
 package org.azrul.services.banking.service;
 
 import org.azrul.services.banking.service.dto.CustomerDTO;
+import org.azrul.services.banking.service.dto.CustomerOverviewDTO;
 
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 
+import java.util.List;
 import java.util.Optional;
 
 /**
@@ -12,6 +14,11 @@ import java.util.Optional;
  */
 public interface CustomerService {
 
+    /**
+     * The cache of the lookups by CIF, IC and phone number.
+     */
+    String LOOKUP_CACHE = "customerLookup";
+
     /**
      * Save a customer.
      *
@@ -37,6 +44,39 @@ public interface CustomerService {
      */
     Optional<CustomerDTO> findOne(Long id);
 
+    /**
+     * Get the "id" customer, with their accounts and the most recent transactions of each account.
+     *
+     * @param id the id of the entity
+     * @param transactionsPerAccount the maximum number of transactions per account
+     * @return the overview, or empty if the customer does not exist
+     */
+    Optional<CustomerOverviewDTO> findOverview(Long id, int transactionsPerAccount);
+
+    /**
+     * Get the customers with a CIF number.
+     *
+     * @param cifNumber the CIF number
+     * @return the list of entities, at most one
+     */
+    List<CustomerDTO> findByCifNumber(String cifNumber);
+
+    /**
+     * Get the customers with an IC number, compared in normalized form.
+     *
+     * @param icNumber the IC number
+     * @return the list of entities
+     */
+    List<CustomerDTO> findByIcNumber(String icNumber);
+
+    /**
+     * Get the customers with a phone number, compared in normalized form.
+     *
+     * @param phoneNumber the phone number
+     * @return the list of entities
+     */
+    List<CustomerDTO> findByPhoneNumber(String phoneNumber);
+
     /**
      * Delete the "id" customer.
      *
@@ -0,0 +1,48 @@
+package org.azrul.services.banking.service;
+
+import org.azrul.services.banking.config.ApplicationProperties;
+import org.azrul.services.banking.service.dto.OutboxEventDTO;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * Appends the outbox events to a local file, one JSON object per line.
+ */
+@Component
+@ConditionalOnProperty("application.outbox.file.path")
+public class FileOutboxEventSink implements OutboxEventSink {
+
+    private final Path path;
+
+    private final ObjectMapper objectMapper;
+
+    public FileOutboxEventSink(ApplicationProperties applicationProperties, ObjectMapper objectMapper) {
+        this.path = Paths.get(applicationProperties.getOutbox().getFile().getPath());
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public synchronized void deliver(List<OutboxEventDTO> events) throws IOException {
+        if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+        try (Writer writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8,
+            StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+            for (OutboxEventDTO event : events) {
+                writer.write(objectMapper.writeValueAsString(event));
+                writer.write('\n');
+            }
+        }
+    }
+}
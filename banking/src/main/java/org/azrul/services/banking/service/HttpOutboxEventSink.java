@@ -0,0 +1,44 @@
+package org.azrul.services.banking.service;
+
+import org.azrul.services.banking.config.ApplicationProperties;
+import org.azrul.services.banking.service.dto.OutboxEventDTO;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Posts the outbox events to an HTTP endpoint, as a JSON array per batch.
+ */
+@Component
+@ConditionalOnProperty("application.outbox.http.url")
+public class HttpOutboxEventSink implements OutboxEventSink {
+
+    private final String url;
+
+    private final RestTemplate restTemplate;
+
+    public HttpOutboxEventSink(ApplicationProperties applicationProperties, RestTemplateBuilder restTemplateBuilder) {
+        ApplicationProperties.Outbox.Http http = applicationProperties.getOutbox().getHttp();
+        this.url = http.getUrl();
+        this.restTemplate = restTemplateBuilder
+            .setConnectTimeout(http.getConnectTimeoutMs())
+            .setReadTimeout(http.getReadTimeoutMs())
+            .build();
+    }
+
+    @Override
+    public void deliver(List<OutboxEventDTO> events) throws IOException {
+        try {
+            // Any status other than 2xx is raised as a RestClientException
+            restTemplate.postForEntity(url, events, Void.class);
+        } catch (RestClientException e) {
+            throw new IOException("Cannot post " + events.size() + " outbox events to " + url, e);
+        }
+    }
+}
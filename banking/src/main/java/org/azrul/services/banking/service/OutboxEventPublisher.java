@@ -0,0 +1,76 @@
+package org.azrul.services.banking.service;
+
+import org.azrul.services.banking.domain.OutboxEvent;
+import org.azrul.services.banking.repository.OutboxEventRepository;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+
+/**
+ * Records the changes of the banking entities in the transactional outbox.
+ * <p>
+ * The event is inserted in the database transaction of the change, so it is delivered by the OutboxRelay if,
+ * and only if, the change is committed. The insert is sent with the other inserts of the transaction, in the
+ * same JDBC batch when possible.
+ */
+@Component
+@Transactional(propagation = Propagation.MANDATORY)
+public class OutboxEventPublisher {
+
+    public static final String CREATED = "CREATED";
+
+    public static final String UPDATED = "UPDATED";
+
+    public static final String DELETED = "DELETED";
+
+    private final OutboxEventRepository outboxEventRepository;
+
+    private final ObjectMapper objectMapper;
+
+    public OutboxEventPublisher(OutboxEventRepository outboxEventRepository, ObjectMapper objectMapper) {
+        this.outboxEventRepository = outboxEventRepository;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Record the creation or update of an entity.
+     *
+     * @param aggregateType the entity class
+     * @param aggregateId the id of the entity
+     * @param created true if the entity was created, false if it was updated
+     * @param dto the entity after the change, as a DTO
+     */
+    public void publishSaved(Class<?> aggregateType, Long aggregateId, boolean created, Object dto) {
+        String payload;
+        try {
+            payload = objectMapper.writeValueAsString(dto);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Cannot serialize the outbox event of " + dto, e);
+        }
+        publish(aggregateType, aggregateId, created ? CREATED : UPDATED, payload);
+    }
+
+    /**
+     * Record the deletion of an entity.
+     *
+     * @param aggregateType the entity class
+     * @param aggregateId the id of the entity
+     */
+    public void publishDeleted(Class<?> aggregateType, Long aggregateId) {
+        publish(aggregateType, aggregateId, DELETED, null);
+    }
+
+    private void publish(Class<?> aggregateType, Long aggregateId, String eventType, String payload) {
+        outboxEventRepository.save(new OutboxEvent()
+            .aggregateType(aggregateType.getSimpleName())
+            .aggregateId(aggregateId)
+            .eventType(eventType)
+            .payload(payload)
+            .createdDate(Instant.now()));
+    }
+}
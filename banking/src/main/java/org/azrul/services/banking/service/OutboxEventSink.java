@@ -0,0 +1,23 @@
+package org.azrul.services.banking.service;
+
+import org.azrul.services.banking.service.dto.OutboxEventDTO;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * A destination of the events relayed from the outbox by the OutboxRelay.
+ * <p>
+ * A batch is deleted from the outbox once delivered to every sink, and delivered again to every sink when one
+ * of them fails, so the delivery is at least once, and the consumers should ignore the event ids already seen.
+ */
+public interface OutboxEventSink {
+
+    /**
+     * Deliver a batch of events, in id order.
+     *
+     * @param events the events
+     * @throws IOException if the events could not be delivered
+     */
+    void deliver(List<OutboxEventDTO> events) throws IOException;
+}
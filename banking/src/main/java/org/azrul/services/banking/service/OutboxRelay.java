@@ -0,0 +1,116 @@
+package org.azrul.services.banking.service;
+
+import org.azrul.services.banking.config.ApplicationProperties;
+import org.azrul.services.banking.domain.OutboxEvent;
+import org.azrul.services.banking.repository.OutboxEventRepository;
+import org.azrul.services.banking.service.dto.OutboxEventDTO;
+import org.azrul.services.banking.service.mapper.OutboxEventMapper;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.MetricRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Scheduled relay delivering the outbox events to the OutboxEventSinks, in batches.
+ * <p>
+ * Each batch is locked, delivered and deleted in one database transaction. The batches locked by another
+ * instance are skipped, so that all instances may relay at the same time, at the cost of the order of the events
+ * between concurrent batches. A failed batch is rolled back, and delivered again at the next poll.
+ */
+@Component
+public class OutboxRelay {
+
+    private static final String METRIC_PREFIX = "outbox.relay";
+
+    private final Logger log = LoggerFactory.getLogger(OutboxRelay.class);
+
+    private final ApplicationProperties.Outbox properties;
+
+    private final OutboxEventRepository outboxEventRepository;
+
+    private final OutboxEventMapper outboxEventMapper;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final List<OutboxEventSink> sinks;
+
+    private final Counter delivered;
+
+    private final Counter failures;
+
+    public OutboxRelay(ApplicationProperties applicationProperties, OutboxEventRepository outboxEventRepository,
+        OutboxEventMapper outboxEventMapper, TransactionTemplate transactionTemplate,
+        ObjectProvider<List<OutboxEventSink>> sinks, MetricRegistry metricRegistry) {
+        this.properties = applicationProperties.getOutbox();
+        this.outboxEventRepository = outboxEventRepository;
+        this.outboxEventMapper = outboxEventMapper;
+        this.transactionTemplate = transactionTemplate;
+        this.sinks = sinks.getIfAvailable(Collections::emptyList);
+        this.delivered = metricRegistry.counter(METRIC_PREFIX + ".delivered");
+        this.failures = metricRegistry.counter(METRIC_PREFIX + ".failures");
+    }
+
+    /**
+     * This is scheduled to run application.outbox.poll-interval-ms after the end of the previous run.
+     */
+    @Scheduled(fixedDelayString = "${application.outbox.poll-interval-ms:1000}")
+    public void relayScheduled() {
+        if (properties.isRelayEnabled() && !sinks.isEmpty()) {
+            relay();
+        }
+    }
+
+    /**
+     * Deliver the outbox events until the outbox is empty, or a batch fails.
+     *
+     * @return the number of events delivered
+     */
+    public int relay() {
+        int total = 0;
+        int batch;
+        do {
+            try {
+                batch = transactionTemplate.execute(status -> deliverBatch());
+            } catch (RuntimeException e) {
+                failures.inc();
+                log.warn("Cannot relay the outbox events, they will be delivered at the next poll: {}", e.toString());
+                break;
+            }
+            total += batch;
+        } while (batch == properties.getBatchSize());
+        if (total > 0) {
+            log.debug("Relayed {} outbox events", total);
+        }
+        return total;
+    }
+
+    private int deliverBatch() {
+        List<OutboxEvent> events = outboxEventRepository.findBatchForDelivery(
+            PageRequest.of(0, properties.getBatchSize()));
+        if (events.isEmpty()) {
+            return 0;
+        }
+        List<OutboxEventDTO> eventDTOs = outboxEventMapper.toDto(events);
+        for (OutboxEventSink sink : sinks) {
+            try {
+                sink.deliver(eventDTOs);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        outboxEventRepository.deleteInBatch(events);
+        delivered.inc(events.size());
+        return events.size();
+    }
+}
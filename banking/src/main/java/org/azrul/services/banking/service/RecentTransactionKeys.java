@@ -0,0 +1,134 @@
+package org.azrul.services.banking.service;
+
+import org.azrul.services.banking.config.ApplicationProperties;
+import org.azrul.services.banking.service.dto.TransactionDTO;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * The transactions created recently on this instance, by transactionId, bounded to the least recently used.
+ * <p>
+ * A client retrying the creation of a transaction usually does so within seconds, so most retries are answered
+ * from here. Other retries, for example to another instance, are caught by the unique index on transaction_id.
+ * Only committed transactions are added, so a rolled back creation is never answered as a duplicate.
+ * <p>
+ * The transactionIds are also indexed by id, so that an updated or deleted transaction is removed without scanning
+ * the entries. Both maps are guarded by the lock on the transactions.
+ */
+@Component
+public class RecentTransactionKeys {
+
+    private static final String METRIC_PREFIX = "transactions.recent-keys";
+
+    private final int maxSize;
+
+    private final Map<String, TransactionDTO> transactions;
+
+    private final Map<Long, String> transactionIds = new HashMap<>();
+
+    private final Counter hits;
+
+    private final Counter misses;
+
+    public RecentTransactionKeys(ApplicationProperties applicationProperties, MetricRegistry metricRegistry) {
+        this.maxSize = applicationProperties.getIdempotency().getRecentKeysSize();
+        this.transactions = new LinkedHashMap<String, TransactionDTO>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, TransactionDTO> eldest) {
+                if (size() <= RecentTransactionKeys.this.maxSize) {
+                    return false;
+                }
+                transactionIds.remove(eldest.getValue().getId());
+                return true;
+            }
+        };
+        this.hits = metricRegistry.counter(METRIC_PREFIX + ".hits");
+        this.misses = metricRegistry.counter(METRIC_PREFIX + ".misses");
+        metricRegistry.register(METRIC_PREFIX + ".size", (Gauge<Integer>) this::size);
+    }
+
+    /**
+     * Get the transaction recently created with a transactionId.
+     *
+     * @param transactionId the transactionId
+     * @return the transaction as it was created, or empty if it was not created recently on this instance
+     */
+    public Optional<TransactionDTO> get(String transactionId) {
+        TransactionDTO transactionDTO;
+        synchronized (transactions) {
+            transactionDTO = transactions.get(transactionId);
+        }
+        (transactionDTO != null ? hits : misses).inc();
+        return Optional.ofNullable(transactionDTO);
+    }
+
+    /**
+     * Add a created transaction, once the current database transaction, if any, is committed.
+     *
+     * @param transactionDTO the created transaction
+     */
+    public void add(TransactionDTO transactionDTO) {
+        if (transactionDTO.getTransactionId() == null) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCommit() {
+                    put(transactionDTO);
+                }
+            });
+        } else {
+            put(transactionDTO);
+        }
+    }
+
+    /**
+     * Remove a transaction which was updated or deleted.
+     *
+     * @param id the id of the transaction
+     */
+    public void remove(Long id) {
+        synchronized (transactions) {
+            String transactionId = transactionIds.remove(id);
+            if (transactionId != null) {
+                transactions.remove(transactionId);
+            }
+        }
+    }
+
+    public void clear() {
+        synchronized (transactions) {
+            transactions.clear();
+            transactionIds.clear();
+        }
+    }
+
+    public int size() {
+        synchronized (transactions) {
+            return transactions.size();
+        }
+    }
+
+    private void put(TransactionDTO transactionDTO) {
+        synchronized (transactions) {
+            TransactionDTO previous = transactions.remove(transactionDTO.getTransactionId());
+            if (previous != null) {
+                transactionIds.remove(previous.getId());
+            }
+            // Indexed first, as the put may evict the eldest entry
+            transactionIds.put(transactionDTO.getId(), transactionDTO.getTransactionId());
+            transactions.put(transactionDTO.getTransactionId(), transactionDTO);
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package org.azrul.services.banking.service;
+
+import org.azrul.services.banking.config.ApplicationProperties;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Date;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Scheduled job maintaining the monthly partitions of the transaction table, on PostgreSQL.
+ * <p>
+ * The partitions of the coming months are created in advance, as the transactions of a month without partition
+ * go to the default partition, which is scanned by every query. When a retention is configured, the partitions of
+ * the months before it are detached from the transaction table, then moved to the archive schema or dropped.
+ * <p>
+ * Both are idempotent, so that every instance of the application may run them.
+ */
+@Component
+public class TransactionPartitionJob {
+
+    private static final Pattern PARTITION_NAME = Pattern.compile("transaction_p(\\d{6})");
+
+    private static final Pattern SCHEMA_NAME = Pattern.compile("[a-z_][a-z0-9_]*");
+
+    private static final DateTimeFormatter PARTITION_MONTH = DateTimeFormatter.ofPattern("yyyyMM");
+
+    private final Logger log = LoggerFactory.getLogger(TransactionPartitionJob.class);
+
+    private final ApplicationProperties.TransactionPartitioning properties;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final TransactionTemplate transactionTemplate;
+
+    public TransactionPartitionJob(ApplicationProperties applicationProperties, JdbcTemplate jdbcTemplate,
+        TransactionTemplate transactionTemplate) {
+        this.properties = applicationProperties.getTransactionPartitioning();
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    /**
+     * Create the partitions of the current month and of the following months.
+     * <p>
+     * This is scheduled to run every day, at 00:30 UTC.
+     */
+    @Scheduled(cron = "0 30 0 * * ?", zone = "UTC")
+    public void createPartitions() {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        YearMonth current = YearMonth.now(ZoneOffset.UTC);
+        for (int i = 0; i <= properties.getPremakeMonths(); i++) {
+            YearMonth month = current.plusMonths(i);
+            try {
+                String partition = jdbcTemplate.queryForObject("select create_transaction_partition(?)",
+                    String.class, Date.valueOf(month.atDay(1)));
+                log.debug("Transaction partition {} is created", partition);
+            } catch (DataAccessException e) {
+                // Typically, transactions of that month were already posted to the default partition
+                log.error("Cannot create the transaction partition of {}", month, e);
+            }
+        }
+    }
+
+    /**
+     * Detach the partitions of the months before the retention, then archive or drop them.
+     * <p>
+     * This is scheduled to run every day, at 00:45 UTC.
+     */
+    @Scheduled(cron = "0 45 0 * * ?", zone = "UTC")
+    public void detachExpiredPartitions() {
+        if (!properties.isEnabled() || properties.getRetentionMonths() <= 0) {
+            return;
+        }
+        String archiveSchema = properties.getArchiveSchema();
+        if (archiveSchema != null && !archiveSchema.isEmpty() && !SCHEMA_NAME.matcher(archiveSchema).matches()) {
+            log.error("Invalid transaction archive schema {}, no partition is detached", archiveSchema);
+            return;
+        }
+        YearMonth oldestKept = YearMonth.now(ZoneOffset.UTC).minusMonths(properties.getRetentionMonths());
+        List<String> partitions = jdbcTemplate.queryForList(
+            "select c.relname from pg_inherits i" +
+                " join pg_class p on p.oid = i.inhparent" +
+                " join pg_class c on c.oid = i.inhrelid" +
+                " where p.relname = 'transaction' order by c.relname", String.class);
+        for (String partition : partitions) {
+            Matcher matcher = PARTITION_NAME.matcher(partition);
+            if (matcher.matches() && YearMonth.parse(matcher.group(1), PARTITION_MONTH).isBefore(oldestKept)) {
+                try {
+                    detach(partition, archiveSchema);
+                } catch (DataAccessException e) {
+                    log.error("Cannot detach the transaction partition {}", partition, e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Detach a partition, and release the transactionIds of its transactions, in one database transaction.
+     */
+    private void detach(String partition, String archiveSchema) {
+        transactionTemplate.execute(status -> {
+            jdbcTemplate.execute("alter table transaction detach partition " + partition);
+            jdbcTemplate.update("delete from transaction_key k using " + partition + " t" +
+                " where k.transaction_id = t.transaction_id and k.id = t.id");
+            if (archiveSchema == null || archiveSchema.isEmpty()) {
+                jdbcTemplate.execute("drop table " + partition);
+                log.info("Dropped the transaction partition {}", partition);
+            } else {
+                jdbcTemplate.execute("create schema if not exists " + archiveSchema);
+                jdbcTemplate.execute("alter table " + partition + " set schema " + archiveSchema);
+                log.info("Moved the transaction partition {} to the schema {}", partition, archiveSchema);
+            }
+            return null;
+        });
+    }
+}
@@ -1,11 +1,18 @@
 package org.azrul.services.banking.service;
 
+import org.azrul.services.banking.service.dto.AccountStatementLineDTO;
 import org.azrul.services.banking.service.dto.TransactionDTO;
 
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 
+import java.time.ZonedDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 /**
  * Service Interface for managing Transaction.
@@ -13,13 +20,21 @@ import java.util.Optional;
 public interface TransactionService {
 
     /**
-     * Save a transaction.
+     * Save a transaction, flushed so that a duplicate transactionId is rejected by this call.
      *
      * @param transactionDTO the entity to save
      * @return the persisted entity
      */
     TransactionDTO save(TransactionDTO transactionDTO);
 
+    /**
+     * Save new transactions in one database transaction, with batched inserts.
+     *
+     * @param transactionDTOs the entities to save
+     * @return the persisted entities, in the same order
+     */
+    List<TransactionDTO> saveAll(List<TransactionDTO> transactionDTOs);
+
     /**
      * Get all the transactions.
      *
@@ -28,6 +43,37 @@ public interface TransactionService {
      */
     Page<TransactionDTO> findAll(Pageable pageable);
 
+    /**
+     * Get the transactions after a position, most recent first, without counting them.
+     *
+     * @param time the time of the last transaction of the previous page, or null for the first page
+     * @param id the id of the last transaction of the previous page, or null for the first page
+     * @param size the page size
+     * @return the page, which knows if there is a next page
+     */
+    Slice<TransactionDTO> findAllAfter(ZonedDateTime time, Long id, int size);
+
+
+    /**
+     * Get the statement of a product account: its debits and credits in [from, to), by time.
+     *
+     * @param productAccountId the id of the product account
+     * @param from the start of the period, inclusive
+     * @param to the end of the period, exclusive
+     * @return the statement lines, or empty if the product account does not exist
+     */
+    Optional<List<AccountStatementLineDTO>> findStatement(Long productAccountId, ZonedDateTime from, ZonedDateTime to);
+
+    /**
+     * Export the transactions in [from, to), by time, one at a time, without holding them in memory.
+     *
+     * @param accountId the id of the account debited or credited, or null for all the transactions
+     * @param from the start of the period, inclusive
+     * @param to the end of the period, exclusive
+     * @param action the action receiving each transaction
+     * @return the number of transactions exported
+     */
+    long export(Long accountId, ZonedDateTime from, ZonedDateTime to, Consumer<TransactionDTO> action);
 
     /**
      * Get the "id" transaction.
@@ -37,6 +83,22 @@ public interface TransactionService {
      */
     Optional<TransactionDTO> findOne(Long id);
 
+    /**
+     * Get the transaction with a transactionId.
+     *
+     * @param transactionId the transactionId, unique among transactions
+     * @return the entity
+     */
+    Optional<TransactionDTO> findOneByTransactionId(String transactionId);
+
+    /**
+     * Get the ids of the transactions with some transactionIds, in one query.
+     *
+     * @param transactionIds the transactionIds
+     * @return the ids by transactionId, of the transactionIds which exist
+     */
+    Map<String, Long> findIdsByTransactionIds(Collection<String> transactionIds);
+
     /**
      * Delete the "id" transaction.
      *
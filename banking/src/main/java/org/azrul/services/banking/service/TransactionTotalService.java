@@ -0,0 +1,59 @@
+package org.azrul.services.banking.service;
+
+import org.azrul.services.banking.service.dto.TransactionDTO;
+import org.azrul.services.banking.service.dto.TransactionTotalDTO;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Service Interface for the daily totals of the transactions, by currency and type.
+ * <p>
+ * The totals are kept up to date by the services changing the transactions, in the same database transaction, so
+ * that the totals of a period are read from a few pre-aggregated rows per day instead of all its transactions.
+ * The days are in UTC.
+ */
+public interface TransactionTotalService {
+
+    /**
+     * Add a new transaction to the total of its day, currency and type.
+     *
+     * @param transactionDTO the transaction
+     */
+    void add(TransactionDTO transactionDTO);
+
+    /**
+     * Add new transactions to the totals of their days, currencies and types.
+     *
+     * @param transactionDTOs the transactions
+     */
+    void addAll(List<TransactionDTO> transactionDTOs);
+
+    /**
+     * Remove a deleted transaction, or the previous state of an updated one, from the total of its day, currency
+     * and type.
+     *
+     * @param transactionDTO the transaction
+     */
+    void subtract(TransactionDTO transactionDTO);
+
+    /**
+     * Get the totals of a period by currency and type.
+     *
+     * @param from the first day of the period
+     * @param to the day following the period
+     * @param byDay true for the totals of each day, false for the totals of the whole period
+     * @return the totals, by day if requested, currency and type
+     */
+    List<TransactionTotalDTO> findTotals(LocalDate from, LocalDate to, boolean byDay);
+
+    /**
+     * Recompute the totals of a period from its transactions, several days at a time, each one in its own database
+     * transaction.
+     *
+     * @param from the first day of the period
+     * @param to the day following the period
+     * @return the number of transactions of the period
+     */
+    long rebuild(LocalDate from, LocalDate to);
+}
@@ -0,0 +1,392 @@
+package org.azrul.services.banking.service;
+
+import org.azrul.services.banking.config.ApplicationProperties;
+import org.azrul.services.banking.repository.TransactionRepository;
+import org.azrul.services.banking.service.dto.TransactionDTO;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.ZonedDateTime;
+import java.util.Iterator;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.stream.Stream;
+
+/**
+ * The outgoing transactions of each account over the last minute, hour and day, counted and summed in memory to
+ * check the velocity limits of the accounts.
+ * <p>
+ * Each window is a ring of time buckets, in primitive arrays: the minute in 12 buckets of 5 seconds, the hour in 60
+ * buckets of a minute, and the day in 24 buckets of an hour. A bucket is reused once its time has left the window,
+ * so a window covers its length, give or take a bucket. Checking the limits of an account reads its 96 buckets,
+ * without allocation nor database access.
+ * <p>
+ * The windows are rebuilt from the transactions of the last day when the application starts, before the web server
+ * accepts requests, then kept up to date with the transactions created on this instance; those created on other
+ * instances since then are not counted.
+ * The amounts are counted in hundredths, whatever their currency.
+ */
+@Component
+public class TransactionVelocity {
+
+    private static final String METRIC_PREFIX = "transactions.velocity";
+
+    private static final String[] WINDOW_NAMES = {"minute", "hour", "day"};
+
+    private static final long[] BUCKET_MILLIS = {5_000L, 60_000L, 3_600_000L};
+
+    private static final int[] BUCKETS = {12, 60, 24};
+
+    /**
+     * The index of the first bucket of each window in the arrays of an account.
+     */
+    private static final int[] FIRST_BUCKET = {0, 12, 72};
+
+    private static final int TOTAL_BUCKETS = 96;
+
+    private static final long DAY_MILLIS = 86_400_000L;
+
+    private final Logger log = LoggerFactory.getLogger(TransactionVelocity.class);
+
+    private final ApplicationProperties.Velocity properties;
+
+    private final TransactionRepository transactionRepository;
+
+    private final TransactionTemplate readOnlyTransactionTemplate;
+
+    private final ConcurrentMap<Long, Windows> accounts = new ConcurrentHashMap<>();
+
+    private final Counter rejections;
+
+    private final ApplicationContext applicationContext;
+
+    public TransactionVelocity(ApplicationProperties applicationProperties, TransactionRepository transactionRepository,
+        PlatformTransactionManager transactionManager, MetricRegistry metricRegistry,
+        ApplicationContext applicationContext) {
+        this.properties = applicationProperties.getVelocity();
+        this.applicationContext = applicationContext;
+        this.transactionRepository = transactionRepository;
+        this.readOnlyTransactionTemplate = new TransactionTemplate(transactionManager);
+        this.readOnlyTransactionTemplate.setReadOnly(true);
+        this.rejections = metricRegistry.counter(METRIC_PREFIX + ".rejections");
+        metricRegistry.register(METRIC_PREFIX + ".accounts", (Gauge<Integer>) accounts::size);
+    }
+
+    /**
+     * Rebuild the windows when the application context is refreshed.
+     * <p>
+     * The web server is only started once the ContextRefreshedEvent of the application context is handled, so no
+     * request records a transaction while the windows are replayed. The events of the child contexts, such as those
+     * of the Feign clients, are also published to this context, and are ignored.
+     *
+     * @param event the event
+     */
+    @EventListener
+    public void onContextRefreshed(ContextRefreshedEvent event) {
+        if (event.getApplicationContext() != applicationContext) {
+            return;
+        }
+        try {
+            rebuild();
+        } catch (DataAccessException e) {
+            // For example, the schema is still being migrated by the asynchronous Liquibase of the dev profile
+            log.warn("Could not rebuild the velocity windows, starting without them: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Rebuild the windows from the transactions of the last day. The transactions recorded meanwhile are lost, so
+     * this must run before any is created.
+     */
+    public void rebuild() {
+        clear();
+        ZonedDateTime since = ZonedDateTime.now().minusDays(1);
+        long transactions = readOnlyTransactionTemplate.execute(status -> {
+            long count = 0;
+            try (Stream<Object[]> debits = transactionRepository.streamDebitsSince(since)) {
+                for (Iterator<Object[]> rows = debits.iterator(); rows.hasNext(); count++) {
+                    Object[] row = rows.next();
+                    record((Long) row[0], (BigDecimal) row[1], ((ZonedDateTime) row[2]).toInstant().toEpochMilli());
+                }
+            }
+            return count;
+        });
+        log.info("Rebuilt the velocity windows of {} accounts from {} transactions", accounts.size(), transactions);
+    }
+
+    /**
+     * Record an outgoing transaction of an account, unless it exceeds a limit of the account.
+     *
+     * @param accountId the id of the account
+     * @param amount the amount of the transaction
+     * @param timeMillis the time of the transaction, in milliseconds since the epoch
+     * @return the name of the window whose limit the transaction exceeds, or empty if it was recorded
+     */
+    public Optional<String> tryRecord(Long accountId, BigDecimal amount, long timeMillis) {
+        long hundredths = toHundredths(amount);
+        while (true) {
+            Windows windows = accounts.computeIfAbsent(accountId, id -> new Windows());
+            synchronized (windows) {
+                if (windows.evicted) {
+                    continue;
+                }
+                for (int window = 0; window < WINDOW_NAMES.length; window++) {
+                    if (exceeds(windows, window, timeMillis, hundredths, limit(window))) {
+                        rejections.inc();
+                        return Optional.of(WINDOW_NAMES[window]);
+                    }
+                }
+                windows.add(timeMillis, hundredths, 1);
+                return Optional.empty();
+            }
+        }
+    }
+
+    /**
+     * Record an outgoing transaction of an account created in the current database transaction, unless it exceeds
+     * a limit of the account; it is removed if the database transaction is rolled back.
+     *
+     * @param accountId the id of the account
+     * @param amount the amount of the transaction
+     * @param timeMillis the time of the transaction, in milliseconds since the epoch
+     * @return the name of the window whose limit the transaction exceeds, or empty if it was recorded
+     */
+    public Optional<String> tryRecordUnlessRolledBack(Long accountId, BigDecimal amount, long timeMillis) {
+        Optional<String> exceeded = tryRecord(accountId, amount, timeMillis);
+        if (!exceeded.isPresent() && TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status != STATUS_COMMITTED) {
+                        remove(accountId, amount, timeMillis);
+                    }
+                }
+            });
+        }
+        return exceeded;
+    }
+
+    /**
+     * Record an outgoing transaction of an account, whatever the limits.
+     *
+     * @param accountId the id of the account
+     * @param amount the amount of the transaction
+     * @param timeMillis the time of the transaction, in milliseconds since the epoch
+     */
+    public void record(Long accountId, BigDecimal amount, long timeMillis) {
+        add(accountId, toHundredths(amount), 1, timeMillis);
+    }
+
+    /**
+     * Record a created transaction, if it debits an account, once the current database transaction, if any, is
+     * committed.
+     *
+     * @param transactionDTO the created transaction
+     */
+    public void recordAfterCommit(TransactionDTO transactionDTO) {
+        if (transactionDTO.getSourceId() == null || transactionDTO.getAmount() == null) {
+            return;
+        }
+        long timeMillis = transactionDTO.getTime() != null ?
+            transactionDTO.getTime().toInstant().toEpochMilli() : System.currentTimeMillis();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCommit() {
+                    record(transactionDTO.getSourceId(), transactionDTO.getAmount(), timeMillis);
+                }
+            });
+        } else {
+            record(transactionDTO.getSourceId(), transactionDTO.getAmount(), timeMillis);
+        }
+    }
+
+    /**
+     * Remove a transaction recorded by {@link #tryRecord} which was not created after all.
+     *
+     * @param accountId the id of the account
+     * @param amount the amount of the transaction
+     * @param timeMillis the time it was recorded with
+     */
+    public void remove(Long accountId, BigDecimal amount, long timeMillis) {
+        add(accountId, -toHundredths(amount), -1, timeMillis);
+    }
+
+    /**
+     * Get the number of outgoing transactions of an account in a window.
+     *
+     * @param accountId the id of the account
+     * @param window "minute", "hour" or "day"
+     * @param nowMillis the end of the window, in milliseconds since the epoch
+     * @return the number of transactions
+     */
+    public long count(Long accountId, String window, long nowMillis) {
+        Windows windows = accounts.get(accountId);
+        if (windows == null) {
+            return 0;
+        }
+        synchronized (windows) {
+            return windows.count(indexOf(window), nowMillis);
+        }
+    }
+
+    /**
+     * Get the total amount of the outgoing transactions of an account in a window.
+     *
+     * @param accountId the id of the account
+     * @param window "minute", "hour" or "day"
+     * @param nowMillis the end of the window, in milliseconds since the epoch
+     * @return the total amount
+     */
+    public BigDecimal sum(Long accountId, String window, long nowMillis) {
+        Windows windows = accounts.get(accountId);
+        if (windows == null) {
+            return BigDecimal.ZERO.setScale(2);
+        }
+        synchronized (windows) {
+            return BigDecimal.valueOf(windows.sum(indexOf(window), nowMillis), 2);
+        }
+    }
+
+    /**
+     * Forget the accounts without outgoing transaction in the last day.
+     * <p>
+     * This is scheduled to run every hour.
+     */
+    @Scheduled(fixedDelay = 3_600_000L)
+    public void evictIdleAccounts() {
+        long idleSince = System.currentTimeMillis() - DAY_MILLIS;
+        accounts.values().removeIf(windows -> {
+            synchronized (windows) {
+                windows.evicted = windows.latestMillis < idleSince;
+                return windows.evicted;
+            }
+        });
+    }
+
+    public void clear() {
+        accounts.clear();
+    }
+
+    private void add(Long accountId, long hundredths, int count, long timeMillis) {
+        while (true) {
+            Windows windows = accounts.computeIfAbsent(accountId, id -> new Windows());
+            synchronized (windows) {
+                if (!windows.evicted) {
+                    windows.add(timeMillis, hundredths, count);
+                    return;
+                }
+            }
+        }
+    }
+
+    private ApplicationProperties.Velocity.Limit limit(int window) {
+        switch (window) {
+            case 0:
+                return properties.getMinute();
+            case 1:
+                return properties.getHour();
+            default:
+                return properties.getDay();
+        }
+    }
+
+    private static boolean exceeds(Windows windows, int window, long nowMillis, long hundredths,
+        ApplicationProperties.Velocity.Limit limit) {
+        if (limit.getMaxCount() > 0 && windows.count(window, nowMillis) + 1 > limit.getMaxCount()) {
+            return true;
+        }
+        return limit.getMaxAmount() != null && limit.getMaxAmount().signum() > 0
+            && windows.sum(window, nowMillis) + hundredths > toHundredths(limit.getMaxAmount());
+    }
+
+    private static int indexOf(String window) {
+        for (int index = 0; index < WINDOW_NAMES.length; index++) {
+            if (WINDOW_NAMES[index].equals(window)) {
+                return index;
+            }
+        }
+        throw new IllegalArgumentException("Unknown velocity window: " + window);
+    }
+
+    private static long toHundredths(BigDecimal amount) {
+        return amount.setScale(2, RoundingMode.HALF_UP).unscaledValue().longValue();
+    }
+
+    /**
+     * The buckets of the windows of an account; each one holds its bucket number, the time in milliseconds divided
+     * by the bucket length, so that a bucket of another turn of the ring is recognized.
+     */
+    private static final class Windows {
+
+        private final long[] bucketNumbers = new long[TOTAL_BUCKETS];
+
+        private final int[] counts = new int[TOTAL_BUCKETS];
+
+        private final long[] hundredths = new long[TOTAL_BUCKETS];
+
+        private long latestMillis;
+
+        private boolean evicted;
+
+        void add(long timeMillis, long amount, int count) {
+            for (int window = 0; window < BUCKETS.length; window++) {
+                long bucketNumber = timeMillis / BUCKET_MILLIS[window];
+                int index = FIRST_BUCKET[window] + (int) (bucketNumber % BUCKETS[window]);
+                if (bucketNumbers[index] > bucketNumber) {
+                    // The time has left this window
+                    continue;
+                }
+                if (bucketNumbers[index] < bucketNumber) {
+                    bucketNumbers[index] = bucketNumber;
+                    counts[index] = 0;
+                    hundredths[index] = 0;
+                }
+                counts[index] += count;
+                hundredths[index] += amount;
+            }
+            latestMillis = Math.max(latestMillis, timeMillis);
+        }
+
+        long count(int window, long nowMillis) {
+            long last = nowMillis / BUCKET_MILLIS[window];
+            long first = last - BUCKETS[window] + 1;
+            long count = 0;
+            for (int index = FIRST_BUCKET[window]; index < FIRST_BUCKET[window] + BUCKETS[window]; index++) {
+                if (bucketNumbers[index] >= first && bucketNumbers[index] <= last) {
+                    count += counts[index];
+                }
+            }
+            return count;
+        }
+
+        long sum(int window, long nowMillis) {
+            long last = nowMillis / BUCKET_MILLIS[window];
+            long first = last - BUCKETS[window] + 1;
+            long sum = 0;
+            for (int index = FIRST_BUCKET[window]; index < FIRST_BUCKET[window] + BUCKETS[window]; index++) {
+                if (bucketNumbers[index] >= first && bucketNumbers[index] <= last) {
+                    sum += hundredths[index];
+                }
+            }
+            return sum;
+        }
+    }
+}
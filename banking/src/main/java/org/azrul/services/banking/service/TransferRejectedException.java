@@ -0,0 +1,20 @@
+package org.azrul.services.banking.service;
+
+/**
+ * Thrown when a transfer cannot be posted. No balance is changed.
+ */
+public class TransferRejectedException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final String errorKey;
+
+    public TransferRejectedException(String message, String errorKey) {
+        super(message);
+        this.errorKey = errorKey;
+    }
+
+    public String getErrorKey() {
+        return errorKey;
+    }
+}
@@ -0,0 +1,20 @@
+package org.azrul.services.banking.service;
+
+import org.azrul.services.banking.service.dto.TransactionDTO;
+
+/**
+ * Service Interface for posting transfers between product accounts.
+ */
+public interface TransferService {
+
+    /**
+     * Post a transfer: debit the source account, credit the target account and record the transaction,
+     * all in one database transaction.
+     *
+     * @param transactionDTO the transfer, with its source, target and amount
+     * @return the persisted transaction
+     * @throws TransferRejectedException if the transfer is invalid or the source balance is insufficient
+     * @throws org.springframework.dao.DataIntegrityViolationException if the transactionId was already used
+     */
+    TransactionDTO transfer(TransactionDTO transactionDTO);
+}
@@ -0,0 +1,85 @@
+package org.azrul.services.banking.service.dto;
+
+import java.time.LocalDate;
+import java.time.ZonedDateTime;
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.util.Objects;
+
+/**
+ * The balance of a ProductAccount at a point in time.
+ */
+public class AccountBalanceDTO implements Serializable {
+
+    private Long productAccountId;
+
+    private ZonedDateTime time;
+
+    private BigDecimal balance;
+
+    private LocalDate snapshotDate;
+
+    public Long getProductAccountId() {
+        return productAccountId;
+    }
+
+    public void setProductAccountId(Long productAccountId) {
+        this.productAccountId = productAccountId;
+    }
+
+    public ZonedDateTime getTime() {
+        return time;
+    }
+
+    public void setTime(ZonedDateTime time) {
+        this.time = time;
+    }
+
+    public BigDecimal getBalance() {
+        return balance;
+    }
+
+    public void setBalance(BigDecimal balance) {
+        this.balance = balance;
+    }
+
+    /**
+     * The date of the end-of-day snapshot the balance was computed from, or null if there was none before the time.
+     */
+    public LocalDate getSnapshotDate() {
+        return snapshotDate;
+    }
+
+    public void setSnapshotDate(LocalDate snapshotDate) {
+        this.snapshotDate = snapshotDate;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+
+        AccountBalanceDTO accountBalanceDTO = (AccountBalanceDTO) o;
+        return Objects.equals(getProductAccountId(), accountBalanceDTO.getProductAccountId()) &&
+            Objects.equals(getTime(), accountBalanceDTO.getTime());
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(getProductAccountId(), getTime());
+    }
+
+    @Override
+    public String toString() {
+        return "AccountBalanceDTO{" +
+            "productAccount=" + getProductAccountId() +
+            ", time='" + getTime() + "'" +
+            ", balance=" + getBalance() +
+            ", snapshotDate='" + getSnapshotDate() + "'" +
+            "}";
+    }
+}
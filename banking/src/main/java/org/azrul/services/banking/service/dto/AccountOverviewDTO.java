@@ -0,0 +1,58 @@
+package org.azrul.services.banking.service.dto;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * A ProductAccount with its balance and its most recent transactions, most recent first.
+ */
+public class AccountOverviewDTO implements Serializable {
+
+    private ProductAccountDTO account;
+
+    private List<AccountStatementLineDTO> recentTransactions = new ArrayList<>();
+
+    public ProductAccountDTO getAccount() {
+        return account;
+    }
+
+    public void setAccount(ProductAccountDTO account) {
+        this.account = account;
+    }
+
+    public List<AccountStatementLineDTO> getRecentTransactions() {
+        return recentTransactions;
+    }
+
+    public void setRecentTransactions(List<AccountStatementLineDTO> recentTransactions) {
+        this.recentTransactions = recentTransactions;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+
+        AccountOverviewDTO accountOverviewDTO = (AccountOverviewDTO) o;
+        return Objects.equals(getAccount(), accountOverviewDTO.getAccount());
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hashCode(getAccount());
+    }
+
+    @Override
+    public String toString() {
+        return "AccountOverviewDTO{" +
+            "account=" + getAccount() +
+            ", recentTransactions=" + getRecentTransactions().size() +
+            "}";
+    }
+}
@@ -0,0 +1,151 @@
+package org.azrul.services.banking.service.dto;
+
+import java.time.ZonedDateTime;
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.util.Objects;
+import org.azrul.services.banking.domain.enumeration.Currency;
+
+/**
+ * A lightweight projection of a Transaction, as a line of the statement of a ProductAccount.
+ */
+public class AccountStatementLineDTO implements Serializable {
+
+    public enum Direction {
+        DEBIT, CREDIT
+    }
+
+    private Long id;
+
+    private String transactionId;
+
+    private String transactionType;
+
+    private BigDecimal amount;
+
+    private Currency currency;
+
+    private ZonedDateTime time;
+
+    private Direction direction;
+
+    private Long counterpartyId;
+
+    public AccountStatementLineDTO() {
+        // Empty public constructor used by Jackson.
+    }
+
+    /**
+     * Constructor used by the JPQL projection queries, the direction is set afterwards.
+     */
+    public AccountStatementLineDTO(Long id, String transactionId, String transactionType, BigDecimal amount,
+        Currency currency, ZonedDateTime time, Long counterpartyId) {
+        this.id = id;
+        this.transactionId = transactionId;
+        this.transactionType = transactionType;
+        this.amount = amount;
+        this.currency = currency;
+        this.time = time;
+        this.counterpartyId = counterpartyId;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getTransactionId() {
+        return transactionId;
+    }
+
+    public void setTransactionId(String transactionId) {
+        this.transactionId = transactionId;
+    }
+
+    public String getTransactionType() {
+        return transactionType;
+    }
+
+    public void setTransactionType(String transactionType) {
+        this.transactionType = transactionType;
+    }
+
+    public BigDecimal getAmount() {
+        return amount;
+    }
+
+    public void setAmount(BigDecimal amount) {
+        this.amount = amount;
+    }
+
+    public Currency getCurrency() {
+        return currency;
+    }
+
+    public void setCurrency(Currency currency) {
+        this.currency = currency;
+    }
+
+    public ZonedDateTime getTime() {
+        return time;
+    }
+
+    public void setTime(ZonedDateTime time) {
+        this.time = time;
+    }
+
+    public Direction getDirection() {
+        return direction;
+    }
+
+    public void setDirection(Direction direction) {
+        this.direction = direction;
+    }
+
+    /**
+     * The id of the other ProductAccount of the transaction.
+     */
+    public Long getCounterpartyId() {
+        return counterpartyId;
+    }
+
+    public void setCounterpartyId(Long counterpartyId) {
+        this.counterpartyId = counterpartyId;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+
+        AccountStatementLineDTO accountStatementLineDTO = (AccountStatementLineDTO) o;
+        return Objects.equals(getId(), accountStatementLineDTO.getId()) &&
+            getDirection() == accountStatementLineDTO.getDirection();
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(getId(), getDirection());
+    }
+
+    @Override
+    public String toString() {
+        return "AccountStatementLineDTO{" +
+            "id=" + getId() +
+            ", transactionId='" + getTransactionId() + "'" +
+            ", transactionType='" + getTransactionType() + "'" +
+            ", amount=" + getAmount() +
+            ", currency='" + getCurrency() + "'" +
+            ", time='" + getTime() + "'" +
+            ", direction='" + getDirection() + "'" +
+            ", counterparty=" + getCounterpartyId() +
+            "}";
+    }
+}
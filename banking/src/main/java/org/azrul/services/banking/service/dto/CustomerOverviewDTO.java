@@ -0,0 +1,58 @@
+package org.azrul.services.banking.service.dto;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * A Customer with their ProductAccounts and the most recent transactions of each one.
+ */
+public class CustomerOverviewDTO implements Serializable {
+
+    private CustomerDTO customer;
+
+    private List<AccountOverviewDTO> accounts = new ArrayList<>();
+
+    public CustomerDTO getCustomer() {
+        return customer;
+    }
+
+    public void setCustomer(CustomerDTO customer) {
+        this.customer = customer;
+    }
+
+    public List<AccountOverviewDTO> getAccounts() {
+        return accounts;
+    }
+
+    public void setAccounts(List<AccountOverviewDTO> accounts) {
+        this.accounts = accounts;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+
+        CustomerOverviewDTO customerOverviewDTO = (CustomerOverviewDTO) o;
+        return Objects.equals(getCustomer(), customerOverviewDTO.getCustomer());
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hashCode(getCustomer());
+    }
+
+    @Override
+    public String toString() {
+        return "CustomerOverviewDTO{" +
+            "customer=" + getCustomer() +
+            ", accounts=" + getAccounts().size() +
+            "}";
+    }
+}
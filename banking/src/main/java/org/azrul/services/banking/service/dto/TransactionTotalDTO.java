@@ -0,0 +1,97 @@
+package org.azrul.services.banking.service.dto;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Objects;
+import org.azrul.services.banking.domain.enumeration.Currency;
+
+/**
+ * The total amount and count of the transactions of a currency and type, over a day or a period.
+ */
+public class TransactionTotalDTO implements Serializable {
+
+    private LocalDate date;
+
+    private Currency currency;
+
+    private String transactionType;
+
+    private BigDecimal totalAmount;
+
+    private Long transactionCount;
+
+    /**
+     * The day of the total, or null for the total of the whole period.
+     */
+    public LocalDate getDate() {
+        return date;
+    }
+
+    public void setDate(LocalDate date) {
+        this.date = date;
+    }
+
+    public Currency getCurrency() {
+        return currency;
+    }
+
+    public void setCurrency(Currency currency) {
+        this.currency = currency;
+    }
+
+    public String getTransactionType() {
+        return transactionType;
+    }
+
+    public void setTransactionType(String transactionType) {
+        this.transactionType = transactionType;
+    }
+
+    public BigDecimal getTotalAmount() {
+        return totalAmount;
+    }
+
+    public void setTotalAmount(BigDecimal totalAmount) {
+        this.totalAmount = totalAmount;
+    }
+
+    public Long getTransactionCount() {
+        return transactionCount;
+    }
+
+    public void setTransactionCount(Long transactionCount) {
+        this.transactionCount = transactionCount;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+
+        TransactionTotalDTO transactionTotalDTO = (TransactionTotalDTO) o;
+        return Objects.equals(getDate(), transactionTotalDTO.getDate()) &&
+            Objects.equals(getCurrency(), transactionTotalDTO.getCurrency()) &&
+            Objects.equals(getTransactionType(), transactionTotalDTO.getTransactionType());
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(getDate(), getCurrency(), getTransactionType());
+    }
+
+    @Override
+    public String toString() {
+        return "TransactionTotalDTO{" +
+            "date='" + getDate() + "'" +
+            ", currency='" + getCurrency() + "'" +
+            ", transactionType='" + getTransactionType() + "'" +
+            ", totalAmount=" + getTotalAmount() +
+            ", transactionCount=" + getTransactionCount() +
+            "}";
+    }
+}
@@ -0,0 +1,331 @@
+package org.azrul.services.banking.service.impl;
+
+import org.azrul.services.banking.config.ApplicationProperties;
+import org.azrul.services.banking.domain.AccountBalanceShard;
+import org.azrul.services.banking.domain.ProductAccount;
+import org.azrul.services.banking.repository.AccountBalanceShardRepository;
+import org.azrul.services.banking.repository.ProductAccountRepository;
+import org.azrul.services.banking.service.BalanceShardService;
+import org.azrul.services.banking.service.dto.ProductAccountDTO;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * Service Implementation for the sharded balances of hot product accounts.
+ * <p>
+ * A credit adds its amount to one shard, chosen at random, with a single UPDATE statement, so concurrent credits
+ * of a sharded account lock different rows. A debit takes its amount from a few shards in turn, each with a
+ * conditional UPDATE statement; when none of them covers the amount, it locks the account then all its shards, in
+ * shard order, and takes the amount from several of them.
+ * <p>
+ * The sharded accounts are known from memory, refreshed periodically, so that the transfers of the other accounts
+ * do not read the shards. An account sharded by another instance is credited and debited without its shards until
+ * the next refresh, which is still correct as product_account.balance is part of its balance. An account unsharded
+ * by another instance is credited without its shards, and debited from its own balance once its shards are found
+ * missing, after which it is forgotten as sharded.
+ */
+@Service
+@Transactional
+public class BalanceShardServiceImpl implements BalanceShardService {
+
+    private final Logger log = LoggerFactory.getLogger(BalanceShardServiceImpl.class);
+
+    private final AccountBalanceShardRepository accountBalanceShardRepository;
+
+    private final ProductAccountRepository productAccountRepository;
+
+    private final ApplicationProperties.BalanceShards properties;
+
+    /**
+     * The number of shards of the sharded accounts, by account id.
+     */
+    private volatile Map<Long, Integer> shardCounts = new ConcurrentHashMap<>();
+
+    public BalanceShardServiceImpl(AccountBalanceShardRepository accountBalanceShardRepository,
+        ProductAccountRepository productAccountRepository, ApplicationProperties applicationProperties) {
+        this.accountBalanceShardRepository = accountBalanceShardRepository;
+        this.productAccountRepository = productAccountRepository;
+        this.properties = applicationProperties.getBalanceShards();
+    }
+
+    /**
+     * Credit an account: a shard chosen at random if the account is sharded, its own balance otherwise.
+     *
+     * @param accountId the id of the account
+     * @param amount the amount
+     * @return false if the account does not exist
+     */
+    @Override
+    public boolean credit(Long accountId, BigDecimal amount) {
+        Integer shards = shardCounts.get(accountId);
+        if (shards != null
+            && accountBalanceShardRepository.credit(accountId, ThreadLocalRandom.current().nextInt(shards), amount) > 0) {
+            return true;
+        }
+        // The account is not sharded, or not any more
+        return productAccountRepository.credit(accountId, amount) > 0;
+    }
+
+    /**
+     * Debit an account, only if its balance, including its shards, covers the amount.
+     *
+     * @param accountId the id of the account
+     * @param amount the amount
+     * @return false if the account does not exist or its balance is insufficient
+     */
+    @Override
+    public boolean debit(Long accountId, BigDecimal amount) {
+        Integer shards = shardCounts.get(accountId);
+        if (shards == null) {
+            if (productAccountRepository.debit(accountId, amount) > 0) {
+                return true;
+            }
+        } else {
+            int first = ThreadLocalRandom.current().nextInt(shards);
+            for (int attempt = 0; attempt < Math.min(properties.getDebitAttempts(), shards); attempt++) {
+                if (accountBalanceShardRepository.debit(accountId, (first + attempt) % shards, amount) > 0) {
+                    return true;
+                }
+            }
+        }
+        return debitAcrossShards(accountId, amount);
+    }
+
+    /**
+     * Debit an account whose amount is not covered by a single row, after locking the account and all its shards.
+     */
+    private boolean debitAcrossShards(Long accountId, BigDecimal amount) {
+        Optional<ProductAccount> account = productAccountRepository.findByIdForUpdate(accountId);
+        if (!account.isPresent()) {
+            return false;
+        }
+        List<AccountBalanceShard> shards = accountBalanceShardRepository.findByAccountForUpdate(accountId);
+        if (shards.isEmpty()) {
+            // Not sharded, or unsharded by another instance since the last refresh
+            if (shardCounts.remove(accountId) == null) {
+                return false;
+            }
+            return productAccountRepository.debit(accountId, amount) > 0;
+        }
+        ProductAccount productAccount = account.get();
+        if (total(productAccount, shards).compareTo(amount) < 0) {
+            return false;
+        }
+        log.debug("Debiting {} across the shards of ProductAccount : {}", amount, accountId);
+        BigDecimal remaining = amount;
+        remaining = take(remaining, balanceOf(productAccount), productAccount::setBalance);
+        for (AccountBalanceShard shard : shards) {
+            remaining = take(remaining, balanceOf(shard.getBalance()), shard::setBalance);
+        }
+        productAccountRepository.flush();
+        return true;
+    }
+
+    /**
+     * Take what a balance covers of an amount.
+     *
+     * @return the rest of the amount
+     */
+    private static BigDecimal take(BigDecimal amount, BigDecimal balance, Consumer<BigDecimal> setBalance) {
+        if (amount.signum() <= 0 || balance.signum() <= 0) {
+            return amount;
+        }
+        BigDecimal taken = amount.min(balance);
+        setBalance.accept(balance.subtract(taken));
+        return amount.subtract(taken);
+    }
+
+    /**
+     * Split the balance of an account evenly over a number of shards, or merge its shards back into its balance.
+     *
+     * @param accountId the id of the account
+     * @param shards the number of shards, 0 to unshard the account
+     * @return the number of shards, or empty if the account does not exist
+     */
+    @Override
+    public Optional<Integer> setShardCount(Long accountId, int shards) {
+        log.debug("Request to split ProductAccount {} over {} balance shards", accountId, shards);
+        Optional<ProductAccount> account = productAccountRepository.findByIdForUpdate(accountId);
+        if (!account.isPresent()) {
+            return Optional.empty();
+        }
+        ProductAccount productAccount = account.get();
+        List<AccountBalanceShard> current = accountBalanceShardRepository.findByAccountForUpdate(accountId);
+        BigDecimal total = total(productAccount, current);
+
+        List<AccountBalanceShard> kept = new ArrayList<>();
+        for (AccountBalanceShard shard : current) {
+            if (shard.getShard() < shards) {
+                kept.add(shard);
+            } else {
+                accountBalanceShardRepository.delete(shard);
+            }
+        }
+        for (int index = kept.size(); index < shards; index++) {
+            kept.add(new AccountBalanceShard().productAccount(productAccount).shard(index).balance(BigDecimal.ZERO));
+        }
+        distribute(total, productAccount, kept);
+        accountBalanceShardRepository.saveAll(kept);
+        accountBalanceShardRepository.flush();
+
+        if (shards == 0) {
+            shardCounts.remove(accountId);
+        } else {
+            shardCounts.put(accountId, shards);
+        }
+        return Optional.of(shards);
+    }
+
+    /**
+     * Spread the balance of a sharded account evenly over its shards again, so that the debits find a shard
+     * covering them.
+     *
+     * @param accountId the id of the account
+     * @return the number of shards of the account
+     */
+    @Override
+    public int rebalance(Long accountId) {
+        log.debug("Request to rebalance the shards of ProductAccount : {}", accountId);
+        Optional<ProductAccount> account = productAccountRepository.findByIdForUpdate(accountId);
+        if (!account.isPresent()) {
+            return 0;
+        }
+        List<AccountBalanceShard> shards = accountBalanceShardRepository.findByAccountForUpdate(accountId);
+        if (!shards.isEmpty()) {
+            distribute(total(account.get(), shards), account.get(), shards);
+            accountBalanceShardRepository.flush();
+        }
+        return shards.size();
+    }
+
+    /**
+     * Put an even share of a balance in each shard, the rounding remainder in the first one, and nothing left in
+     * the account itself; or all of it in the account when there is no shard.
+     */
+    private static void distribute(BigDecimal total, ProductAccount productAccount, List<AccountBalanceShard> shards) {
+        if (shards.isEmpty()) {
+            productAccount.setBalance(total);
+            return;
+        }
+        BigDecimal share = total.divide(BigDecimal.valueOf(shards.size()), 2, RoundingMode.DOWN);
+        BigDecimal remainder = total.subtract(share.multiply(BigDecimal.valueOf(shards.size())));
+        productAccount.setBalance(BigDecimal.ZERO);
+        for (AccountBalanceShard shard : shards) {
+            shard.setBalance(shard.getShard() == 0 ? share.add(remainder) : share);
+        }
+    }
+
+    private static BigDecimal total(ProductAccount productAccount, List<AccountBalanceShard> shards) {
+        BigDecimal total = balanceOf(productAccount);
+        for (AccountBalanceShard shard : shards) {
+            total = total.add(balanceOf(shard.getBalance()));
+        }
+        return total;
+    }
+
+    private static BigDecimal balanceOf(ProductAccount productAccount) {
+        return balanceOf(productAccount.getBalance());
+    }
+
+    private static BigDecimal balanceOf(BigDecimal balance) {
+        return balance == null ? BigDecimal.ZERO : balance;
+    }
+
+    /**
+     * Get the ids of the sharded accounts, as last refreshed.
+     *
+     * @return the ids
+     */
+    @Override
+    public Set<Long> getShardedAccountIds() {
+        return Collections.unmodifiableSet(shardCounts.keySet());
+    }
+
+    /**
+     * Read the sharded accounts from the database, to know the accounts sharded by other instances.
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public void refreshShardedAccounts() {
+        Map<Long, Integer> counts = new ConcurrentHashMap<>();
+        for (Object[] row : accountBalanceShardRepository.countByAccount()) {
+            counts.put((Long) row[0], ((Number) row[1]).intValue());
+        }
+        shardCounts = counts;
+    }
+
+    /**
+     * Add the balance of their shards to the balance of the sharded accounts.
+     *
+     * @param productAccountDTOs the accounts, read from product_account
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public void addShardBalances(List<ProductAccountDTO> productAccountDTOs) {
+        List<Long> sharded = productAccountDTOs.stream()
+            .map(ProductAccountDTO::getId)
+            .filter(shardCounts::containsKey)
+            .collect(Collectors.toList());
+        if (sharded.isEmpty()) {
+            return;
+        }
+        Map<Long, BigDecimal> shardBalances = new HashMap<>();
+        for (Object[] row : accountBalanceShardRepository.sumByAccount(sharded)) {
+            shardBalances.put((Long) row[0], (BigDecimal) row[1]);
+        }
+        for (ProductAccountDTO productAccountDTO : productAccountDTOs) {
+            BigDecimal shardBalance = shardBalances.get(productAccountDTO.getId());
+            if (shardBalance != null) {
+                productAccountDTO.setBalance(balanceOf(productAccountDTO.getBalance()).add(shardBalance));
+            }
+        }
+    }
+
+    /**
+     * Get the part of the balance of an account to store in product_account, the rest being in its shards.
+     *
+     * @param accountId the id of the account
+     * @param balance the balance of the account, including its shards
+     * @return the balance without the shards
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public BigDecimal toUnshardedBalance(Long accountId, BigDecimal balance) {
+        if (accountId == null || balance == null || !shardCounts.containsKey(accountId)) {
+            return balance;
+        }
+        return accountBalanceShardRepository.sumByAccount(Collections.singleton(accountId)).stream()
+            .map(row -> balance.subtract((BigDecimal) row[1]))
+            .findFirst()
+            .orElse(balance);
+    }
+
+    /**
+     * Delete the shards of an account, before the account.
+     *
+     * @param accountId the id of the account
+     */
+    @Override
+    public void deleteShards(Long accountId) {
+        if (accountBalanceShardRepository.deleteByAccount(accountId) > 0) {
+            shardCounts.remove(accountId);
+        }
+    }
+}
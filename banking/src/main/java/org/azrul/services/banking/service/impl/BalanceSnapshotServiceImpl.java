@@ -0,0 +1,222 @@
+package org.azrul.services.banking.service.impl;
+
+import org.azrul.services.banking.service.BalanceSnapshotService;
+import org.azrul.services.banking.domain.AccountBalanceSnapshot;
+import org.azrul.services.banking.repository.AccountBalanceSnapshotRepository;
+import org.azrul.services.banking.repository.ProductAccountRepository;
+import org.azrul.services.banking.repository.TransactionRepository;
+import org.azrul.services.banking.service.dto.AccountBalanceDTO;
+import org.azrul.services.banking.service.dto.TransactionDTO;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.*;
+
+/**
+ * Service Implementation for the end-of-day balance snapshots of product accounts.
+ * <p>
+ * The snapshots of a day are computed from the totals of that day's transactions per account, added to the
+ * previous snapshot of each account. An account without a previous snapshot is seeded from its current balance,
+ * minus the transactions posted since the end of the day, so that opening balances which were not recorded as
+ * transactions are accounted for.
+ * <p>
+ * A transaction created, updated or deleted with a time on a day already snapshotted adds its amount to, or takes
+ * it back from, the snapshots of its accounts from that day on, with one UPDATE per account and day. A write
+ * committed while the snapshots of its day are being taken may still be missed by both, as neither sees the
+ * other before committing; the job runs at 00:05 UTC, so only the writes dated the previous day and committed
+ * during that run are exposed.
+ */
+@Service
+@Transactional
+public class BalanceSnapshotServiceImpl implements BalanceSnapshotService {
+
+    /**
+     * The accounts whose snapshots are computed and flushed together.
+     */
+    private static final int CHUNK_SIZE = 1000;
+
+    private final Logger log = LoggerFactory.getLogger(BalanceSnapshotServiceImpl.class);
+
+    private final AccountBalanceSnapshotRepository accountBalanceSnapshotRepository;
+
+    private final TransactionRepository transactionRepository;
+
+    private final ProductAccountRepository productAccountRepository;
+
+    private final EntityManager entityManager;
+
+    public BalanceSnapshotServiceImpl(AccountBalanceSnapshotRepository accountBalanceSnapshotRepository,
+        TransactionRepository transactionRepository, ProductAccountRepository productAccountRepository,
+        EntityManager entityManager) {
+        this.accountBalanceSnapshotRepository = accountBalanceSnapshotRepository;
+        this.transactionRepository = transactionRepository;
+        this.productAccountRepository = productAccountRepository;
+        this.entityManager = entityManager;
+    }
+
+    /**
+     * Get the date of the latest snapshots.
+     *
+     * @return the date, or empty if no snapshot was taken yet
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public Optional<LocalDate> findLatestSnapshotDate() {
+        return Optional.ofNullable(accountBalanceSnapshotRepository.findLatestSnapshotDate());
+    }
+
+    /**
+     * Take the snapshots of a day.
+     *
+     * @param date the day
+     * @return the number of snapshots taken
+     */
+    @Override
+    public int takeSnapshots(LocalDate date) {
+        log.debug("Request to take the balance snapshots of : {}", date);
+        ZonedDateTime from = startOf(date);
+        ZonedDateTime to = startOf(date.plusDays(1));
+
+        Map<Long, BigDecimal> movements = new HashMap<>();
+        for (Object[] row : transactionRepository.sumCreditsByAccount(from, to)) {
+            movements.merge((Long) row[0], (BigDecimal) row[1], BigDecimal::add);
+        }
+        for (Object[] row : transactionRepository.sumDebitsByAccount(from, to)) {
+            movements.merge((Long) row[0], ((BigDecimal) row[1]).negate(), BigDecimal::add);
+        }
+
+        List<Long> accountIds = new ArrayList<>(movements.keySet());
+        for (int start = 0; start < accountIds.size(); start += CHUNK_SIZE) {
+            List<Long> chunk = accountIds.subList(start, Math.min(start + CHUNK_SIZE, accountIds.size()));
+            Map<Long, BigDecimal> balances = new HashMap<>();
+            for (AccountBalanceSnapshot previous : accountBalanceSnapshotRepository.findLatestBefore(chunk, date)) {
+                Long accountId = previous.getProductAccount().getId();
+                balances.put(accountId, previous.getBalance().add(movements.get(accountId)));
+            }
+            List<Long> unseeded = new ArrayList<>(chunk);
+            unseeded.removeAll(balances.keySet());
+            if (!unseeded.isEmpty()) {
+                for (Object[] row : productAccountRepository.findBalancesAndMovementsSince(unseeded, to)) {
+                    balances.put((Long) row[0], balanceBefore(row));
+                }
+            }
+
+            List<AccountBalanceSnapshot> snapshots = new ArrayList<>(balances.size());
+            balances.forEach((accountId, balance) -> snapshots.add(new AccountBalanceSnapshot()
+                .snapshotDate(date)
+                .balance(balance)
+                .productAccount(productAccountRepository.getOne(accountId))));
+            accountBalanceSnapshotRepository.saveAll(snapshots);
+            accountBalanceSnapshotRepository.flush();
+            entityManager.clear();
+        }
+        return accountIds.size();
+    }
+
+    /**
+     * Correct the snapshots of the accounts of transactions, from the day of each transaction on.
+     *
+     * @param added the transactions created, or updated as they are now
+     * @param removed the transactions deleted, or updated as they were before
+     */
+    @Override
+    public void correctSnapshots(Collection<TransactionDTO> added, Collection<TransactionDTO> removed) {
+        Map<Long, Map<LocalDate, BigDecimal>> amounts = new HashMap<>();
+        for (TransactionDTO transactionDTO : added) {
+            addMovements(amounts, transactionDTO, false);
+        }
+        for (TransactionDTO transactionDTO : removed) {
+            addMovements(amounts, transactionDTO, true);
+        }
+        amounts.forEach((accountId, amountsByDate) -> amountsByDate.forEach((date, amount) -> {
+            if (amount.signum() != 0) {
+                int snapshots = accountBalanceSnapshotRepository.addToBalanceSince(accountId, date, amount);
+                if (snapshots > 0) {
+                    log.debug("Corrected {} balance snapshots of ProductAccount {} from {} by {}", snapshots,
+                        accountId, date, amount);
+                }
+            }
+        }));
+    }
+
+    private static void addMovements(Map<Long, Map<LocalDate, BigDecimal>> amounts, TransactionDTO transactionDTO,
+        boolean removed) {
+        if (transactionDTO.getTime() == null || transactionDTO.getAmount() == null) {
+            return;
+        }
+        LocalDate date = transactionDTO.getTime().withZoneSameInstant(ZoneOffset.UTC).toLocalDate();
+        BigDecimal amount = removed ? transactionDTO.getAmount().negate() : transactionDTO.getAmount();
+        if (transactionDTO.getTargetId() != null) {
+            amounts.computeIfAbsent(transactionDTO.getTargetId(), accountId -> new HashMap<>())
+                .merge(date, amount, BigDecimal::add);
+        }
+        if (transactionDTO.getSourceId() != null) {
+            amounts.computeIfAbsent(transactionDTO.getSourceId(), accountId -> new HashMap<>())
+                .merge(date, amount.negate(), BigDecimal::add);
+        }
+    }
+
+    /**
+     * Get the balance of a productAccount at a time.
+     *
+     * @param productAccountId the id of the productAccount
+     * @param time the time
+     * @return the balance, or empty if the productAccount does not exist
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public Optional<AccountBalanceDTO> findBalance(Long productAccountId, ZonedDateTime time) {
+        log.debug("Request to get the balance of ProductAccount {} at : {}", productAccountId, time);
+        AccountBalanceDTO accountBalanceDTO = new AccountBalanceDTO();
+        accountBalanceDTO.setProductAccountId(productAccountId);
+        accountBalanceDTO.setTime(time);
+
+        // The snapshots taken at or before the time are the ones of the previous days, in UTC
+        LocalDate date = time.withZoneSameInstant(ZoneOffset.UTC).toLocalDate();
+        Optional<AccountBalanceSnapshot> snapshot = accountBalanceSnapshotRepository
+            .findFirstByProductAccountIdAndSnapshotDateLessThanOrderBySnapshotDateDesc(productAccountId, date);
+        if (snapshot.isPresent()) {
+            ZonedDateTime from = startOf(snapshot.get().getSnapshotDate().plusDays(1));
+            accountBalanceDTO.setSnapshotDate(snapshot.get().getSnapshotDate());
+            accountBalanceDTO.setBalance(snapshot.get().getBalance()
+                .add(transactionRepository.sumCredits(productAccountId, from, time))
+                .subtract(transactionRepository.sumDebits(productAccountId, from, time)));
+            return Optional.of(accountBalanceDTO);
+        }
+
+        // No snapshot yet, the transactions since the time are taken back from the current balance
+        List<Object[]> rows = productAccountRepository.findBalancesAndMovementsSince(
+            Collections.singletonList(productAccountId), time);
+        if (rows.isEmpty()) {
+            return Optional.empty();
+        }
+        accountBalanceDTO.setBalance(balanceBefore(rows.get(0)));
+        return Optional.of(accountBalanceDTO);
+    }
+
+    /**
+     * The balance before the movements of a (account id, balance, balance of the shards, credits, debits) row.
+     */
+    private static BigDecimal balanceBefore(Object[] row) {
+        return toBigDecimal(row[1]).add(toBigDecimal(row[2])).subtract(toBigDecimal(row[3])).add(toBigDecimal(row[4]));
+    }
+
+    /**
+     * The coalesced totals may be read as another Number type, depending on the database.
+     */
+    private static BigDecimal toBigDecimal(Object value) {
+        return value instanceof BigDecimal ? (BigDecimal) value : new BigDecimal(value.toString());
+    }
+
+    private static ZonedDateTime startOf(LocalDate date) {
+        return date.atStartOfDay(ZoneOffset.UTC);
+    }
+}
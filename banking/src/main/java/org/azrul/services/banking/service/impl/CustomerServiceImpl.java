@@ -1,19 +1,34 @@
 package org.azrul.services.banking.service.impl;
 
+import org.azrul.services.banking.service.BalanceShardService;
 import org.azrul.services.banking.service.CustomerService;
+import org.azrul.services.banking.service.OutboxEventPublisher;
 import org.azrul.services.banking.domain.Customer;
+import org.azrul.services.banking.domain.ProductAccount;
 import org.azrul.services.banking.repository.CustomerRepository;
+import org.azrul.services.banking.repository.ProductAccountRepository;
+import org.azrul.services.banking.repository.TransactionRepository;
+import org.azrul.services.banking.service.dto.AccountOverviewDTO;
+import org.azrul.services.banking.service.dto.AccountStatementLineDTO;
 import org.azrul.services.banking.service.dto.CustomerDTO;
+import org.azrul.services.banking.service.dto.CustomerOverviewDTO;
 import org.azrul.services.banking.service.mapper.CustomerMapper;
+import org.azrul.services.banking.service.mapper.ProductAccountMapper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.stream.Collectors;
 
 /**
  * Service Implementation for managing Customer.
@@ -28,9 +43,27 @@ public class CustomerServiceImpl implements CustomerService {
 
     private final CustomerMapper customerMapper;
 
-    public CustomerServiceImpl(CustomerRepository customerRepository, CustomerMapper customerMapper) {
+    private final OutboxEventPublisher outboxEventPublisher;
+
+    private final ProductAccountRepository productAccountRepository;
+
+    private final ProductAccountMapper productAccountMapper;
+
+    private final TransactionRepository transactionRepository;
+
+    private final BalanceShardService balanceShardService;
+
+    public CustomerServiceImpl(CustomerRepository customerRepository, CustomerMapper customerMapper,
+        OutboxEventPublisher outboxEventPublisher, ProductAccountRepository productAccountRepository,
+        ProductAccountMapper productAccountMapper, TransactionRepository transactionRepository,
+        BalanceShardService balanceShardService) {
         this.customerRepository = customerRepository;
         this.customerMapper = customerMapper;
+        this.outboxEventPublisher = outboxEventPublisher;
+        this.productAccountRepository = productAccountRepository;
+        this.productAccountMapper = productAccountMapper;
+        this.transactionRepository = transactionRepository;
+        this.balanceShardService = balanceShardService;
     }
 
     /**
@@ -40,12 +73,15 @@ public class CustomerServiceImpl implements CustomerService {
      * @return the persisted entity
      */
     @Override
+    @CacheEvict(cacheNames = LOOKUP_CACHE, allEntries = true)
     public CustomerDTO save(CustomerDTO customerDTO) {
         log.debug("Request to save Customer : {}", customerDTO);
 
         Customer customer = customerMapper.toEntity(customerDTO);
         customer = customerRepository.save(customer);
-        return customerMapper.toDto(customer);
+        CustomerDTO result = customerMapper.toDto(customer);
+        outboxEventPublisher.publishSaved(Customer.class, result.getId(), customerDTO.getId() == null, result);
+        return result;
     }
 
     /**
@@ -77,14 +113,103 @@ public class CustomerServiceImpl implements CustomerService {
             .map(customerMapper::toDto);
     }
 
+    /**
+     * Get one customer by id, with their accounts and the most recent transactions of each account.
+     * <p>
+     * On PostgreSQL, the overview is read by three statements whatever the number of accounts: the customer, their
+     * accounts, and the recent transactions of all the accounts; and a fourth one for the shards of the sharded
+     * accounts, if any. On H2, the recent transactions take a statement per 50 accounts.
+     *
+     * @param id the id of the entity
+     * @param transactionsPerAccount the maximum number of transactions per account
+     * @return the overview, or empty if the customer does not exist
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public Optional<CustomerOverviewDTO> findOverview(Long id, int transactionsPerAccount) {
+        log.debug("Request to get the overview of Customer : {}", id);
+        Optional<Customer> customer = customerRepository.findById(id);
+        if (!customer.isPresent()) {
+            return Optional.empty();
+        }
+        List<ProductAccount> accounts = productAccountRepository.findByCustomerIdOrderById(id);
+        Map<Long, List<AccountStatementLineDTO>> recentLines = transactionRepository.findRecentLinesByAccounts(
+            accounts.stream().map(ProductAccount::getId).collect(Collectors.toList()), transactionsPerAccount);
+
+        CustomerOverviewDTO overview = new CustomerOverviewDTO();
+        overview.setCustomer(customerMapper.toDto(customer.get()));
+        for (ProductAccount account : accounts) {
+            AccountOverviewDTO accountOverview = new AccountOverviewDTO();
+            accountOverview.setAccount(productAccountMapper.toDto(account));
+            accountOverview.setRecentTransactions(recentLines.getOrDefault(account.getId(), new ArrayList<>()));
+            overview.getAccounts().add(accountOverview);
+        }
+        balanceShardService.addShardBalances(overview.getAccounts().stream()
+            .map(AccountOverviewDTO::getAccount)
+            .collect(Collectors.toList()));
+        return Optional.of(overview);
+    }
+
+    /**
+     * Get the customers with a CIF number.
+     *
+     * @param cifNumber the CIF number
+     * @return the list of entities, at most one
+     */
+    @Override
+    @Transactional(readOnly = true)
+    @Cacheable(cacheNames = LOOKUP_CACHE, key = "'cif:' + #p0")
+    public List<CustomerDTO> findByCifNumber(String cifNumber) {
+        log.debug("Request to get Customers by cifNumber : {}", cifNumber);
+        return customerMapper.toDto(customerRepository.findByCifNumber(cifNumber));
+    }
+
+    /**
+     * Get the customers with an IC number, compared in normalized form.
+     *
+     * @param icNumber the IC number
+     * @return the list of entities
+     */
+    @Override
+    @Transactional(readOnly = true)
+    @Cacheable(cacheNames = LOOKUP_CACHE, key = "'ic:' + #p0")
+    public List<CustomerDTO> findByIcNumber(String icNumber) {
+        log.debug("Request to get Customers by icNumber : {}", icNumber);
+        String normalized = Customer.normalizeIcNumber(icNumber);
+        if (normalized == null) {
+            return new ArrayList<>();
+        }
+        return customerMapper.toDto(customerRepository.findByIcNumberNormalized(normalized));
+    }
+
+    /**
+     * Get the customers with a phone number, compared in normalized form.
+     *
+     * @param phoneNumber the phone number
+     * @return the list of entities
+     */
+    @Override
+    @Transactional(readOnly = true)
+    @Cacheable(cacheNames = LOOKUP_CACHE, key = "'phone:' + #p0")
+    public List<CustomerDTO> findByPhoneNumber(String phoneNumber) {
+        log.debug("Request to get Customers by phoneNumber : {}", phoneNumber);
+        String normalized = Customer.normalizePhoneNumber(phoneNumber);
+        if (normalized == null) {
+            return new ArrayList<>();
+        }
+        return customerMapper.toDto(customerRepository.findByPhoneNumberNormalized(normalized));
+    }
+
     /**
      * Delete the customer by id.
      *
      * @param id the id of the entity
      */
     @Override
+    @CacheEvict(cacheNames = LOOKUP_CACHE, allEntries = true)
     public void delete(Long id) {
         log.debug("Request to delete Customer : {}", id);
         customerRepository.deleteById(id);
+        outboxEventPublisher.publishDeleted(Customer.class, id);
     }
 }
@@ -1,10 +1,14 @@
 package org.azrul.services.banking.service.impl;
 
+import org.azrul.services.banking.service.BalanceShardService;
+import org.azrul.services.banking.service.OutboxEventPublisher;
 import org.azrul.services.banking.service.ProductAccountService;
+import org.azrul.services.banking.domain.Customer;
 import org.azrul.services.banking.domain.ProductAccount;
 import org.azrul.services.banking.repository.ProductAccountRepository;
 import org.azrul.services.banking.service.dto.ProductAccountDTO;
 import org.azrul.services.banking.service.mapper.ProductAccountMapper;
+import org.hibernate.SessionFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -13,6 +17,8 @@ import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import javax.persistence.EntityManager;
+import java.util.Collections;
 import java.util.Optional;
 
 /**
@@ -22,19 +28,34 @@ import java.util.Optional;
 @Transactional
 public class ProductAccountServiceImpl implements ProductAccountService {
 
+    /**
+     * The second-level cache region of the accounts of a customer.
+     */
+    private static final String CUSTOMER_ACCOUNTS_ROLE = Customer.class.getName() + ".accounts";
+
     private final Logger log = LoggerFactory.getLogger(ProductAccountServiceImpl.class);
 
     private final ProductAccountRepository productAccountRepository;
 
     private final ProductAccountMapper productAccountMapper;
 
-    public ProductAccountServiceImpl(ProductAccountRepository productAccountRepository, ProductAccountMapper productAccountMapper) {
+    private final EntityManager entityManager;
+
+    private final OutboxEventPublisher outboxEventPublisher;
+
+    private final BalanceShardService balanceShardService;
+
+    public ProductAccountServiceImpl(ProductAccountRepository productAccountRepository, ProductAccountMapper productAccountMapper,
+            EntityManager entityManager, OutboxEventPublisher outboxEventPublisher, BalanceShardService balanceShardService) {
         this.productAccountRepository = productAccountRepository;
         this.productAccountMapper = productAccountMapper;
+        this.entityManager = entityManager;
+        this.outboxEventPublisher = outboxEventPublisher;
+        this.balanceShardService = balanceShardService;
     }
 
     /**
-     * Save a productAccount.
+     * Save a productAccount. The balance of a sharded productAccount includes its shards, which are left unchanged.
      *
      * @param productAccountDTO the entity to save
      * @return the persisted entity
@@ -43,9 +64,19 @@ public class ProductAccountServiceImpl implements ProductAccountService {
     public ProductAccountDTO save(ProductAccountDTO productAccountDTO) {
         log.debug("Request to save ProductAccount : {}", productAccountDTO);
 
+        if (productAccountDTO.getId() != null) {
+            evictAccountsOfOwner(productAccountDTO.getId());
+        }
         ProductAccount productAccount = productAccountMapper.toEntity(productAccountDTO);
+        productAccount.setBalance(balanceShardService.toUnshardedBalance(productAccountDTO.getId(),
+            productAccountDTO.getBalance()));
         productAccount = productAccountRepository.save(productAccount);
-        return productAccountMapper.toDto(productAccount);
+        evictAccountsOfCustomer(productAccountDTO.getCustomerId());
+        ProductAccountDTO result = productAccountMapper.toDto(productAccount);
+        balanceShardService.addShardBalances(Collections.singletonList(result));
+        outboxEventPublisher.publishSaved(ProductAccount.class, result.getId(), productAccountDTO.getId() == null,
+            result);
+        return result;
     }
 
     /**
@@ -58,8 +89,10 @@ public class ProductAccountServiceImpl implements ProductAccountService {
     @Transactional(readOnly = true)
     public Page<ProductAccountDTO> findAll(Pageable pageable) {
         log.debug("Request to get all ProductAccounts");
-        return productAccountRepository.findAll(pageable)
+        Page<ProductAccountDTO> page = productAccountRepository.findAll(pageable)
             .map(productAccountMapper::toDto);
+        balanceShardService.addShardBalances(page.getContent());
+        return page;
     }
 
 
@@ -73,8 +106,10 @@ public class ProductAccountServiceImpl implements ProductAccountService {
     @Transactional(readOnly = true)
     public Optional<ProductAccountDTO> findOne(Long id) {
         log.debug("Request to get ProductAccount : {}", id);
-        return productAccountRepository.findById(id)
+        Optional<ProductAccountDTO> productAccountDTO = productAccountRepository.findById(id)
             .map(productAccountMapper::toDto);
+        productAccountDTO.ifPresent(dto -> balanceShardService.addShardBalances(Collections.singletonList(dto)));
+        return productAccountDTO;
     }
 
     /**
@@ -85,6 +120,28 @@ public class ProductAccountServiceImpl implements ProductAccountService {
     @Override
     public void delete(Long id) {
         log.debug("Request to delete ProductAccount : {}", id);
+        evictAccountsOfOwner(id);
+        balanceShardService.deleteShards(id);
         productAccountRepository.deleteById(id);
+        outboxEventPublisher.publishDeleted(ProductAccount.class, id);
+    }
+
+    /**
+     * Evict the cached accounts of the current customer of a productAccount, as Customer.accounts is the
+     * inverse side of the association, and is not evicted by Hibernate when the productAccount changes.
+     *
+     * @param id the id of the productAccount
+     */
+    private void evictAccountsOfOwner(Long id) {
+        productAccountRepository.findById(id)
+            .map(ProductAccount::getCustomer)
+            .ifPresent(customer -> evictAccountsOfCustomer(customer.getId()));
+    }
+
+    private void evictAccountsOfCustomer(Long customerId) {
+        if (customerId != null) {
+            entityManager.getEntityManagerFactory().unwrap(SessionFactory.class).getCache()
+                .evictCollectionData(CUSTOMER_ACCOUNTS_ROLE, customerId);
+        }
     }
 }
@@ -1,19 +1,39 @@
 package org.azrul.services.banking.service.impl;
 
+import org.azrul.services.banking.service.BalanceSnapshotService;
+import org.azrul.services.banking.service.OutboxEventPublisher;
+import org.azrul.services.banking.service.RecentTransactionKeys;
+import org.azrul.services.banking.service.TransactionVelocity;
 import org.azrul.services.banking.service.TransactionService;
+import org.azrul.services.banking.service.TransactionTotalService;
 import org.azrul.services.banking.domain.Transaction;
+import org.azrul.services.banking.repository.ProductAccountRepository;
 import org.azrul.services.banking.repository.TransactionRepository;
+import org.azrul.services.banking.service.dto.AccountStatementLineDTO;
 import org.azrul.services.banking.service.dto.TransactionDTO;
 import org.azrul.services.banking.service.mapper.TransactionMapper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import javax.persistence.EntityManager;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 /**
  * Service Implementation for managing Transaction.
@@ -22,15 +42,42 @@ import java.util.Optional;
 @Transactional
 public class TransactionServiceImpl implements TransactionService {
 
+    private static final int EXPORT_CLEAR_INTERVAL = Integer.parseInt(TransactionRepository.EXPORT_FETCH_SIZE);
+
     private final Logger log = LoggerFactory.getLogger(TransactionServiceImpl.class);
 
     private final TransactionRepository transactionRepository;
 
     private final TransactionMapper transactionMapper;
 
-    public TransactionServiceImpl(TransactionRepository transactionRepository, TransactionMapper transactionMapper) {
+    private final ProductAccountRepository productAccountRepository;
+
+    private final RecentTransactionKeys recentTransactionKeys;
+
+    private final OutboxEventPublisher outboxEventPublisher;
+
+    private final EntityManager entityManager;
+
+    private final TransactionTotalService transactionTotalService;
+
+    private final TransactionVelocity transactionVelocity;
+
+    private final BalanceSnapshotService balanceSnapshotService;
+
+    public TransactionServiceImpl(TransactionRepository transactionRepository, TransactionMapper transactionMapper,
+        ProductAccountRepository productAccountRepository, RecentTransactionKeys recentTransactionKeys,
+        OutboxEventPublisher outboxEventPublisher, EntityManager entityManager,
+        TransactionTotalService transactionTotalService, TransactionVelocity transactionVelocity,
+        BalanceSnapshotService balanceSnapshotService) {
         this.transactionRepository = transactionRepository;
         this.transactionMapper = transactionMapper;
+        this.productAccountRepository = productAccountRepository;
+        this.recentTransactionKeys = recentTransactionKeys;
+        this.outboxEventPublisher = outboxEventPublisher;
+        this.entityManager = entityManager;
+        this.transactionTotalService = transactionTotalService;
+        this.transactionVelocity = transactionVelocity;
+        this.balanceSnapshotService = balanceSnapshotService;
     }
 
     /**
@@ -43,9 +90,49 @@ public class TransactionServiceImpl implements TransactionService {
     public TransactionDTO save(TransactionDTO transactionDTO) {
         log.debug("Request to save Transaction : {}", transactionDTO);
 
+        Optional<TransactionDTO> previous = Optional.empty();
+        if (transactionDTO.getId() != null) {
+            recentTransactionKeys.remove(transactionDTO.getId());
+            // The previous state, loaded in the persistence context before being merged
+            previous = transactionRepository.findById(transactionDTO.getId())
+                .map(transactionMapper::toDto);
+            previous.ifPresent(transactionTotalService::subtract);
+        }
         Transaction transaction = transactionMapper.toEntity(transactionDTO);
-        transaction = transactionRepository.save(transaction);
-        return transactionMapper.toDto(transaction);
+        transaction = transactionRepository.saveAndFlush(transaction);
+        TransactionDTO result = transactionMapper.toDto(transaction);
+        if (transactionDTO.getId() == null) {
+            recentTransactionKeys.add(result);
+        }
+        transactionTotalService.add(result);
+        balanceSnapshotService.correctSnapshots(Collections.singletonList(result),
+            previous.map(Collections::singletonList).orElse(Collections.emptyList()));
+        outboxEventPublisher.publishSaved(Transaction.class, result.getId(), transactionDTO.getId() == null, result);
+        return result;
+    }
+
+    /**
+     * Save new transactions in one database transaction.
+     * <p>
+     * The identifiers come from the pooled "sequenceGenerator" without a database call per row, and the
+     * inserts are sent in JDBC batches ("hibernate.jdbc.batch_size") when the transaction is flushed.
+     *
+     * @param transactionDTOs the entities to save
+     * @return the persisted entities, in the same order
+     */
+    @Override
+    public List<TransactionDTO> saveAll(List<TransactionDTO> transactionDTOs) {
+        log.debug("Request to save {} Transactions", transactionDTOs.size());
+        List<Transaction> transactions = transactionRepository.saveAll(transactionMapper.toEntity(transactionDTOs));
+        List<TransactionDTO> results = transactionMapper.toDto(transactions);
+        transactionTotalService.addAll(results);
+        balanceSnapshotService.correctSnapshots(results, Collections.emptyList());
+        for (TransactionDTO result : results) {
+            recentTransactionKeys.add(result);
+            transactionVelocity.recordAfterCommit(result);
+            outboxEventPublisher.publishSaved(Transaction.class, result.getId(), true, result);
+        }
+        return results;
     }
 
     /**
@@ -63,6 +150,111 @@ public class TransactionServiceImpl implements TransactionService {
     }
 
 
+    /**
+     * Get the transactions after a position, most recent first.
+     * <p>
+     * One more transaction than the page size is read to know if there is a next page, instead of counting.
+     *
+     * @param time the time of the last transaction of the previous page, or null for the first page
+     * @param id the id of the last transaction of the previous page, or null for the first page
+     * @param size the page size
+     * @return the page
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public Slice<TransactionDTO> findAllAfter(ZonedDateTime time, Long id, int size) {
+        log.debug("Request to get Transactions after : {}, {}", time, id);
+        Pageable pageable = PageRequest.of(0, size + 1);
+        List<Transaction> transactions = time == null || id == null ?
+            transactionRepository.findFirstByTimeDesc(pageable) :
+            transactionRepository.findAfterByTimeDesc(time, id, pageable);
+        boolean hasNext = transactions.size() > size;
+        if (hasNext) {
+            transactions = transactions.subList(0, size);
+        }
+        return new SliceImpl<>(transactionMapper.toDto(transactions), PageRequest.of(0, size), hasNext);
+    }
+
+    /**
+     * Get the statement of a product account.
+     * <p>
+     * Debits and credits are read with one index range scan each, then merged by time.
+     *
+     * @param productAccountId the id of the product account
+     * @param from the start of the period, inclusive
+     * @param to the end of the period, exclusive
+     * @return the statement lines, or empty if the product account does not exist
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public Optional<List<AccountStatementLineDTO>> findStatement(Long productAccountId, ZonedDateTime from,
+        ZonedDateTime to) {
+        log.debug("Request to get the statement of ProductAccount : {} from {} to {}", productAccountId, from, to);
+        if (!productAccountRepository.existsById(productAccountId)) {
+            return Optional.empty();
+        }
+        List<AccountStatementLineDTO> debits = transactionRepository.findDebitLines(productAccountId, from, to);
+        List<AccountStatementLineDTO> credits = transactionRepository.findCreditLines(productAccountId, from, to);
+        debits.forEach(line -> line.setDirection(AccountStatementLineDTO.Direction.DEBIT));
+        credits.forEach(line -> line.setDirection(AccountStatementLineDTO.Direction.CREDIT));
+
+        List<AccountStatementLineDTO> lines = new ArrayList<>(debits.size() + credits.size());
+        int d = 0;
+        int c = 0;
+        while (d < debits.size() && c < credits.size()) {
+            AccountStatementLineDTO debit = debits.get(d);
+            AccountStatementLineDTO credit = credits.get(c);
+            int order = debit.getTime().compareTo(credit.getTime());
+            if (order == 0) {
+                order = debit.getId().compareTo(credit.getId());
+            }
+            if (order <= 0) {
+                lines.add(debit);
+                d++;
+            } else {
+                lines.add(credit);
+                c++;
+            }
+        }
+        lines.addAll(debits.subList(d, debits.size()));
+        lines.addAll(credits.subList(c, credits.size()));
+        return Optional.of(lines);
+    }
+
+    /**
+     * Export the transactions in [from, to), by time, one at a time.
+     * <p>
+     * The transactions are read from a server-side cursor and mapped one by one, and the persistence context is
+     * cleared after each fetch, so that neither the result set nor the persistence context grow with the size of
+     * the export.
+     *
+     * @param accountId the id of the account debited or credited, or null for all the transactions
+     * @param from the start of the period, inclusive
+     * @param to the end of the period, exclusive
+     * @param action the action receiving each transaction
+     * @return the number of transactions exported
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public long export(Long accountId, ZonedDateTime from, ZonedDateTime to, Consumer<TransactionDTO> action) {
+        log.debug("Request to export the Transactions of ProductAccount : {} from {} to {}", accountId, from, to);
+        long count = 0;
+        try (Stream<Transaction> transactions = accountId == null
+            ? transactionRepository.streamByTime(from, to)
+            : transactionRepository.streamByAccountAndTime(accountId, from, to)) {
+            for (Transaction transaction : (Iterable<Transaction>) transactions::iterator) {
+                action.accept(transactionMapper.toDto(transaction));
+                if (++count % EXPORT_CLEAR_INTERVAL == 0) {
+                    // Detach the transactions and the proxies of their accounts, keeping the changes of an
+                    // enclosing transaction
+                    entityManager.flush();
+                    entityManager.clear();
+                }
+            }
+        }
+        return count;
+    }
+
     /**
      * Get one transaction by id.
      *
@@ -77,6 +269,43 @@ public class TransactionServiceImpl implements TransactionService {
             .map(transactionMapper::toDto);
     }
 
+    /**
+     * Get the transaction with a transactionId, with a lookup of the index on transaction_id: the unique one of
+     * an unpartitioned table, or the non-unique one of each partition, the uniqueness being enforced by the
+     * transaction_key table.
+     * <p>
+     * This is not a read-only transaction, so that it reads the primary database and not a replica, which may
+     * not have the transaction just created by a concurrent request yet.
+     *
+     * @param transactionId the transactionId
+     * @return the entity
+     */
+    @Override
+    public Optional<TransactionDTO> findOneByTransactionId(String transactionId) {
+        log.debug("Request to get Transaction by transactionId : {}", transactionId);
+        return transactionRepository.findOneByTransactionId(transactionId)
+            .map(transactionMapper::toDto);
+    }
+
+    /**
+     * Get the ids of the transactions with some transactionIds, from the primary database like
+     * {@link #findOneByTransactionId(String)}.
+     *
+     * @param transactionIds the transactionIds
+     * @return the ids by transactionId, of the transactionIds which exist
+     */
+    @Override
+    public Map<String, Long> findIdsByTransactionIds(Collection<String> transactionIds) {
+        log.debug("Request to get the ids of {} transactionIds", transactionIds.size());
+        Map<String, Long> ids = new HashMap<>();
+        if (!transactionIds.isEmpty()) {
+            for (Object[] row : transactionRepository.findIdsByTransactionIdIn(transactionIds)) {
+                ids.put((String) row[0], (Long) row[1]);
+            }
+        }
+        return ids;
+    }
+
     /**
      * Delete the transaction by id.
      *
@@ -85,6 +314,15 @@ public class TransactionServiceImpl implements TransactionService {
     @Override
     public void delete(Long id) {
         log.debug("Request to delete Transaction : {}", id);
+        recentTransactionKeys.remove(id);
+        transactionRepository.findById(id)
+            .map(transactionMapper::toDto)
+            .ifPresent(transactionDTO -> {
+                transactionTotalService.subtract(transactionDTO);
+                balanceSnapshotService.correctSnapshots(Collections.emptyList(),
+                    Collections.singletonList(transactionDTO));
+            });
         transactionRepository.deleteById(id);
+        outboxEventPublisher.publishDeleted(Transaction.class, id);
     }
 }
@@ -0,0 +1,252 @@
+package org.azrul.services.banking.service.impl;
+
+import org.azrul.services.banking.config.ApplicationProperties;
+import org.azrul.services.banking.domain.TransactionDailyTotal;
+import org.azrul.services.banking.domain.enumeration.Currency;
+import org.azrul.services.banking.repository.TransactionDailyTotalRepository;
+import org.azrul.services.banking.repository.TransactionRepository;
+import org.azrul.services.banking.service.TransactionTotalService;
+import org.azrul.services.banking.service.dto.TransactionDTO;
+import org.azrul.services.banking.service.dto.TransactionTotalDTO;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Service Implementation for the daily totals of the transactions.
+ * <p>
+ * A transaction adds its amount to one slot of its daily total, chosen at random, with a single UPDATE statement.
+ * The UPDATE locks the slot until the end of the transaction, so the slots let concurrent transactions of the same
+ * day, currency and type go on without waiting for each other. A missing slot is inserted empty, before being
+ * updated, by an upsert in the same database transaction, so that concurrent inserts of the same slot do not fail
+ * the transactions, nor need a second connection.
+ */
+@Service
+@Transactional
+public class TransactionTotalServiceImpl implements TransactionTotalService {
+
+    /**
+     * The currency or type of the transactions without one.
+     */
+    private static final String NONE = "";
+
+    private final Logger log = LoggerFactory.getLogger(TransactionTotalServiceImpl.class);
+
+    private final TransactionDailyTotalRepository transactionDailyTotalRepository;
+
+    private final TransactionRepository transactionRepository;
+
+    private final ApplicationProperties.TransactionTotals properties;
+
+    private final TransactionTemplate newTransactionTemplate;
+
+    public TransactionTotalServiceImpl(TransactionDailyTotalRepository transactionDailyTotalRepository,
+        TransactionRepository transactionRepository, ApplicationProperties applicationProperties,
+        PlatformTransactionManager transactionManager) {
+        this.transactionDailyTotalRepository = transactionDailyTotalRepository;
+        this.transactionRepository = transactionRepository;
+        this.properties = applicationProperties.getTransactionTotals();
+        this.newTransactionTemplate = new TransactionTemplate(transactionManager);
+        this.newTransactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    /**
+     * Add a new transaction to the total of its day, currency and type.
+     *
+     * @param transactionDTO the transaction
+     */
+    @Override
+    public void add(TransactionDTO transactionDTO) {
+        addAll(Collections.singletonList(transactionDTO));
+    }
+
+    /**
+     * Add new transactions to the totals of their days, currencies and types, with one UPDATE statement per total.
+     *
+     * @param transactionDTOs the transactions
+     */
+    @Override
+    public void addAll(List<TransactionDTO> transactionDTOs) {
+        Map<List<Object>, BigDecimal> amounts = new HashMap<>();
+        Map<List<Object>, Long> counts = new HashMap<>();
+        for (TransactionDTO transactionDTO : transactionDTOs) {
+            List<Object> key = keyOf(transactionDTO);
+            if (key != null) {
+                amounts.merge(key, amountOf(transactionDTO), BigDecimal::add);
+                counts.merge(key, 1L, Long::sum);
+            }
+        }
+        // In the same order in all transactions, so that they cannot deadlock
+        amounts.keySet().stream()
+            .sorted(Comparator.comparing(Object::toString))
+            .forEach(key -> increment(key, amounts.get(key), counts.get(key)));
+    }
+
+    /**
+     * Remove a transaction from the total of its day, currency and type.
+     *
+     * @param transactionDTO the transaction
+     */
+    @Override
+    public void subtract(TransactionDTO transactionDTO) {
+        List<Object> key = keyOf(transactionDTO);
+        if (key != null) {
+            increment(key, amountOf(transactionDTO).negate(), -1L);
+        }
+    }
+
+    /**
+     * The (day, currency, type) of the total of a transaction, or null if it has no time.
+     */
+    private static List<Object> keyOf(TransactionDTO transactionDTO) {
+        if (transactionDTO.getTime() == null) {
+            return null;
+        }
+        return Arrays.asList(
+            transactionDTO.getTime().withZoneSameInstant(ZoneOffset.UTC).toLocalDate(),
+            transactionDTO.getCurrency() == null ? NONE : transactionDTO.getCurrency().name(),
+            transactionDTO.getTransactionType() == null ? NONE : transactionDTO.getTransactionType());
+    }
+
+    private static BigDecimal amountOf(TransactionDTO transactionDTO) {
+        return transactionDTO.getAmount() == null ? BigDecimal.ZERO : transactionDTO.getAmount();
+    }
+
+    private void increment(List<Object> key, BigDecimal amount, Long count) {
+        LocalDate date = (LocalDate) key.get(0);
+        String currency = (String) key.get(1);
+        String transactionType = (String) key.get(2);
+        Integer slot = ThreadLocalRandom.current().nextInt(properties.getSlots());
+        if (transactionDailyTotalRepository.increment(date, currency, transactionType, slot, amount, count) == 0) {
+            transactionDailyTotalRepository.insertSlotIfAbsent(date, currency, transactionType, slot);
+            if (transactionDailyTotalRepository.increment(date, currency, transactionType, slot, amount, count) == 0) {
+                throw new IllegalStateException("Cannot update the transaction total of " + date + ", " + currency +
+                    ", " + transactionType);
+            }
+        }
+    }
+
+    /**
+     * Get the totals of a period by currency and type.
+     *
+     * @param from the first day of the period
+     * @param to the day following the period
+     * @param byDay true for the totals of each day, false for the totals of the whole period
+     * @return the totals
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public List<TransactionTotalDTO> findTotals(LocalDate from, LocalDate to, boolean byDay) {
+        log.debug("Request to get the Transaction totals from {} to {}", from, to);
+        List<TransactionTotalDTO> totals = new ArrayList<>();
+        if (byDay) {
+            for (Object[] row : transactionDailyTotalRepository.sumByDayCurrencyAndType(from, to)) {
+                TransactionTotalDTO total = toTotal(row[1], row[2], row[3], row[4]);
+                total.setDate((LocalDate) row[0]);
+                totals.add(total);
+            }
+        } else {
+            for (Object[] row : transactionDailyTotalRepository.sumByCurrencyAndType(from, to)) {
+                totals.add(toTotal(row[0], row[1], row[2], row[3]));
+            }
+        }
+        return totals;
+    }
+
+    private static TransactionTotalDTO toTotal(Object currency, Object transactionType, Object amount, Object count) {
+        TransactionTotalDTO total = new TransactionTotalDTO();
+        total.setCurrency(NONE.equals(currency) ? null : Currency.valueOf((String) currency));
+        total.setTransactionType(NONE.equals(transactionType) ? null : (String) transactionType);
+        total.setTotalAmount((BigDecimal) amount);
+        total.setTransactionCount(((Number) count).longValue());
+        return total;
+    }
+
+    /**
+     * Recompute the totals of a period from its transactions.
+     * <p>
+     * The transactions changed while their day is rebuilt may be counted twice or not at all, so the days being
+     * changed should be rebuilt again afterwards.
+     *
+     * @param from the first day of the period
+     * @param to the day following the period
+     * @return the number of transactions of the period
+     */
+    @Override
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public long rebuild(LocalDate from, LocalDate to) {
+        log.debug("Request to rebuild the Transaction totals from {} to {}", from, to);
+        List<LocalDate> days = new ArrayList<>();
+        for (LocalDate date = from; date.isBefore(to); date = date.plusDays(1)) {
+            days.add(date);
+        }
+        if (days.isEmpty()) {
+            return 0;
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(properties.getRebuildParallelism(), days.size()));
+        try {
+            List<Future<Long>> results = new ArrayList<>(days.size());
+            for (LocalDate date : days) {
+                results.add(executor.submit(() -> newTransactionTemplate.execute(status -> rebuildDay(date))));
+            }
+            long transactions = 0;
+            for (Future<Long> result : results) {
+                transactions += result.get();
+            }
+            log.info("Rebuilt the Transaction totals of {} days from {}, {} transactions", days.size(), from,
+                transactions);
+            return transactions;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while rebuilding the transaction totals", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Cannot rebuild the transaction totals", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private long rebuildDay(LocalDate date) {
+        ZonedDateTime start = date.atStartOfDay(ZoneOffset.UTC);
+        ZonedDateTime end = date.plusDays(1).atStartOfDay(ZoneOffset.UTC);
+        transactionDailyTotalRepository.deleteByBucketDate(date);
+        List<TransactionDailyTotal> totals = new ArrayList<>();
+        long transactions = 0;
+        for (Object[] row : transactionRepository.sumByCurrencyAndType(start, end)) {
+            long count = ((Number) row[3]).longValue();
+            totals.add(new TransactionDailyTotal()
+                .bucketDate(date)
+                .currency(row[0] == null ? NONE : ((Currency) row[0]).name())
+                .transactionType(row[1] == null ? NONE : (String) row[1])
+                .slot(0)
+                .totalAmount(row[2] == null ? BigDecimal.ZERO : (BigDecimal) row[2])
+                .transactionCount(count));
+            transactions += count;
+        }
+        transactionDailyTotalRepository.saveAll(totals);
+        return transactions;
+    }
+}
@@ -0,0 +1,174 @@
+package org.azrul.services.banking.service.impl;
+
+import org.azrul.services.banking.service.BalanceShardService;
+import org.azrul.services.banking.service.BalanceSnapshotService;
+import org.azrul.services.banking.service.OutboxEventPublisher;
+import org.azrul.services.banking.service.TransactionTotalService;
+import org.azrul.services.banking.service.TransferRejectedException;
+import org.azrul.services.banking.service.TransferService;
+import org.azrul.services.banking.service.TransactionVelocity;
+import org.azrul.services.banking.domain.ProductAccount;
+import org.azrul.services.banking.domain.Transaction;
+import org.azrul.services.banking.repository.ProductAccountRepository;
+import org.azrul.services.banking.repository.TransactionRepository;
+import org.azrul.services.banking.service.dto.ProductAccountDTO;
+import org.azrul.services.banking.service.dto.TransactionDTO;
+import org.azrul.services.banking.service.mapper.ProductAccountMapper;
+import org.azrul.services.banking.service.mapper.TransactionMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.ZonedDateTime;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Service Implementation for posting transfers between product accounts.
+ * <p>
+ * Balances are changed with conditional UPDATE statements rather than by reading and writing the entities,
+ * so that concurrent transfers cannot lose updates nor overdraw an account. Each UPDATE locks its account
+ * row until the end of the transaction; the rows are always updated in ascending account id order, so two
+ * transfers between the same accounts cannot deadlock. The balances of sharded accounts are changed through
+ * {@link BalanceShardService}, which updates one of their shards instead of their account row. The velocity limits
+ * of the source account are checked first, see {@link TransactionVelocity}.
+ * <p>
+ * A transfer publishes the created Transaction, and the debited and credited ProductAccounts with their new
+ * balances, in the outbox.
+ */
+@Service
+@Transactional
+public class TransferServiceImpl implements TransferService {
+
+    public static final String TRANSFER_TRANSACTION_TYPE = "TRANSFER";
+
+    private final Logger log = LoggerFactory.getLogger(TransferServiceImpl.class);
+
+    private final ProductAccountRepository productAccountRepository;
+
+    private final TransactionRepository transactionRepository;
+
+    private final TransactionMapper transactionMapper;
+
+    private final OutboxEventPublisher outboxEventPublisher;
+
+    private final TransactionTotalService transactionTotalService;
+
+    private final BalanceShardService balanceShardService;
+
+    private final TransactionVelocity transactionVelocity;
+
+    private final ProductAccountMapper productAccountMapper;
+
+    private final BalanceSnapshotService balanceSnapshotService;
+
+    public TransferServiceImpl(ProductAccountRepository productAccountRepository,
+        TransactionRepository transactionRepository, TransactionMapper transactionMapper,
+        OutboxEventPublisher outboxEventPublisher, TransactionTotalService transactionTotalService,
+        BalanceShardService balanceShardService, TransactionVelocity transactionVelocity,
+        ProductAccountMapper productAccountMapper, BalanceSnapshotService balanceSnapshotService) {
+        this.productAccountRepository = productAccountRepository;
+        this.transactionRepository = transactionRepository;
+        this.transactionMapper = transactionMapper;
+        this.productAccountMapper = productAccountMapper;
+        this.balanceSnapshotService = balanceSnapshotService;
+        this.outboxEventPublisher = outboxEventPublisher;
+        this.transactionTotalService = transactionTotalService;
+        this.balanceShardService = balanceShardService;
+        this.transactionVelocity = transactionVelocity;
+    }
+
+    /**
+     * Post a transfer.
+     *
+     * @param transactionDTO the transfer, with its source, target and amount
+     * @return the persisted transaction
+     */
+    @Override
+    public TransactionDTO transfer(TransactionDTO transactionDTO) {
+        log.debug("Request to post transfer : {}", transactionDTO);
+        Long sourceId = transactionDTO.getSourceId();
+        Long targetId = transactionDTO.getTargetId();
+        BigDecimal amount = transactionDTO.getAmount();
+        if (sourceId == null || targetId == null) {
+            throw new TransferRejectedException("A transfer needs a source and a target account", "accountnull");
+        }
+        if (sourceId.equals(targetId)) {
+            throw new TransferRejectedException("The source and target accounts must be different", "sameaccount");
+        }
+        if (amount == null || amount.signum() <= 0) {
+            throw new TransferRejectedException("The amount of a transfer must be positive", "invalidamount");
+        }
+        Optional<String> exceeded = transactionVelocity.tryRecordUnlessRolledBack(sourceId, amount,
+            System.currentTimeMillis());
+        if (exceeded.isPresent()) {
+            throw new TransferRejectedException("The source account exceeds its velocity limit per " + exceeded.get(),
+                "velocityexceeded");
+        }
+
+        if (sourceId < targetId) {
+            debit(sourceId, amount);
+            credit(targetId, amount);
+        } else {
+            credit(targetId, amount);
+            debit(sourceId, amount);
+        }
+
+        Transaction transaction = transactionMapper.toEntity(transactionDTO);
+        if (transaction.getTransactionType() == null) {
+            transaction.setTransactionType(TRANSFER_TRANSACTION_TYPE);
+        }
+        if (transaction.getTime() == null) {
+            transaction.setTime(ZonedDateTime.now());
+        }
+        // Flushed, so that a duplicate transactionId is rejected by this call and the transfer rolled back
+        transaction = transactionRepository.saveAndFlush(transaction);
+        TransactionDTO result = transactionMapper.toDto(transaction);
+        transactionTotalService.add(result);
+        // A transfer may be dated on a day already snapshotted
+        balanceSnapshotService.correctSnapshots(Collections.singletonList(result), Collections.emptyList());
+        outboxEventPublisher.publishSaved(Transaction.class, result.getId(), true, result);
+        publishBalances(Arrays.asList(sourceId, targetId));
+        return result;
+    }
+
+    /**
+     * Publish the accounts whose balances were changed. The balances are read by a query, as the entities
+     * already loaded do not reflect the UPDATE statements.
+     */
+    private void publishBalances(List<Long> accountIds) {
+        Map<Long, BigDecimal> balances = new HashMap<>();
+        for (Object[] row : productAccountRepository.findBalances(accountIds)) {
+            balances.put((Long) row[0], ((BigDecimal) row[1]).add((BigDecimal) row[2]));
+        }
+        for (ProductAccount productAccount : productAccountRepository.findAllById(accountIds)) {
+            ProductAccountDTO productAccountDTO = productAccountMapper.toDto(productAccount);
+            productAccountDTO.setBalance(balances.get(productAccount.getId()));
+            outboxEventPublisher.publishSaved(ProductAccount.class, productAccountDTO.getId(), false,
+                productAccountDTO);
+        }
+    }
+
+    private void debit(Long accountId, BigDecimal amount) {
+        if (!balanceShardService.debit(accountId, amount)) {
+            // The transaction is rolled back, so a credit made before is undone
+            if (!productAccountRepository.existsById(accountId)) {
+                throw new TransferRejectedException("Source account not found", "sourcenotfound");
+            }
+            throw new TransferRejectedException("Insufficient balance", "insufficientbalance");
+        }
+    }
+
+    private void credit(Long accountId, BigDecimal amount) {
+        if (!balanceShardService.credit(accountId, amount)) {
+            throw new TransferRejectedException("Target account not found", "targetnotfound");
+        }
+    }
+}
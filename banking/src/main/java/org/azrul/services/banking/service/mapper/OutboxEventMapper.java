@@ -0,0 +1,14 @@
+package org.azrul.services.banking.service.mapper;
+
+import org.azrul.services.banking.domain.*;
+import org.azrul.services.banking.service.dto.OutboxEventDTO;
+
+import org.mapstruct.*;
+
+/**
+ * Mapper for the entity OutboxEvent and its DTO OutboxEventDTO.
+ */
+@Mapper(componentModel = "spring", uses = {})
+public interface OutboxEventMapper extends EntityMapper<OutboxEventDTO, OutboxEvent> {
+
+}
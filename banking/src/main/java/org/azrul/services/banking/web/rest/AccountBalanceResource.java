@@ -0,0 +1,86 @@
+package org.azrul.services.banking.web.rest;
+
+import com.codahale.metrics.annotation.Timed;
+import org.azrul.services.banking.config.ApplicationProperties;
+import org.azrul.services.banking.security.AuthoritiesConstants;
+import org.azrul.services.banking.service.BalanceShardService;
+import org.azrul.services.banking.service.BalanceSnapshotService;
+import org.azrul.services.banking.service.dto.AccountBalanceDTO;
+import org.azrul.services.banking.web.rest.errors.BadRequestAlertException;
+import io.github.jhipster.web.util.ResponseUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.ZonedDateTime;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * REST controller for the point-in-time balances of product accounts.
+ */
+@RestController
+@RequestMapping("/api")
+public class AccountBalanceResource {
+
+    private final Logger log = LoggerFactory.getLogger(AccountBalanceResource.class);
+
+    private static final String ENTITY_NAME = "bankingProductAccount";
+
+    private final BalanceSnapshotService balanceSnapshotService;
+
+    private final BalanceShardService balanceShardService;
+
+    private final ApplicationProperties.BalanceShards balanceShardsProperties;
+
+    public AccountBalanceResource(BalanceSnapshotService balanceSnapshotService,
+        BalanceShardService balanceShardService, ApplicationProperties applicationProperties) {
+        this.balanceSnapshotService = balanceSnapshotService;
+        this.balanceShardService = balanceShardService;
+        this.balanceShardsProperties = applicationProperties.getBalanceShards();
+    }
+
+    /**
+     * GET  /product-accounts/:id/balance : get the balance of the "id" productAccount at a time.
+     *
+     * @param id the id of the productAccount
+     * @param at the time, now by default
+     * @return the ResponseEntity with status 200 (OK) and with body the accountBalanceDTO, or with status 404 (Not Found)
+     */
+    @GetMapping("/product-accounts/{id}/balance")
+    @Timed
+    public ResponseEntity<AccountBalanceDTO> getProductAccountBalance(@PathVariable Long id,
+        @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) ZonedDateTime at) {
+        log.debug("REST request to get the balance of ProductAccount {} at : {}", id, at);
+        Optional<AccountBalanceDTO> accountBalanceDTO =
+            balanceSnapshotService.findBalance(id, at != null ? at : ZonedDateTime.now());
+        return ResponseUtil.wrapOrNotFound(accountBalanceDTO);
+    }
+
+    /**
+     * PUT  /product-accounts/:id/balance-shards : split the balance of the "id" productAccount over a number of
+     * shards, so that concurrent transfers of this hot account do not wait for each other.
+     *
+     * @param id the id of the productAccount
+     * @param count the number of shards, 0 to merge the shards back into the productAccount
+     * @return the ResponseEntity with status 200 (OK) and the number of shards in body,
+     * or with status 400 (Bad Request) if the count is invalid, or with status 404 (Not Found)
+     */
+    @PutMapping("/product-accounts/{id}/balance-shards")
+    @Timed
+    @PreAuthorize("hasRole(\"" + AuthoritiesConstants.ADMIN + "\")")
+    public ResponseEntity<Map<String, Integer>> updateProductAccountBalanceShards(@PathVariable Long id,
+        @RequestParam int count) {
+        log.debug("REST request to split the balance of ProductAccount {} over {} shards", id, count);
+        if (count < 0 || count > balanceShardsProperties.getMaxShards()) {
+            throw new BadRequestAlertException("The number of shards must be between 0 and "
+                + balanceShardsProperties.getMaxShards(), ENTITY_NAME, "invalidshards");
+        }
+        return ResponseUtil.wrapOrNotFound(balanceShardService.setShardCount(id, count)
+            .map(shards -> Collections.singletonMap("shards", shards)));
+    }
+}
@@ -1,11 +1,13 @@
 package org.azrul.services.banking.web.rest;
 
 import com.codahale.metrics.annotation.Timed;
+import org.azrul.services.banking.config.RequestExecutor;
 import org.azrul.services.banking.service.CustomerService;
 import org.azrul.services.banking.web.rest.errors.BadRequestAlertException;
 import org.azrul.services.banking.web.rest.util.HeaderUtil;
 import org.azrul.services.banking.web.rest.util.PaginationUtil;
 import org.azrul.services.banking.service.dto.CustomerDTO;
+import org.azrul.services.banking.service.dto.CustomerOverviewDTO;
 import io.github.jhipster.web.util.ResponseUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -17,13 +19,17 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.net.URI;
-import java.net.URISyntaxException;
 
 import java.util.List;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Stream;
 
 /**
  * REST controller for managing Customer.
+ * <p>
+ * The requests are validated on the server thread, then executed by the {@link RequestExecutor}.
  */
 @RestController
 @RequestMapping("/api")
@@ -33,10 +39,15 @@ public class CustomerResource {
 
     private static final String ENTITY_NAME = "bankingCustomer";
 
+    private static final int MAX_OVERVIEW_TRANSACTIONS = 100;
+
     private final CustomerService customerService;
 
-    public CustomerResource(CustomerService customerService) {
+    private final RequestExecutor requestExecutor;
+
+    public CustomerResource(CustomerService customerService, RequestExecutor requestExecutor) {
         this.customerService = customerService;
+        this.requestExecutor = requestExecutor;
     }
 
     /**
@@ -44,19 +55,20 @@ public class CustomerResource {
      *
      * @param customerDTO the customerDTO to create
      * @return the ResponseEntity with status 201 (Created) and with body the new customerDTO, or with status 400 (Bad Request) if the customer has already an ID
-     * @throws URISyntaxException if the Location URI syntax is incorrect
      */
     @PostMapping("/customers")
     @Timed
-    public ResponseEntity<CustomerDTO> createCustomer(@RequestBody CustomerDTO customerDTO) throws URISyntaxException {
+    public CompletableFuture<ResponseEntity<CustomerDTO>> createCustomer(@RequestBody CustomerDTO customerDTO) {
         log.debug("REST request to save Customer : {}", customerDTO);
         if (customerDTO.getId() != null) {
             throw new BadRequestAlertException("A new customer cannot already have an ID", ENTITY_NAME, "idexists");
         }
-        CustomerDTO result = customerService.save(customerDTO);
-        return ResponseEntity.created(new URI("/api/customers/" + result.getId()))
-            .headers(HeaderUtil.createEntityCreationAlert(ENTITY_NAME, result.getId().toString()))
-            .body(result);
+        return requestExecutor.submit(() -> {
+            CustomerDTO result = customerService.save(customerDTO);
+            return ResponseEntity.created(new URI("/api/customers/" + result.getId()))
+                .headers(HeaderUtil.createEntityCreationAlert(ENTITY_NAME, result.getId().toString()))
+                .body(result);
+        });
     }
 
     /**
@@ -66,19 +78,20 @@ public class CustomerResource {
      * @return the ResponseEntity with status 200 (OK) and with body the updated customerDTO,
      * or with status 400 (Bad Request) if the customerDTO is not valid,
      * or with status 500 (Internal Server Error) if the customerDTO couldn't be updated
-     * @throws URISyntaxException if the Location URI syntax is incorrect
      */
     @PutMapping("/customers")
     @Timed
-    public ResponseEntity<CustomerDTO> updateCustomer(@RequestBody CustomerDTO customerDTO) throws URISyntaxException {
+    public CompletableFuture<ResponseEntity<CustomerDTO>> updateCustomer(@RequestBody CustomerDTO customerDTO) {
         log.debug("REST request to update Customer : {}", customerDTO);
         if (customerDTO.getId() == null) {
             throw new BadRequestAlertException("Invalid id", ENTITY_NAME, "idnull");
         }
-        CustomerDTO result = customerService.save(customerDTO);
-        return ResponseEntity.ok()
-            .headers(HeaderUtil.createEntityUpdateAlert(ENTITY_NAME, customerDTO.getId().toString()))
-            .body(result);
+        return requestExecutor.submit(() -> {
+            CustomerDTO result = customerService.save(customerDTO);
+            return ResponseEntity.ok()
+                .headers(HeaderUtil.createEntityUpdateAlert(ENTITY_NAME, customerDTO.getId().toString()))
+                .body(result);
+        });
     }
 
     /**
@@ -89,11 +102,13 @@ public class CustomerResource {
      */
     @GetMapping("/customers")
     @Timed
-    public ResponseEntity<List<CustomerDTO>> getAllCustomers(Pageable pageable) {
+    public CompletableFuture<ResponseEntity<List<CustomerDTO>>> getAllCustomers(Pageable pageable) {
         log.debug("REST request to get a page of Customers");
-        Page<CustomerDTO> page = customerService.findAll(pageable);
-        HttpHeaders headers = PaginationUtil.generatePaginationHttpHeaders(page, "/api/customers");
-        return ResponseEntity.ok().headers(headers).body(page.getContent());
+        return requestExecutor.submit(() -> {
+            Page<CustomerDTO> page = customerService.findAll(pageable);
+            HttpHeaders headers = PaginationUtil.generatePaginationHttpHeaders(page, "/api/customers");
+            return ResponseEntity.ok().headers(headers).body(page.getContent());
+        });
     }
 
     /**
@@ -104,10 +119,70 @@ public class CustomerResource {
      */
     @GetMapping("/customers/{id}")
     @Timed
-    public ResponseEntity<CustomerDTO> getCustomer(@PathVariable Long id) {
+    public CompletableFuture<ResponseEntity<CustomerDTO>> getCustomer(@PathVariable Long id) {
         log.debug("REST request to get Customer : {}", id);
-        Optional<CustomerDTO> customerDTO = customerService.findOne(id);
-        return ResponseUtil.wrapOrNotFound(customerDTO);
+        return requestExecutor.submit(() -> {
+            Optional<CustomerDTO> customerDTO = customerService.findOne(id);
+            return ResponseUtil.wrapOrNotFound(customerDTO);
+        });
+    }
+
+    /**
+     * GET  /customers/:id/overview : get the "id" customer, with their accounts and the most recent transactions
+     * of each account.
+     *
+     * @param id the id of the customer
+     * @param transactions the maximum number of transactions per account, from 0 to 100
+     * @return the ResponseEntity with status 200 (OK) and the overview in body,
+     * or with status 400 (Bad Request) if the number of transactions is invalid, or with status 404 (Not Found)
+     */
+    @GetMapping("/customers/{id}/overview")
+    @Timed
+    public CompletableFuture<ResponseEntity<CustomerOverviewDTO>> getCustomerOverview(@PathVariable Long id,
+        @RequestParam(defaultValue = "10") int transactions) {
+        log.debug("REST request to get the overview of Customer : {}", id);
+        if (transactions < 0 || transactions > MAX_OVERVIEW_TRANSACTIONS) {
+            throw new BadRequestAlertException("The number of transactions must be between 0 and "
+                + MAX_OVERVIEW_TRANSACTIONS, ENTITY_NAME, "invalidtransactions");
+        }
+        return requestExecutor.submit(() -> {
+            Optional<CustomerOverviewDTO> overview = customerService.findOverview(id, transactions);
+            return ResponseUtil.wrapOrNotFound(overview);
+        });
+    }
+
+    /**
+     * GET  /customers/_lookup : get the customers with a CIF number, an IC number or a phone number.
+     * <p>
+     * Exactly one of the criteria must be given. The IC and phone numbers are compared without separators,
+     * and the phone numbers with or without the country code.
+     *
+     * @param cifNumber the CIF number
+     * @param icNumber the IC number
+     * @param phoneNumber the phone number
+     * @return the ResponseEntity with status 200 (OK) and the list of customers in body,
+     * or with status 400 (Bad Request) if not exactly one criterion is given
+     */
+    @GetMapping("/customers/_lookup")
+    @Timed
+    public CompletableFuture<ResponseEntity<List<CustomerDTO>>> lookupCustomers(@RequestParam(required = false) String cifNumber,
+        @RequestParam(required = false) String icNumber, @RequestParam(required = false) String phoneNumber) {
+        log.debug("REST request to lookup Customers : {}, {}, {}", cifNumber, icNumber, phoneNumber);
+        if (Stream.of(cifNumber, icNumber, phoneNumber).filter(Objects::nonNull).count() != 1) {
+            throw new BadRequestAlertException("Exactly one of cifNumber, icNumber and phoneNumber is required",
+                ENTITY_NAME, "lookupcriteria");
+        }
+        return requestExecutor.submit(() -> {
+            List<CustomerDTO> customers;
+            if (cifNumber != null) {
+                customers = customerService.findByCifNumber(cifNumber);
+            } else if (icNumber != null) {
+                customers = customerService.findByIcNumber(icNumber);
+            } else {
+                customers = customerService.findByPhoneNumber(phoneNumber);
+            }
+            return ResponseEntity.ok(customers);
+        });
     }
 
     /**
@@ -118,9 +193,11 @@ public class CustomerResource {
      */
     @DeleteMapping("/customers/{id}")
     @Timed
-    public ResponseEntity<Void> deleteCustomer(@PathVariable Long id) {
+    public CompletableFuture<ResponseEntity<Void>> deleteCustomer(@PathVariable Long id) {
         log.debug("REST request to delete Customer : {}", id);
-        customerService.delete(id);
-        return ResponseEntity.ok().headers(HeaderUtil.createEntityDeletionAlert(ENTITY_NAME, id.toString())).build();
+        return requestExecutor.submit(() -> {
+            customerService.delete(id);
+            return ResponseEntity.ok().headers(HeaderUtil.createEntityDeletionAlert(ENTITY_NAME, id.toString())).<Void>build();
+        });
     }
 }
@@ -1,6 +1,7 @@
 package org.azrul.services.banking.web.rest;
 
 import com.codahale.metrics.annotation.Timed;
+import org.azrul.services.banking.config.RequestExecutor;
 import org.azrul.services.banking.service.ProductAccountService;
 import org.azrul.services.banking.web.rest.errors.BadRequestAlertException;
 import org.azrul.services.banking.web.rest.util.HeaderUtil;
@@ -17,13 +18,15 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.net.URI;
-import java.net.URISyntaxException;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * REST controller for managing ProductAccount.
+ * <p>
+ * The requests are validated on the server thread, then executed by the {@link RequestExecutor}.
  */
 @RestController
 @RequestMapping("/api")
@@ -35,8 +38,11 @@ public class ProductAccountResource {
 
     private final ProductAccountService productAccountService;
 
-    public ProductAccountResource(ProductAccountService productAccountService) {
+    private final RequestExecutor requestExecutor;
+
+    public ProductAccountResource(ProductAccountService productAccountService, RequestExecutor requestExecutor) {
         this.productAccountService = productAccountService;
+        this.requestExecutor = requestExecutor;
     }
 
     /**
@@ -44,19 +50,20 @@ public class ProductAccountResource {
      *
      * @param productAccountDTO the productAccountDTO to create
      * @return the ResponseEntity with status 201 (Created) and with body the new productAccountDTO, or with status 400 (Bad Request) if the productAccount has already an ID
-     * @throws URISyntaxException if the Location URI syntax is incorrect
      */
     @PostMapping("/product-accounts")
     @Timed
-    public ResponseEntity<ProductAccountDTO> createProductAccount(@RequestBody ProductAccountDTO productAccountDTO) throws URISyntaxException {
+    public CompletableFuture<ResponseEntity<ProductAccountDTO>> createProductAccount(@RequestBody ProductAccountDTO productAccountDTO) {
         log.debug("REST request to save ProductAccount : {}", productAccountDTO);
         if (productAccountDTO.getId() != null) {
             throw new BadRequestAlertException("A new productAccount cannot already have an ID", ENTITY_NAME, "idexists");
         }
-        ProductAccountDTO result = productAccountService.save(productAccountDTO);
-        return ResponseEntity.created(new URI("/api/product-accounts/" + result.getId()))
-            .headers(HeaderUtil.createEntityCreationAlert(ENTITY_NAME, result.getId().toString()))
-            .body(result);
+        return requestExecutor.submit(() -> {
+            ProductAccountDTO result = productAccountService.save(productAccountDTO);
+            return ResponseEntity.created(new URI("/api/product-accounts/" + result.getId()))
+                .headers(HeaderUtil.createEntityCreationAlert(ENTITY_NAME, result.getId().toString()))
+                .body(result);
+        });
     }
 
     /**
@@ -66,19 +73,20 @@ public class ProductAccountResource {
      * @return the ResponseEntity with status 200 (OK) and with body the updated productAccountDTO,
      * or with status 400 (Bad Request) if the productAccountDTO is not valid,
      * or with status 500 (Internal Server Error) if the productAccountDTO couldn't be updated
-     * @throws URISyntaxException if the Location URI syntax is incorrect
      */
     @PutMapping("/product-accounts")
     @Timed
-    public ResponseEntity<ProductAccountDTO> updateProductAccount(@RequestBody ProductAccountDTO productAccountDTO) throws URISyntaxException {
+    public CompletableFuture<ResponseEntity<ProductAccountDTO>> updateProductAccount(@RequestBody ProductAccountDTO productAccountDTO) {
         log.debug("REST request to update ProductAccount : {}", productAccountDTO);
         if (productAccountDTO.getId() == null) {
             throw new BadRequestAlertException("Invalid id", ENTITY_NAME, "idnull");
         }
-        ProductAccountDTO result = productAccountService.save(productAccountDTO);
-        return ResponseEntity.ok()
-            .headers(HeaderUtil.createEntityUpdateAlert(ENTITY_NAME, productAccountDTO.getId().toString()))
-            .body(result);
+        return requestExecutor.submit(() -> {
+            ProductAccountDTO result = productAccountService.save(productAccountDTO);
+            return ResponseEntity.ok()
+                .headers(HeaderUtil.createEntityUpdateAlert(ENTITY_NAME, productAccountDTO.getId().toString()))
+                .body(result);
+        });
     }
 
     /**
@@ -89,11 +97,13 @@ public class ProductAccountResource {
      */
     @GetMapping("/product-accounts")
     @Timed
-    public ResponseEntity<List<ProductAccountDTO>> getAllProductAccounts(Pageable pageable) {
+    public CompletableFuture<ResponseEntity<List<ProductAccountDTO>>> getAllProductAccounts(Pageable pageable) {
         log.debug("REST request to get a page of ProductAccounts");
-        Page<ProductAccountDTO> page = productAccountService.findAll(pageable);
-        HttpHeaders headers = PaginationUtil.generatePaginationHttpHeaders(page, "/api/product-accounts");
-        return ResponseEntity.ok().headers(headers).body(page.getContent());
+        return requestExecutor.submit(() -> {
+            Page<ProductAccountDTO> page = productAccountService.findAll(pageable);
+            HttpHeaders headers = PaginationUtil.generatePaginationHttpHeaders(page, "/api/product-accounts");
+            return ResponseEntity.ok().headers(headers).body(page.getContent());
+        });
     }
 
     /**
@@ -104,10 +114,12 @@ public class ProductAccountResource {
      */
     @GetMapping("/product-accounts/{id}")
     @Timed
-    public ResponseEntity<ProductAccountDTO> getProductAccount(@PathVariable Long id) {
+    public CompletableFuture<ResponseEntity<ProductAccountDTO>> getProductAccount(@PathVariable Long id) {
         log.debug("REST request to get ProductAccount : {}", id);
-        Optional<ProductAccountDTO> productAccountDTO = productAccountService.findOne(id);
-        return ResponseUtil.wrapOrNotFound(productAccountDTO);
+        return requestExecutor.submit(() -> {
+            Optional<ProductAccountDTO> productAccountDTO = productAccountService.findOne(id);
+            return ResponseUtil.wrapOrNotFound(productAccountDTO);
+        });
     }
 
     /**
@@ -118,9 +130,11 @@ public class ProductAccountResource {
      */
     @DeleteMapping("/product-accounts/{id}")
     @Timed
-    public ResponseEntity<Void> deleteProductAccount(@PathVariable Long id) {
+    public CompletableFuture<ResponseEntity<Void>> deleteProductAccount(@PathVariable Long id) {
         log.debug("REST request to delete ProductAccount : {}", id);
-        productAccountService.delete(id);
-        return ResponseEntity.ok().headers(HeaderUtil.createEntityDeletionAlert(ENTITY_NAME, id.toString())).build();
+        return requestExecutor.submit(() -> {
+            productAccountService.delete(id);
+            return ResponseEntity.ok().headers(HeaderUtil.createEntityDeletionAlert(ENTITY_NAME, id.toString())).<Void>build();
+        });
     }
 }
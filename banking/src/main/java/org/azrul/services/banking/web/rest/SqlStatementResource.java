@@ -0,0 +1,67 @@
+package org.azrul.services.banking.web.rest;
+
+import com.codahale.metrics.annotation.Timed;
+import org.azrul.services.banking.config.StatementStatistics;
+import org.azrul.services.banking.security.AuthoritiesConstants;
+import org.azrul.services.banking.web.rest.errors.BadRequestAlertException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+/**
+ * REST controller for the latency and row counts of the SQL statements, by fingerprint.
+ */
+@RestController
+@RequestMapping("/api")
+public class SqlStatementResource {
+
+    private final Logger log = LoggerFactory.getLogger(SqlStatementResource.class);
+
+    private static final String ENTITY_NAME = "bankingSqlStatement";
+
+    private static final int MAX_TOP = 1000;
+
+    private final StatementStatistics statementStatistics;
+
+    public SqlStatementResource(StatementStatistics statementStatistics) {
+        this.statementStatistics = statementStatistics;
+    }
+
+    /**
+     * GET  /sql-statements : get the statistics of the SQL statements taking the most time in total.
+     *
+     * @param top the number of statements, 20 by default
+     * @return the ResponseEntity with status 200 (OK) and the list of statistics in body, by descending total time,
+     * or with status 400 (Bad Request) if the number of statements is invalid
+     */
+    @GetMapping("/sql-statements")
+    @Timed
+    @PreAuthorize("hasRole(\"" + AuthoritiesConstants.ADMIN + "\")")
+    public ResponseEntity<List<StatementStatistics.Summary>> getSqlStatements(
+        @RequestParam(defaultValue = "20") int top) {
+        log.debug("REST request to get the top {} SQL statements", top);
+        if (top < 1 || top > MAX_TOP) {
+            throw new BadRequestAlertException("The number of statements must be between 1 and " + MAX_TOP,
+                ENTITY_NAME, "invalidtop");
+        }
+        return ResponseEntity.ok(statementStatistics.top(top));
+    }
+
+    /**
+     * DELETE  /sql-statements : reset the statistics of the SQL statements.
+     *
+     * @return the ResponseEntity with status 200 (OK)
+     */
+    @DeleteMapping("/sql-statements")
+    @Timed
+    @PreAuthorize("hasRole(\"" + AuthoritiesConstants.ADMIN + "\")")
+    public ResponseEntity<Void> resetSqlStatements() {
+        log.debug("REST request to reset the SQL statements");
+        statementStatistics.reset();
+        return ResponseEntity.ok().build();
+    }
+}
@@ -0,0 +1,204 @@
+package org.azrul.services.banking.web.rest;
+
+import com.codahale.metrics.annotation.Timed;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.azrul.services.banking.config.ApplicationProperties;
+import org.azrul.services.banking.service.RecentTransactionKeys;
+import org.azrul.services.banking.service.TransactionService;
+import org.azrul.services.banking.service.dto.TransactionDTO;
+import org.azrul.services.banking.web.rest.vm.BulkItemResultVM;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.*;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * REST controller for importing Transactions in bulk.
+ * <p>
+ * The request body is read as a stream, either a JSON array or newline delimited JSON, and the transactions
+ * are saved in chunks of "application.bulk-import.chunk-size", one database transaction per chunk. The
+ * results are written as each chunk is saved, so neither the request nor the response is held in memory.
+ */
+@RestController
+@RequestMapping("/api")
+public class TransactionBulkResource {
+
+    public static final String APPLICATION_NDJSON_VALUE = "application/x-ndjson";
+
+    private final Logger log = LoggerFactory.getLogger(TransactionBulkResource.class);
+
+    private final TransactionService transactionService;
+
+    private final RecentTransactionKeys recentTransactionKeys;
+
+    private final ObjectMapper objectMapper;
+
+    private final ObjectWriter resultWriter;
+
+    private final int chunkSize;
+
+    public TransactionBulkResource(TransactionService transactionService, RecentTransactionKeys recentTransactionKeys,
+        ObjectMapper objectMapper, ApplicationProperties applicationProperties) {
+        this.transactionService = transactionService;
+        this.recentTransactionKeys = recentTransactionKeys;
+        this.objectMapper = objectMapper;
+        // The results are flushed once per chunk, not after each of them
+        this.resultWriter = objectMapper.writerFor(BulkItemResultVM.class)
+            .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        this.chunkSize = Math.max(1, applicationProperties.getBulkImport().getChunkSize());
+    }
+
+    /**
+     * POST  /transactions/bulk : Create new transactions.
+     * <p>
+     * The response is a JSON array with a result per item: status 201 (Created) with the new id, status 200 (OK)
+     * with the existing id if a transaction was already created with the same transactionId, status 400
+     * (Bad Request) if the item is invalid, or status 500 (Internal Server Error) if its chunk could not be saved.
+     * Results are written as the items are processed, each with the index of its item, so the results of a chunk
+     * are not necessarily in the order of its items.
+     *
+     * @param request the request, with a JSON array or newline delimited JSON of transactionDTOs
+     * @param response the response, with status 200 (OK) and the results in body
+     * @throws IOException if the request cannot be read or the response cannot be written
+     */
+    @PostMapping(value = "/transactions/bulk",
+        consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_STREAM_JSON_VALUE, APPLICATION_NDJSON_VALUE})
+    @Timed
+    public void createTransactions(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        log.debug("REST request to save Transactions in bulk");
+        response.setStatus(HttpStatus.OK.value());
+        response.setContentType(MediaType.APPLICATION_JSON_UTF8_VALUE);
+
+        List<TransactionDTO> chunk = new ArrayList<>(chunkSize);
+        List<Integer> chunkIndexes = new ArrayList<>(chunkSize);
+        int index = 0;
+        int created = 0;
+        try (MappingIterator<TransactionDTO> items = objectMapper.readerFor(TransactionDTO.class)
+                .readValues(request.getInputStream());
+            JsonGenerator generator = objectMapper.getFactory().createGenerator(response.getOutputStream())) {
+            generator.writeStartArray();
+            try {
+                while (items.hasNextValue()) {
+                    TransactionDTO transactionDTO = items.nextValue();
+                    Optional<TransactionDTO> existing = transactionDTO.getTransactionId() == null ? Optional.empty() :
+                        recentTransactionKeys.get(transactionDTO.getTransactionId());
+                    if (transactionDTO.getId() != null) {
+                        writeResult(generator, new BulkItemResultVM(index, HttpStatus.BAD_REQUEST.value(), null, "idexists"));
+                    } else if (existing.isPresent()) {
+                        // A retried import, answered without saving its chunk again
+                        writeResult(generator, new BulkItemResultVM(index, HttpStatus.OK.value(), existing.get().getId(), null));
+                    } else {
+                        chunk.add(transactionDTO);
+                        chunkIndexes.add(index);
+                        if (chunk.size() == chunkSize) {
+                            created += saveChunk(generator, chunk, chunkIndexes);
+                        }
+                    }
+                    index++;
+                }
+            } catch (JsonProcessingException e) {
+                // The rest of the body cannot be parsed reliably, the items read so far are still saved
+                log.warn("Invalid bulk request at item {}: {}", index, e.getOriginalMessage());
+                writeResult(generator, new BulkItemResultVM(index, HttpStatus.BAD_REQUEST.value(), null, "invalidjson"));
+            }
+            if (!chunk.isEmpty()) {
+                created += saveChunk(generator, chunk, chunkIndexes);
+            }
+            generator.writeEndArray();
+        }
+        log.debug("Saved {} Transactions in bulk out of {} items", created, index);
+    }
+
+    /**
+     * Save a chunk. The items whose transactionId already exists in the database, created by another instance
+     * or before a restart, are answered with the existing id; so are the items repeating the transactionId of
+     * an earlier item of the chunk, with the id of that item. Only the other items are inserted.
+     */
+    private int saveChunk(JsonGenerator generator, List<TransactionDTO> chunk, List<Integer> chunkIndexes)
+        throws IOException {
+        int created = 0;
+        try {
+            Set<String> transactionIds = new HashSet<>();
+            for (TransactionDTO transactionDTO : chunk) {
+                if (transactionDTO.getTransactionId() != null) {
+                    transactionIds.add(transactionDTO.getTransactionId());
+                }
+            }
+            Map<String, Long> existingIds = transactionService.findIdsByTransactionIds(transactionIds);
+            List<TransactionDTO> newTransactions = new ArrayList<>(chunk.size());
+            List<Integer> newIndexes = new ArrayList<>(chunk.size());
+            List<Integer> repeatedIndexes = new ArrayList<>();
+            transactionIds.clear();
+            for (int i = 0; i < chunk.size(); i++) {
+                String transactionId = chunk.get(i).getTransactionId();
+                if (transactionId != null && existingIds.containsKey(transactionId)) {
+                    writeResult(generator, new BulkItemResultVM(chunkIndexes.get(i), HttpStatus.OK.value(),
+                        existingIds.get(transactionId), null));
+                } else if (transactionId != null && !transactionIds.add(transactionId)) {
+                    repeatedIndexes.add(i);
+                } else {
+                    newTransactions.add(chunk.get(i));
+                    newIndexes.add(chunkIndexes.get(i));
+                }
+            }
+            try {
+                List<TransactionDTO> results = newTransactions.isEmpty() ? Collections.emptyList() :
+                    transactionService.saveAll(newTransactions);
+                for (int i = 0; i < results.size(); i++) {
+                    writeResult(generator, new BulkItemResultVM(newIndexes.get(i), HttpStatus.CREATED.value(),
+                        results.get(i).getId(), null));
+                    existingIds.put(results.get(i).getTransactionId(), results.get(i).getId());
+                }
+                for (Integer i : repeatedIndexes) {
+                    writeResult(generator, new BulkItemResultVM(chunkIndexes.get(i), HttpStatus.OK.value(),
+                        existingIds.get(chunk.get(i).getTransactionId()), null));
+                }
+                created = results.size();
+            } catch (RuntimeException e) {
+                log.error("Could not save a chunk of {} Transactions", newTransactions.size(), e);
+                for (Integer chunkIndex : newIndexes) {
+                    writeChunkFailed(generator, chunkIndex);
+                }
+                for (Integer i : repeatedIndexes) {
+                    writeChunkFailed(generator, chunkIndexes.get(i));
+                }
+            }
+        } catch (RuntimeException e) {
+            log.error("Could not look up the transactionIds of a chunk of {} Transactions", chunk.size(), e);
+            for (Integer chunkIndex : chunkIndexes) {
+                writeChunkFailed(generator, chunkIndex);
+            }
+        }
+        chunk.clear();
+        chunkIndexes.clear();
+        // Send the results of the chunk to the client while the next one is read
+        generator.flush();
+        return created;
+    }
+
+    private void writeChunkFailed(JsonGenerator generator, Integer chunkIndex) throws IOException {
+        writeResult(generator, new BulkItemResultVM(chunkIndex, HttpStatus.INTERNAL_SERVER_ERROR.value(), null,
+            "chunkfailed"));
+    }
+
+    private void writeResult(JsonGenerator generator, BulkItemResultVM result) throws IOException {
+        resultWriter.writeValue(generator, result);
+    }
+}
@@ -1,29 +1,50 @@
 package org.azrul.services.banking.web.rest;
 
 import com.codahale.metrics.annotation.Timed;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.azrul.services.banking.config.RequestExecutor;
+import org.azrul.services.banking.service.RecentTransactionKeys;
 import org.azrul.services.banking.service.TransactionService;
+import org.azrul.services.banking.service.TransactionVelocity;
 import org.azrul.services.banking.web.rest.errors.BadRequestAlertException;
 import org.azrul.services.banking.web.rest.util.HeaderUtil;
+import org.azrul.services.banking.web.rest.util.KeysetCursor;
 import org.azrul.services.banking.web.rest.util.PaginationUtil;
+import org.azrul.services.banking.service.dto.AccountStatementLineDTO;
 import org.azrul.services.banking.service.dto.TransactionDTO;
 import io.github.jhipster.web.util.ResponseUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.time.ZonedDateTime;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * REST controller for managing Transaction.
+ * <p>
+ * The requests are validated on the server thread, then executed by the {@link RequestExecutor}.
  */
 @RestController
 @RequestMapping("/api")
@@ -33,27 +54,96 @@ public class TransactionResource {
 
     private static final String ENTITY_NAME = "bankingTransaction";
 
+    private static final int MAX_CURSOR_PAGE_SIZE = 2000;
+
+    private static final MediaType NDJSON = MediaType.parseMediaType("application/x-ndjson");
+
+    private static final MediaType CSV = MediaType.parseMediaType("text/csv");
+
+    private static final String CSV_HEADER = "id,transactionId,transactionType,amount,time,currency,sourceId,targetId";
+
     private final TransactionService transactionService;
 
-    public TransactionResource(TransactionService transactionService) {
+    private final RecentTransactionKeys recentTransactionKeys;
+
+    private final ObjectMapper objectMapper;
+
+    private final TransactionVelocity transactionVelocity;
+
+    private final RequestExecutor requestExecutor;
+
+    public TransactionResource(TransactionService transactionService, RecentTransactionKeys recentTransactionKeys,
+        ObjectMapper objectMapper, TransactionVelocity transactionVelocity, RequestExecutor requestExecutor) {
         this.transactionService = transactionService;
+        this.recentTransactionKeys = recentTransactionKeys;
+        this.objectMapper = objectMapper;
+        this.transactionVelocity = transactionVelocity;
+        this.requestExecutor = requestExecutor;
     }
 
     /**
      * POST  /transactions : Create a new transaction.
+     * <p>
+     * The creation is idempotent on the transactionId: a retry returns the transaction created first, without
+     * creating another one. Recent transactions are found in memory; otherwise the insert is rejected by the
+     * unique index on transaction_id, and the existing transaction is read back.
+     * <p>
+     * A new transaction debiting an account is checked against the velocity limits of the account, from memory.
      *
      * @param transactionDTO the transactionDTO to create
-     * @return the ResponseEntity with status 201 (Created) and with body the new transactionDTO, or with status 400 (Bad Request) if the transaction has already an ID
-     * @throws URISyntaxException if the Location URI syntax is incorrect
+     * @return the ResponseEntity with status 201 (Created) and with body the new transactionDTO,
+     * or with status 200 (OK) and with body the existing transactionDTO if one was already created with this transactionId,
+     * or with status 400 (Bad Request) if the transaction has already an ID or exceeds a velocity limit
      */
     @PostMapping("/transactions")
     @Timed
-    public ResponseEntity<TransactionDTO> createTransaction(@RequestBody TransactionDTO transactionDTO) throws URISyntaxException {
+    public CompletableFuture<ResponseEntity<TransactionDTO>> createTransaction(@RequestBody TransactionDTO transactionDTO) {
         log.debug("REST request to save Transaction : {}", transactionDTO);
         if (transactionDTO.getId() != null) {
             throw new BadRequestAlertException("A new transaction cannot already have an ID", ENTITY_NAME, "idexists");
         }
-        TransactionDTO result = transactionService.save(transactionDTO);
+        return requestExecutor.submit(() -> create(transactionDTO));
+    }
+
+    private ResponseEntity<TransactionDTO> create(TransactionDTO transactionDTO) throws URISyntaxException {
+        String transactionId = transactionDTO.getTransactionId();
+        if (transactionId != null) {
+            Optional<TransactionDTO> existing = recentTransactionKeys.get(transactionId);
+            if (existing.isPresent()) {
+                log.debug("Transaction {} was created recently, returning it", transactionId);
+                return ResponseEntity.ok(existing.get());
+            }
+        }
+        long timeMillis = System.currentTimeMillis();
+        boolean velocityRecorded = false;
+        if (transactionDTO.getSourceId() != null && transactionDTO.getAmount() != null) {
+            Optional<String> exceeded = transactionVelocity.tryRecord(transactionDTO.getSourceId(),
+                transactionDTO.getAmount(), timeMillis);
+            if (exceeded.isPresent()) {
+                throw new BadRequestAlertException("The source account exceeds its velocity limit per "
+                    + exceeded.get(), ENTITY_NAME, "velocityexceeded");
+            }
+            velocityRecorded = true;
+        }
+        TransactionDTO result;
+        try {
+            result = transactionService.save(transactionDTO);
+        } catch (RuntimeException e) {
+            if (velocityRecorded) {
+                transactionVelocity.remove(transactionDTO.getSourceId(), transactionDTO.getAmount(), timeMillis);
+            }
+            if (!(e instanceof DataIntegrityViolationException)) {
+                throw e;
+            }
+            // Created by a concurrent request, or by an earlier request to this instance or to another one
+            Optional<TransactionDTO> existing = transactionId == null ? Optional.empty() :
+                transactionService.findOneByTransactionId(transactionId);
+            if (!existing.isPresent()) {
+                throw e;
+            }
+            log.debug("Transaction {} already exists, returning it", transactionId);
+            return ResponseEntity.ok(existing.get());
+        }
         return ResponseEntity.created(new URI("/api/transactions/" + result.getId()))
             .headers(HeaderUtil.createEntityCreationAlert(ENTITY_NAME, result.getId().toString()))
             .body(result);
@@ -66,19 +156,20 @@ public class TransactionResource {
      * @return the ResponseEntity with status 200 (OK) and with body the updated transactionDTO,
      * or with status 400 (Bad Request) if the transactionDTO is not valid,
      * or with status 500 (Internal Server Error) if the transactionDTO couldn't be updated
-     * @throws URISyntaxException if the Location URI syntax is incorrect
      */
     @PutMapping("/transactions")
     @Timed
-    public ResponseEntity<TransactionDTO> updateTransaction(@RequestBody TransactionDTO transactionDTO) throws URISyntaxException {
+    public CompletableFuture<ResponseEntity<TransactionDTO>> updateTransaction(@RequestBody TransactionDTO transactionDTO) {
         log.debug("REST request to update Transaction : {}", transactionDTO);
         if (transactionDTO.getId() == null) {
             throw new BadRequestAlertException("Invalid id", ENTITY_NAME, "idnull");
         }
-        TransactionDTO result = transactionService.save(transactionDTO);
-        return ResponseEntity.ok()
-            .headers(HeaderUtil.createEntityUpdateAlert(ENTITY_NAME, transactionDTO.getId().toString()))
-            .body(result);
+        return requestExecutor.submit(() -> {
+            TransactionDTO result = transactionService.save(transactionDTO);
+            return ResponseEntity.ok()
+                .headers(HeaderUtil.createEntityUpdateAlert(ENTITY_NAME, transactionDTO.getId().toString()))
+                .body(result);
+        });
     }
 
     /**
@@ -89,11 +180,156 @@ public class TransactionResource {
      */
     @GetMapping("/transactions")
     @Timed
-    public ResponseEntity<List<TransactionDTO>> getAllTransactions(Pageable pageable) {
+    public CompletableFuture<ResponseEntity<List<TransactionDTO>>> getAllTransactions(Pageable pageable) {
         log.debug("REST request to get a page of Transactions");
-        Page<TransactionDTO> page = transactionService.findAll(pageable);
-        HttpHeaders headers = PaginationUtil.generatePaginationHttpHeaders(page, "/api/transactions");
-        return ResponseEntity.ok().headers(headers).body(page.getContent());
+        return requestExecutor.submit(() -> {
+            Page<TransactionDTO> page = transactionService.findAll(pageable);
+            HttpHeaders headers = PaginationUtil.generatePaginationHttpHeaders(page, "/api/transactions");
+            return ResponseEntity.ok().headers(headers).body(page.getContent());
+        });
+    }
+
+    /**
+     * GET  /transactions?cursor= : get a page of transactions, most recent first, with keyset pagination.
+     * <p>
+     * Unlike the offset pagination, reading a page does not depend on its depth and no total count is computed.
+     * The "next" Link header holds the cursor of the next page; an empty cursor gives the first page.
+     * Transactions without a time are not listed.
+     *
+     * @param cursor the cursor given by the "next" link of the previous page, or empty for the first page
+     * @param size the page size
+     * @return the ResponseEntity with status 200 (OK) and the list of transactions in body,
+     * or with status 400 (Bad Request) if the cursor is invalid
+     */
+    @GetMapping(value = "/transactions", params = "cursor")
+    @Timed
+    public CompletableFuture<ResponseEntity<List<TransactionDTO>>> getAllTransactionsByCursor(@RequestParam String cursor,
+        @RequestParam(defaultValue = "20") int size) {
+        log.debug("REST request to get a page of Transactions after cursor : {}", cursor);
+        if (size < 1 || size > MAX_CURSOR_PAGE_SIZE) {
+            throw new BadRequestAlertException("Invalid page size", ENTITY_NAME, "invalidsize");
+        }
+        Optional<KeysetCursor> keysetCursor = cursor.isEmpty() ? Optional.empty() : Optional.of(KeysetCursor.decode(cursor)
+            .orElseThrow(() -> new BadRequestAlertException("Invalid cursor", ENTITY_NAME, "invalidcursor")));
+        return requestExecutor.submit(() -> {
+            Slice<TransactionDTO> slice = keysetCursor
+                .map(after -> transactionService.findAllAfter(after.getTime(), after.getId(), size))
+                .orElseGet(() -> transactionService.findAllAfter(null, null, size));
+            String nextCursor = null;
+            if (slice.hasNext()) {
+                TransactionDTO last = slice.getContent().get(slice.getNumberOfElements() - 1);
+                nextCursor = KeysetCursor.encode(last.getTime(), last.getId());
+            }
+            HttpHeaders headers = PaginationUtil.generateCursorPaginationHttpHeaders(slice, nextCursor, "/api/transactions");
+            return ResponseEntity.ok().headers(headers).body(slice.getContent());
+        });
+    }
+
+    /**
+     * GET  /product-accounts/:id/transactions : get the statement of the "id" productAccount.
+     *
+     * @param id the id of the productAccount
+     * @param from the start of the period, inclusive, one month before "to" by default
+     * @param to the end of the period, exclusive, now by default
+     * @return the ResponseEntity with status 200 (OK) and the statement lines in body,
+     * or with status 400 (Bad Request) if the period is invalid, or with status 404 (Not Found)
+     */
+    @GetMapping("/product-accounts/{id}/transactions")
+    @Timed
+    public CompletableFuture<ResponseEntity<List<AccountStatementLineDTO>>> getProductAccountTransactions(@PathVariable Long id,
+        @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) ZonedDateTime from,
+        @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) ZonedDateTime to) {
+        log.debug("REST request to get the statement of ProductAccount : {}", id);
+        ZonedDateTime end = to != null ? to : ZonedDateTime.now();
+        ZonedDateTime start = from != null ? from : end.minusMonths(1);
+        if (!start.isBefore(end)) {
+            throw new BadRequestAlertException("The start of the period must be before its end", ENTITY_NAME, "invalidperiod");
+        }
+        return requestExecutor.submit(() -> {
+            Optional<List<AccountStatementLineDTO>> lines = transactionService.findStatement(id, start, end);
+            return ResponseUtil.wrapOrNotFound(lines);
+        });
+    }
+
+    /**
+     * GET  /transactions/_export : export the transactions of a period, by time, as NDJSON or CSV.
+     * <p>
+     * The transactions are written while they are read from the database, so that the export is not held in
+     * memory, whatever its size.
+     *
+     * @param format the format, "ndjson", one JSON transaction per line, or "csv"
+     * @param accountId the id of the account debited or credited, all the transactions if not given
+     * @param from the start of the period, inclusive, one month before "to" by default
+     * @param to the end of the period, exclusive, now by default
+     * @return the ResponseEntity with status 200 (OK) and the transactions in body,
+     * or with status 400 (Bad Request) if the format or the period is invalid
+     */
+    @GetMapping("/transactions/_export")
+    @Timed
+    public ResponseEntity<StreamingResponseBody> exportTransactions(@RequestParam(defaultValue = "ndjson") String format,
+        @RequestParam(required = false) Long accountId,
+        @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) ZonedDateTime from,
+        @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) ZonedDateTime to) {
+        log.debug("REST request to export Transactions as {} : {}, {}, {}", format, accountId, from, to);
+        boolean csv = "csv".equals(format);
+        if (!csv && !"ndjson".equals(format)) {
+            throw new BadRequestAlertException("The format must be ndjson or csv", ENTITY_NAME, "invalidformat");
+        }
+        ZonedDateTime end = to == null ? ZonedDateTime.now() : to;
+        ZonedDateTime start = from == null ? end.minusMonths(1) : from;
+        if (!start.isBefore(end)) {
+            throw new BadRequestAlertException("The start of the period must be before its end", ENTITY_NAME, "invalidperiod");
+        }
+        StreamingResponseBody body = outputStream -> {
+            Writer writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+            if (csv) {
+                writer.write(CSV_HEADER);
+                writer.write('\n');
+            }
+            try {
+                long count = transactionService.export(accountId, start, end, transactionDTO -> {
+                    try {
+                        if (csv) {
+                            writeCsvLine(writer, transactionDTO);
+                        } else {
+                            writer.write(objectMapper.writeValueAsString(transactionDTO));
+                            writer.write('\n');
+                        }
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+                log.debug("Exported {} Transactions", count);
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            writer.flush();
+        };
+        return ResponseEntity.ok()
+            .contentType(csv ? CSV : NDJSON)
+            .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"transactions." + format + "\"")
+            .body(body);
+    }
+
+    private static void writeCsvLine(Writer writer, TransactionDTO transactionDTO) throws IOException {
+        Object[] values = {transactionDTO.getId(), transactionDTO.getTransactionId(), transactionDTO.getTransactionType(),
+            transactionDTO.getAmount() == null ? null : transactionDTO.getAmount().toPlainString(),
+            transactionDTO.getTime(), transactionDTO.getCurrency(), transactionDTO.getSourceId(),
+            transactionDTO.getTargetId()};
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                writer.write(',');
+            }
+            if (values[i] != null) {
+                String value = values[i].toString();
+                if (value.indexOf(',') >= 0 || value.indexOf('"') >= 0 || value.indexOf('\n') >= 0
+                    || value.indexOf('\r') >= 0) {
+                    value = '"' + value.replace("\"", "\"\"") + '"';
+                }
+                writer.write(value);
+            }
+        }
+        writer.write('\n');
     }
 
     /**
@@ -104,10 +340,12 @@ public class TransactionResource {
      */
     @GetMapping("/transactions/{id}")
     @Timed
-    public ResponseEntity<TransactionDTO> getTransaction(@PathVariable Long id) {
+    public CompletableFuture<ResponseEntity<TransactionDTO>> getTransaction(@PathVariable Long id) {
         log.debug("REST request to get Transaction : {}", id);
-        Optional<TransactionDTO> transactionDTO = transactionService.findOne(id);
-        return ResponseUtil.wrapOrNotFound(transactionDTO);
+        return requestExecutor.submit(() -> {
+            Optional<TransactionDTO> transactionDTO = transactionService.findOne(id);
+            return ResponseUtil.wrapOrNotFound(transactionDTO);
+        });
     }
 
     /**
@@ -118,9 +356,11 @@ public class TransactionResource {
      */
     @DeleteMapping("/transactions/{id}")
     @Timed
-    public ResponseEntity<Void> deleteTransaction(@PathVariable Long id) {
+    public CompletableFuture<ResponseEntity<Void>> deleteTransaction(@PathVariable Long id) {
         log.debug("REST request to delete Transaction : {}", id);
-        transactionService.delete(id);
-        return ResponseEntity.ok().headers(HeaderUtil.createEntityDeletionAlert(ENTITY_NAME, id.toString())).build();
+        return requestExecutor.submit(() -> {
+            transactionService.delete(id);
+            return ResponseEntity.ok().headers(HeaderUtil.createEntityDeletionAlert(ENTITY_NAME, id.toString())).<Void>build();
+        });
     }
 }
@@ -0,0 +1,82 @@
+package org.azrul.services.banking.web.rest;
+
+import com.codahale.metrics.annotation.Timed;
+import org.azrul.services.banking.security.AuthoritiesConstants;
+import org.azrul.services.banking.service.TransactionTotalService;
+import org.azrul.services.banking.service.dto.TransactionTotalDTO;
+import org.azrul.services.banking.web.rest.errors.BadRequestAlertException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDate;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * REST controller for the daily totals of the transactions, by currency and type.
+ */
+@RestController
+@RequestMapping("/api")
+public class TransactionTotalResource {
+
+    private final Logger log = LoggerFactory.getLogger(TransactionTotalResource.class);
+
+    private static final String ENTITY_NAME = "bankingTransactionTotal";
+
+    private final TransactionTotalService transactionTotalService;
+
+    public TransactionTotalResource(TransactionTotalService transactionTotalService) {
+        this.transactionTotalService = transactionTotalService;
+    }
+
+    /**
+     * GET  /transaction-totals : get the totals of the transactions of a period, by currency and type.
+     *
+     * @param from the first day of the period, in UTC
+     * @param to the day following the period, in UTC
+     * @param byDay true for the totals of each day, false by default for the totals of the whole period
+     * @return the ResponseEntity with status 200 (OK) and the list of totals in body,
+     * or with status 400 (Bad Request) if the period is invalid
+     */
+    @GetMapping("/transaction-totals")
+    @Timed
+    public ResponseEntity<List<TransactionTotalDTO>> getTransactionTotals(
+        @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+        @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+        @RequestParam(defaultValue = "false") boolean byDay) {
+        log.debug("REST request to get the Transaction totals from {} to {}", from, to);
+        checkPeriod(from, to);
+        return ResponseEntity.ok(transactionTotalService.findTotals(from, to, byDay));
+    }
+
+    /**
+     * POST  /transaction-totals/_rebuild : recompute the totals of a period from its transactions.
+     *
+     * @param from the first day of the period, in UTC
+     * @param to the day following the period, in UTC
+     * @return the ResponseEntity with status 200 (OK) and the number of transactions of the period in body,
+     * or with status 400 (Bad Request) if the period is invalid
+     */
+    @PostMapping("/transaction-totals/_rebuild")
+    @Timed
+    @PreAuthorize("hasRole(\"" + AuthoritiesConstants.ADMIN + "\")")
+    public ResponseEntity<Map<String, Long>> rebuildTransactionTotals(
+        @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+        @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        log.debug("REST request to rebuild the Transaction totals from {} to {}", from, to);
+        checkPeriod(from, to);
+        long transactions = transactionTotalService.rebuild(from, to);
+        return ResponseEntity.ok(Collections.singletonMap("transactions", transactions));
+    }
+
+    private static void checkPeriod(LocalDate from, LocalDate to) {
+        if (!from.isBefore(to)) {
+            throw new BadRequestAlertException("The start of the period must be before its end", ENTITY_NAME, "invalidperiod");
+        }
+    }
+}
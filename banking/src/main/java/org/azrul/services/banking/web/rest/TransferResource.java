@@ -0,0 +1,89 @@
+package org.azrul.services.banking.web.rest;
+
+import com.codahale.metrics.annotation.Timed;
+import org.azrul.services.banking.service.TransactionService;
+import org.azrul.services.banking.service.TransferRejectedException;
+import org.azrul.services.banking.service.TransferService;
+import org.azrul.services.banking.web.rest.errors.BadRequestAlertException;
+import org.azrul.services.banking.web.rest.util.HeaderUtil;
+import org.azrul.services.banking.service.dto.TransactionDTO;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.Optional;
+
+/**
+ * REST controller for posting transfers between product accounts.
+ */
+@RestController
+@RequestMapping("/api")
+public class TransferResource {
+
+    private final Logger log = LoggerFactory.getLogger(TransferResource.class);
+
+    private static final String ENTITY_NAME = "bankingTransaction";
+
+    private final TransferService transferService;
+
+    private final TransactionService transactionService;
+
+    public TransferResource(TransferService transferService, TransactionService transactionService) {
+        this.transferService = transferService;
+        this.transactionService = transactionService;
+    }
+
+    /**
+     * POST  /transfers : Post a transfer, debiting the source account and crediting the target account.
+     * <p>
+     * The transfer is idempotent on the transactionId: a replayed transfer returns the transaction posted first,
+     * without moving the money again. The transactionId is looked up before posting; a concurrent replay is
+     * rejected by the unique index on transaction_id, its debit and credit are rolled back, and the existing
+     * transaction is read back.
+     *
+     * @param transactionDTO the transfer to post
+     * @return the ResponseEntity with status 201 (Created) and with body the new transactionDTO,
+     * or with status 200 (OK) and with body the existing transactionDTO if one was already posted with this transactionId,
+     * or with status 400 (Bad Request) if the transfer is invalid, the source balance is insufficient or the source
+     * account exceeds a velocity limit
+     * @throws URISyntaxException if the Location URI syntax is incorrect
+     */
+    @PostMapping("/transfers")
+    @Timed
+    public ResponseEntity<TransactionDTO> postTransfer(@RequestBody TransactionDTO transactionDTO) throws URISyntaxException {
+        log.debug("REST request to post transfer : {}", transactionDTO);
+        if (transactionDTO.getId() != null) {
+            throw new BadRequestAlertException("A new transaction cannot already have an ID", ENTITY_NAME, "idexists");
+        }
+        String transactionId = transactionDTO.getTransactionId();
+        if (transactionId != null) {
+            Optional<TransactionDTO> existing = transactionService.findOneByTransactionId(transactionId);
+            if (existing.isPresent()) {
+                log.debug("Transfer {} was already posted, returning it", transactionId);
+                return ResponseEntity.ok(existing.get());
+            }
+        }
+        TransactionDTO result;
+        try {
+            result = transferService.transfer(transactionDTO);
+        } catch (TransferRejectedException e) {
+            throw new BadRequestAlertException(e.getMessage(), ENTITY_NAME, e.getErrorKey());
+        } catch (DataIntegrityViolationException e) {
+            // Posted by a concurrent request
+            Optional<TransactionDTO> existing = transactionId == null ? Optional.empty() :
+                transactionService.findOneByTransactionId(transactionId);
+            if (!existing.isPresent()) {
+                throw e;
+            }
+            log.debug("Transfer {} was posted concurrently, returning it", transactionId);
+            return ResponseEntity.ok(existing.get());
+        }
+        return ResponseEntity.created(new URI("/api/transactions/" + result.getId()))
+            .headers(HeaderUtil.createEntityCreationAlert(ENTITY_NAME, result.getId().toString()))
+            .body(result);
+    }
+}
@@ -3,6 +3,7 @@ package org.azrul.services.banking.web.rest.errors;
 import org.azrul.services.banking.web.rest.util.HeaderUtil;
 
 import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.BindingResult;
 import org.springframework.web.bind.MethodArgumentNotValidException;
@@ -21,6 +22,7 @@ import javax.annotation.Nullable;
 import javax.servlet.http.HttpServletRequest;
 import java.util.List;
 import java.util.NoSuchElementException;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.stream.Collectors;
 
 /**
@@ -104,4 +106,20 @@ public class ExceptionTranslator implements ProblemHandling {
             .build();
         return create(ex, problem, request);
     }
+
+    /**
+     * The request executor is overloaded: the client should retry later, rather than wait.
+     */
+    @ExceptionHandler
+    public ResponseEntity<Problem> handleRejectedExecution(RejectedExecutionException ex, NativeWebRequest request) {
+        Problem problem = Problem.builder()
+            .withStatus(Status.SERVICE_UNAVAILABLE)
+            .with("message", ErrorConstants.ERR_OVERLOADED)
+            .build();
+        ResponseEntity<Problem> entity = create(ex, problem, request);
+        HttpHeaders headers = new HttpHeaders();
+        headers.putAll(entity.getHeaders());
+        headers.set(HttpHeaders.RETRY_AFTER, "1");
+        return new ResponseEntity<>(entity.getBody(), headers, entity.getStatusCode());
+    }
 }
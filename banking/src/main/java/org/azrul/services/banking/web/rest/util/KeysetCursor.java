@@ -0,0 +1,61 @@
+package org.azrul.services.banking.web.rest.util;
+
+import java.nio.charset.StandardCharsets;
+import java.time.DateTimeException;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.Base64;
+import java.util.Optional;
+
+/**
+ * Opaque continuation token for keyset pagination on a time and an id.
+ * <p>
+ * The token holds the position of the last element of a page, so that the next page is read from an index
+ * range instead of skipping an offset. Clients must not build or parse it.
+ */
+public final class KeysetCursor {
+
+    private final ZonedDateTime time;
+
+    private final Long id;
+
+    private KeysetCursor(ZonedDateTime time, Long id) {
+        this.time = time;
+        this.id = id;
+    }
+
+    public static String encode(ZonedDateTime time, Long id) {
+        Instant instant = time.toInstant();
+        String position = instant.getEpochSecond() + "." + instant.getNano() + "." + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(position.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decode a token.
+     *
+     * @param token the token given by {@link #encode(ZonedDateTime, Long)}
+     * @return the cursor, or empty if the token is invalid
+     */
+    public static Optional<KeysetCursor> decode(String token) {
+        try {
+            String position = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            String[] parts = position.split("\\.");
+            if (parts.length != 3) {
+                return Optional.empty();
+            }
+            Instant instant = Instant.ofEpochSecond(Long.parseLong(parts[0]), Long.parseLong(parts[1]));
+            return Optional.of(new KeysetCursor(instant.atZone(ZoneOffset.UTC), Long.valueOf(parts[2])));
+        } catch (IllegalArgumentException | DateTimeException e) {
+            return Optional.empty();
+        }
+    }
+
+    public ZonedDateTime getTime() {
+        return time;
+    }
+
+    public Long getId() {
+        return id;
+    }
+}
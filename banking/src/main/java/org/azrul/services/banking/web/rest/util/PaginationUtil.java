@@ -1,6 +1,7 @@
 package org.azrul.services.banking.web.rest.util;
 
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Slice;
 import org.springframework.http.HttpHeaders;
 import org.springframework.web.util.UriComponentsBuilder;
 
@@ -39,6 +40,24 @@ public final class PaginationUtil {
         return headers;
     }
 
+    /**
+     * Generate the headers of a page read with keyset pagination: only a "next" link holding the cursor of
+     * the next page, as neither the total count nor the position of the last page are computed.
+     *
+     * @param slice the page
+     * @param nextCursor the cursor of the next page, used if the slice has a next page
+     * @param baseUrl the URL of the resource
+     */
+    public static <T> HttpHeaders generateCursorPaginationHttpHeaders(Slice<T> slice, String nextCursor, String baseUrl) {
+        HttpHeaders headers = new HttpHeaders();
+        if (slice.hasNext()) {
+            String uri = UriComponentsBuilder.fromUriString(baseUrl).queryParam("cursor", nextCursor)
+                .queryParam("size", slice.getSize()).toUriString();
+            headers.add(HttpHeaders.LINK, "<" + uri + ">; rel=\"next\"");
+        }
+        return headers;
+    }
+
     private static String generateUri(String baseUrl, int page, int size) {
         return UriComponentsBuilder.fromUriString(baseUrl).queryParam("page", page).queryParam("size", size).toUriString();
     }
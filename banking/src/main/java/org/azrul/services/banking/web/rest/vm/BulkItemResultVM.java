@@ -0,0 +1,77 @@
+package org.azrul.services.banking.web.rest.vm;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/**
+ * View Model object for the result of one item of a bulk request.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class BulkItemResultVM {
+
+    private int index;
+
+    private int status;
+
+    private Long id;
+
+    private String error;
+
+    public BulkItemResultVM(int index, int status, Long id, String error) {
+        this.index = index;
+        this.status = status;
+        this.id = id;
+        this.error = error;
+    }
+
+    public BulkItemResultVM() {
+        // Empty public constructor used by Jackson.
+    }
+
+    /**
+     * The position of the item in the request, starting at 0.
+     */
+    public int getIndex() {
+        return index;
+    }
+
+    public void setIndex(int index) {
+        this.index = index;
+    }
+
+    /**
+     * The HTTP status the item would have had as a single request.
+     */
+    public int getStatus() {
+        return status;
+    }
+
+    public void setStatus(int status) {
+        this.status = status;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public void setError(String error) {
+        this.error = error;
+    }
+
+    @Override
+    public String toString() {
+        return "BulkItemResultVM{" +
+            "index=" + index +
+            ", status=" + status +
+            ", id=" + id +
+            ", error='" + error + '\'' +
+            '}';
+    }
+}
@@ -0,0 +1,121 @@
+package org.azrul.services.banking.config;
+
+import com.codahale.metrics.MetricRegistry;
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Unit tests for the ReplicaRoutingDataSource class, with in-memory H2 databases as primary and replicas, whose
+ * replication lag is the value of a LAG table.
+ *
+ * @see ReplicaRoutingDataSource
+ */
+public class ReplicaRoutingDataSourceTest {
+
+    private HikariDataSource primary;
+
+    private HikariDataSource replica0;
+
+    private HikariDataSource replica1;
+
+    private ReplicaRoutingDataSource routingDataSource;
+
+    private MetricRegistry metricRegistry;
+
+    @Before
+    public void setup() throws SQLException {
+        primary = createDataSource("primary");
+        replica0 = createDataSource("replica-0");
+        replica1 = createDataSource("replica-1");
+        setLag(replica0, 1);
+        setLag(replica1, 1);
+        routingDataSource = new ReplicaRoutingDataSource(primary, Arrays.asList(replica0, replica1), 10,
+            "select seconds from lag");
+        routingDataSource.afterPropertiesSet();
+        metricRegistry = new MetricRegistry();
+        routingDataSource.registerMetrics(metricRegistry);
+    }
+
+    @After
+    public void teardown() {
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+        routingDataSource.close();
+        primary.close();
+    }
+
+    @Test
+    public void testReadWriteGoesToPrimary() throws SQLException {
+        routingDataSource.checkReplicationLag();
+
+        assertThat(connectedPool()).isEqualTo("primary");
+        assertThat(metricRegistry.counter("datasource.routing.primary").getCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void testReadOnlyGoesToReplicasInTurn() throws SQLException {
+        routingDataSource.checkReplicationLag();
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+        assertThat(Arrays.asList(connectedPool(), connectedPool())).containsExactlyInAnyOrder("replica-0", "replica-1");
+        assertThat(metricRegistry.counter("datasource.routing.replica").getCount()).isEqualTo(2);
+    }
+
+    @Test
+    public void testReadOnlyAvoidsLaggingReplica() throws SQLException {
+        setLag(replica0, 60);
+        routingDataSource.checkReplicationLag();
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+        assertThat(connectedPool()).isEqualTo("replica-1");
+        assertThat(connectedPool()).isEqualTo("replica-1");
+        assertThat(metricRegistry.getGauges().get("datasource.routing.replica-0.lag-seconds").getValue())
+            .isEqualTo(60.0);
+    }
+
+    @Test
+    public void testReadOnlyFallsBackToPrimary() throws SQLException {
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+        // Not checked yet
+        assertThat(connectedPool()).isEqualTo("primary");
+
+        setLag(replica0, 60);
+        replica1.close();
+        routingDataSource.checkReplicationLag();
+
+        assertThat(connectedPool()).isEqualTo("primary");
+        assertThat(metricRegistry.counter("datasource.routing.fallback").getCount()).isEqualTo(2);
+    }
+
+    private String connectedPool() throws SQLException {
+        try (Connection connection = routingDataSource.getConnection()) {
+            String url = connection.getMetaData().getURL();
+            return url.substring(url.lastIndexOf(':') + 1);
+        }
+    }
+
+    private static HikariDataSource createDataSource(String name) {
+        HikariDataSource dataSource = new HikariDataSource();
+        dataSource.setPoolName(name);
+        dataSource.setJdbcUrl("jdbc:h2:mem:" + name);
+        dataSource.setMaximumPoolSize(2);
+        return dataSource;
+    }
+
+    private static void setLag(HikariDataSource dataSource, int seconds) throws SQLException {
+        try (Connection connection = dataSource.getConnection()) {
+            connection.createStatement().execute("create table if not exists lag (seconds int)");
+            connection.createStatement().execute("delete from lag");
+            connection.createStatement().execute("insert into lag values (" + seconds + ")");
+        }
+    }
+}
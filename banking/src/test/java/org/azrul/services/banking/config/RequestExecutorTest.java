@@ -0,0 +1,83 @@
+package org.azrul.services.banking.config;
+
+import com.codahale.metrics.MetricRegistry;
+import org.junit.After;
+import org.junit.Test;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+/**
+ * Unit tests for the RequestExecutor class.
+ *
+ * @see RequestExecutor
+ */
+public class RequestExecutorTest {
+
+    private final MetricRegistry metricRegistry = new MetricRegistry();
+
+    private RequestExecutor requestExecutor;
+
+    @After
+    public void teardown() {
+        SecurityContextHolder.clearContext();
+        if (requestExecutor != null) {
+            requestExecutor.destroy();
+        }
+    }
+
+    @Test
+    public void testRequestsAreRejectedWhenTheQueueIsFull() throws Exception {
+        requestExecutor = new RequestExecutor(1, 1, metricRegistry);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<String> running = requestExecutor.submit(() -> {
+            release.await(10, TimeUnit.SECONDS);
+            return "running";
+        });
+        CompletableFuture<String> queued = requestExecutor.submit(() -> "queued");
+
+        Throwable thrown = catchThrowable(() -> requestExecutor.submit(() -> "rejected"));
+
+        assertThat(thrown).isInstanceOf(RejectedExecutionException.class);
+        assertThat(metricRegistry.meter("requests.executor.rejections").getCount()).isEqualTo(1);
+        release.countDown();
+        assertThat(running.get(10, TimeUnit.SECONDS)).isEqualTo("running");
+        assertThat(queued.get(10, TimeUnit.SECONDS)).isEqualTo("queued");
+        assertThat(metricRegistry.timer("requests.executor.queue-wait").getCount()).isEqualTo(2);
+        assertThat(metricRegistry.timer("requests.executor.execution").getCount()).isEqualTo(2);
+    }
+
+    @Test
+    public void testRequestsRunWithTheSecurityContextOfTheCaller() throws Exception {
+        requestExecutor = new RequestExecutor(2, 10, metricRegistry);
+        SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken("admin", "admin"));
+
+        CompletableFuture<String> login = requestExecutor.submit(() ->
+            SecurityContextHolder.getContext().getAuthentication().getName());
+
+        assertThat(login.get(10, TimeUnit.SECONDS)).isEqualTo("admin");
+    }
+
+    @Test
+    public void testFailuresCompleteTheFutureExceptionally() {
+        requestExecutor = new RequestExecutor(0, 0, metricRegistry);
+        String caller = Thread.currentThread().getName();
+
+        CompletableFuture<String> thread = requestExecutor.submit(() -> Thread.currentThread().getName());
+        CompletableFuture<String> failure = requestExecutor.submit(() -> {
+            throw new IllegalStateException("failure");
+        });
+
+        assertThat(thread).isCompletedWithValue(caller);
+        Throwable thrown = catchThrowable(failure::get);
+        assertThat(thrown).isInstanceOf(ExecutionException.class).hasCauseInstanceOf(IllegalStateException.class);
+    }
+}
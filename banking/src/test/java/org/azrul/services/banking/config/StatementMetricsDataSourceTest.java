@@ -0,0 +1,149 @@
+package org.azrul.services.banking.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Unit tests for the StatementMetricsDataSource and StatementStatistics classes, with an in-memory H2 database.
+ *
+ * @see StatementMetricsDataSource
+ * @see StatementStatistics
+ */
+public class StatementMetricsDataSourceTest {
+
+    private HikariDataSource hikariDataSource;
+
+    private ApplicationProperties applicationProperties;
+
+    private StatementStatistics statementStatistics;
+
+    private StatementMetricsDataSource dataSource;
+
+    @Before
+    public void setup() throws SQLException {
+        hikariDataSource = new HikariDataSource();
+        hikariDataSource.setJdbcUrl("jdbc:h2:mem:statement-metrics;DB_CLOSE_DELAY=-1");
+        applicationProperties = new ApplicationProperties();
+        statementStatistics = new StatementStatistics(applicationProperties);
+        dataSource = new StatementMetricsDataSource(hikariDataSource, statementStatistics);
+        try (Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement()) {
+            statement.execute("create table account (id bigint primary key, owner varchar(50))");
+        }
+        statementStatistics.reset();
+    }
+
+    @After
+    public void teardown() throws SQLException {
+        try (Connection connection = hikariDataSource.getConnection();
+             Statement statement = connection.createStatement()) {
+            statement.execute("drop table account");
+        }
+        hikariDataSource.close();
+    }
+
+    @Test
+    public void testNormalize() {
+        assertThat(StatementStatistics.normalize(
+            "select a.id as id1_0_ from account a\n  where a.owner = 'O''Brien' and a.id in (? , ? , ?) -- by owner"))
+            .isEqualTo("select a.id as id1_0_ from account a where a.owner = ? and a.id in (?+)");
+        assertThat(StatementStatistics.normalize("INSERT INTO account (id, owner) VALUES (1, 'a'), (2, 'b')"))
+            .isEqualTo("insert into account (id, owner) values (?+), ...");
+        assertThat(StatementStatistics.normalize("select /* hint */ * from \"Account\" where balance > 10.5"))
+            .isEqualTo("select * from \"Account\" where balance > ?");
+    }
+
+    @Test
+    public void testStatementsAreRecordedByFingerprint() throws SQLException {
+        try (Connection connection = dataSource.getConnection()) {
+            for (long id = 1; id <= 3; id++) {
+                try (PreparedStatement insert = connection.prepareStatement("insert into account values (?, ?)")) {
+                    insert.setLong(1, id);
+                    insert.setString(2, "owner" + id);
+                    insert.executeUpdate();
+                }
+            }
+            try (Statement statement = connection.createStatement()) {
+                for (long id = 1; id <= 2; id++) {
+                    try (ResultSet resultSet = statement.executeQuery("select * from account where id >= " + id)) {
+                        while (resultSet.next()) {
+                            assertThat(resultSet.getString("owner")).startsWith("owner");
+                        }
+                    }
+                }
+            }
+        }
+
+        List<StatementStatistics.Summary> top = statementStatistics.top(10);
+        assertThat(top).extracting(StatementStatistics.Summary::getFingerprint)
+            .containsExactlyInAnyOrder("insert into account values (?+)", "select * from account where id >= ?");
+        StatementStatistics.Summary insert = summaryOf(top, "insert into account values (?+)");
+        assertThat(insert.getCount()).isEqualTo(3);
+        assertThat(insert.getRows()).isEqualTo(3);
+        assertThat(insert.getMaxRows()).isEqualTo(1);
+        StatementStatistics.Summary select = summaryOf(top, "select * from account where id >= ?");
+        assertThat(select.getCount()).isEqualTo(2);
+        assertThat(select.getRows()).isEqualTo(5);
+        assertThat(select.getMaxRows()).isEqualTo(3);
+        assertThat(select.getTotalMillis()).isGreaterThan(0);
+        assertThat(top.get(0).getTotalMillis()).isGreaterThanOrEqualTo(top.get(1).getTotalMillis());
+    }
+
+    @Test
+    public void testBatchRowsAreSummed() throws SQLException {
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement insert = connection.prepareStatement("insert into account values (?, ?)")) {
+            for (long id = 1; id <= 4; id++) {
+                insert.setLong(1, id);
+                insert.setNull(2, java.sql.Types.VARCHAR);
+                insert.addBatch();
+            }
+            insert.executeBatch();
+        }
+
+        StatementStatistics.Summary insert = statementStatistics.top(1).get(0);
+        assertThat(insert.getCount()).isEqualTo(1);
+        assertThat(insert.getRows()).isEqualTo(4);
+    }
+
+    @Test
+    public void testFingerprintsBeyondTheMaximumAreCountedTogether() throws SQLException {
+        applicationProperties.getStatementMetrics().setMaxFingerprints(1);
+        try (Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement()) {
+            statement.executeUpdate("update account set owner = 'a'");
+            statement.executeUpdate("delete from account");
+            statement.executeUpdate("delete from account where id = 1");
+        }
+
+        assertThat(statementStatistics.top(10)).extracting(StatementStatistics.Summary::getFingerprint)
+            .containsExactlyInAnyOrder("update account set owner = ?", StatementStatistics.OTHER);
+        assertThat(summaryOf(statementStatistics.top(10), StatementStatistics.OTHER).getCount()).isEqualTo(2);
+    }
+
+    @Test
+    public void testProxiesAreEqualOnlyToThemselves() throws SQLException {
+        try (Connection connection = dataSource.getConnection();
+             Statement first = connection.createStatement();
+             Statement second = connection.createStatement()) {
+            assertThat(first).isEqualTo(first).isNotEqualTo(second);
+            assertThat(first.hashCode()).isEqualTo(first.hashCode());
+        }
+    }
+
+    private static StatementStatistics.Summary summaryOf(List<StatementStatistics.Summary> summaries,
+        String fingerprint) {
+        return summaries.stream().filter(summary -> summary.getFingerprint().equals(fingerprint)).findFirst().get();
+    }
+}
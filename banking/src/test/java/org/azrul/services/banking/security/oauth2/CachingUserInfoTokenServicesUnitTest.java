@@ -0,0 +1,89 @@
+package org.azrul.services.banking.security.oauth2;
+
+import com.codahale.metrics.MetricRegistry;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.jwt.JwtHelper;
+import org.springframework.security.jwt.crypto.sign.MacSigner;
+import org.springframework.security.oauth2.common.exceptions.InvalidTokenException;
+import org.springframework.security.oauth2.provider.OAuth2Authentication;
+import org.springframework.security.oauth2.provider.OAuth2Request;
+import org.springframework.security.oauth2.provider.token.ResourceServerTokenServices;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+/**
+ * Test class for the CachingUserInfoTokenServices.
+ *
+ * @see CachingUserInfoTokenServices
+ */
+public class CachingUserInfoTokenServicesUnitTest {
+
+    private ResourceServerTokenServices delegate;
+
+    private MetricRegistry metricRegistry;
+
+    private CachingUserInfoTokenServices tokenServices;
+
+    @Before
+    public void setup() {
+        delegate = mock(ResourceServerTokenServices.class);
+        when(delegate.loadAuthentication(anyString())).thenAnswer(invocation -> authentication(invocation.getArgument(0)));
+        metricRegistry = new MetricRegistry();
+        tokenServices = new CachingUserInfoTokenServices(delegate, 2, 60_000, metricRegistry);
+    }
+
+    @Test
+    public void testRepeatedTokenIsServedFromCache() {
+        OAuth2Authentication first = tokenServices.loadAuthentication("token1");
+        OAuth2Authentication second = tokenServices.loadAuthentication("token1");
+
+        assertThat(second).isSameAs(first);
+        verify(delegate, times(1)).loadAuthentication("token1");
+        assertThat(metricRegistry.counter(CachingUserInfoTokenServices.METRIC_PREFIX + ".hits").getCount()).isEqualTo(1);
+        assertThat(metricRegistry.counter(CachingUserInfoTokenServices.METRIC_PREFIX + ".misses").getCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void testLeastRecentlyUsedTokenIsEvicted() {
+        tokenServices.loadAuthentication("token1");
+        tokenServices.loadAuthentication("token2");
+        tokenServices.loadAuthentication("token1");
+        tokenServices.loadAuthentication("token3");
+        tokenServices.loadAuthentication("token2");
+
+        assertThat(tokenServices.size()).isEqualTo(2);
+        verify(delegate, times(1)).loadAuthentication("token1");
+        verify(delegate, times(2)).loadAuthentication("token2");
+        assertThat(metricRegistry.counter(CachingUserInfoTokenServices.METRIC_PREFIX + ".evictions").getCount()).isEqualTo(2);
+    }
+
+    @Test
+    public void testExpiredJwtIsNotCached() {
+        String expired = JwtHelper.encode("{\"exp\":" + (System.currentTimeMillis() / 1000 - 60) + "}",
+            new MacSigner("secret")).getEncoded();
+
+        tokenServices.loadAuthentication(expired);
+        tokenServices.loadAuthentication(expired);
+
+        verify(delegate, times(2)).loadAuthentication(expired);
+        assertThat(tokenServices.size()).isZero();
+    }
+
+    @Test
+    public void testInvalidTokenIsNotCached() {
+        when(delegate.loadAuthentication("invalid")).thenThrow(new InvalidTokenException("invalid"));
+
+        assertThatThrownBy(() -> tokenServices.loadAuthentication("invalid")).isInstanceOf(InvalidTokenException.class);
+        assertThat(tokenServices.size()).isZero();
+    }
+
+    private static OAuth2Authentication authentication(String principal) {
+        OAuth2Request request = new OAuth2Request(null, "web_app", null, true, null, null, null, null, null);
+        return new OAuth2Authentication(request, new UsernamePasswordAuthenticationToken(principal, "N/A"));
+    }
+}
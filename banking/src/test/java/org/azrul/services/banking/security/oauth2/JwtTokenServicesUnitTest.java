@@ -0,0 +1,163 @@
+package org.azrul.services.banking.security.oauth2;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.http.MediaType;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.jwt.JwtHelper;
+import org.springframework.security.jwt.crypto.sign.RsaSigner;
+import org.springframework.security.oauth2.common.OAuth2AccessToken;
+import org.springframework.security.oauth2.common.exceptions.InvalidTokenException;
+import org.springframework.security.oauth2.provider.OAuth2Authentication;
+import org.springframework.test.web.client.ExpectedCount;
+import org.springframework.test.web.client.MockRestServiceServer;
+import org.springframework.web.client.RestTemplate;
+
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.interfaces.RSAPrivateKey;
+import java.security.interfaces.RSAPublicKey;
+import java.util.Base64;
+import java.util.Collections;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.requestTo;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withSuccess;
+
+/**
+ * Test class for the JwtTokenServices, against a local stub JWK Set.
+ *
+ * @see JwtTokenServices
+ */
+public class JwtTokenServicesUnitTest {
+
+    private static final String JWK_SET_URI = "http://localhost/auth/realms/jhipster/protocol/openid-connect/certs";
+
+    private static final String ISSUER = "http://localhost/auth/realms/jhipster";
+
+    private KeyPair keyPair;
+
+    private RestTemplate restTemplate;
+
+    private MockRestServiceServer server;
+
+    private JwtTokenServices tokenServices;
+
+    @Before
+    public void setup() throws Exception {
+        keyPair = generateKeyPair();
+        restTemplate = new RestTemplate();
+        server = MockRestServiceServer.bindTo(restTemplate).build();
+        JwkKeySetCache keySetCache = new JwkKeySetCache(restTemplate, JWK_SET_URI, 300_000, 0);
+        tokenServices = new JwtTokenServices(keySetCache, new SimplePrincipalExtractor("preferred_username"),
+            new SimpleAuthoritiesExtractor("roles"), ISSUER, 0);
+    }
+
+    @Test
+    public void testLoadAuthenticationUsesCachedKeySet() {
+        server.expect(ExpectedCount.once(), requestTo(JWK_SET_URI))
+            .andRespond(withSuccess(jwkSet("key1", keyPair), MediaType.APPLICATION_JSON));
+        String token = token("key1", keyPair, "test", ISSUER, expiresInSeconds(60));
+
+        OAuth2Authentication authentication = tokenServices.loadAuthentication(token);
+        tokenServices.loadAuthentication(token);
+
+        server.verify();
+        assertThat(authentication.getPrincipal()).isEqualTo("test");
+        assertThat(authentication.getAuthorities()).extracting(GrantedAuthority::getAuthority)
+            .containsExactly("ROLE_USER");
+        assertThat(authentication.getOAuth2Request().getClientId()).isEqualTo("web_app");
+    }
+
+    @Test
+    public void testLoadAuthenticationReloadsKeySetOnUnknownKeyId() throws Exception {
+        KeyPair rotatedKeyPair = generateKeyPair();
+        server.expect(requestTo(JWK_SET_URI))
+            .andRespond(withSuccess(jwkSet("key1", keyPair), MediaType.APPLICATION_JSON));
+        server.expect(requestTo(JWK_SET_URI))
+            .andRespond(withSuccess(jwkSet("key2", rotatedKeyPair), MediaType.APPLICATION_JSON));
+
+        tokenServices.loadAuthentication(token("key1", keyPair, "test", ISSUER, expiresInSeconds(60)));
+        OAuth2Authentication authentication =
+            tokenServices.loadAuthentication(token("key2", rotatedKeyPair, "rotated", ISSUER, expiresInSeconds(60)));
+
+        server.verify();
+        assertThat(authentication.getPrincipal()).isEqualTo("rotated");
+    }
+
+    @Test
+    public void testLoadAuthenticationRejectsInvalidSignature() throws Exception {
+        server.expect(requestTo(JWK_SET_URI))
+            .andRespond(withSuccess(jwkSet("key1", keyPair), MediaType.APPLICATION_JSON));
+        String token = token("key1", generateKeyPair(), "test", ISSUER, expiresInSeconds(60));
+
+        assertThatThrownBy(() -> tokenServices.loadAuthentication(token)).isInstanceOf(InvalidTokenException.class);
+    }
+
+    @Test
+    public void testLoadAuthenticationRejectsExpiredToken() {
+        server.expect(requestTo(JWK_SET_URI))
+            .andRespond(withSuccess(jwkSet("key1", keyPair), MediaType.APPLICATION_JSON));
+        String token = token("key1", keyPair, "test", ISSUER, expiresInSeconds(-60));
+
+        assertThatThrownBy(() -> tokenServices.loadAuthentication(token)).isInstanceOf(InvalidTokenException.class);
+    }
+
+    @Test
+    public void testLoadAuthenticationRejectsOtherIssuer() {
+        server.expect(requestTo(JWK_SET_URI))
+            .andRespond(withSuccess(jwkSet("key1", keyPair), MediaType.APPLICATION_JSON));
+        String token = token("key1", keyPair, "test", "http://localhost/auth/realms/other", expiresInSeconds(60));
+
+        assertThatThrownBy(() -> tokenServices.loadAuthentication(token)).isInstanceOf(InvalidTokenException.class);
+    }
+
+    @Test
+    public void testReadAccessTokenDecodesClaims() {
+        server.expect(requestTo(JWK_SET_URI))
+            .andRespond(withSuccess(jwkSet("key1", keyPair), MediaType.APPLICATION_JSON));
+        long exp = expiresInSeconds(60);
+        String token = token("key1", keyPair, "test", ISSUER, exp);
+
+        OAuth2AccessToken accessToken = tokenServices.readAccessToken(token);
+
+        assertThat(accessToken.getValue()).isEqualTo(token);
+        assertThat(accessToken.getExpiration().getTime()).isEqualTo(exp * 1000);
+        assertThat(accessToken.getAdditionalInformation()).containsEntry("preferred_username", "test");
+    }
+
+    @Test
+    public void testReadAccessTokenReturnsNullOnInvalidSignature() throws Exception {
+        server.expect(requestTo(JWK_SET_URI))
+            .andRespond(withSuccess(jwkSet("key1", keyPair), MediaType.APPLICATION_JSON));
+        String token = token("key1", generateKeyPair(), "test", ISSUER, expiresInSeconds(60));
+
+        assertThat(tokenServices.readAccessToken(token)).isNull();
+    }
+
+    private static KeyPair generateKeyPair() throws Exception {
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+        generator.initialize(2048);
+        return generator.generateKeyPair();
+    }
+
+    private static long expiresInSeconds(long seconds) {
+        return System.currentTimeMillis() / 1000 + seconds;
+    }
+
+    private static String token(String kid, KeyPair keyPair, String username, String issuer, long exp) {
+        String claims = "{\"preferred_username\":\"" + username + "\",\"roles\":[\"ROLE_USER\"]," +
+            "\"azp\":\"web_app\",\"iss\":\"" + issuer + "\",\"exp\":" + exp + "}";
+        return JwtHelper.encode(claims, new RsaSigner((RSAPrivateKey) keyPair.getPrivate()),
+            Collections.singletonMap("kid", kid)).getEncoded();
+    }
+
+    private static String jwkSet(String kid, KeyPair keyPair) {
+        RSAPublicKey publicKey = (RSAPublicKey) keyPair.getPublic();
+        Base64.Encoder encoder = Base64.getUrlEncoder().withoutPadding();
+        return "{\"keys\":[{\"kid\":\"" + kid + "\",\"kty\":\"RSA\",\"alg\":\"RS256\",\"use\":\"sig\"," +
+            "\"n\":\"" + encoder.encodeToString(publicKey.getModulus().toByteArray()) + "\"," +
+            "\"e\":\"" + encoder.encodeToString(publicKey.getPublicExponent().toByteArray()) + "\"}]}";
+    }
+}
@@ -0,0 +1,123 @@
+package org.azrul.services.banking.service;
+
+import org.azrul.services.banking.BankingApp;
+import org.azrul.services.banking.domain.ProductAccount;
+import org.azrul.services.banking.repository.ProductAccountRepository;
+
+import org.junit.After;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Benchmark of the credits of a hot account, without shards and with 4 and 16 shards.
+ * <p>
+ * Each credit holds its transaction open for a few milliseconds after its UPDATE, as a transfer does while it
+ * records its transaction, so that the credits of the same row wait for each other. It is skipped unless run with
+ * -Dbenchmark=true, as it takes a while.
+ *
+ * @see BalanceShardService
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = BankingApp.class)
+public class BalanceShardBenchmarkIntTest {
+
+    private static final int THREADS = 16;
+
+    private static final int CREDITS_PER_THREAD = 50;
+
+    private static final long TRANSACTION_MILLIS = 2;
+
+    private final Logger log = LoggerFactory.getLogger(BalanceShardBenchmarkIntTest.class);
+
+    @Autowired
+    private BalanceShardService balanceShardService;
+
+    @Autowired
+    private ProductAccountService productAccountService;
+
+    @Autowired
+    private ProductAccountRepository productAccountRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private Long hotId;
+
+    @Before
+    public void init() {
+        Assume.assumeTrue(Boolean.getBoolean("benchmark"));
+        hotId = productAccountRepository.saveAndFlush(
+            new ProductAccount().accountNumber("SHARD-BENCHMARK").balance(BigDecimal.ZERO)).getId();
+    }
+
+    @After
+    public void destroy() {
+        if (hotId != null) {
+            productAccountService.delete(hotId);
+        }
+    }
+
+    @Test
+    public void credits_of_a_hot_account_scale_with_its_shards() throws Exception {
+        double unsharded = creditsPerSecond(0);
+        double fourShards = creditsPerSecond(4);
+        double sixteenShards = creditsPerSecond(16);
+        log.info("Credits per second of a hot account: {} without shards, {} with 4 shards, {} with 16 shards",
+            Math.round(unsharded), Math.round(fourShards), Math.round(sixteenShards));
+
+        assertThat(fourShards).isGreaterThan(unsharded * 2);
+        assertThat(sixteenShards).isGreaterThan(fourShards);
+        assertThat(productAccountService.findOne(hotId).get().getBalance())
+            .isEqualByComparingTo(BigDecimal.valueOf(3L * THREADS * CREDITS_PER_THREAD));
+    }
+
+    private double creditsPerSecond(int shards) throws Exception {
+        balanceShardService.setShardCount(hotId, shards);
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        long start = System.nanoTime();
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < THREADS; i++) {
+                futures.add(executor.submit(() -> {
+                    for (int j = 0; j < CREDITS_PER_THREAD; j++) {
+                        transactionTemplate.execute(status -> {
+                            balanceShardService.credit(hotId, BigDecimal.ONE);
+                            try {
+                                Thread.sleep(TRANSACTION_MILLIS);
+                            } catch (InterruptedException e) {
+                                Thread.currentThread().interrupt();
+                            }
+                            return null;
+                        });
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get(5, TimeUnit.MINUTES);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        return THREADS * CREDITS_PER_THREAD / ((System.nanoTime() - start) / 1e9);
+    }
+}
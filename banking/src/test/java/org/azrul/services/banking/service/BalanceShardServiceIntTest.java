@@ -0,0 +1,204 @@
+package org.azrul.services.banking.service;
+
+import org.azrul.services.banking.BankingApp;
+import org.azrul.services.banking.domain.AccountBalanceShard;
+import org.azrul.services.banking.domain.ProductAccount;
+import org.azrul.services.banking.repository.AccountBalanceShardRepository;
+import org.azrul.services.banking.repository.ProductAccountRepository;
+import org.azrul.services.banking.repository.TransactionRepository;
+import org.azrul.services.banking.service.dto.TransactionDTO;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+import static org.assertj.core.api.Assertions.tuple;
+
+/**
+ * Test class for the BalanceShardService.
+ * <p>
+ * This test is not transactional, as the transfers are committed concurrently from several threads.
+ *
+ * @see BalanceShardService
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = BankingApp.class)
+public class BalanceShardServiceIntTest {
+
+    private static final int THREADS = 8;
+
+    private static final int TRANSFERS_PER_THREAD = 50;
+
+    private static final BigDecimal INITIAL_BALANCE = new BigDecimal("1000.00");
+
+    @Autowired
+    private BalanceShardService balanceShardService;
+
+    @Autowired
+    private TransferService transferService;
+
+    @Autowired
+    private ProductAccountService productAccountService;
+
+    @Autowired
+    private ProductAccountRepository productAccountRepository;
+
+    @Autowired
+    private AccountBalanceShardRepository accountBalanceShardRepository;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private TransactionService transactionService;
+
+    private Long hotId;
+
+    private Long otherId;
+
+    @Before
+    public void init() {
+        hotId = productAccountRepository.saveAndFlush(
+            new ProductAccount().accountNumber("SHARD-HOT").balance(INITIAL_BALANCE)).getId();
+        otherId = productAccountRepository.saveAndFlush(
+            new ProductAccount().accountNumber("SHARD-OTHER").balance(INITIAL_BALANCE)).getId();
+    }
+
+    @After
+    public void destroy() {
+        transactionService.findAll(Pageable.unpaged()).getContent().stream()
+            .filter(transactionDTO -> hotId.equals(transactionDTO.getSourceId()) || hotId.equals(transactionDTO.getTargetId()))
+            .forEach(transactionDTO -> transactionRepository.deleteById(transactionDTO.getId()));
+        productAccountService.delete(hotId);
+        productAccountService.delete(otherId);
+    }
+
+    @Test
+    public void setShardCount_splits_the_balance_evenly_and_merges_it_back() {
+        assertThat(balanceShardService.setShardCount(hotId, 3)).contains(3);
+
+        assertThat(accountBalanceShardRepository.findByProductAccountIdOrderByShard(hotId))
+            .extracting(AccountBalanceShard::getShard, shard -> shard.getBalance().toPlainString())
+            .containsExactly(
+                tuple(0, "333.34"),
+                tuple(1, "333.33"),
+                tuple(2, "333.33"));
+        assertThat(productAccountRepository.findById(hotId).get().getBalance()).isEqualByComparingTo("0");
+        assertThat(getBalance(hotId)).isEqualByComparingTo(INITIAL_BALANCE);
+
+        assertThat(balanceShardService.setShardCount(hotId, 0)).contains(0);
+
+        assertThat(accountBalanceShardRepository.findByProductAccountIdOrderByShard(hotId)).isEmpty();
+        assertThat(balanceShardService.getShardedAccountIds()).doesNotContain(hotId);
+        assertThat(productAccountRepository.findById(hotId).get().getBalance()).isEqualByComparingTo(INITIAL_BALANCE);
+    }
+
+    @Test
+    public void setShardCount_of_a_missing_account_is_empty() {
+        assertThat(balanceShardService.setShardCount(Long.MAX_VALUE, 4)).isEmpty();
+    }
+
+    @Test
+    public void debit_takes_from_several_shards_when_none_covers_the_amount() {
+        balanceShardService.setShardCount(hotId, 4);
+
+        transferService.transfer(createTransfer(hotId, otherId, "600.00"));
+
+        assertThat(getBalance(hotId)).isEqualByComparingTo("400.00");
+        assertThat(getBalance(otherId)).isEqualByComparingTo("1600.00");
+        assertThat(accountBalanceShardRepository.findByProductAccountIdOrderByShard(hotId))
+            .allSatisfy(shard -> assertThat(shard.getBalance()).isGreaterThanOrEqualTo(BigDecimal.ZERO));
+
+        Throwable thrown = catchThrowable(() -> transferService.transfer(createTransfer(hotId, otherId, "400.01")));
+
+        assertThat(thrown).isInstanceOf(TransferRejectedException.class);
+        assertThat(((TransferRejectedException) thrown).getErrorKey()).isEqualTo("insufficientbalance");
+        assertThat(getBalance(hotId)).isEqualByComparingTo("400.00");
+    }
+
+    @Test
+    public void debit_of_an_account_unsharded_by_another_instance_uses_its_balance() {
+        balanceShardService.setShardCount(hotId, 4);
+        // Merged back by another instance, this one still knowing the account as sharded
+        accountBalanceShardRepository.deleteAll(accountBalanceShardRepository.findByProductAccountIdOrderByShard(hotId));
+        productAccountRepository.saveAndFlush(productAccountRepository.findById(hotId).get().balance(INITIAL_BALANCE));
+        assertThat(balanceShardService.getShardedAccountIds()).contains(hotId);
+
+        transferService.transfer(createTransfer(hotId, otherId, "600.00"));
+
+        assertThat(balanceShardService.getShardedAccountIds()).doesNotContain(hotId);
+        assertThat(getBalance(hotId)).isEqualByComparingTo("400.00");
+        assertThat(getBalance(otherId)).isEqualByComparingTo("1600.00");
+    }
+
+    @Test
+    public void transfers_of_a_sharded_account_conserve_money_under_concurrency() throws Exception {
+        balanceShardService.setShardCount(hotId, 4);
+        AtomicInteger posted = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < THREADS; i++) {
+                futures.add(executor.submit(() -> {
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    for (int j = 0; j < TRANSFERS_PER_THREAD; j++) {
+                        boolean fromHot = random.nextBoolean();
+                        String amount = (1 + random.nextInt(300)) + ".25";
+                        try {
+                            transferService.transfer(fromHot ? createTransfer(hotId, otherId, amount)
+                                : createTransfer(otherId, hotId, amount));
+                            posted.incrementAndGet();
+                        } catch (TransferRejectedException e) {
+                            // Insufficient balance
+                        }
+                    }
+                }));
+            }
+            for (int i = 0; i < 3; i++) {
+                balanceShardService.rebalance(hotId);
+            }
+            for (Future<?> future : futures) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(posted.get()).isGreaterThan(0);
+        assertThat(getBalance(hotId)).isGreaterThanOrEqualTo(BigDecimal.ZERO);
+        assertThat(getBalance(otherId)).isGreaterThanOrEqualTo(BigDecimal.ZERO);
+        assertThat(getBalance(hotId).add(getBalance(otherId)))
+            .isEqualByComparingTo(INITIAL_BALANCE.multiply(BigDecimal.valueOf(2)));
+        assertThat(accountBalanceShardRepository.findByProductAccountIdOrderByShard(hotId))
+            .allSatisfy(shard -> assertThat(shard.getBalance()).isGreaterThanOrEqualTo(BigDecimal.ZERO));
+    }
+
+    private TransactionDTO createTransfer(Long sourceId, Long targetId, String amount) {
+        TransactionDTO transactionDTO = new TransactionDTO();
+        transactionDTO.setSourceId(sourceId);
+        transactionDTO.setTargetId(targetId);
+        transactionDTO.setAmount(new BigDecimal(amount));
+        return transactionDTO;
+    }
+
+    private BigDecimal getBalance(Long accountId) {
+        return productAccountService.findOne(accountId).get().getBalance();
+    }
+}
@@ -0,0 +1,34 @@
+package org.azrul.services.banking.service;
+
+import org.junit.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.Optional;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Test class for the BalanceSnapshotJob.
+ *
+ * @see BalanceSnapshotJob
+ */
+public class BalanceSnapshotJobUnitTest {
+
+    @Test
+    public void takeEndOfDaySnapshots_skips_the_days_taken_by_another_instance() {
+        LocalDate yesterday = LocalDate.now(ZoneOffset.UTC).minusDays(1);
+        BalanceSnapshotService balanceSnapshotService = mock(BalanceSnapshotService.class);
+        when(balanceSnapshotService.findLatestSnapshotDate()).thenReturn(Optional.of(yesterday.minusDays(2)));
+        when(balanceSnapshotService.takeSnapshots(yesterday.minusDays(1)))
+            .thenThrow(new DataIntegrityViolationException("ux_account_balance_snapshot_account_date"));
+
+        new BalanceSnapshotJob(balanceSnapshotService).takeEndOfDaySnapshots();
+
+        verify(balanceSnapshotService).takeSnapshots(yesterday.minusDays(1));
+        verify(balanceSnapshotService).takeSnapshots(yesterday);
+    }
+}
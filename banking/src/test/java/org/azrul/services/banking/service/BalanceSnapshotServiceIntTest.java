@@ -0,0 +1,142 @@
+package org.azrul.services.banking.service;
+
+import org.azrul.services.banking.BankingApp;
+import org.azrul.services.banking.domain.ProductAccount;
+import org.azrul.services.banking.domain.Transaction;
+import org.azrul.services.banking.service.dto.AccountBalanceDTO;
+import org.azrul.services.banking.service.dto.TransactionDTO;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Test class for the BalanceSnapshotService.
+ *
+ * @see BalanceSnapshotService
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = BankingApp.class)
+@Transactional
+public class BalanceSnapshotServiceIntTest {
+
+    private static final LocalDate DAY_1 = LocalDate.now(ZoneOffset.UTC).minusDays(4);
+
+    private static final LocalDate DAY_2 = DAY_1.plusDays(1);
+
+    private static final LocalDate DAY_3 = DAY_2.plusDays(1);
+
+    @Autowired
+    private BalanceSnapshotService balanceSnapshotService;
+
+    @Autowired
+    private TransactionService transactionService;
+
+    @Autowired
+    private EntityManager em;
+
+    private Long accountA;
+
+    private Long accountB;
+
+    /**
+     * Account A is opened with 100.00 without a transaction, then pays 30.00 to B on day 1, receives 5.00
+     * from B on day 2, and pays 10.00 to B on day 3.
+     */
+    @Before
+    public void init() {
+        ProductAccount a = new ProductAccount().accountNumber("SNAPSHOT-A").balance(new BigDecimal("65.00"));
+        ProductAccount b = new ProductAccount().accountNumber("SNAPSHOT-B").balance(new BigDecimal("35.00"));
+        em.persist(a);
+        em.persist(b);
+        em.persist(createTransaction(a, b, "30.00", at(DAY_1, 10)));
+        em.persist(createTransaction(b, a, "5.00", at(DAY_2, 10)));
+        em.persist(createTransaction(a, b, "10.00", at(DAY_3, 10)));
+        em.flush();
+        accountA = a.getId();
+        accountB = b.getId();
+    }
+
+    @Test
+    public void takeSnapshots_seeds_then_adds_the_transactions_of_the_day() {
+        assertThat(balanceSnapshotService.takeSnapshots(DAY_1)).isGreaterThanOrEqualTo(2);
+        assertThat(balanceSnapshotService.takeSnapshots(DAY_2)).isGreaterThanOrEqualTo(2);
+
+        assertThat(balanceSnapshotService.findLatestSnapshotDate()).contains(DAY_2);
+        assertBalance(accountA, at(DAY_2, 12), "75.00", DAY_1);
+        assertBalance(accountB, at(DAY_2, 12), "25.00", DAY_1);
+        assertBalance(accountA, at(DAY_3, 0), "75.00", DAY_2);
+        assertBalance(accountA, at(DAY_3, 12), "65.00", DAY_2);
+        assertBalance(accountB, at(DAY_3, 12), "35.00", DAY_2);
+    }
+
+    @Test
+    public void transactions_written_on_a_snapshotted_day_correct_the_snapshots() {
+        balanceSnapshotService.takeSnapshots(DAY_1);
+        balanceSnapshotService.takeSnapshots(DAY_2);
+
+        TransactionDTO transactionDTO = new TransactionDTO();
+        transactionDTO.setSourceId(accountA);
+        transactionDTO.setTargetId(accountB);
+        transactionDTO.setAmount(new BigDecimal("20.00"));
+        transactionDTO.setTime(at(DAY_1, 15));
+        transactionDTO = transactionService.save(transactionDTO);
+        // The snapshots are changed by UPDATE statements, not through the persistence context
+        em.clear();
+        assertBalance(accountA, at(DAY_2, 12), "55.00", DAY_1);
+        assertBalance(accountB, at(DAY_2, 12), "45.00", DAY_1);
+        assertBalance(accountA, at(DAY_3, 12), "45.00", DAY_2);
+
+        // Moved to day 2, after the snapshot of day 1
+        transactionDTO.setTime(at(DAY_2, 15));
+        transactionService.save(transactionDTO);
+        em.clear();
+        assertBalance(accountA, at(DAY_2, 12), "75.00", DAY_1);
+        assertBalance(accountA, at(DAY_3, 12), "45.00", DAY_2);
+
+        transactionService.delete(transactionDTO.getId());
+        em.flush();
+        em.clear();
+        assertBalance(accountA, at(DAY_3, 12), "65.00", DAY_2);
+        assertBalance(accountB, at(DAY_3, 12), "35.00", DAY_2);
+    }
+
+    @Test
+    public void findBalance_without_snapshot_uses_the_current_balance() {
+        assertBalance(accountA, at(DAY_1, 9), "100.00", null);
+        assertBalance(accountA, at(DAY_2, 12), "75.00", null);
+        assertBalance(accountB, at(DAY_3, 12), "35.00", null);
+    }
+
+    @Test
+    public void findBalance_of_an_unknown_account_is_empty() {
+        assertThat(balanceSnapshotService.findBalance(Long.MAX_VALUE, ZonedDateTime.now())).isEmpty();
+    }
+
+    private void assertBalance(Long accountId, ZonedDateTime time, String balance, LocalDate snapshotDate) {
+        AccountBalanceDTO accountBalanceDTO = balanceSnapshotService.findBalance(accountId, time).get();
+        assertThat(accountBalanceDTO.getBalance()).isEqualByComparingTo(balance);
+        assertThat(accountBalanceDTO.getSnapshotDate()).isEqualTo(snapshotDate);
+    }
+
+    private static Transaction createTransaction(ProductAccount source, ProductAccount target, String amount,
+        ZonedDateTime time) {
+        return new Transaction().source(source).target(target).amount(new BigDecimal(amount)).time(time);
+    }
+
+    private static ZonedDateTime at(LocalDate date, int hour) {
+        return date.atTime(hour, 0).atZone(ZoneOffset.UTC);
+    }
+}
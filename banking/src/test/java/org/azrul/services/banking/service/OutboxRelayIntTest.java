@@ -0,0 +1,106 @@
+package org.azrul.services.banking.service;
+
+import org.azrul.services.banking.BankingApp;
+import org.azrul.services.banking.domain.OutboxEvent;
+import org.azrul.services.banking.repository.OutboxEventRepository;
+import org.azrul.services.banking.service.dto.CustomerDTO;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Test class for the transactional outbox, relayed to the FileOutboxEventSink.
+ *
+ * @see OutboxEventPublisher
+ * @see OutboxRelay
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = BankingApp.class, properties = "application.outbox.file.path=" + OutboxRelayIntTest.EVENTS_FILE)
+@Transactional
+public class OutboxRelayIntTest {
+
+    static final String EVENTS_FILE = "target/outbox-test/events.ndjson";
+
+    @Autowired
+    private CustomerService customerService;
+
+    @Autowired
+    private OutboxEventRepository outboxEventRepository;
+
+    @Autowired
+    private OutboxRelay outboxRelay;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private final Path eventsFile = Paths.get(EVENTS_FILE);
+
+    @Before
+    public void init() throws IOException {
+        Files.deleteIfExists(eventsFile);
+    }
+
+    @Test
+    public void saveWritesAnOutboxEventInTheSameTransaction() {
+        CustomerDTO customer = saveCustomer("OUTBOX-1");
+
+        List<OutboxEvent> events = outboxEventRepository.findAll().stream()
+            .filter(event -> event.getAggregateId().equals(customer.getId()))
+            .collect(Collectors.toList());
+        assertThat(events).hasSize(1);
+        assertThat(events.get(0).getAggregateType()).isEqualTo("Customer");
+        assertThat(events.get(0).getEventType()).isEqualTo(OutboxEventPublisher.CREATED);
+        assertThat(events.get(0).getPayload()).contains("\"cifNumber\":\"OUTBOX-1\"");
+    }
+
+    @Test
+    public void relayDeliversTheEventsInOrderThenDeletesThem() throws IOException {
+        CustomerDTO customer = saveCustomer("OUTBOX-2");
+        customer.setFirstName("Updated");
+        customerService.save(customer);
+        customerService.delete(customer.getId());
+
+        assertThat(outboxRelay.relay()).isGreaterThanOrEqualTo(3);
+
+        assertThat(outboxEventRepository.count()).isZero();
+        List<String> eventTypes = new ArrayList<>();
+        for (String line : Files.readAllLines(eventsFile, StandardCharsets.UTF_8)) {
+            JsonNode event = objectMapper.readTree(line);
+            if ("Customer".equals(event.get("aggregateType").asText())
+                && event.get("aggregateId").asLong() == customer.getId()) {
+                eventTypes.add(event.get("eventType").asText());
+                if (!OutboxEventPublisher.DELETED.equals(event.get("eventType").asText())) {
+                    assertThat(event.get("payload").get("cifNumber").asText()).isEqualTo("OUTBOX-2");
+                }
+            }
+        }
+        assertThat(eventTypes).containsExactly(OutboxEventPublisher.CREATED, OutboxEventPublisher.UPDATED,
+            OutboxEventPublisher.DELETED);
+    }
+
+    private CustomerDTO saveCustomer(String cifNumber) {
+        CustomerDTO customerDTO = new CustomerDTO();
+        customerDTO.setCifNumber(cifNumber);
+        customerDTO.setFirstName("Outbox");
+        customerDTO.setLastName("Test");
+        return customerService.save(customerDTO);
+    }
+}
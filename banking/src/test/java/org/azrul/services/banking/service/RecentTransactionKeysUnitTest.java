@@ -0,0 +1,70 @@
+package org.azrul.services.banking.service;
+
+import org.azrul.services.banking.config.ApplicationProperties;
+import org.azrul.services.banking.service.dto.TransactionDTO;
+
+import com.codahale.metrics.MetricRegistry;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Test class for the RecentTransactionKeys.
+ *
+ * @see RecentTransactionKeys
+ */
+public class RecentTransactionKeysUnitTest {
+
+    private RecentTransactionKeys recentTransactionKeys;
+
+    @Before
+    public void setup() {
+        ApplicationProperties applicationProperties = new ApplicationProperties();
+        applicationProperties.getIdempotency().setRecentKeysSize(2);
+        recentTransactionKeys = new RecentTransactionKeys(applicationProperties, new MetricRegistry());
+    }
+
+    @Test
+    public void remove_by_id_removes_the_transactionId() {
+        recentTransactionKeys.add(createTransaction(1L, "AAA"));
+        recentTransactionKeys.add(createTransaction(2L, "BBB"));
+
+        recentTransactionKeys.remove(1L);
+        recentTransactionKeys.remove(3L);
+
+        assertThat(recentTransactionKeys.get("AAA")).isEmpty();
+        assertThat(recentTransactionKeys.get("BBB")).isPresent();
+        assertThat(recentTransactionKeys.size()).isEqualTo(1);
+    }
+
+    @Test
+    public void remove_by_id_of_an_evicted_transaction_keeps_the_others() {
+        recentTransactionKeys.add(createTransaction(1L, "AAA"));
+        recentTransactionKeys.add(createTransaction(2L, "BBB"));
+        recentTransactionKeys.add(createTransaction(3L, "CCC"));
+        assertThat(recentTransactionKeys.get("AAA")).isEmpty();
+
+        recentTransactionKeys.remove(1L);
+
+        assertThat(recentTransactionKeys.get("BBB")).isPresent();
+        assertThat(recentTransactionKeys.get("CCC")).isPresent();
+    }
+
+    @Test
+    public void remove_by_id_of_a_replaced_transaction_keeps_the_new_one() {
+        recentTransactionKeys.add(createTransaction(1L, "AAA"));
+        recentTransactionKeys.add(createTransaction(2L, "AAA"));
+
+        recentTransactionKeys.remove(1L);
+
+        assertThat(recentTransactionKeys.get("AAA")).map(TransactionDTO::getId).contains(2L);
+    }
+
+    private TransactionDTO createTransaction(Long id, String transactionId) {
+        TransactionDTO transactionDTO = new TransactionDTO();
+        transactionDTO.setId(id);
+        transactionDTO.setTransactionId(transactionId);
+        return transactionDTO;
+    }
+}
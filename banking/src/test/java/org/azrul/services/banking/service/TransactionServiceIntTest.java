@@ -0,0 +1,132 @@
+package org.azrul.services.banking.service;
+
+import org.azrul.services.banking.BankingApp;
+import org.azrul.services.banking.domain.Customer;
+import org.azrul.services.banking.domain.ProductAccount;
+import org.azrul.services.banking.domain.Transaction;
+import org.azrul.services.banking.service.dto.TransactionDTO;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import java.math.BigDecimal;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Test class for the TransactionService, checking the SQL statements run through the Hibernate statistics.
+ *
+ * @see TransactionService
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = BankingApp.class)
+@Transactional
+public class TransactionServiceIntTest {
+
+    @Autowired
+    private TransactionService transactionService;
+
+    @Autowired
+    private EntityManager em;
+
+    private Statistics statistics;
+
+    private Page<TransactionDTO> page;
+
+    @Before
+    public void init() {
+        statistics = em.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @Test
+    public void findAll_runs_a_constant_number_of_statements() {
+        assertThat(countStatementsOfPage(createTransactions(5), 5)).isLessThanOrEqualTo(2);
+        assertThat(countStatementsOfPage(createTransactions(50), 50)).isLessThanOrEqualTo(2);
+    }
+
+    @Test
+    public void findAll_does_not_load_accounts_nor_customers() {
+        int transactions = createTransactions(20);
+
+        countStatementsOfPage(transactions, 20);
+
+        // Only the transactions are loaded, the mapper reads the account ids from the lazy associations
+        assertThat(statistics.getEntityLoadCount()).isEqualTo(page.getNumberOfElements());
+    }
+
+    @Test
+    public void export_streams_the_transactions_of_the_period_by_time() {
+        ZonedDateTime now = ZonedDateTime.now();
+        createTransactions(3);
+        ProductAccount account = new ProductAccount().accountNumber("EXPORT");
+        em.persist(account);
+        em.persist(new Transaction().transactionId("EXPORT-2").amount(BigDecimal.ONE).time(now.plusHours(2)).source(account));
+        em.persist(new Transaction().transactionId("EXPORT-1").amount(BigDecimal.ONE).time(now.plusHours(1)).target(account));
+        em.persist(new Transaction().transactionId("EXPORT-3").amount(BigDecimal.ONE).time(now.plusHours(3)).target(account));
+        em.flush();
+
+        List<TransactionDTO> exported = new ArrayList<>();
+        long count = transactionService.export(account.getId(), now, now.plusHours(3), exported::add);
+
+        assertThat(count).isEqualTo(2);
+        assertThat(exported).extracting(TransactionDTO::getTransactionId).containsExactly("EXPORT-1", "EXPORT-2");
+
+        exported.clear();
+        transactionService.export(null, now.minusMinutes(1), now.plusHours(4), exported::add);
+
+        assertThat(exported).extracting(TransactionDTO::getTransactionId).contains("EXPORT-1", "EXPORT-2", "EXPORT-3");
+        assertThat(exported).extracting(TransactionDTO::getTime).isSorted();
+    }
+
+    /**
+     * Create transactions, each between 2 new accounts of a new customer.
+     *
+     * @return the number of transactions in the database
+     */
+    private int createTransactions(int count) {
+        for (int i = 0; i < count; i++) {
+            Customer customer = new Customer().cifNumber("CIF-" + i);
+            em.persist(customer);
+            ProductAccount source = new ProductAccount().accountNumber("SOURCE-" + i).customer(customer);
+            ProductAccount target = new ProductAccount().accountNumber("TARGET-" + i).customer(customer);
+            em.persist(source);
+            em.persist(target);
+            em.persist(new Transaction().amount(BigDecimal.TEN).time(ZonedDateTime.now()).source(source).target(target));
+        }
+        em.flush();
+        return ((Number) em.createQuery("select count(transaction) from Transaction transaction").getSingleResult())
+            .intValue();
+    }
+
+    /**
+     * Read the last page of transactions with an empty persistence context, and count the statements run.
+     */
+    private long countStatementsOfPage(int transactions, int size) {
+        em.clear();
+        statistics.clear();
+
+        page = transactionService.findAll(
+            PageRequest.of((transactions - 1) / size, size, Sort.by("id")));
+
+        assertThat(page.getContent()).isNotEmpty();
+        assertThat(page.getContent()).allSatisfy(transactionDTO -> {
+            assertThat(transactionDTO.getSourceId()).isNotNull();
+            assertThat(transactionDTO.getTargetId()).isNotNull();
+        });
+        return statistics.getPrepareStatementCount();
+    }
+}
@@ -0,0 +1,108 @@
+package org.azrul.services.banking.service;
+
+import org.azrul.services.banking.BankingApp;
+import org.azrul.services.banking.domain.enumeration.Currency;
+import org.azrul.services.banking.service.dto.TransactionDTO;
+import org.azrul.services.banking.service.dto.TransactionTotalDTO;
+
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+/**
+ * Test class for the TransactionTotalService, on days long past so that the other tests do not interfere.
+ *
+ * @see TransactionTotalService
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = BankingApp.class)
+public class TransactionTotalServiceIntTest {
+
+    private static final LocalDate DAY = LocalDate.of(2001, 2, 3);
+
+    @Autowired
+    private TransactionTotalService transactionTotalService;
+
+    @Autowired
+    private TransactionService transactionService;
+
+    private final List<Long> committed = new ArrayList<>();
+
+    @After
+    public void cleanup() {
+        if (!committed.isEmpty()) {
+            committed.forEach(transactionService::delete);
+            transactionTotalService.rebuild(DAY, DAY.plusDays(2));
+        }
+    }
+
+    @Test
+    @Transactional
+    public void totals_follow_the_saved_updated_and_deleted_transactions() {
+        save(DAY, Currency.MYR, "TOTALS-A", "10.00");
+        TransactionDTO updated = save(DAY, Currency.MYR, "TOTALS-A", "20.00");
+        TransactionDTO deleted = save(DAY, Currency.MYR, "TOTALS-A", "40.00");
+        save(DAY, Currency.USD, "TOTALS-A", "1.50");
+        save(DAY.plusDays(1), Currency.MYR, "TOTALS-A", "5.00");
+
+        updated.setAmount(new BigDecimal("25.00"));
+        transactionService.save(updated);
+        transactionService.delete(deleted.getId());
+
+        assertThat(transactionTotalService.findTotals(DAY, DAY.plusDays(2), true))
+            .extracting(TransactionTotalDTO::getDate, TransactionTotalDTO::getCurrency,
+                total -> total.getTotalAmount().stripTrailingZeros(), TransactionTotalDTO::getTransactionCount)
+            .containsExactly(
+                tuple(DAY, Currency.MYR, new BigDecimal("35"), 2L),
+                tuple(DAY, Currency.USD, new BigDecimal("1.5"), 1L),
+                tuple(DAY.plusDays(1), Currency.MYR, new BigDecimal("5"), 1L));
+        assertThat(transactionTotalService.findTotals(DAY, DAY.plusDays(2), false))
+            .extracting(TransactionTotalDTO::getDate, TransactionTotalDTO::getCurrency,
+                total -> total.getTotalAmount().stripTrailingZeros(), TransactionTotalDTO::getTransactionCount)
+            .containsExactly(
+                tuple(null, Currency.MYR, new BigDecimal("40"), 3L),
+                tuple(null, Currency.USD, new BigDecimal("1.5"), 1L));
+    }
+
+    @Test
+    public void rebuild_recomputes_the_totals_from_the_transactions() {
+        committed.add(save(DAY, Currency.SGD, "TOTALS-B", "3.00").getId());
+        committed.add(save(DAY, Currency.SGD, "TOTALS-B", "4.00").getId());
+        committed.add(save(DAY.plusDays(1), null, null, "7.00").getId());
+        List<TransactionTotalDTO> incremental = transactionTotalService.findTotals(DAY, DAY.plusDays(2), true);
+
+        long transactions = transactionTotalService.rebuild(DAY, DAY.plusDays(2));
+
+        assertThat(transactions).isEqualTo(3);
+        List<TransactionTotalDTO> rebuilt = transactionTotalService.findTotals(DAY, DAY.plusDays(2), true);
+        assertThat(rebuilt).isEqualTo(incremental);
+        assertThat(rebuilt)
+            .extracting(TransactionTotalDTO::getCurrency, TransactionTotalDTO::getTransactionType,
+                total -> total.getTotalAmount().stripTrailingZeros(), TransactionTotalDTO::getTransactionCount)
+            .containsExactly(
+                tuple(Currency.SGD, "TOTALS-B", new BigDecimal("7"), 2L),
+                tuple(null, null, new BigDecimal("7"), 1L));
+    }
+
+    private TransactionDTO save(LocalDate date, Currency currency, String transactionType, String amount) {
+        TransactionDTO transactionDTO = new TransactionDTO();
+        transactionDTO.setTime(date.atTime(12, 0).atZone(ZoneOffset.UTC));
+        transactionDTO.setCurrency(currency);
+        transactionDTO.setTransactionType(transactionType);
+        transactionDTO.setAmount(new BigDecimal(amount));
+        return transactionService.save(transactionDTO);
+    }
+}
@@ -0,0 +1,108 @@
+package org.azrul.services.banking.service;
+
+import org.azrul.services.banking.config.ApplicationProperties;
+import org.azrul.services.banking.repository.TransactionRepository;
+
+import com.codahale.metrics.MetricRegistry;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.context.ApplicationContext;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Test class for the TransactionVelocity windows.
+ *
+ * @see TransactionVelocity
+ */
+public class TransactionVelocityUnitTest {
+
+    private static final Long ACCOUNT = 1L;
+
+    /**
+     * A time on an hour boundary, so that the buckets of all the windows start there.
+     */
+    private static final long T0 = 1_550_000_000_000L / 3_600_000L * 3_600_000L;
+
+    private ApplicationProperties applicationProperties;
+
+    private TransactionVelocity transactionVelocity;
+
+    @Before
+    public void setup() {
+        applicationProperties = new ApplicationProperties();
+        transactionVelocity = new TransactionVelocity(applicationProperties, mock(TransactionRepository.class),
+            mock(PlatformTransactionManager.class), new MetricRegistry(), mock(ApplicationContext.class));
+    }
+
+    @Test
+    public void windows_count_and_sum_the_recent_transactions() {
+        transactionVelocity.record(ACCOUNT, new BigDecimal("10.00"), T0);
+        transactionVelocity.record(ACCOUNT, new BigDecimal("2.50"), T0 + 30_000L);
+        transactionVelocity.record(ACCOUNT, new BigDecimal("1.00"), T0 + 2 * 3_600_000L);
+
+        assertThat(transactionVelocity.count(ACCOUNT, "minute", T0 + 30_000L)).isEqualTo(2);
+        assertThat(transactionVelocity.sum(ACCOUNT, "minute", T0 + 30_000L)).isEqualByComparingTo("12.50");
+
+        long later = T0 + 2 * 3_600_000L + 1_000L;
+        assertThat(transactionVelocity.count(ACCOUNT, "minute", later)).isEqualTo(1);
+        assertThat(transactionVelocity.count(ACCOUNT, "hour", later)).isEqualTo(1);
+        assertThat(transactionVelocity.count(ACCOUNT, "day", later)).isEqualTo(3);
+        assertThat(transactionVelocity.sum(ACCOUNT, "day", later)).isEqualByComparingTo("13.50");
+
+        long nextDay = T0 + 25 * 3_600_000L;
+        assertThat(transactionVelocity.count(ACCOUNT, "day", nextDay)).isEqualTo(1);
+        assertThat(transactionVelocity.count(2L, "day", nextDay)).isEqualTo(0);
+    }
+
+    @Test
+    public void tryRecord_rejects_the_transactions_exceeding_a_limit() {
+        applicationProperties.getVelocity().getMinute().setMaxCount(2);
+        applicationProperties.getVelocity().getDay().setMaxAmount(new BigDecimal("100.00"));
+
+        assertThat(transactionVelocity.tryRecord(ACCOUNT, new BigDecimal("40.00"), T0)).isEmpty();
+        assertThat(transactionVelocity.tryRecord(ACCOUNT, new BigDecimal("40.00"), T0 + 1_000L)).isEmpty();
+        assertThat(transactionVelocity.tryRecord(ACCOUNT, new BigDecimal("1.00"), T0 + 2_000L)).contains("minute");
+
+        // A minute later, the count is fine but the amount is not
+        assertThat(transactionVelocity.tryRecord(ACCOUNT, new BigDecimal("20.01"), T0 + 70_000L)).contains("day");
+        assertThat(transactionVelocity.tryRecord(ACCOUNT, new BigDecimal("20.00"), T0 + 70_000L)).isEmpty();
+        assertThat(transactionVelocity.count(ACCOUNT, "day", T0 + 70_000L)).isEqualTo(3);
+    }
+
+    @Test
+    public void remove_undoes_a_recorded_transaction() {
+        applicationProperties.getVelocity().getHour().setMaxCount(1);
+
+        assertThat(transactionVelocity.tryRecord(ACCOUNT, new BigDecimal("5.00"), T0)).isEmpty();
+        transactionVelocity.remove(ACCOUNT, new BigDecimal("5.00"), T0);
+
+        assertThat(transactionVelocity.sum(ACCOUNT, "hour", T0)).isEqualByComparingTo("0");
+        assertThat(transactionVelocity.tryRecord(ACCOUNT, new BigDecimal("5.00"), T0 + 1_000L)).isEmpty();
+    }
+
+    @Test
+    public void tryRecordUnlessRolledBack_removes_the_transactions_rolled_back() {
+        applicationProperties.getVelocity().getMinute().setMaxCount(1);
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            assertThat(transactionVelocity.tryRecordUnlessRolledBack(ACCOUNT, new BigDecimal("5.00"), T0)).isEmpty();
+            assertThat(transactionVelocity.tryRecordUnlessRolledBack(ACCOUNT, new BigDecimal("5.00"), T0 + 1_000L))
+                .contains("minute");
+            for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+                synchronization.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK);
+            }
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        assertThat(transactionVelocity.count(ACCOUNT, "minute", T0 + 2_000L)).isEqualTo(0);
+        assertThat(transactionVelocity.tryRecord(ACCOUNT, new BigDecimal("5.00"), T0 + 2_000L)).isEmpty();
+    }
+}
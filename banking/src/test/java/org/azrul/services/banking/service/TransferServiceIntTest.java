@@ -0,0 +1,196 @@
+package org.azrul.services.banking.service;
+
+import org.azrul.services.banking.BankingApp;
+import org.azrul.services.banking.domain.ProductAccount;
+import org.azrul.services.banking.repository.ProductAccountRepository;
+import org.azrul.services.banking.repository.TransactionRepository;
+import org.azrul.services.banking.service.dto.TransactionDTO;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Pageable;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+/**
+ * Test class for the TransferService.
+ * <p>
+ * This test is not transactional, as the transfers are committed concurrently from several threads.
+ *
+ * @see TransferService
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = BankingApp.class)
+public class TransferServiceIntTest {
+
+    private static final int ACCOUNTS = 4;
+
+    private static final int THREADS = 8;
+
+    private static final int TRANSFERS_PER_THREAD = 100;
+
+    private static final BigDecimal INITIAL_BALANCE = new BigDecimal("1000.00");
+
+    @Autowired
+    private TransferService transferService;
+
+    @Autowired
+    private ProductAccountRepository productAccountRepository;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private TransactionService transactionService;
+
+    private final List<Long> accountIds = new ArrayList<>();
+
+    @Before
+    public void init() {
+        for (int i = 0; i < ACCOUNTS; i++) {
+            ProductAccount account = new ProductAccount()
+                .accountNumber("TRANSFER-" + i)
+                .balance(INITIAL_BALANCE);
+            accountIds.add(productAccountRepository.saveAndFlush(account).getId());
+        }
+    }
+
+    @After
+    public void destroy() {
+        for (TransactionDTO transactionDTO : findTransfers()) {
+            transactionRepository.deleteById(transactionDTO.getId());
+        }
+        productAccountRepository.deleteAll(productAccountRepository.findAllById(accountIds));
+    }
+
+    @Test
+    public void transfer_moves_money_between_accounts() {
+        TransactionDTO result = transferService.transfer(createTransfer(accountIds.get(1), accountIds.get(0), "250.00"));
+
+        assertThat(result.getId()).isNotNull();
+        assertThat(result.getTransactionType()).isEqualTo("TRANSFER");
+        assertThat(getBalance(accountIds.get(1))).isEqualByComparingTo("750.00");
+        assertThat(getBalance(accountIds.get(0))).isEqualByComparingTo("1250.00");
+    }
+
+    @Test
+    public void transfer_rejects_insufficient_balance_without_changes() {
+        Throwable thrown = catchThrowable(() ->
+            transferService.transfer(createTransfer(accountIds.get(1), accountIds.get(0), "1000.01")));
+
+        assertThat(thrown).isInstanceOf(TransferRejectedException.class);
+        assertThat(((TransferRejectedException) thrown).getErrorKey()).isEqualTo("insufficientbalance");
+        // The credit of the target, made first as it has the lower id, was rolled back
+        assertThat(getBalance(accountIds.get(0))).isEqualByComparingTo(INITIAL_BALANCE);
+        assertThat(getBalance(accountIds.get(1))).isEqualByComparingTo(INITIAL_BALANCE);
+    }
+
+    @Test
+    public void transfer_with_a_used_transactionId_is_rolled_back() {
+        TransactionDTO transfer = createTransfer(accountIds.get(1), accountIds.get(0), "250.00");
+        transfer.setTransactionId("TRANSFER-REPLAY");
+        transferService.transfer(transfer);
+
+        Throwable thrown = catchThrowable(() -> transferService.transfer(transfer));
+
+        assertThat(thrown).isInstanceOf(DataIntegrityViolationException.class);
+        assertThat(getBalance(accountIds.get(1))).isEqualByComparingTo("750.00");
+        assertThat(getBalance(accountIds.get(0))).isEqualByComparingTo("1250.00");
+    }
+
+    @Test
+    public void transfer_conserves_money_under_concurrency() throws Exception {
+        AtomicInteger posted = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < THREADS; i++) {
+                futures.add(executor.submit(() -> {
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    for (int j = 0; j < TRANSFERS_PER_THREAD; j++) {
+                        int source = random.nextInt(ACCOUNTS);
+                        int target = (source + 1 + random.nextInt(ACCOUNTS - 1)) % ACCOUNTS;
+                        // Amounts are large enough for some transfers to be rejected
+                        String amount = (1 + random.nextInt(300)) + ".25";
+                        try {
+                            transferService.transfer(createTransfer(accountIds.get(source), accountIds.get(target), amount));
+                            posted.incrementAndGet();
+                        } catch (TransferRejectedException e) {
+                            rejected.incrementAndGet();
+                        }
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(posted.get() + rejected.get()).isEqualTo(THREADS * TRANSFERS_PER_THREAD);
+        assertThat(posted.get()).isGreaterThan(0);
+
+        // Replay the recorded transactions: each balance must match them, and the total must be unchanged
+        Map<Long, BigDecimal> expectedBalances = new HashMap<>();
+        accountIds.forEach(id -> expectedBalances.put(id, INITIAL_BALANCE));
+        int recorded = 0;
+        for (TransactionDTO transactionDTO : findTransfers()) {
+            expectedBalances.merge(transactionDTO.getSourceId(), transactionDTO.getAmount().negate(), BigDecimal::add);
+            expectedBalances.merge(transactionDTO.getTargetId(), transactionDTO.getAmount(), BigDecimal::add);
+            recorded++;
+        }
+        assertThat(recorded).isEqualTo(posted.get());
+
+        BigDecimal total = BigDecimal.ZERO;
+        for (Long id : accountIds) {
+            BigDecimal balance = getBalance(id);
+            assertThat(balance).isGreaterThanOrEqualTo(BigDecimal.ZERO);
+            assertThat(balance).isEqualByComparingTo(expectedBalances.get(id));
+            total = total.add(balance);
+        }
+        assertThat(total).isEqualByComparingTo(INITIAL_BALANCE.multiply(BigDecimal.valueOf(ACCOUNTS)));
+    }
+
+    private TransactionDTO createTransfer(Long sourceId, Long targetId, String amount) {
+        TransactionDTO transactionDTO = new TransactionDTO();
+        transactionDTO.setSourceId(sourceId);
+        transactionDTO.setTargetId(targetId);
+        transactionDTO.setAmount(new BigDecimal(amount));
+        return transactionDTO;
+    }
+
+    /**
+     * The transactions between the accounts of this test.
+     */
+    private List<TransactionDTO> findTransfers() {
+        return transactionService.findAll(Pageable.unpaged()).getContent().stream()
+            .filter(transactionDTO -> accountIds.contains(transactionDTO.getSourceId()))
+            .collect(Collectors.toList());
+    }
+
+    private BigDecimal getBalance(Long accountId) {
+        return productAccountRepository.findById(accountId).get().getBalance();
+    }
+}
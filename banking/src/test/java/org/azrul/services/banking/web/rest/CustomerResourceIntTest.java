@@ -1,20 +1,26 @@
 package org.azrul.services.banking.web.rest;
 
 import org.azrul.services.banking.BankingApp;
+import org.azrul.services.banking.config.RequestExecutor;
 
 import org.azrul.services.banking.domain.Customer;
+import org.azrul.services.banking.domain.ProductAccount;
+import org.azrul.services.banking.domain.Transaction;
 import org.azrul.services.banking.repository.CustomerRepository;
 import org.azrul.services.banking.service.CustomerService;
 import org.azrul.services.banking.service.dto.CustomerDTO;
 import org.azrul.services.banking.service.mapper.CustomerMapper;
 import org.azrul.services.banking.web.rest.errors.ExceptionTranslator;
 
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.MockitoAnnotations;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.CacheManager;
 import org.springframework.data.web.PageableHandlerMethodArgumentResolver;
 import org.springframework.http.MediaType;
 import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
@@ -24,12 +30,16 @@ import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 import org.springframework.transaction.annotation.Transactional;
 
 import javax.persistence.EntityManager;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
 import java.util.List;
 
 
 import static org.azrul.services.banking.web.rest.TestUtil.createFormattingConversionService;
+import static org.azrul.services.banking.web.rest.TestUtil.performAsync;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.hamcrest.Matchers.hasItem;
+import static org.hamcrest.Matchers.hasSize;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
@@ -66,6 +76,9 @@ public class CustomerResourceIntTest {
     @Autowired
     private CustomerService customerService;
 
+    @Autowired
+    private RequestExecutor requestExecutor;
+
     @Autowired
     private MappingJackson2HttpMessageConverter jacksonMessageConverter;
 
@@ -78,6 +91,9 @@ public class CustomerResourceIntTest {
     @Autowired
     private EntityManager em;
 
+    @Autowired
+    private CacheManager cacheManager;
+
     private MockMvc restCustomerMockMvc;
 
     private Customer customer;
@@ -85,7 +101,7 @@ public class CustomerResourceIntTest {
     @Before
     public void setup() {
         MockitoAnnotations.initMocks(this);
-        final CustomerResource customerResource = new CustomerResource(customerService);
+        final CustomerResource customerResource = new CustomerResource(customerService, requestExecutor);
         this.restCustomerMockMvc = MockMvcBuilders.standaloneSetup(customerResource)
             .setCustomArgumentResolvers(pageableArgumentResolver)
             .setControllerAdvice(exceptionTranslator)
@@ -111,6 +127,7 @@ public class CustomerResourceIntTest {
 
     @Before
     public void initTest() {
+        cacheManager.getCache(CustomerService.LOOKUP_CACHE).clear();
         customer = createEntity(em);
     }
 
@@ -121,7 +138,7 @@ public class CustomerResourceIntTest {
 
         // Create the Customer
         CustomerDTO customerDTO = customerMapper.toDto(customer);
-        restCustomerMockMvc.perform(post("/api/customers")
+        performAsync(restCustomerMockMvc, post("/api/customers")
             .contentType(TestUtil.APPLICATION_JSON_UTF8)
             .content(TestUtil.convertObjectToJsonBytes(customerDTO)))
             .andExpect(status().isCreated());
@@ -147,7 +164,7 @@ public class CustomerResourceIntTest {
         CustomerDTO customerDTO = customerMapper.toDto(customer);
 
         // An entity with an existing ID cannot be created, so this API call must fail
-        restCustomerMockMvc.perform(post("/api/customers")
+        performAsync(restCustomerMockMvc, post("/api/customers")
             .contentType(TestUtil.APPLICATION_JSON_UTF8)
             .content(TestUtil.convertObjectToJsonBytes(customerDTO)))
             .andExpect(status().isBadRequest());
@@ -164,7 +181,7 @@ public class CustomerResourceIntTest {
         customerRepository.saveAndFlush(customer);
 
         // Get all the customerList
-        restCustomerMockMvc.perform(get("/api/customers?sort=id,desc"))
+        performAsync(restCustomerMockMvc, get("/api/customers?sort=id,desc"))
             .andExpect(status().isOk())
             .andExpect(content().contentType(MediaType.APPLICATION_JSON_UTF8_VALUE))
             .andExpect(jsonPath("$.[*].id").value(hasItem(customer.getId().intValue())))
@@ -182,7 +199,7 @@ public class CustomerResourceIntTest {
         customerRepository.saveAndFlush(customer);
 
         // Get the customer
-        restCustomerMockMvc.perform(get("/api/customers/{id}", customer.getId()))
+        performAsync(restCustomerMockMvc, get("/api/customers/{id}", customer.getId()))
             .andExpect(status().isOk())
             .andExpect(content().contentType(MediaType.APPLICATION_JSON_UTF8_VALUE))
             .andExpect(jsonPath("$.id").value(customer.getId().intValue()))
@@ -193,11 +210,113 @@ public class CustomerResourceIntTest {
             .andExpect(jsonPath("$.phoneNumber").value(DEFAULT_PHONE_NUMBER.toString()));
     }
 
+    @Test
+    @Transactional
+    public void lookupCustomerByCifNumber() throws Exception {
+        // Initialize the database
+        customerRepository.saveAndFlush(customer);
+
+        performAsync(restCustomerMockMvc, get("/api/customers/_lookup?cifNumber={cifNumber}", DEFAULT_CIF_NUMBER))
+            .andExpect(status().isOk())
+            .andExpect(content().contentType(MediaType.APPLICATION_JSON_UTF8_VALUE))
+            .andExpect(jsonPath("$", hasSize(1)))
+            .andExpect(jsonPath("$.[0].id").value(customer.getId().intValue()));
+
+        performAsync(restCustomerMockMvc, get("/api/customers/_lookup?cifNumber={cifNumber}", UPDATED_CIF_NUMBER))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$", hasSize(0)));
+    }
+
+    @Test
+    @Transactional
+    public void lookupCustomerByNormalizedIcAndPhoneNumber() throws Exception {
+        // Initialize the database
+        customerRepository.saveAndFlush(customer.icNumber("880101-14-5566").phoneNumber("012-345 6789"));
+
+        performAsync(restCustomerMockMvc, get("/api/customers/_lookup?icNumber={icNumber}", "880101145566"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.[*].id").value(hasItem(customer.getId().intValue())));
+        performAsync(restCustomerMockMvc, get("/api/customers/_lookup?phoneNumber={phoneNumber}", "+60123456789"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.[*].id").value(hasItem(customer.getId().intValue())));
+    }
+
+    @Test
+    @Transactional
+    public void lookupCustomerEvictsTheCacheOnUpdate() throws Exception {
+        CustomerDTO customerDTO = customerService.save(customerMapper.toDto(customer));
+        assertThat(customerService.findByCifNumber(DEFAULT_CIF_NUMBER)).hasSize(1);
+
+        customerDTO.setCifNumber(UPDATED_CIF_NUMBER);
+        customerService.save(customerDTO);
+
+        assertThat(customerService.findByCifNumber(DEFAULT_CIF_NUMBER)).isEmpty();
+        assertThat(customerService.findByCifNumber(UPDATED_CIF_NUMBER)).extracting(CustomerDTO::getId)
+            .containsExactly(customerDTO.getId());
+    }
+
+    @Test
+    @Transactional
+    public void lookupCustomerNeedsExactlyOneCriterion() throws Exception {
+        performAsync(restCustomerMockMvc, get("/api/customers/_lookup"))
+            .andExpect(status().isBadRequest());
+        performAsync(restCustomerMockMvc, get("/api/customers/_lookup?cifNumber={cifNumber}&icNumber={icNumber}",
+            DEFAULT_CIF_NUMBER, DEFAULT_IC_NUMBER))
+            .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @Transactional
+    public void getCustomerOverview() throws Exception {
+        // Initialize the database
+        em.persist(customer);
+        ProductAccount current = ProductAccountResourceIntTest.createEntity(em).customer(customer);
+        ProductAccount savings = ProductAccountResourceIntTest.createEntity(em).customer(customer);
+        em.persist(current);
+        em.persist(savings);
+        ZonedDateTime time = ZonedDateTime.now(ZoneOffset.UTC).withNano(0);
+        for (int i = 0; i < 3; i++) {
+            em.persist(TransactionResourceIntTest.createEntity(em).transactionId("OVERVIEW-" + i)
+                .time(time.plusMinutes(i)).source(current).target(savings));
+        }
+        em.flush();
+        em.clear();
+
+        Statistics statistics = em.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        performAsync(restCustomerMockMvc, get("/api/customers/{id}/overview?transactions=2", customer.getId()))
+            .andExpect(status().isOk())
+            .andExpect(content().contentType(MediaType.APPLICATION_JSON_UTF8_VALUE))
+            .andExpect(jsonPath("$.customer.id").value(customer.getId().intValue()))
+            .andExpect(jsonPath("$.accounts", hasSize(2)))
+            .andExpect(jsonPath("$.accounts[0].account.id").value(current.getId().intValue()))
+            .andExpect(jsonPath("$.accounts[0].account.balance").value(current.getBalance().intValue()))
+            .andExpect(jsonPath("$.accounts[0].recentTransactions", hasSize(2)))
+            .andExpect(jsonPath("$.accounts[0].recentTransactions[0].transactionId").value("OVERVIEW-2"))
+            .andExpect(jsonPath("$.accounts[0].recentTransactions[0].direction").value("DEBIT"))
+            .andExpect(jsonPath("$.accounts[0].recentTransactions[0].counterpartyId").value(savings.getId().intValue()))
+            .andExpect(jsonPath("$.accounts[0].recentTransactions[1].transactionId").value("OVERVIEW-1"))
+            .andExpect(jsonPath("$.accounts[1].account.id").value(savings.getId().intValue()))
+            .andExpect(jsonPath("$.accounts[1].recentTransactions[0].transactionId").value("OVERVIEW-2"))
+            .andExpect(jsonPath("$.accounts[1].recentTransactions[0].direction").value("CREDIT"));
+        // The customer, the accounts and the transactions, whatever the number of accounts
+        assertThat(statistics.getPrepareStatementCount()).isLessThanOrEqualTo(3);
+    }
+
+    @Test
+    @Transactional
+    public void getNonExistingCustomerOverview() throws Exception {
+        performAsync(restCustomerMockMvc, get("/api/customers/{id}/overview", Long.MAX_VALUE))
+            .andExpect(status().isNotFound());
+        performAsync(restCustomerMockMvc, get("/api/customers/{id}/overview?transactions=1000", Long.MAX_VALUE))
+            .andExpect(status().isBadRequest());
+    }
+
     @Test
     @Transactional
     public void getNonExistingCustomer() throws Exception {
         // Get the customer
-        restCustomerMockMvc.perform(get("/api/customers/{id}", Long.MAX_VALUE))
+        performAsync(restCustomerMockMvc, get("/api/customers/{id}", Long.MAX_VALUE))
             .andExpect(status().isNotFound());
     }
 
@@ -221,7 +340,7 @@ public class CustomerResourceIntTest {
             .phoneNumber(UPDATED_PHONE_NUMBER);
         CustomerDTO customerDTO = customerMapper.toDto(updatedCustomer);
 
-        restCustomerMockMvc.perform(put("/api/customers")
+        performAsync(restCustomerMockMvc, put("/api/customers")
             .contentType(TestUtil.APPLICATION_JSON_UTF8)
             .content(TestUtil.convertObjectToJsonBytes(customerDTO)))
             .andExpect(status().isOk());
@@ -246,7 +365,7 @@ public class CustomerResourceIntTest {
         CustomerDTO customerDTO = customerMapper.toDto(customer);
 
         // If the entity doesn't have an ID, it will throw BadRequestAlertException
-        restCustomerMockMvc.perform(put("/api/customers")
+        performAsync(restCustomerMockMvc, put("/api/customers")
             .contentType(TestUtil.APPLICATION_JSON_UTF8)
             .content(TestUtil.convertObjectToJsonBytes(customerDTO)))
             .andExpect(status().isBadRequest());
@@ -265,7 +384,7 @@ public class CustomerResourceIntTest {
         int databaseSizeBeforeDelete = customerRepository.findAll().size();
 
         // Get the customer
-        restCustomerMockMvc.perform(delete("/api/customers/{id}", customer.getId())
+        performAsync(restCustomerMockMvc, delete("/api/customers/{id}", customer.getId())
             .accept(TestUtil.APPLICATION_JSON_UTF8))
             .andExpect(status().isOk());
 
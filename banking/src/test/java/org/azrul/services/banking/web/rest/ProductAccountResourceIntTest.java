@@ -1,6 +1,7 @@
 package org.azrul.services.banking.web.rest;
 
 import org.azrul.services.banking.BankingApp;
+import org.azrul.services.banking.config.RequestExecutor;
 
 import org.azrul.services.banking.domain.ProductAccount;
 import org.azrul.services.banking.repository.ProductAccountRepository;
@@ -34,6 +35,7 @@ import java.util.List;
 
 import static org.azrul.services.banking.web.rest.TestUtil.sameInstant;
 import static org.azrul.services.banking.web.rest.TestUtil.createFormattingConversionService;
+import static org.azrul.services.banking.web.rest.TestUtil.performAsync;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.hamcrest.Matchers.hasItem;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
@@ -72,6 +74,9 @@ public class ProductAccountResourceIntTest {
     @Autowired
     private ProductAccountService productAccountService;
 
+    @Autowired
+    private RequestExecutor requestExecutor;
+
     @Autowired
     private MappingJackson2HttpMessageConverter jacksonMessageConverter;
 
@@ -91,7 +96,7 @@ public class ProductAccountResourceIntTest {
     @Before
     public void setup() {
         MockitoAnnotations.initMocks(this);
-        final ProductAccountResource productAccountResource = new ProductAccountResource(productAccountService);
+        final ProductAccountResource productAccountResource = new ProductAccountResource(productAccountService, requestExecutor);
         this.restProductAccountMockMvc = MockMvcBuilders.standaloneSetup(productAccountResource)
             .setCustomArgumentResolvers(pageableArgumentResolver)
             .setControllerAdvice(exceptionTranslator)
@@ -127,7 +132,7 @@ public class ProductAccountResourceIntTest {
 
         // Create the ProductAccount
         ProductAccountDTO productAccountDTO = productAccountMapper.toDto(productAccount);
-        restProductAccountMockMvc.perform(post("/api/product-accounts")
+        performAsync(restProductAccountMockMvc, post("/api/product-accounts")
             .contentType(TestUtil.APPLICATION_JSON_UTF8)
             .content(TestUtil.convertObjectToJsonBytes(productAccountDTO)))
             .andExpect(status().isCreated());
@@ -153,7 +158,7 @@ public class ProductAccountResourceIntTest {
         ProductAccountDTO productAccountDTO = productAccountMapper.toDto(productAccount);
 
         // An entity with an existing ID cannot be created, so this API call must fail
-        restProductAccountMockMvc.perform(post("/api/product-accounts")
+        performAsync(restProductAccountMockMvc, post("/api/product-accounts")
             .contentType(TestUtil.APPLICATION_JSON_UTF8)
             .content(TestUtil.convertObjectToJsonBytes(productAccountDTO)))
             .andExpect(status().isBadRequest());
@@ -170,7 +175,7 @@ public class ProductAccountResourceIntTest {
         productAccountRepository.saveAndFlush(productAccount);
 
         // Get all the productAccountList
-        restProductAccountMockMvc.perform(get("/api/product-accounts?sort=id,desc"))
+        performAsync(restProductAccountMockMvc, get("/api/product-accounts?sort=id,desc"))
             .andExpect(status().isOk())
             .andExpect(content().contentType(MediaType.APPLICATION_JSON_UTF8_VALUE))
             .andExpect(jsonPath("$.[*].id").value(hasItem(productAccount.getId().intValue())))
@@ -188,7 +193,7 @@ public class ProductAccountResourceIntTest {
         productAccountRepository.saveAndFlush(productAccount);
 
         // Get the productAccount
-        restProductAccountMockMvc.perform(get("/api/product-accounts/{id}", productAccount.getId()))
+        performAsync(restProductAccountMockMvc, get("/api/product-accounts/{id}", productAccount.getId()))
             .andExpect(status().isOk())
             .andExpect(content().contentType(MediaType.APPLICATION_JSON_UTF8_VALUE))
             .andExpect(jsonPath("$.id").value(productAccount.getId().intValue()))
@@ -203,7 +208,7 @@ public class ProductAccountResourceIntTest {
     @Transactional
     public void getNonExistingProductAccount() throws Exception {
         // Get the productAccount
-        restProductAccountMockMvc.perform(get("/api/product-accounts/{id}", Long.MAX_VALUE))
+        performAsync(restProductAccountMockMvc, get("/api/product-accounts/{id}", Long.MAX_VALUE))
             .andExpect(status().isNotFound());
     }
 
@@ -227,7 +232,7 @@ public class ProductAccountResourceIntTest {
             .balance(UPDATED_BALANCE);
         ProductAccountDTO productAccountDTO = productAccountMapper.toDto(updatedProductAccount);
 
-        restProductAccountMockMvc.perform(put("/api/product-accounts")
+        performAsync(restProductAccountMockMvc, put("/api/product-accounts")
             .contentType(TestUtil.APPLICATION_JSON_UTF8)
             .content(TestUtil.convertObjectToJsonBytes(productAccountDTO)))
             .andExpect(status().isOk());
@@ -252,7 +257,7 @@ public class ProductAccountResourceIntTest {
         ProductAccountDTO productAccountDTO = productAccountMapper.toDto(productAccount);
 
         // If the entity doesn't have an ID, it will throw BadRequestAlertException
-        restProductAccountMockMvc.perform(put("/api/product-accounts")
+        performAsync(restProductAccountMockMvc, put("/api/product-accounts")
             .contentType(TestUtil.APPLICATION_JSON_UTF8)
             .content(TestUtil.convertObjectToJsonBytes(productAccountDTO)))
             .andExpect(status().isBadRequest());
@@ -271,7 +276,7 @@ public class ProductAccountResourceIntTest {
         int databaseSizeBeforeDelete = productAccountRepository.findAll().size();
 
         // Get the productAccount
-        restProductAccountMockMvc.perform(delete("/api/product-accounts/{id}", productAccount.getId())
+        performAsync(restProductAccountMockMvc, delete("/api/product-accounts/{id}", productAccount.getId())
             .accept(TestUtil.APPLICATION_JSON_UTF8))
             .andExpect(status().isOk());
 
@@ -0,0 +1,156 @@
+package org.azrul.services.banking.web.rest;
+
+import org.azrul.services.banking.BankingApp;
+
+import org.azrul.services.banking.config.ApplicationProperties;
+import org.azrul.services.banking.domain.Transaction;
+import org.azrul.services.banking.repository.TransactionRepository;
+import org.azrul.services.banking.service.RecentTransactionKeys;
+import org.azrul.services.banking.service.TransactionService;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.everyItem;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+/**
+ * Test class for the TransactionBulkResource REST controller.
+ *
+ * @see TransactionBulkResource
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = BankingApp.class)
+public class TransactionBulkResourceIntTest {
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private TransactionService transactionService;
+
+    @Autowired
+    private RecentTransactionKeys recentTransactionKeys;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private MockMvc restTransactionBulkMockMvc;
+
+    @Before
+    public void setup() {
+        ApplicationProperties applicationProperties = new ApplicationProperties();
+        applicationProperties.getBulkImport().setChunkSize(2);
+        final TransactionBulkResource transactionBulkResource =
+            new TransactionBulkResource(transactionService, recentTransactionKeys, objectMapper, applicationProperties);
+        this.restTransactionBulkMockMvc = MockMvcBuilders.standaloneSetup(transactionBulkResource).build();
+    }
+
+    @Test
+    @Transactional
+    public void createTransactionsFromJsonArray() throws Exception {
+        int databaseSizeBeforeCreate = transactionRepository.findAll().size();
+
+        restTransactionBulkMockMvc.perform(post("/api/transactions/bulk")
+            .contentType(TestUtil.APPLICATION_JSON_UTF8)
+            .content("[{\"transactionId\":\"BULK-1\",\"amount\":10,\"currency\":\"USD\"}," +
+                "{\"id\":1,\"transactionId\":\"BULK-2\"}," +
+                "{\"transactionId\":\"BULK-3\",\"amount\":30,\"currency\":\"MYR\"}]"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.length()").value(3))
+            // The invalid item is reported as soon as it is read, the others once their chunk is saved
+            .andExpect(jsonPath("$[0].index").value(1))
+            .andExpect(jsonPath("$[0].status").value(400))
+            .andExpect(jsonPath("$[0].error").value("idexists"))
+            .andExpect(jsonPath("$[1].index").value(0))
+            .andExpect(jsonPath("$[1].status").value(201))
+            .andExpect(jsonPath("$[1].id").value(notNullValue()))
+            .andExpect(jsonPath("$[2].index").value(2))
+            .andExpect(jsonPath("$[2].status").value(201));
+
+        List<Transaction> transactionList = transactionRepository.findAll();
+        assertThat(transactionList).hasSize(databaseSizeBeforeCreate + 2);
+        assertThat(transactionList).extracting(Transaction::getTransactionId).contains("BULK-1", "BULK-3");
+    }
+
+    @Test
+    @Transactional
+    public void createTransactionsFromNdjson() throws Exception {
+        int databaseSizeBeforeCreate = transactionRepository.findAll().size();
+
+        restTransactionBulkMockMvc.perform(post("/api/transactions/bulk")
+            .contentType(TransactionBulkResource.APPLICATION_NDJSON_VALUE)
+            .content("{\"transactionId\":\"BULK-1\",\"amount\":10}\n" +
+                "{\"transactionId\":\"BULK-2\",\"amount\":20}\n" +
+                "{\"transactionId\":\"BULK-3\",\"amount\":30}\n"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.length()").value(3))
+            .andExpect(jsonPath("$[*].status").value(everyItem(is(201))));
+
+        assertThat(transactionRepository.findAll()).hasSize(databaseSizeBeforeCreate + 3);
+    }
+
+    @Test
+    @Transactional
+    public void createTransactionsWithExistingTransactionIds() throws Exception {
+        // In the database but not in the recent transaction keys, as if created by another instance
+        Transaction existing = transactionRepository.saveAndFlush(new Transaction().transactionId("BULK-OLD"));
+        int databaseSizeBeforeCreate = transactionRepository.findAll().size();
+
+        restTransactionBulkMockMvc.perform(post("/api/transactions/bulk")
+            .contentType(TransactionBulkResource.APPLICATION_NDJSON_VALUE)
+            .content("{\"transactionId\":\"BULK-OLD\",\"amount\":10}\n" +
+                "{\"transactionId\":\"BULK-4\",\"amount\":20}\n" +
+                "{\"transactionId\":\"BULK-5\",\"amount\":30}\n" +
+                "{\"transactionId\":\"BULK-5\",\"amount\":30}\n"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.length()").value(4))
+            .andExpect(jsonPath("$[0].index").value(0))
+            .andExpect(jsonPath("$[0].status").value(200))
+            .andExpect(jsonPath("$[0].id").value(existing.getId().intValue()))
+            .andExpect(jsonPath("$[1].index").value(1))
+            .andExpect(jsonPath("$[1].status").value(201))
+            .andExpect(jsonPath("$[2].index").value(2))
+            .andExpect(jsonPath("$[2].status").value(201))
+            // Repeating an item of its chunk, answered with the id of that item
+            .andExpect(jsonPath("$[3].index").value(3))
+            .andExpect(jsonPath("$[3].status").value(200));
+
+        List<Transaction> transactionList = transactionRepository.findAll();
+        assertThat(transactionList).hasSize(databaseSizeBeforeCreate + 2);
+        assertThat(transactionList).extracting(Transaction::getTransactionId)
+            .containsOnlyOnce("BULK-OLD", "BULK-4", "BULK-5");
+    }
+
+    @Test
+    @Transactional
+    public void createTransactionsWithInvalidJson() throws Exception {
+        int databaseSizeBeforeCreate = transactionRepository.findAll().size();
+
+        restTransactionBulkMockMvc.perform(post("/api/transactions/bulk")
+            .contentType(TestUtil.APPLICATION_JSON_UTF8)
+            .content("[{\"transactionId\":\"BULK-1\",\"amount\":10},{\"amount\":"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.length()").value(2))
+            .andExpect(jsonPath("$[0].index").value(1))
+            .andExpect(jsonPath("$[0].error").value("invalidjson"))
+            .andExpect(jsonPath("$[1].index").value(0))
+            .andExpect(jsonPath("$[1].status").value(201));
+
+        assertThat(transactionRepository.findAll()).hasSize(databaseSizeBeforeCreate + 1);
+    }
+}
@@ -1,10 +1,15 @@
 package org.azrul.services.banking.web.rest;
 
 import org.azrul.services.banking.BankingApp;
+import org.azrul.services.banking.config.RequestExecutor;
+import org.azrul.services.banking.config.ApplicationProperties;
 
+import org.azrul.services.banking.domain.ProductAccount;
 import org.azrul.services.banking.domain.Transaction;
 import org.azrul.services.banking.repository.TransactionRepository;
+import org.azrul.services.banking.service.RecentTransactionKeys;
 import org.azrul.services.banking.service.TransactionService;
+import org.azrul.services.banking.service.TransactionVelocity;
 import org.azrul.services.banking.service.dto.TransactionDTO;
 import org.azrul.services.banking.service.mapper.TransactionMapper;
 import org.azrul.services.banking.web.rest.errors.ExceptionTranslator;
@@ -16,10 +21,12 @@ import org.mockito.MockitoAnnotations;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.data.web.PageableHandlerMethodArgumentResolver;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
 import org.springframework.test.context.junit4.SpringRunner;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -30,11 +37,15 @@ import java.time.ZonedDateTime;
 import java.time.ZoneOffset;
 import java.time.ZoneId;
 import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 
 import static org.azrul.services.banking.web.rest.TestUtil.sameInstant;
 import static org.azrul.services.banking.web.rest.TestUtil.createFormattingConversionService;
+import static org.azrul.services.banking.web.rest.TestUtil.performAsync;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.containsString;
 import static org.hamcrest.Matchers.hasItem;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
@@ -73,6 +84,18 @@ public class TransactionResourceIntTest {
     @Autowired
     private TransactionService transactionService;
 
+    @Autowired
+    private RecentTransactionKeys recentTransactionKeys;
+
+    @Autowired
+    private TransactionVelocity transactionVelocity;
+
+    @Autowired
+    private ApplicationProperties applicationProperties;
+
+    @Autowired
+    private RequestExecutor requestExecutor;
+
     @Autowired
     private MappingJackson2HttpMessageConverter jacksonMessageConverter;
 
@@ -92,7 +115,8 @@ public class TransactionResourceIntTest {
     @Before
     public void setup() {
         MockitoAnnotations.initMocks(this);
-        final TransactionResource transactionResource = new TransactionResource(transactionService);
+        final TransactionResource transactionResource = new TransactionResource(transactionService, recentTransactionKeys,
+            jacksonMessageConverter.getObjectMapper(), transactionVelocity, requestExecutor);
         this.restTransactionMockMvc = MockMvcBuilders.standaloneSetup(transactionResource)
             .setCustomArgumentResolvers(pageableArgumentResolver)
             .setControllerAdvice(exceptionTranslator)
@@ -128,7 +152,7 @@ public class TransactionResourceIntTest {
 
         // Create the Transaction
         TransactionDTO transactionDTO = transactionMapper.toDto(transaction);
-        restTransactionMockMvc.perform(post("/api/transactions")
+        performAsync(restTransactionMockMvc, post("/api/transactions")
             .contentType(TestUtil.APPLICATION_JSON_UTF8)
             .content(TestUtil.convertObjectToJsonBytes(transactionDTO)))
             .andExpect(status().isCreated());
@@ -144,6 +168,42 @@ public class TransactionResourceIntTest {
         assertThat(testTransaction.getCurrency()).isEqualTo(DEFAULT_CURRENCY);
     }
 
+    /**
+     * Not transactional, as the created transaction must be committed to be found by the retries.
+     */
+    @Test
+    public void createTransactionIsIdempotentOnTransactionId() throws Exception {
+        int databaseSizeBeforeCreate = transactionRepository.findAll().size();
+        TransactionDTO transactionDTO = transactionMapper.toDto(transaction.transactionId("IDEMPOTENT-1"));
+
+        performAsync(restTransactionMockMvc, post("/api/transactions")
+            .contentType(TestUtil.APPLICATION_JSON_UTF8)
+            .content(TestUtil.convertObjectToJsonBytes(transactionDTO)))
+            .andExpect(status().isCreated());
+        Long id = transactionRepository.findOneByTransactionId("IDEMPOTENT-1").get().getId();
+        try {
+            // A retry to the same instance is answered from the recent keys
+            performAsync(restTransactionMockMvc, post("/api/transactions")
+                .contentType(TestUtil.APPLICATION_JSON_UTF8)
+                .content(TestUtil.convertObjectToJsonBytes(transactionDTO)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.id").value(id.intValue()));
+
+            // A retry to another instance is rejected by the unique index, and answered from the database
+            recentTransactionKeys.clear();
+            performAsync(restTransactionMockMvc, post("/api/transactions")
+                .contentType(TestUtil.APPLICATION_JSON_UTF8)
+                .content(TestUtil.convertObjectToJsonBytes(transactionDTO)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.id").value(id.intValue()))
+                .andExpect(jsonPath("$.transactionId").value("IDEMPOTENT-1"));
+
+            assertThat(transactionRepository.findAll()).hasSize(databaseSizeBeforeCreate + 1);
+        } finally {
+            transactionRepository.deleteById(id);
+        }
+    }
+
     @Test
     @Transactional
     public void createTransactionWithExistingId() throws Exception {
@@ -154,7 +214,7 @@ public class TransactionResourceIntTest {
         TransactionDTO transactionDTO = transactionMapper.toDto(transaction);
 
         // An entity with an existing ID cannot be created, so this API call must fail
-        restTransactionMockMvc.perform(post("/api/transactions")
+        performAsync(restTransactionMockMvc, post("/api/transactions")
             .contentType(TestUtil.APPLICATION_JSON_UTF8)
             .content(TestUtil.convertObjectToJsonBytes(transactionDTO)))
             .andExpect(status().isBadRequest());
@@ -164,6 +224,31 @@ public class TransactionResourceIntTest {
         assertThat(transactionList).hasSize(databaseSizeBeforeCreate);
     }
 
+    @Test
+    @Transactional
+    public void createTransactionExceedingVelocityLimit() throws Exception {
+        ProductAccount account = ProductAccountResourceIntTest.createEntity(em);
+        em.persist(account);
+        ApplicationProperties.Velocity.Limit limit = applicationProperties.getVelocity().getHour();
+        limit.setMaxAmount(new BigDecimal("2.50"));
+        try {
+            for (int i = 0; i < 3; i++) {
+                TransactionDTO transactionDTO = transactionMapper.toDto(createEntity(em)
+                    .transactionId("VELOCITY-" + i).source(account));
+                performAsync(restTransactionMockMvc, post("/api/transactions")
+                    .contentType(TestUtil.APPLICATION_JSON_UTF8)
+                    .content(TestUtil.convertObjectToJsonBytes(transactionDTO)))
+                    .andExpect(i < 2 ? status().isCreated() : status().isBadRequest());
+            }
+        } finally {
+            limit.setMaxAmount(BigDecimal.ZERO);
+        }
+
+        long now = System.currentTimeMillis();
+        assertThat(transactionVelocity.count(account.getId(), "hour", now)).isEqualTo(2);
+        assertThat(transactionVelocity.sum(account.getId(), "day", now)).isEqualByComparingTo("2");
+    }
+
     @Test
     @Transactional
     public void getAllTransactions() throws Exception {
@@ -171,7 +256,7 @@ public class TransactionResourceIntTest {
         transactionRepository.saveAndFlush(transaction);
 
         // Get all the transactionList
-        restTransactionMockMvc.perform(get("/api/transactions?sort=id,desc"))
+        performAsync(restTransactionMockMvc, get("/api/transactions?sort=id,desc"))
             .andExpect(status().isOk())
             .andExpect(content().contentType(MediaType.APPLICATION_JSON_UTF8_VALUE))
             .andExpect(jsonPath("$.[*].id").value(hasItem(transaction.getId().intValue())))
@@ -182,6 +267,81 @@ public class TransactionResourceIntTest {
             .andExpect(jsonPath("$.[*].currency").value(hasItem(DEFAULT_CURRENCY.toString())));
     }
     
+    @Test
+    @Transactional
+    public void getAllTransactionsByCursor() throws Exception {
+        // Initialize the database, in the future so that these come first
+        ZonedDateTime time = ZonedDateTime.of(2100, 1, 1, 0, 0, 0, 0, ZoneOffset.UTC);
+        Transaction newest = transactionRepository.saveAndFlush(createEntity(em).time(time.plusDays(1))
+            .transactionId("CURSOR-1"));
+        Transaction sameTime1 = transactionRepository.saveAndFlush(createEntity(em).time(time)
+            .transactionId("CURSOR-2"));
+        Transaction sameTime2 = transactionRepository.saveAndFlush(createEntity(em).time(time)
+            .transactionId("CURSOR-3"));
+
+        // Get the first page
+        MvcResult result = performAsync(restTransactionMockMvc, get("/api/transactions?cursor=&size=2"))
+            .andExpect(status().isOk())
+            .andExpect(header().doesNotExist("X-Total-Count"))
+            .andExpect(header().string(HttpHeaders.LINK, containsString("rel=\"next\"")))
+            .andExpect(jsonPath("$.length()").value(2))
+            .andExpect(jsonPath("$.[0].id").value(newest.getId().intValue()))
+            .andExpect(jsonPath("$.[1].id").value(sameTime2.getId().intValue()))
+            .andReturn();
+
+        // Get the next page, with the cursor of the "next" link
+        Matcher matcher = Pattern.compile("cursor=([^&>]+)").matcher(result.getResponse().getHeader(HttpHeaders.LINK));
+        assertThat(matcher.find()).isTrue();
+        performAsync(restTransactionMockMvc, get("/api/transactions?cursor=" + matcher.group(1) + "&size=2"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.[0].id").value(sameTime1.getId().intValue()));
+    }
+
+    @Test
+    @Transactional
+    public void getAllTransactionsWithInvalidCursor() throws Exception {
+        performAsync(restTransactionMockMvc, get("/api/transactions?cursor=invalid"))
+            .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @Transactional
+    public void getProductAccountTransactions() throws Exception {
+        // Initialize the database
+        ProductAccount account = ProductAccountResourceIntTest.createEntity(em);
+        ProductAccount counterparty = ProductAccountResourceIntTest.createEntity(em);
+        em.persist(account);
+        em.persist(counterparty);
+        ZonedDateTime time = ZonedDateTime.of(2019, 1, 1, 0, 0, 0, 0, ZoneOffset.UTC);
+        Transaction debit = transactionRepository.saveAndFlush(createEntity(em).time(time.plusDays(1))
+            .transactionId("STATEMENT-1").source(account).target(counterparty));
+        Transaction credit = transactionRepository.saveAndFlush(createEntity(em).time(time.plusDays(2))
+            .transactionId("STATEMENT-2").source(counterparty).target(account));
+        transactionRepository.saveAndFlush(createEntity(em).time(time.plusMonths(2))
+            .transactionId("STATEMENT-3").source(account).target(counterparty));
+
+        // Get the statement of January
+        performAsync(restTransactionMockMvc, get("/api/product-accounts/{id}/transactions", account.getId())
+            .param("from", "2019-01-01T00:00:00Z")
+            .param("to", "2019-02-01T00:00:00Z"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.length()").value(2))
+            .andExpect(jsonPath("$.[0].id").value(debit.getId().intValue()))
+            .andExpect(jsonPath("$.[0].direction").value("DEBIT"))
+            .andExpect(jsonPath("$.[0].counterpartyId").value(counterparty.getId().intValue()))
+            .andExpect(jsonPath("$.[0].amount").value(DEFAULT_AMOUNT.intValue()))
+            .andExpect(jsonPath("$.[1].id").value(credit.getId().intValue()))
+            .andExpect(jsonPath("$.[1].direction").value("CREDIT"))
+            .andExpect(jsonPath("$.[1].counterpartyId").value(counterparty.getId().intValue()));
+    }
+
+    @Test
+    @Transactional
+    public void getNonExistingProductAccountTransactions() throws Exception {
+        performAsync(restTransactionMockMvc, get("/api/product-accounts/{id}/transactions", Long.MAX_VALUE))
+            .andExpect(status().isNotFound());
+    }
+
     @Test
     @Transactional
     public void getTransaction() throws Exception {
@@ -189,7 +349,7 @@ public class TransactionResourceIntTest {
         transactionRepository.saveAndFlush(transaction);
 
         // Get the transaction
-        restTransactionMockMvc.perform(get("/api/transactions/{id}", transaction.getId()))
+        performAsync(restTransactionMockMvc, get("/api/transactions/{id}", transaction.getId()))
             .andExpect(status().isOk())
             .andExpect(content().contentType(MediaType.APPLICATION_JSON_UTF8_VALUE))
             .andExpect(jsonPath("$.id").value(transaction.getId().intValue()))
@@ -200,11 +360,36 @@ public class TransactionResourceIntTest {
             .andExpect(jsonPath("$.currency").value(DEFAULT_CURRENCY.toString()));
     }
 
+    @Test
+    public void exportTransactionsAsCsv() throws Exception {
+        // The body is written by another thread, which cannot see uncommitted transactions: export an empty period
+        MvcResult result = restTransactionMockMvc.perform(get("/api/transactions/_export?format=csv&to={to}",
+            "1970-01-01T00:00:00Z"))
+            .andExpect(request().asyncStarted())
+            .andReturn();
+
+        restTransactionMockMvc.perform(asyncDispatch(result))
+            .andExpect(status().isOk())
+            .andExpect(content().contentType("text/csv"))
+            .andExpect(header().string(HttpHeaders.CONTENT_DISPOSITION, containsString("transactions.csv")))
+            .andExpect(content().string("id,transactionId,transactionType,amount,time,currency,sourceId,targetId\n"));
+    }
+
+    @Test
+    @Transactional
+    public void exportTransactionsWithInvalidParameters() throws Exception {
+        performAsync(restTransactionMockMvc, get("/api/transactions/_export?format=xml"))
+            .andExpect(status().isBadRequest());
+        performAsync(restTransactionMockMvc, get("/api/transactions/_export?from={from}&to={to}",
+            "2019-01-02T00:00:00Z", "2019-01-01T00:00:00Z"))
+            .andExpect(status().isBadRequest());
+    }
+
     @Test
     @Transactional
     public void getNonExistingTransaction() throws Exception {
         // Get the transaction
-        restTransactionMockMvc.perform(get("/api/transactions/{id}", Long.MAX_VALUE))
+        performAsync(restTransactionMockMvc, get("/api/transactions/{id}", Long.MAX_VALUE))
             .andExpect(status().isNotFound());
     }
 
@@ -228,7 +413,7 @@ public class TransactionResourceIntTest {
             .currency(UPDATED_CURRENCY);
         TransactionDTO transactionDTO = transactionMapper.toDto(updatedTransaction);
 
-        restTransactionMockMvc.perform(put("/api/transactions")
+        performAsync(restTransactionMockMvc, put("/api/transactions")
             .contentType(TestUtil.APPLICATION_JSON_UTF8)
             .content(TestUtil.convertObjectToJsonBytes(transactionDTO)))
             .andExpect(status().isOk());
@@ -253,7 +438,7 @@ public class TransactionResourceIntTest {
         TransactionDTO transactionDTO = transactionMapper.toDto(transaction);
 
         // If the entity doesn't have an ID, it will throw BadRequestAlertException
-        restTransactionMockMvc.perform(put("/api/transactions")
+        performAsync(restTransactionMockMvc, put("/api/transactions")
             .contentType(TestUtil.APPLICATION_JSON_UTF8)
             .content(TestUtil.convertObjectToJsonBytes(transactionDTO)))
             .andExpect(status().isBadRequest());
@@ -272,7 +457,7 @@ public class TransactionResourceIntTest {
         int databaseSizeBeforeDelete = transactionRepository.findAll().size();
 
         // Get the transaction
-        restTransactionMockMvc.perform(delete("/api/transactions/{id}", transaction.getId())
+        performAsync(restTransactionMockMvc, delete("/api/transactions/{id}", transaction.getId())
             .accept(TestUtil.APPLICATION_JSON_UTF8))
             .andExpect(status().isOk());
 
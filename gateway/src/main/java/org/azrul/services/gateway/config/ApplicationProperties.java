@@ -2,6 +2,9 @@ package org.azrul.services.gateway.config;
 
 import org.springframework.boot.context.properties.ConfigurationProperties;
 
+import java.util.ArrayList;
+import java.util.List;
+
 /**
  * Properties specific to Gateway.
  * <p>
@@ -11,4 +14,191 @@ import org.springframework.boot.context.properties.ConfigurationProperties;
 @ConfigurationProperties(prefix = "application", ignoreUnknownFields = false)
 public class ApplicationProperties {
 
+    private final Gateway gateway = new Gateway();
+
+    public Gateway getGateway() {
+        return gateway;
+    }
+
+    public static class Gateway {
+
+        private final RateLimiting rateLimiting = new RateLimiting();
+
+        private final SwaggerDocsCache swaggerDocsCache = new SwaggerDocsCache();
+
+        public RateLimiting getRateLimiting() {
+            return rateLimiting;
+        }
+
+        public SwaggerDocsCache getSwaggerDocsCache() {
+            return swaggerDocsCache;
+        }
+
+        /**
+         * Cache of the micro-services Swagger docs, once their base path is rewritten.
+         */
+        public static class SwaggerDocsCache {
+
+            private boolean enabled = false;
+
+            private long timeToLiveSeconds = 300;
+
+            public boolean isEnabled() {
+                return enabled;
+            }
+
+            public void setEnabled(boolean enabled) {
+                this.enabled = enabled;
+            }
+
+            public long getTimeToLiveSeconds() {
+                return timeToLiveSeconds;
+            }
+
+            public void setTimeToLiveSeconds(long timeToLiveSeconds) {
+                this.timeToLiveSeconds = timeToLiveSeconds;
+            }
+        }
+
+        /**
+         * Extends "jhipster.gateway.rate-limiting", which must be enabled for these properties to be used.
+         */
+        public static class RateLimiting {
+
+            private final LocalBuckets localBuckets = new LocalBuckets();
+
+            private List<Policy> policies = new ArrayList<>();
+
+            public LocalBuckets getLocalBuckets() {
+                return localBuckets;
+            }
+
+            public List<Policy> getPolicies() {
+                return policies;
+            }
+
+            public void setPolicies(List<Policy> policies) {
+                this.policies = policies;
+            }
+
+            /**
+             * Per-node buckets, holding tokens taken in batches from the clustered buckets.
+             */
+            public static class LocalBuckets {
+
+                private boolean enabled = false;
+
+                private long batchSize = 20;
+
+                private long idleTimeoutSeconds = 60;
+
+                public boolean isEnabled() {
+                    return enabled;
+                }
+
+                public void setEnabled(boolean enabled) {
+                    this.enabled = enabled;
+                }
+
+                public long getBatchSize() {
+                    return batchSize;
+                }
+
+                public void setBatchSize(long batchSize) {
+                    this.batchSize = batchSize;
+                }
+
+                public long getIdleTimeoutSeconds() {
+                    return idleTimeoutSeconds;
+                }
+
+                public void setIdleTimeoutSeconds(long idleTimeoutSeconds) {
+                    this.idleTimeoutSeconds = idleTimeoutSeconds;
+                }
+            }
+
+            /**
+             * Limits applied to the requests of a Zuul route, optionally restricted to a path of the route and
+             * to the users having a role. Requests matching no policy use "jhipster.gateway.rate-limiting".
+             */
+            public static class Policy {
+
+                private String name;
+
+                private String routeId;
+
+                private String path;
+
+                private String role;
+
+                private List<Limit> limits = new ArrayList<>();
+
+                public String getName() {
+                    return name;
+                }
+
+                public void setName(String name) {
+                    this.name = name;
+                }
+
+                public String getRouteId() {
+                    return routeId;
+                }
+
+                public void setRouteId(String routeId) {
+                    this.routeId = routeId;
+                }
+
+                public String getPath() {
+                    return path;
+                }
+
+                public void setPath(String path) {
+                    this.path = path;
+                }
+
+                public String getRole() {
+                    return role;
+                }
+
+                public void setRole(String role) {
+                    this.role = role;
+                }
+
+                public List<Limit> getLimits() {
+                    return limits;
+                }
+
+                public void setLimits(List<Limit> limits) {
+                    this.limits = limits;
+                }
+            }
+
+            /**
+             * A bandwidth of a policy, for instance a short burst limit and a sustained limit.
+             */
+            public static class Limit {
+
+                private long capacity;
+
+                private long durationInSeconds;
+
+                public long getCapacity() {
+                    return capacity;
+                }
+
+                public void setCapacity(long capacity) {
+                    this.capacity = capacity;
+                }
+
+                public long getDurationInSeconds() {
+                    return durationInSeconds;
+                }
+
+                public void setDurationInSeconds(long durationInSeconds) {
+                    this.durationInSeconds = durationInSeconds;
+                }
+            }
+        }
+    }
 }
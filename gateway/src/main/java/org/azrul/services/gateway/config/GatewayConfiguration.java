@@ -6,10 +6,14 @@ import org.azrul.services.gateway.gateway.ratelimiting.RateLimitingFilter;
 import org.azrul.services.gateway.gateway.accesscontrol.AccessControlFilter;
 import org.azrul.services.gateway.gateway.responserewriting.SwaggerBasePathRewritingFilter;
 
+import java.util.concurrent.TimeUnit;
+
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.cloud.netflix.zuul.filters.RouteLocator;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.SchedulingConfigurer;
+import org.springframework.scheduling.config.ScheduledTaskRegistrar;
 
 @Configuration
 public class GatewayConfiguration {
@@ -18,8 +22,13 @@ public class GatewayConfiguration {
     public static class SwaggerBasePathRewritingConfiguration {
 
         @Bean
-        public SwaggerBasePathRewritingFilter swaggerBasePathRewritingFilter(){
-            return new SwaggerBasePathRewritingFilter();
+        public SwaggerBasePathRewritingFilter swaggerBasePathRewritingFilter(ApplicationProperties applicationProperties){
+            ApplicationProperties.Gateway.SwaggerDocsCache swaggerDocsCache =
+                applicationProperties.getGateway().getSwaggerDocsCache();
+            if (!swaggerDocsCache.isEnabled()) {
+                return new SwaggerBasePathRewritingFilter();
+            }
+            return new SwaggerBasePathRewritingFilter(TimeUnit.SECONDS.toMillis(swaggerDocsCache.getTimeToLiveSeconds()));
         }
     }
 
@@ -36,20 +45,36 @@ public class GatewayConfiguration {
      * Configures the Zuul filter that limits the number of API calls per user.
      * <p>
      * This uses Bucket4J to limit the API calls, see {@link org.azrul.services.gateway.gateway.ratelimiting.RateLimitingFilter}.
+     * The idle per-node quotas are evicted by a task scheduled every half idle timeout.
      */
     @Configuration
     @ConditionalOnProperty("jhipster.gateway.rate-limiting.enabled")
-    public static class RateLimitingConfiguration {
+    public static class RateLimitingConfiguration implements SchedulingConfigurer {
 
         private final JHipsterProperties jHipsterProperties;
 
-        public RateLimitingConfiguration(JHipsterProperties jHipsterProperties) {
+        private final ApplicationProperties applicationProperties;
+
+        public RateLimitingConfiguration(JHipsterProperties jHipsterProperties,
+            ApplicationProperties applicationProperties) {
             this.jHipsterProperties = jHipsterProperties;
+            this.applicationProperties = applicationProperties;
         }
 
         @Bean
         public RateLimitingFilter rateLimitingFilter() {
-            return new RateLimitingFilter(jHipsterProperties);
+            return new RateLimitingFilter(jHipsterProperties, applicationProperties);
+        }
+
+        @Override
+        public void configureTasks(ScheduledTaskRegistrar taskRegistrar) {
+            ApplicationProperties.Gateway.RateLimiting.LocalBuckets localBuckets =
+                applicationProperties.getGateway().getRateLimiting().getLocalBuckets();
+            if (localBuckets.isEnabled()) {
+                RateLimitingFilter rateLimitingFilter = rateLimitingFilter();
+                taskRegistrar.addFixedDelayTask(rateLimitingFilter::evictIdleQuotas,
+                    Math.max(1, TimeUnit.SECONDS.toMillis(localBuckets.getIdleTimeoutSeconds()) / 2));
+            }
         }
     }
 }
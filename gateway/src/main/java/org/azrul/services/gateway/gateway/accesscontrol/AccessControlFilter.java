@@ -5,10 +5,15 @@ import io.github.jhipster.config.JHipsterProperties;
 import java.util.List;
 import java.util.Map;
 
+import javax.servlet.http.HttpServletRequest;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.cloud.client.discovery.event.HeartbeatEvent;
+import org.springframework.cloud.netflix.zuul.RoutesRefreshedEvent;
 import org.springframework.cloud.netflix.zuul.filters.Route;
 import org.springframework.cloud.netflix.zuul.filters.RouteLocator;
+import org.springframework.context.event.EventListener;
 import org.springframework.http.HttpStatus;
 
 import com.netflix.zuul.ZuulFilter;
@@ -16,6 +21,9 @@ import com.netflix.zuul.context.RequestContext;
 
 /**
  * Zuul filter for restricting access to backend micro-services endpoints.
+ * <p>
+ * The routes and their authorized endpoints are compiled into a prefix trie, so that checking a request
+ * does not depend on the number of routes. The trie is rebuilt when the routes are refreshed.
  */
 public class AccessControlFilter extends ZuulFilter {
 
@@ -25,6 +33,8 @@ public class AccessControlFilter extends ZuulFilter {
 
     private final JHipsterProperties jHipsterProperties;
 
+    private volatile PrefixTrie<RouteAccess> routes;
+
     public AccessControlFilter(RouteLocator routeLocator, JHipsterProperties jHipsterProperties) {
         this.routeLocator = routeLocator;
         this.jHipsterProperties = jHipsterProperties;
@@ -45,47 +55,81 @@ public class AccessControlFilter extends ZuulFilter {
      */
     @Override
     public boolean shouldFilter() {
-        String requestUri = RequestContext.getCurrentContext().getRequest().getRequestURI();
-        String contextPath = RequestContext.getCurrentContext().getRequest().getContextPath();
+        HttpServletRequest request = RequestContext.getCurrentContext().getRequest();
+        String requestUri = request.getRequestURI();
+        String contextPath = request.getContextPath();
+        if (!requestUri.startsWith(contextPath)) {
+            return true;
+        }
 
-        // If the request Uri does not start with the path of the authorized endpoints, we block the request
-        for (Route route : routeLocator.getRoutes()) {
-            String serviceUrl = contextPath + route.getFullPath();
-            String serviceName = route.getId();
+        // If the request Uri does not start with the path of a route, we block the request
+        RouteAccess route = getRoutes().longestPrefixOf(requestUri, contextPath.length());
+        if (route == null) {
+            return true;
+        }
+        return !isAuthorizedRequest(route, requestUri, contextPath.length());
+    }
 
-            // If this route correspond to the current request URI
-            // We do a substring to remove the "**" at the end of the route URL
-            if (requestUri.startsWith(serviceUrl.substring(0, serviceUrl.length() - 2))) {
-				return !isAuthorizedRequest(serviceUrl, serviceName, requestUri);
-            }
+    private boolean isAuthorizedRequest(RouteAccess route, String requestUri, int offset) {
+        // If the authorized endpoints list was left empty for this route, all access are allowed
+        if (route.authorizedEndpoints == null) {
+            log.debug("Access Control: allowing access for {}, as no access control policy has been set up for " +
+                "service: {}", requestUri, route.serviceName);
+            return true;
+        }
+        String gatewayEndpoint = route.authorizedEndpoints.longestPrefixOf(requestUri, offset);
+        if (gatewayEndpoint != null) {
+            log.debug("Access Control: allowing access for {}, as it matches the following authorized " +
+                "microservice endpoint: {}", requestUri, gatewayEndpoint);
+            return true;
         }
-        return true;
+        return false;
     }
 
-    private boolean isAuthorizedRequest(String serviceUrl, String serviceName, String requestUri) {
+    /**
+     * Rebuild the routes trie when Zuul routes may have changed.
+     */
+    @EventListener({RoutesRefreshedEvent.class, HeartbeatEvent.class})
+    public void refreshRoutes() {
+        routes = buildRoutes();
+    }
+
+    private PrefixTrie<RouteAccess> getRoutes() {
+        PrefixTrie<RouteAccess> current = routes;
+        if (current == null) {
+            current = buildRoutes();
+            routes = current;
+        }
+        return current;
+    }
+
+    /**
+     * Compile the routes, in the order of the route locator, as the first route matching a request wins.
+     */
+    private PrefixTrie<RouteAccess> buildRoutes() {
         Map<String, List<String>> authorizedMicroservicesEndpoints = jHipsterProperties.getGateway()
             .getAuthorizedMicroservicesEndpoints();
+        List<Route> routeList = routeLocator.getRoutes();
+        PrefixTrie<RouteAccess> trie = new PrefixTrie<>();
+        for (Route route : routeList) {
+            String serviceUrl = route.getFullPath();
+            String serviceName = route.getId();
 
-        // If the authorized endpoints list was left empty for this route, all access are allowed
-        if (authorizedMicroservicesEndpoints.get(serviceName) == null) {
-            log.debug("Access Control: allowing access for {}, as no access control policy has been set up for " +
-                "service: {}", requestUri, serviceName);
-            return true;
-        } else {
-            List<String> authorizedEndpoints = authorizedMicroservicesEndpoints.get(serviceName);
-
-            // Go over the authorized endpoints to control that the request URI matches it
-            for (String endpoint : authorizedEndpoints) {
-                // We do a substring to remove the "**/" at the end of the route URL
-                String gatewayEndpoint = serviceUrl.substring(0, serviceUrl.length() - 3) + endpoint;
-                if (requestUri.startsWith(gatewayEndpoint)) {
-                    log.debug("Access Control: allowing access for {}, as it matches the following authorized " +
-                        "microservice endpoint: {}", requestUri, gatewayEndpoint);
-                    return true;
+            PrefixTrie<String> authorizedEndpoints = null;
+            if (authorizedMicroservicesEndpoints.get(serviceName) != null) {
+                authorizedEndpoints = new PrefixTrie<>();
+                for (String endpoint : authorizedMicroservicesEndpoints.get(serviceName)) {
+                    // We do a substring to remove the "/**" at the end of the route URL
+                    String gatewayEndpoint = serviceUrl.substring(0, serviceUrl.length() - 3) + endpoint;
+                    authorizedEndpoints.putIfNoPrefix(gatewayEndpoint, gatewayEndpoint);
                 }
             }
+            // We do a substring to remove the "**" at the end of the route URL
+            trie.putIfNoPrefix(serviceUrl.substring(0, serviceUrl.length() - 2),
+                new RouteAccess(serviceName, authorizedEndpoints));
         }
-        return false;
+        log.debug("Access Control: compiled the access control policy of {} routes", routeList.size());
+        return trie;
     }
 
     @Override
@@ -96,4 +140,19 @@ public class AccessControlFilter extends ZuulFilter {
         log.debug("Access Control: filtered unauthorized access on endpoint {}", ctx.getRequest().getRequestURI());
         return null;
     }
+
+    private static final class RouteAccess {
+
+        private final String serviceName;
+
+        /**
+         * The authorized endpoints of the route, or null if no access control policy has been set up.
+         */
+        private final PrefixTrie<String> authorizedEndpoints;
+
+        private RouteAccess(String serviceName, PrefixTrie<String> authorizedEndpoints) {
+            this.serviceName = serviceName;
+            this.authorizedEndpoints = authorizedEndpoints;
+        }
+    }
 }
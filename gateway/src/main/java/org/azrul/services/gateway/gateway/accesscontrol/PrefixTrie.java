@@ -0,0 +1,101 @@
+package org.azrul.services.gateway.gateway.accesscontrol;
+
+import java.util.Arrays;
+
+/**
+ * Character trie answering "which registered key is a prefix of this string" without allocating.
+ * <p>
+ * It is built once and then only read, so it can be shared between request threads once published.
+ *
+ * @param <T> the type of the values attached to the keys
+ */
+final class PrefixTrie<T> {
+
+    private final Node<T> root = new Node<>();
+
+    /**
+     * Add a key, unless the key itself or one of its prefixes is already present: as lookups stop at the
+     * first added key that matches, such a key could never be returned.
+     *
+     * @param key the key
+     * @param value the value returned for strings starting with the key
+     * @return true if the key was added
+     */
+    boolean putIfNoPrefix(String key, T value) {
+        Node<T> node = root;
+        if (node.value != null) {
+            return false;
+        }
+        for (int i = 0; i < key.length(); i++) {
+            node = node.getOrCreateChild(key.charAt(i));
+            if (node.value != null) {
+                return false;
+            }
+        }
+        node.value = value;
+        return true;
+    }
+
+    /**
+     * Get the value of the longest key that is a prefix of the string, starting at the given offset.
+     *
+     * @param s the string to look up
+     * @param offset the index of the first character of s to match
+     * @return the value, or null if no key is a prefix of the string
+     */
+    T longestPrefixOf(String s, int offset) {
+        Node<T> node = root;
+        T match = node.value;
+        for (int i = offset; i < s.length(); i++) {
+            node = node.getChild(s.charAt(i));
+            if (node == null) {
+                break;
+            }
+            if (node.value != null) {
+                match = node.value;
+            }
+        }
+        return match;
+    }
+
+    private static final class Node<T> {
+
+        private static final char[] NO_KEYS = new char[0];
+
+        private char[] keys = NO_KEYS;
+
+        private Node<T>[] children = newChildren(0);
+
+        private T value;
+
+        private Node<T> getChild(char c) {
+            int index = Arrays.binarySearch(keys, c);
+            return index < 0 ? null : children[index];
+        }
+
+        private Node<T> getOrCreateChild(char c) {
+            int index = Arrays.binarySearch(keys, c);
+            if (index >= 0) {
+                return children[index];
+            }
+            int insertion = -index - 1;
+            char[] newKeys = new char[keys.length + 1];
+            Node<T>[] newChildren = newChildren(keys.length + 1);
+            System.arraycopy(keys, 0, newKeys, 0, insertion);
+            System.arraycopy(children, 0, newChildren, 0, insertion);
+            System.arraycopy(keys, insertion, newKeys, insertion + 1, keys.length - insertion);
+            System.arraycopy(children, insertion, newChildren, insertion + 1, keys.length - insertion);
+            Node<T> child = new Node<>();
+            newKeys[insertion] = c;
+            newChildren[insertion] = child;
+            keys = newKeys;
+            children = newChildren;
+            return child;
+        }
+
+        @SuppressWarnings("unchecked")
+        private static <T> Node<T>[] newChildren(int size) {
+            return (Node<T>[]) new Node[size];
+        }
+    }
+}
@@ -0,0 +1,205 @@
+package org.azrul.services.gateway.gateway.ratelimiting;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import io.github.bucket4j.Bucket;
+import io.github.bucket4j.BucketConfiguration;
+import io.github.bucket4j.ConsumptionProbe;
+import io.github.bucket4j.grid.ProxyManager;
+
+/**
+ * Per-node tier in front of the clustered rate limiting buckets.
+ * <p>
+ * Each key holds a local quota of tokens, consumed with a compare-and-set. When it is empty, a batch of
+ * tokens is taken at once from the clustered bucket, so that most requests never reach the distributed
+ * cache. Tokens are only ever taken from the clustered bucket before being used, so the global limit
+ * still holds across nodes. Tokens may be reserved without being used yet: when the local quota of a key is
+ * empty, each request missing it concurrently takes its own batch, so a node may hold several batches of a key.
+ * <p>
+ * Quotas that are not used for the idle timeout are evicted by {@link #evictIdleQuotas()}, which is called by a
+ * scheduled task, and their remaining tokens are given back to the clustered bucket. An evicted quota is marked
+ * so that no more tokens are taken from or added to it: a request still holding it looks up the quota of its
+ * key again.
+ * <p>
+ * The remaining tokens reported for a key are the local tokens plus the tokens left in the clustered bucket
+ * when this node last took a batch, so they are an estimate when several nodes share the bucket.
+ */
+public class LocalQuotaBuckets {
+
+    private final Logger log = LoggerFactory.getLogger(LocalQuotaBuckets.class);
+
+    /**
+     * The tokens of a quota once evicted.
+     */
+    private static final long EVICTED = -1;
+
+    private final Map<String, LocalQuota> quotas = new ConcurrentHashMap<>();
+
+    private final ProxyManager<String> clusteredBuckets;
+
+    private final long batchSize;
+
+    private final long idleTimeoutMillis;
+
+    /**
+     * @param clusteredBuckets the clustered buckets
+     * @param batchSize the maximum number of tokens taken at once from a clustered bucket
+     * @param idleTimeoutMillis the time after which an unused local quota is evicted
+     */
+    public LocalQuotaBuckets(ProxyManager<String> clusteredBuckets, long batchSize, long idleTimeoutMillis) {
+        this.clusteredBuckets = clusteredBuckets;
+        this.batchSize = Math.max(1, batchSize);
+        this.idleTimeoutMillis = idleTimeoutMillis;
+    }
+
+    /**
+     * Try to consume one token for the key.
+     *
+     * @param key the bucket id
+     * @param configuration the configuration of the clustered bucket, if it has to be created
+     * @param maxBatchSize the most tokens that can be taken at once from the clustered bucket
+     * @return the result, rejected if the limit is exceeded
+     */
+    public RateLimitProbe tryConsume(String key, Supplier<BucketConfiguration> configuration, long maxBatchSize) {
+        long now = System.currentTimeMillis();
+        LocalQuota quota = getQuota(key, configuration, now);
+        long taken;
+        while ((taken = quota.tryTake()) == EVICTED) {
+            quota = getQuota(key, configuration, now);
+        }
+        if (taken > 0) {
+            return RateLimitProbe.consumed(taken - 1 + quota.clusteredRemaining);
+        }
+
+        long batch = Math.max(1, Math.min(batchSize, maxBatchSize));
+        Bucket bucket = clusteredBuckets.getProxy(key, configuration);
+        ConsumptionProbe probe = bucket.tryConsumeAndReturnRemaining(batch);
+        long granted;
+        long clusteredRemaining;
+        if (probe.isConsumed()) {
+            granted = batch;
+            clusteredRemaining = probe.getRemainingTokens();
+        } else if (probe.getRemainingTokens() > 0) {
+            // Less than a batch is left, take what remains: a second call only happens near the limit
+            granted = bucket.tryConsumeAsMuchAsPossible(probe.getRemainingTokens());
+            clusteredRemaining = Math.max(0, probe.getRemainingTokens() - granted);
+        } else {
+            granted = 0;
+            clusteredRemaining = 0;
+        }
+        quota.clusteredRemaining = clusteredRemaining;
+        if (granted == 0) {
+            // The probe gives the wait for a whole batch, with a greedy refill one token comes proportionally sooner
+            return RateLimitProbe.rejected(0, Math.max(1, probe.getNanosToWaitForRefill() / batch));
+        }
+        long tokens = 0;
+        if (granted > 1) {
+            // The quota may have been evicted during the clustered call, the tokens then go to the new one
+            while ((tokens = quota.add(granted - 1)) == EVICTED) {
+                quota = getQuota(key, configuration, now);
+                quota.clusteredRemaining = clusteredRemaining;
+            }
+        }
+        return RateLimitProbe.consumed(tokens + clusteredRemaining);
+    }
+
+    /**
+     * The number of tokens held by this node for the key, which have been taken from the clustered bucket.
+     */
+    public long getLocalTokens(String key) {
+        LocalQuota quota = quotas.get(key);
+        return quota == null ? 0 : Math.max(0, quota.tokens.get());
+    }
+
+    /**
+     * Evict the quotas that have not been used for the idle timeout, and give their remaining tokens back to the
+     * clustered buckets.
+     */
+    public void evictIdleQuotas() {
+        long now = System.currentTimeMillis();
+        for (Map.Entry<String, LocalQuota> entry : quotas.entrySet()) {
+            LocalQuota quota = entry.getValue();
+            if (now - quota.lastAccess < idleTimeoutMillis) {
+                continue;
+            }
+            long remaining = quota.evict();
+            quotas.remove(entry.getKey(), quota);
+            if (remaining > 0) {
+                log.debug("Giving back {} unused tokens of {}", remaining, entry.getKey());
+                clusteredBuckets.getProxy(entry.getKey(), quota.configuration).addTokens(remaining);
+            }
+        }
+    }
+
+    private LocalQuota getQuota(String key, Supplier<BucketConfiguration> configuration, long now) {
+        LocalQuota quota = quotas.computeIfAbsent(key, k -> new LocalQuota(configuration));
+        quota.lastAccess = now;
+        return quota;
+    }
+
+    private static final class LocalQuota {
+
+        private final AtomicLong tokens = new AtomicLong();
+
+        private final Supplier<BucketConfiguration> configuration;
+
+        private volatile long lastAccess;
+
+        /**
+         * The tokens left in the clustered bucket when this node last took a batch.
+         */
+        private volatile long clusteredRemaining;
+
+        private LocalQuota(Supplier<BucketConfiguration> configuration) {
+            this.configuration = configuration;
+        }
+
+        /**
+         * Take one token.
+         *
+         * @return the tokens available before, 0 if there were none, or {@link #EVICTED}
+         */
+        private long tryTake() {
+            long available;
+            do {
+                available = tokens.get();
+                if (available <= 0) {
+                    return available;
+                }
+            } while (!tokens.compareAndSet(available, available - 1));
+            return available;
+        }
+
+        /**
+         * Add tokens, unless the quota was evicted.
+         *
+         * @return the tokens available after, or {@link #EVICTED}
+         */
+        private long add(long count) {
+            long available;
+            do {
+                available = tokens.get();
+                if (available == EVICTED) {
+                    return EVICTED;
+                }
+            } while (!tokens.compareAndSet(available, available + count));
+            return available + count;
+        }
+
+        /**
+         * Mark the quota as evicted.
+         *
+         * @return the tokens that were available
+         */
+        private long evict() {
+            long available = tokens.getAndSet(EVICTED);
+            return available == EVICTED ? 0 : available;
+        }
+    }
+}
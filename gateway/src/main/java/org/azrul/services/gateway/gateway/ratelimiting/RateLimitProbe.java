@@ -0,0 +1,45 @@
+package org.azrul.services.gateway.gateway.ratelimiting;
+
+import io.github.bucket4j.ConsumptionProbe;
+
+/**
+ * The result of consuming a token, with the state of the bucket needed for the rate limiting headers.
+ */
+public final class RateLimitProbe {
+
+    private final boolean consumed;
+
+    private final long remainingTokens;
+
+    private final long nanosToWaitForRefill;
+
+    private RateLimitProbe(boolean consumed, long remainingTokens, long nanosToWaitForRefill) {
+        this.consumed = consumed;
+        this.remainingTokens = remainingTokens;
+        this.nanosToWaitForRefill = nanosToWaitForRefill;
+    }
+
+    public static RateLimitProbe consumed(long remainingTokens) {
+        return new RateLimitProbe(true, remainingTokens, 0);
+    }
+
+    public static RateLimitProbe rejected(long remainingTokens, long nanosToWaitForRefill) {
+        return new RateLimitProbe(false, remainingTokens, nanosToWaitForRefill);
+    }
+
+    public static RateLimitProbe of(ConsumptionProbe probe) {
+        return new RateLimitProbe(probe.isConsumed(), probe.getRemainingTokens(), probe.getNanosToWaitForRefill());
+    }
+
+    public boolean isConsumed() {
+        return consumed;
+    }
+
+    public long getRemainingTokens() {
+        return remainingTokens;
+    }
+
+    public long getNanosToWaitForRefill() {
+        return nanosToWaitForRefill;
+    }
+}
@@ -1,9 +1,11 @@
 package org.azrul.services.gateway.gateway.ratelimiting;
 
+import org.azrul.services.gateway.config.ApplicationProperties;
 import org.azrul.services.gateway.security.SecurityUtils;
 
-import java.time.Duration;
-import java.util.function.Supplier;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
 import javax.cache.CacheManager;
 import javax.cache.Caching;
 import javax.cache.configuration.CompleteConfiguration;
@@ -13,12 +15,16 @@ import javax.servlet.http.HttpServletRequest;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.cloud.netflix.zuul.filters.support.FilterConstants;
 import org.springframework.http.HttpStatus;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
 
 import com.netflix.zuul.ZuulFilter;
 import com.netflix.zuul.context.RequestContext;
 
-import io.github.bucket4j.*;
+import io.github.bucket4j.Bucket4j;
 import io.github.bucket4j.grid.GridBucketState;
 import io.github.bucket4j.grid.ProxyManager;
 import io.github.bucket4j.grid.jcache.JCache;
@@ -30,6 +36,13 @@ import io.github.jhipster.config.JHipsterProperties;
  * See the Bucket4j documentation at https://github.com/vladimir-bukhtoyarov/bucket4j
  * https://github.com/vladimir-bukhtoyarov/bucket4j/blob/master/doc-pages/jcache-usage
  * .md#example-1---limiting-access-to-http-server-by-ip-address
+ * <p>
+ * When "application.gateway.rate-limiting.local-buckets" is enabled, tokens are taken in batches from the
+ * clustered buckets into per-node buckets, see {@link LocalQuotaBuckets}.
+ * <p>
+ * The limits depend on the Zuul route, the path and the roles of the user, see {@link RateLimitingPolicies}.
+ * The remaining tokens and, when the limit is exceeded, the time to wait are returned in the
+ * "X-RateLimit-Remaining" and "Retry-After" headers; they come from the same bucket call as the consumption.
  */
 public class RateLimitingFilter extends ZuulFilter {
 
@@ -37,23 +50,47 @@ public class RateLimitingFilter extends ZuulFilter {
 
     public final static String GATEWAY_RATE_LIMITING_CACHE_NAME = "gateway-rate-limiting";
 
-    private final JHipsterProperties jHipsterProperties;
+    public final static String REMAINING_HEADER = "X-RateLimit-Remaining";
 
-    private javax.cache.Cache<String, GridBucketState> cache;
+    public final static String RETRY_AFTER_HEADER = "Retry-After";
 
-    private ProxyManager<String> buckets;
+    private final ProxyManager<String> buckets;
 
-    public RateLimitingFilter(JHipsterProperties jHipsterProperties) {
-        this.jHipsterProperties = jHipsterProperties;
+    private final RateLimitingPolicies policies;
 
+    private final LocalQuotaBuckets localBuckets;
+
+    public RateLimitingFilter(JHipsterProperties jHipsterProperties, ApplicationProperties applicationProperties) {
+        this(jHipsterProperties, applicationProperties, createProxyManager());
+    }
+
+    public RateLimitingFilter(JHipsterProperties jHipsterProperties, ApplicationProperties applicationProperties,
+        ProxyManager<String> buckets) {
+        this.buckets = buckets;
+
+        // The configurations do not change, build them once instead of on every request
+        this.policies = new RateLimitingPolicies(jHipsterProperties, applicationProperties);
+
+        ApplicationProperties.Gateway.RateLimiting.LocalBuckets localBucketsProperties =
+            applicationProperties.getGateway().getRateLimiting().getLocalBuckets();
+        if (localBucketsProperties.isEnabled()) {
+            this.localBuckets = new LocalQuotaBuckets(buckets,
+                localBucketsProperties.getBatchSize(),
+                TimeUnit.SECONDS.toMillis(localBucketsProperties.getIdleTimeoutSeconds()));
+        } else {
+            this.localBuckets = null;
+        }
+    }
+
+    private static ProxyManager<String> createProxyManager() {
         CachingProvider cachingProvider = Caching.getCachingProvider();
         CacheManager cacheManager = cachingProvider.getCacheManager();
         CompleteConfiguration<String, GridBucketState> config =
             new MutableConfiguration<String, GridBucketState>()
                 .setTypes(String.class, GridBucketState.class);
 
-        this.cache = cacheManager.createCache(GATEWAY_RATE_LIMITING_CACHE_NAME, config);
-        this.buckets = Bucket4j.extension(JCache.class).proxyManagerForCache(cache);
+        javax.cache.Cache<String, GridBucketState> cache = cacheManager.createCache(GATEWAY_RATE_LIMITING_CACHE_NAME, config);
+        return Bucket4j.extension(JCache.class).proxyManagerForCache(cache);
     }
 
     @Override
@@ -75,43 +112,61 @@ public class RateLimitingFilter extends ZuulFilter {
 
     @Override
     public Object run() {
-        String bucketId = getId(RequestContext.getCurrentContext().getRequest());
-        Bucket bucket = buckets.getProxy(bucketId, getConfigSupplier());
-        if (bucket.tryConsume(1)) {
+        RequestContext ctx = RequestContext.getCurrentContext();
+        RateLimitingPolicies.Policy policy = policies.resolve((String) ctx.get(FilterConstants.PROXY_KEY),
+            (String) ctx.get(FilterConstants.REQUEST_URI_KEY), getAuthorities());
+        String bucketId = policy.getName() + ":" + getId(ctx.getRequest());
+        RateLimitProbe probe = tryConsume(bucketId, policy);
+        ctx.addZuulResponseHeader(REMAINING_HEADER, Long.toString(probe.getRemainingTokens()));
+        if (probe.isConsumed()) {
             // the limit is not exceeded
             log.debug("API rate limit OK for {}", bucketId);
         } else {
             // limit is exceeded
             log.info("API rate limit exceeded for {}", bucketId);
-            apiLimitExceeded();
+            apiLimitExceeded(probe);
         }
         return null;
     }
 
-    private Supplier<BucketConfiguration> getConfigSupplier() {
-        return () -> {
-            JHipsterProperties.Gateway.RateLimiting rateLimitingProperties =
-                jHipsterProperties.getGateway().getRateLimiting();
+    private RateLimitProbe tryConsume(String bucketId, RateLimitingPolicies.Policy policy) {
+        if (localBuckets != null) {
+            return localBuckets.tryConsume(bucketId, policy.getConfiguration(), policy.getMinCapacity());
+        }
+        return RateLimitProbe.of(buckets.getProxy(bucketId, policy.getConfiguration())
+            .tryConsumeAndReturnRemaining(1));
+    }
 
-            return Bucket4j.configurationBuilder()
-                .addLimit(Bandwidth.simple(rateLimitingProperties.getLimit(),
-                    Duration.ofSeconds(rateLimitingProperties.getDurationInSeconds())))
-                .build();
-        };
+    /**
+     * Evict the idle per-node quotas, if the local buckets are enabled. Called by a scheduled task, so that
+     * requests never pay for the eviction.
+     */
+    public void evictIdleQuotas() {
+        if (localBuckets != null) {
+            localBuckets.evictIdleQuotas();
+        }
     }
 
     /**
      * Create a Zuul response error when the API limit is exceeded.
      */
-    private void apiLimitExceeded() {
+    private void apiLimitExceeded(RateLimitProbe probe) {
         RequestContext ctx = RequestContext.getCurrentContext();
         ctx.setResponseStatusCode(HttpStatus.TOO_MANY_REQUESTS.value());
+        // Rounded up, so that a client retrying after this delay finds a token
+        long retryAfterSeconds = Math.max(1, (probe.getNanosToWaitForRefill() + 999_999_999L) / 1_000_000_000L);
+        ctx.addZuulResponseHeader(RETRY_AFTER_HEADER, Long.toString(retryAfterSeconds));
         if (ctx.getResponseBody() == null) {
             ctx.setResponseBody("API rate limit exceeded");
             ctx.setSendZuulResponse(false);
         }
     }
 
+    private Collection<? extends GrantedAuthority> getAuthorities() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        return authentication == null ? Collections.emptyList() : authentication.getAuthorities();
+    }
+
     /**
      * The ID that will identify the limit: the user login or the user IP address.
      */
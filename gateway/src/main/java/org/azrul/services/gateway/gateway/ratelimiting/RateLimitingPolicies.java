@@ -0,0 +1,160 @@
+package org.azrul.services.gateway.gateway.ratelimiting;
+
+import org.azrul.services.gateway.config.ApplicationProperties;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.function.Supplier;
+
+import org.springframework.security.core.GrantedAuthority;
+
+import io.github.bucket4j.Bandwidth;
+import io.github.bucket4j.Bucket4j;
+import io.github.bucket4j.BucketConfiguration;
+import io.github.bucket4j.ConfigurationBuilder;
+import io.github.jhipster.config.JHipsterProperties;
+
+/**
+ * The rate limiting policies, indexed by Zuul route id.
+ * <p>
+ * The bucket configurations are built once at startup. Resolving the policy of a request is a map lookup on
+ * its route id, followed by a scan of the few policies declared for that route, so it does not depend on
+ * the total number of policies.
+ */
+public class RateLimitingPolicies {
+
+    public static final String DEFAULT_POLICY_NAME = "default";
+
+    private final Map<String, List<Policy>> policiesByRoute = new HashMap<>();
+
+    /**
+     * Policies declared without a route id, which apply to every route.
+     */
+    private final List<Policy> anyRoutePolicies = new ArrayList<>();
+
+    private final Policy defaultPolicy;
+
+    public RateLimitingPolicies(JHipsterProperties jHipsterProperties, ApplicationProperties applicationProperties) {
+        JHipsterProperties.Gateway.RateLimiting rateLimitingProperties =
+            jHipsterProperties.getGateway().getRateLimiting();
+        this.defaultPolicy = new Policy(DEFAULT_POLICY_NAME, null, null, Bucket4j.configurationBuilder()
+            .addLimit(Bandwidth.simple(rateLimitingProperties.getLimit(),
+                Duration.ofSeconds(rateLimitingProperties.getDurationInSeconds())))
+            .build(), rateLimitingProperties.getLimit());
+
+        for (ApplicationProperties.Gateway.RateLimiting.Policy properties :
+            applicationProperties.getGateway().getRateLimiting().getPolicies()) {
+            Policy policy = createPolicy(properties);
+            if (properties.getRouteId() == null) {
+                anyRoutePolicies.add(policy);
+            } else {
+                policiesByRoute.computeIfAbsent(properties.getRouteId(), routeId -> new ArrayList<>()).add(policy);
+            }
+        }
+    }
+
+    private static Policy createPolicy(ApplicationProperties.Gateway.RateLimiting.Policy properties) {
+        if (properties.getName() == null) {
+            throw new IllegalArgumentException("A rate limiting policy must have a name");
+        }
+        if (properties.getLimits().isEmpty()) {
+            throw new IllegalArgumentException("The rate limiting policy " + properties.getName() +
+                " must have at least one limit");
+        }
+        ConfigurationBuilder builder = Bucket4j.configurationBuilder();
+        long minCapacity = Long.MAX_VALUE;
+        for (ApplicationProperties.Gateway.RateLimiting.Limit limit : properties.getLimits()) {
+            builder.addLimit(Bandwidth.simple(limit.getCapacity(), Duration.ofSeconds(limit.getDurationInSeconds())));
+            minCapacity = Math.min(minCapacity, limit.getCapacity());
+        }
+        return new Policy(properties.getName(), properties.getPath(), properties.getRole(), builder.build(),
+            minCapacity);
+    }
+
+    /**
+     * Resolve the policy of a request: the first matching policy of its route, then the first matching
+     * policy declared without a route, then the default policy.
+     *
+     * @param routeId the Zuul route id, or null if the request is not routed
+     * @param path the path of the request within the route, or null
+     * @param authorities the authorities of the current user
+     */
+    public Policy resolve(String routeId, String path, Collection<? extends GrantedAuthority> authorities) {
+        if (routeId != null) {
+            Policy policy = firstMatch(policiesByRoute.get(routeId), path, authorities);
+            if (policy != null) {
+                return policy;
+            }
+        }
+        Policy policy = firstMatch(anyRoutePolicies, path, authorities);
+        return policy != null ? policy : defaultPolicy;
+    }
+
+    private static Policy firstMatch(List<Policy> policies, String path,
+        Collection<? extends GrantedAuthority> authorities) {
+        if (policies == null) {
+            return null;
+        }
+        for (Policy policy : policies) {
+            if (policy.matches(path, authorities)) {
+                return policy;
+            }
+        }
+        return null;
+    }
+
+    public Policy getDefaultPolicy() {
+        return defaultPolicy;
+    }
+
+    public static final class Policy {
+
+        private final String name;
+
+        private final String path;
+
+        private final String role;
+
+        private final Supplier<BucketConfiguration> configuration;
+
+        private final long minCapacity;
+
+        private Policy(String name, String path, String role, BucketConfiguration configuration, long minCapacity) {
+            this.name = name;
+            this.path = path;
+            this.role = role;
+            this.configuration = () -> configuration;
+            this.minCapacity = minCapacity;
+        }
+
+        private boolean matches(String requestPath, Collection<? extends GrantedAuthority> authorities) {
+            if (path != null && (requestPath == null || !requestPath.startsWith(path))) {
+                return false;
+            }
+            if (role == null) {
+                return true;
+            }
+            for (GrantedAuthority authority : authorities) {
+                if (role.equals(authority.getAuthority())) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public Supplier<BucketConfiguration> getConfiguration() {
+            return configuration;
+        }
+
+        /**
+         * The capacity of the smallest bandwidth, which is the most tokens that can be consumed at once.
+         */
+        public long getMinCapacity() {
+            return minCapacity;
+        }
+    }
+}
@@ -1,31 +1,59 @@
 package org.azrul.services.gateway.gateway.responserewriting;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import com.netflix.zuul.context.RequestContext;
 import org.apache.commons.io.IOUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.cloud.netflix.zuul.RoutesRefreshedEvent;
 import org.springframework.cloud.netflix.zuul.filters.ZuulProperties;
 import org.springframework.cloud.netflix.zuul.filters.post.SendResponseFilter;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.HttpStatus;
 import springfox.documentation.swagger2.web.Swagger2Controller;
 
+import javax.servlet.http.HttpServletRequest;
 import java.io.*;
 import java.nio.charset.StandardCharsets;
-import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.zip.GZIPInputStream;
 import java.util.zip.GZIPOutputStream;
 
 /**
  * Zuul filter to rewrite micro-services Swagger URL Base Path.
+ * <p>
+ * The docs are rewritten token by token while they are read, through the gzip streams when the response is
+ * gzipped, so that only the rewritten document is held in memory. The rewritten docs of each route can be
+ * cached, in which case the upstream body is not read again until the entry expires or the Zuul routes are
+ * refreshed.
  */
 public class SwaggerBasePathRewritingFilter extends SendResponseFilter {
 
+    private static final String BASE_PATH = "basePath";
+
     private final Logger log = LoggerFactory.getLogger(SwaggerBasePathRewritingFilter.class);
 
-    private ObjectMapper mapper = new ObjectMapper();
+    private final JsonFactory jsonFactory = new JsonFactory();
+
+    private final Map<String, CachedDocs> cache = new ConcurrentHashMap<>();
+
+    private final long timeToLiveMillis;
 
     public SwaggerBasePathRewritingFilter() {
+        this(0);
+    }
+
+    /**
+     * @param timeToLiveMillis the time the rewritten docs of a route are cached, 0 to disable the cache
+     */
+    public SwaggerBasePathRewritingFilter(long timeToLiveMillis) {
         super(new ZuulProperties());
+        this.timeToLiveMillis = timeToLiveMillis;
     }
 
     @Override
@@ -52,40 +80,89 @@ public class SwaggerBasePathRewritingFilter extends SendResponseFilter {
 
         context.getResponse().setCharacterEncoding("UTF-8");
 
-        String rewrittenResponse = rewriteBasePath(context);
-        if (context.getResponseGZipped()) {
+        HttpServletRequest request = context.getRequest();
+        String cacheKey = request.getQueryString() == null ? request.getRequestURI() :
+            request.getRequestURI() + "?" + request.getQueryString();
+        boolean gzipped = context.getResponseGZipped();
+        boolean cacheable = timeToLiveMillis > 0 && context.getResponseStatusCode() == HttpStatus.OK.value();
+
+        byte[] rewrittenResponse = cacheable ? getCachedDocs(cacheKey, gzipped) : null;
+        if (rewrittenResponse != null) {
+            log.debug("Swagger-docs: using cached docs for {}", cacheKey);
+            IOUtils.closeQuietly(context.getResponseDataStream());
+        } else {
+            String basePath = request.getRequestURI().replace(Swagger2Controller.DEFAULT_URL, "");
             try {
-                context.setResponseDataStream(new ByteArrayInputStream(gzipData(rewrittenResponse)));
+                rewrittenResponse = rewriteBasePath(context.getResponseDataStream(), gzipped, basePath);
             } catch (IOException e) {
                 log.error("Swagger-docs filter error", e);
+                return null;
             }
+            log.debug("Swagger-docs: rewritten Base URL with correct micro-service route: {}", basePath);
+            if (cacheable) {
+                cache.put(cacheKey, new CachedDocs(rewrittenResponse, gzipped,
+                    System.currentTimeMillis() + timeToLiveMillis));
+            }
+        }
+
+        if (gzipped) {
+            context.setResponseDataStream(new ByteArrayInputStream(rewrittenResponse));
         } else {
-            context.setResponseBody(rewrittenResponse);
+            context.setResponseBody(new String(rewrittenResponse, StandardCharsets.UTF_8));
         }
         return null;
     }
 
-    @SuppressWarnings("unchecked")
-    private String rewriteBasePath(RequestContext context) {
-        InputStream responseDataStream = context.getResponseDataStream();
-        String requestUri = RequestContext.getCurrentContext().getRequest().getRequestURI();
-        try {
-            if (context.getResponseGZipped()) {
-                responseDataStream = new GZIPInputStream(context.getResponseDataStream());
-            }
-            String response = IOUtils.toString(responseDataStream, StandardCharsets.UTF_8);
-            if (response != null) {
-                LinkedHashMap<String, Object> map = this.mapper.readValue(response, LinkedHashMap.class);
-
-                String basePath = requestUri.replace(Swagger2Controller.DEFAULT_URL, "");
-                map.put("basePath", basePath);
-                log.debug("Swagger-docs: rewritten Base URL with correct micro-service route: {}", basePath);
-                return mapper.writeValueAsString(map);
+    /**
+     * Clear the cached docs, as the routes and the micro-services behind them may have changed.
+     */
+    @EventListener(RoutesRefreshedEvent.class)
+    public void clearCache() {
+        cache.clear();
+    }
+
+    private byte[] getCachedDocs(String cacheKey, boolean gzipped) {
+        CachedDocs cachedDocs = cache.get(cacheKey);
+        if (cachedDocs == null || cachedDocs.gzipped != gzipped) {
+            return null;
+        }
+        if (System.currentTimeMillis() >= cachedDocs.expiresAt) {
+            cache.remove(cacheKey, cachedDocs);
+            return null;
+        }
+        return cachedDocs.content;
+    }
+
+    /**
+     * Copy the docs token by token, replacing the root "basePath" field, or adding it if it is missing.
+     */
+    private byte[] rewriteBasePath(InputStream responseDataStream, boolean gzipped, String basePath)
+        throws IOException {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        try (InputStream in = gzipped ? new GZIPInputStream(responseDataStream) : responseDataStream;
+            OutputStream out = gzipped ? new GZIPOutputStream(bos) : bos;
+            JsonParser parser = jsonFactory.createParser(in);
+            JsonGenerator generator = jsonFactory.createGenerator(out, JsonEncoding.UTF8)) {
+
+            boolean basePathWritten = false;
+            JsonToken token;
+            while ((token = parser.nextToken()) != null) {
+                if (token == JsonToken.FIELD_NAME && parser.getParsingContext().getParent().inRoot() &&
+                    BASE_PATH.equals(parser.getCurrentName())) {
+                    generator.writeStringField(BASE_PATH, basePath);
+                    parser.nextToken();
+                    parser.skipChildren();
+                    basePathWritten = true;
+                    continue;
+                }
+                if (token == JsonToken.END_OBJECT && parser.getParsingContext().inRoot() && !basePathWritten) {
+                    generator.writeStringField(BASE_PATH, basePath);
+                    basePathWritten = true;
+                }
+                generator.copyCurrentEvent(parser);
             }
-        } catch (IOException e) {
-            log.error("Swagger-docs filter error", e);
         }
-        return null;
+        return bos.toByteArray();
     }
 
     public static byte[] gzipData(String content) throws IOException {
@@ -96,4 +173,19 @@ public class SwaggerBasePathRewritingFilter extends SendResponseFilter {
         gzip.close();
         return bos.toByteArray();
     }
+
+    private static final class CachedDocs {
+
+        private final byte[] content;
+
+        private final boolean gzipped;
+
+        private final long expiresAt;
+
+        private CachedDocs(byte[] content, boolean gzipped, long expiresAt) {
+            this.content = content;
+            this.gzipped = gzipped;
+            this.expiresAt = expiresAt;
+        }
+    }
 }
@@ -0,0 +1,86 @@
+package org.azrul.services.gateway.gateway.accesscontrol;
+
+import com.netflix.zuul.context.RequestContext;
+import io.github.jhipster.config.JHipsterProperties;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.cloud.netflix.zuul.filters.Route;
+import org.springframework.cloud.netflix.zuul.filters.RouteLocator;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Tests AccessControlFilter class.
+ */
+public class AccessControlFilterTest {
+
+    private RouteLocator routeLocator;
+
+    private JHipsterProperties jHipsterProperties;
+
+    private AccessControlFilter filter;
+
+    @Before
+    public void setup() {
+        routeLocator = mock(RouteLocator.class);
+        when(routeLocator.getRoutes()).thenReturn(Arrays.asList(
+            new Route("banking", "/**", "banking", "/banking", false, null),
+            new Route("bankingadmin", "/**", "bankingadmin", "/banking/admin", false, null),
+            new Route("app1", "/**", "app1", "/app1", false, null)));
+        jHipsterProperties = new JHipsterProperties();
+        jHipsterProperties.getGateway().setAuthorizedMicroservicesEndpoints(
+            Collections.singletonMap("banking", Arrays.asList("/api", "/v2/api-docs")));
+        filter = new AccessControlFilter(routeLocator, jHipsterProperties);
+    }
+
+    @Test
+    public void shouldNotFilter_on_authorized_endpoint() {
+        assertFalse(shouldFilter("/banking/api/transactions"));
+        assertFalse(shouldFilter("/banking/v2/api-docs"));
+    }
+
+    @Test
+    public void shouldFilter_on_unauthorized_endpoint() {
+        assertTrue(shouldFilter("/banking/management/info"));
+    }
+
+    @Test
+    public void shouldFilter_on_first_matching_route() {
+        // "/banking/**" is declared before "/banking/admin/**", so its access control policy applies
+        assertTrue(shouldFilter("/banking/admin/management/info"));
+    }
+
+    @Test
+    public void shouldNotFilter_on_route_without_policy() {
+        assertFalse(shouldFilter("/app1/management/info"));
+    }
+
+    @Test
+    public void shouldFilter_on_unknown_route() {
+        assertTrue(shouldFilter("/unknown/api/transactions"));
+        assertTrue(shouldFilter("/bank"));
+    }
+
+    @Test
+    public void shouldFilter_with_refreshed_routes() {
+        assertFalse(shouldFilter("/app1/api"));
+
+        when(routeLocator.getRoutes()).thenReturn(Collections.singletonList(
+            new Route("banking", "/**", "banking", "/banking", false, null)));
+        filter.refreshRoutes();
+
+        assertTrue(shouldFilter("/app1/api"));
+        assertFalse(shouldFilter("/banking/api"));
+    }
+
+    private boolean shouldFilter(String requestUri) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", requestUri);
+        RequestContext.getCurrentContext().setRequest(request);
+        return filter.shouldFilter();
+    }
+}
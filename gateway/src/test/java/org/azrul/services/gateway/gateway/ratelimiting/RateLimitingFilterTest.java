@@ -0,0 +1,269 @@
+package org.azrul.services.gateway.gateway.ratelimiting;
+
+import com.netflix.util.Pair;
+import com.netflix.zuul.context.RequestContext;
+import io.github.bucket4j.Bandwidth;
+import io.github.bucket4j.Bucket;
+import io.github.bucket4j.Bucket4j;
+import io.github.bucket4j.BucketConfiguration;
+import io.github.bucket4j.local.LocalBucketBuilder;
+import io.github.bucket4j.grid.ProxyManager;
+import io.github.jhipster.config.JHipsterProperties;
+import org.azrul.services.gateway.config.ApplicationProperties;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.cloud.netflix.zuul.filters.support.FilterConstants;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests RateLimitingFilter class, with several gateway instances sharing the same clustered buckets.
+ */
+public class RateLimitingFilterTest {
+
+    private static final int INSTANCES = 4;
+
+    private static final int THREADS_PER_INSTANCE = 4;
+
+    private static final long BATCH_SIZE = 20;
+
+    private final AtomicInteger clusteredCalls = new AtomicInteger();
+
+    private Bucket clusteredBucket;
+
+    private ExecutorService executor;
+
+    @Before
+    public void setup() {
+        executor = Executors.newFixedThreadPool(INSTANCES * THREADS_PER_INSTANCE);
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    public void run_keeps_global_limit_across_instances() throws Exception {
+        long limit = 1000;
+        List<RateLimitingFilter> filters = createFilters(limit);
+
+        int allowed = runRequests(filters, 500);
+
+        assertTrue("allowed " + allowed + " requests for a limit of " + limit, allowed <= limit);
+        // At most one batch per thread may be reserved on an instance without being used
+        assertTrue(allowed >= limit - INSTANCES * THREADS_PER_INSTANCE * BATCH_SIZE);
+    }
+
+    @Test
+    public void run_takes_tokens_from_clustered_buckets_in_batches() throws Exception {
+        List<RateLimitingFilter> filters = createFilters(100000);
+
+        int allowed = runRequests(filters, 200);
+
+        assertEquals(INSTANCES * THREADS_PER_INSTANCE * 200, allowed);
+        assertTrue("called the clustered buckets " + clusteredCalls.get() + " times",
+            clusteredCalls.get() <= allowed / BATCH_SIZE + INSTANCES * THREADS_PER_INSTANCE);
+    }
+
+    @Test
+    public void evictIdleQuotas_gives_back_the_tokens_of_quotas_in_use() throws Exception {
+        long limit = 100000;
+        List<RateLimitingFilter> filters = createFilters(limit, 0);
+        ExecutorService evictor = Executors.newSingleThreadExecutor();
+        int allowed;
+        try {
+            evictor.submit(() -> {
+                while (!Thread.currentThread().isInterrupted()) {
+                    filters.forEach(RateLimitingFilter::evictIdleQuotas);
+                }
+            });
+            allowed = runRequests(filters, 500);
+        } finally {
+            evictor.shutdownNow();
+            evictor.awaitTermination(10, TimeUnit.SECONDS);
+        }
+        filters.forEach(RateLimitingFilter::evictIdleQuotas);
+
+        // No token is lost by requests still holding an evicted quota, the refill adds a few
+        long available = clusteredBucket.getAvailableTokens();
+        assertTrue("allowed " + allowed + " requests with " + available + " tokens left",
+            allowed + available >= limit && allowed + available <= limit + 100);
+    }
+
+    @Test
+    public void run_applies_policy_of_route_and_path() {
+        RateLimitingFilter filter = createPolicyFilter();
+
+        assertEquals("1", runRequest(filter, "banking", "/api/transactions", null));
+        assertEquals("0", runRequest(filter, "banking", "/api/transactions", null));
+        assertEquals("API rate limit exceeded", runRequest(filter, "banking", "/api/transactions", null));
+        assertEquals("0", getHeader(RateLimitingFilter.REMAINING_HEADER));
+        long retryAfter = Long.parseLong(getHeader(RateLimitingFilter.RETRY_AFTER_HEADER));
+        assertTrue(retryAfter >= 1 && retryAfter <= 30);
+
+        // Other paths and routes use the default limit
+        assertEquals("99", runRequest(filter, "banking", "/api/customers", null));
+        assertEquals("98", runRequest(filter, "app1", "/api/transactions", null));
+        assertNull(getHeader(RateLimitingFilter.RETRY_AFTER_HEADER));
+    }
+
+    @Test
+    public void run_applies_first_matching_role_policy() {
+        RateLimitingFilter filter = createPolicyFilter();
+
+        assertEquals("999", runRequest(filter, "banking", "/api/transactions", "ROLE_PREMIUM"));
+        assertEquals("998", runRequest(filter, "banking", "/api/accounts", "ROLE_PREMIUM"));
+        assertEquals("1", runRequest(filter, "banking", "/api/transactions", "ROLE_USER"));
+    }
+
+    @SuppressWarnings("unchecked")
+    private RateLimitingFilter createPolicyFilter() {
+        JHipsterProperties jHipsterProperties = new JHipsterProperties();
+        jHipsterProperties.getGateway().getRateLimiting().setLimit(100);
+        jHipsterProperties.getGateway().getRateLimiting().setDurationInSeconds(3600);
+        ApplicationProperties applicationProperties = new ApplicationProperties();
+        List<ApplicationProperties.Gateway.RateLimiting.Policy> policies =
+            applicationProperties.getGateway().getRateLimiting().getPolicies();
+        policies.add(createPolicy("premium", "banking", null, "ROLE_PREMIUM", 1000));
+        policies.add(createPolicy("banking-transactions", "banking", "/api/transactions", null, 2));
+
+        Map<String, Bucket> clusteredBuckets = new ConcurrentHashMap<>();
+        ProxyManager<String> buckets = mock(ProxyManager.class);
+        when(buckets.getProxy(anyString(), any())).thenAnswer(invocation ->
+            clusteredBuckets.computeIfAbsent(invocation.getArgument(0), key -> {
+                BucketConfiguration configuration =
+                    ((Supplier<BucketConfiguration>) invocation.getArgument(1)).get();
+                LocalBucketBuilder builder = Bucket4j.builder();
+                for (Bandwidth bandwidth : configuration.getBandwidths()) {
+                    builder.addLimit(bandwidth);
+                }
+                return builder.build();
+            }));
+        return new RateLimitingFilter(jHipsterProperties, applicationProperties, buckets);
+    }
+
+    private ApplicationProperties.Gateway.RateLimiting.Policy createPolicy(String name, String routeId, String path,
+        String role, long burst) {
+        ApplicationProperties.Gateway.RateLimiting.Policy policy = new ApplicationProperties.Gateway.RateLimiting.Policy();
+        policy.setName(name);
+        policy.setRouteId(routeId);
+        policy.setPath(path);
+        policy.setRole(role);
+        ApplicationProperties.Gateway.RateLimiting.Limit burstLimit = new ApplicationProperties.Gateway.RateLimiting.Limit();
+        burstLimit.setCapacity(burst);
+        burstLimit.setDurationInSeconds(60);
+        ApplicationProperties.Gateway.RateLimiting.Limit sustainedLimit = new ApplicationProperties.Gateway.RateLimiting.Limit();
+        sustainedLimit.setCapacity(burst * 10);
+        sustainedLimit.setDurationInSeconds(3600);
+        policy.getLimits().add(burstLimit);
+        policy.getLimits().add(sustainedLimit);
+        return policy;
+    }
+
+    /**
+     * Run the filter on a routed request, and return the remaining tokens or the error body.
+     */
+    private String runRequest(RateLimitingFilter filter, String routeId, String path, String role) {
+        RequestContext.getCurrentContext().unset();
+        RequestContext context = RequestContext.getCurrentContext();
+        context.setRequest(new MockHttpServletRequest("GET", "/" + routeId + path));
+        context.set(FilterConstants.PROXY_KEY, routeId);
+        context.set(FilterConstants.REQUEST_URI_KEY, path);
+        if (role == null) {
+            SecurityContextHolder.clearContext();
+        } else {
+            SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken("user",
+                "N/A", Collections.singletonList(new SimpleGrantedAuthority(role))));
+        }
+        filter.run();
+        if (context.getResponseStatusCode() == HttpStatus.TOO_MANY_REQUESTS.value()) {
+            return context.getResponseBody();
+        }
+        return getHeader(RateLimitingFilter.REMAINING_HEADER);
+    }
+
+    private String getHeader(String name) {
+        for (Pair<String, String> header : RequestContext.getCurrentContext().getZuulResponseHeaders()) {
+            if (header.first().equals(name)) {
+                return header.second();
+            }
+        }
+        return null;
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<RateLimitingFilter> createFilters(long limit) {
+        return createFilters(limit, 60);
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<RateLimitingFilter> createFilters(long limit, long idleTimeoutSeconds) {
+        JHipsterProperties jHipsterProperties = new JHipsterProperties();
+        jHipsterProperties.getGateway().getRateLimiting().setLimit(limit);
+        jHipsterProperties.getGateway().getRateLimiting().setDurationInSeconds(3600);
+        ApplicationProperties applicationProperties = new ApplicationProperties();
+        applicationProperties.getGateway().getRateLimiting().getLocalBuckets().setEnabled(true);
+        applicationProperties.getGateway().getRateLimiting().getLocalBuckets().setBatchSize(BATCH_SIZE);
+        applicationProperties.getGateway().getRateLimiting().getLocalBuckets().setIdleTimeoutSeconds(idleTimeoutSeconds);
+
+        // Stands for the Hazelcast state shared by all gateway instances
+        clusteredBucket = Bucket4j.builder().addLimit(Bandwidth.simple(limit, Duration.ofHours(1))).build();
+        ProxyManager<String> buckets = mock(ProxyManager.class);
+        Bucket clusteredBucket = this.clusteredBucket;
+        when(buckets.getProxy(anyString(), any())).thenAnswer(invocation -> {
+            clusteredCalls.incrementAndGet();
+            return clusteredBucket;
+        });
+
+        List<RateLimitingFilter> filters = new ArrayList<>();
+        for (int i = 0; i < INSTANCES; i++) {
+            filters.add(new RateLimitingFilter(jHipsterProperties, applicationProperties, buckets));
+        }
+        return filters;
+    }
+
+    private int runRequests(List<RateLimitingFilter> filters, int requestsPerThread) throws Exception {
+        AtomicInteger allowed = new AtomicInteger();
+        List<Future<?>> futures = new ArrayList<>();
+        for (RateLimitingFilter filter : filters) {
+            for (int i = 0; i < THREADS_PER_INSTANCE; i++) {
+                futures.add(executor.submit(() -> {
+                    for (int j = 0; j < requestsPerThread; j++) {
+                        RequestContext.getCurrentContext().unset();
+                        RequestContext context = RequestContext.getCurrentContext();
+                        context.setRequest(new MockHttpServletRequest("GET", "/banking/api/transactions"));
+                        filter.run();
+                        if (context.getResponseStatusCode() != HttpStatus.TOO_MANY_REQUESTS.value()) {
+                            allowed.incrementAndGet();
+                        }
+                    }
+                }));
+            }
+        }
+        for (Future<?> future : futures) {
+            future.get(30, TimeUnit.SECONDS);
+        }
+        return allowed.get();
+    }
+}
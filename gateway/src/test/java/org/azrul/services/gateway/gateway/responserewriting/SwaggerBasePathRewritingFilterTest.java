@@ -92,4 +92,43 @@ public class SwaggerBasePathRewritingFilterTest {
         String responseBody = IOUtils.toString(responseDataStream, StandardCharsets.UTF_8);
         assertEquals("{\"basePath\":\"/service1\"}", responseBody);
     }
+
+    @Test
+    public void run_rewrites_only_root_base_path() throws Exception {
+        String docs = "{\"swagger\":\"2.0\",\"info\":{\"basePath\":\"/info\"},\"basePath\":\"/\",\"paths\":{}}";
+
+        assertEquals("{\"swagger\":\"2.0\",\"info\":{\"basePath\":\"/info\"},\"basePath\":\"/service1\",\"paths\":{}}",
+            runFilter(filter, docs));
+    }
+
+    @Test
+    public void run_adds_missing_base_path() throws Exception {
+        assertEquals("{\"swagger\":\"2.0\",\"basePath\":\"/service1\"}", runFilter(filter, "{\"swagger\":\"2.0\"}"));
+    }
+
+    @Test
+    public void run_uses_cached_docs_until_routes_are_refreshed() throws Exception {
+        SwaggerBasePathRewritingFilter cachingFilter = new SwaggerBasePathRewritingFilter(60000);
+
+        assertEquals("{\"basePath\":\"/service1\",\"version\":1}", runFilter(cachingFilter, "{\"basePath\":\"/\",\"version\":1}"));
+        assertEquals("{\"basePath\":\"/service1\",\"version\":1}", runFilter(cachingFilter, "{\"basePath\":\"/\",\"version\":2}"));
+
+        cachingFilter.clearCache();
+
+        assertEquals("{\"basePath\":\"/service1\",\"version\":2}", runFilter(cachingFilter, "{\"basePath\":\"/\",\"version\":2}"));
+    }
+
+    private String runFilter(SwaggerBasePathRewritingFilter rewritingFilter, String docs) {
+        RequestContext.getCurrentContext().unset();
+        RequestContext context = RequestContext.getCurrentContext();
+        context.setRequest(new MockHttpServletRequest("GET", "/service1" + DEFAULT_URL));
+        context.setResponse(new MockHttpServletResponse());
+        context.setResponseStatusCode(200);
+        context.setResponseGZipped(false);
+        context.setResponseDataStream(IOUtils.toInputStream(docs, StandardCharsets.UTF_8));
+
+        rewritingFilter.run();
+
+        return context.getResponseBody();
+    }
 }